@@ -26,8 +26,10 @@ module org.apache.santuario.xmlsec {
     requires transitive jakarta.xml.bind;
     requires java.base;
     requires java.management;
+    requires static java.net.http;
     requires java.xml;
     requires java.xml.crypto;
+    requires static jdk.jfr;
     requires org.apache.commons.codec;
 
     exports org.apache.jcp.xml.dsig.internal.dom;
@@ -44,12 +46,14 @@ module org.apache.santuario.xmlsec {
     exports org.apache.xml.security.encryption.keys.content.derivedKey;
     exports org.apache.xml.security.encryption.params;
     exports org.apache.xml.security.exceptions;
+    exports org.apache.xml.security.jfr;
     exports org.apache.xml.security.keys;
     exports org.apache.xml.security.keys.content;
     exports org.apache.xml.security.keys.content.keyvalues;
     exports org.apache.xml.security.keys.content.x509;
     exports org.apache.xml.security.keys.keyresolver.implementations;
     exports org.apache.xml.security.keys.storage.implementations;
+    exports org.apache.xml.security.metrics;
     exports org.apache.xml.security.signature;
     exports org.apache.xml.security.stax.ext;
     exports org.apache.xml.security.transforms;
@@ -19,6 +19,7 @@
 
 package org.apache.jcp.xml.dsig.internal.dom;
 
+import java.io.ByteArrayOutputStream;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.Key;
@@ -26,6 +27,7 @@ import java.security.SignatureException;
 import java.security.spec.AlgorithmParameterSpec;
 
 import javax.xml.crypto.MarshalException;
+import javax.xml.crypto.XMLCryptoContext;
 import javax.xml.crypto.dom.DOMCryptoContext;
 import javax.xml.crypto.dsig.SignatureMethod;
 import javax.xml.crypto.dsig.SignedInfo;
@@ -67,10 +69,52 @@ abstract class AbstractDOMSignatureMethod extends DOMStructure
      *    as the passed in signature is improperly encoded
      * @throws XMLSignatureException if an unexpected error occurs
      */
+    boolean verify(Key key, SignedInfo si, byte[] sig,
+                   XMLValidateContext context)
+        throws InvalidKeyException, SignatureException, XMLSignatureException
+    {
+        return verify(key, si, sig, null, context);
+    }
+
+    /**
+     * Verifies the passed-in signature with the specified key, like
+     * {@link #verify(Key, SignedInfo, byte[], XMLValidateContext)}, over
+     * SignedInfo bytes which the caller has already canonicalized.
+     *
+     * @param key the verification key
+     * @param si the SignedInfo
+     * @param sig the signature bytes to be verified
+     * @param canonicalizedSignedInfo the canonicalized SignedInfo, or
+     *    <code>null</code> to canonicalize <code>si</code>
+     * @param context the XMLValidateContext
+     * @return <code>true</code> if the signature verified successfully,
+     *    <code>false</code> if not
+     * @throws InvalidKeyException if the key is improperly encoded, of
+     *    the wrong type, or parameters are missing, etc
+     * @throws SignatureException if an unexpected error occurs, such
+     *    as the passed in signature is improperly encoded
+     * @throws XMLSignatureException if an unexpected error occurs
+     */
     abstract boolean verify(Key key, SignedInfo si, byte[] sig,
+                            byte[] canonicalizedSignedInfo,
                             XMLValidateContext context)
         throws InvalidKeyException, SignatureException, XMLSignatureException;
 
+    /**
+     * Writes the canonicalized SignedInfo to the stream, canonicalizing it
+     * unless the bytes are passed in.
+     */
+    static void canonicalize(SignedInfo si, byte[] canonicalizedSignedInfo,
+                             XMLCryptoContext context, ByteArrayOutputStream bos)
+        throws XMLSignatureException
+    {
+        if (canonicalizedSignedInfo == null) {
+            ((DOMSignedInfo)si).canonicalize(context, bos);
+        } else {
+            bos.write(canonicalizedSignedInfo, 0, canonicalizedSignedInfo.length);
+        }
+    }
+
     /**
      * Signs the bytes with the specified key, using the underlying
      * Signature or Mac algorithm.
@@ -155,7 +155,7 @@ public abstract class DOMHMACSignatureMethod extends AbstractDOMSignatureMethod
 
     @Override
     boolean verify(Key key, SignedInfo si, byte[] sig,
-                   XMLValidateContext context)
+                   byte[] canonicalizedSignedInfo, XMLValidateContext context)
         throws InvalidKeyException, SignatureException, XMLSignatureException
     {
         if (key == null || si == null || sig == null) {
@@ -179,7 +179,7 @@ public abstract class DOMHMACSignatureMethod extends AbstractDOMSignatureMethod
                 ("HMACOutputLength must not be less than " + getDigestLength());
         }
         hmac.init(key);
-        ((DOMSignedInfo)si).canonicalize(context, new MacOutputStream(hmac));
+        canonicalize(si, canonicalizedSignedInfo, context, new MacOutputStream(hmac));
         byte[] result = hmac.doFinal();
 
         return MessageDigest.isEqual(sig, result);
@@ -106,6 +106,8 @@ public final class DOMKeyInfo extends DOMStructure implements KeyInfo {
             id = null;
         }
 
+        boolean lazy = Utils.lazyUnmarshal(context);
+
         // get all children nodes
         List<XMLStructure> content = new ArrayList<>();
         Node firstChild = kiElem.getFirstChild();
@@ -118,7 +120,7 @@ public final class DOMKeyInfo extends DOMStructure implements KeyInfo {
                 String localName = childElem.getLocalName();
                 String namespace = childElem.getNamespaceURI();
                 if ("X509Data".equals(localName) && XMLSignature.XMLNS.equals(namespace)) {
-                    content.add(new DOMX509Data(childElem));
+                    content.add(new DOMX509Data(childElem, lazy));
                 } else if ("KeyName".equals(localName) && XMLSignature.XMLNS.equals(namespace)) {
                     content.add(new DOMKeyName(childElem));
                 } else if ("KeyValue".equals(localName) && XMLSignature.XMLNS.equals(namespace)) {
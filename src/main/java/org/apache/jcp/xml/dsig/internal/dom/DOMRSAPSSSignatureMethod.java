@@ -222,7 +222,7 @@ public abstract class DOMRSAPSSSignatureMethod extends AbstractDOMSignatureMetho
 
     @Override
     boolean verify(Key key, SignedInfo si, byte[] sig,
-                   XMLValidateContext context)
+                   byte[] canonicalizedSignedInfo, XMLValidateContext context)
         throws InvalidKeyException, SignatureException, XMLSignatureException
     {
         if (key == null || si == null || sig == null) {
@@ -254,7 +254,7 @@ public abstract class DOMRSAPSSSignatureMethod extends AbstractDOMSignatureMetho
         LOG.log(Level.DEBUG, "Signature Bytes length: {0}", sig.length);
 
         try (SignerOutputStream outputStream = new SignerOutputStream(signature)) {
-            ((DOMSignedInfo)si).canonicalize(context, outputStream);
+            canonicalize(si, canonicalizedSignedInfo, context, outputStream);
 
             return signature.verify(sig);
         } catch (IOException ioe) {
@@ -69,8 +69,11 @@ import javax.xml.crypto.dsig.XMLValidateContext;
 
 import org.apache.jcp.xml.dsig.internal.DigesterOutputStream;
 import org.apache.xml.security.algorithms.MessageDigestAlgorithm;
+import org.apache.xml.security.signature.ReferenceDigestCache;
+import org.apache.xml.security.signature.XMLSignatureFileInput;
 import org.apache.xml.security.signature.XMLSignatureInput;
 import org.apache.xml.security.signature.XMLSignatureStreamInput;
+import org.apache.xml.security.utils.JavaUtils;
 import org.apache.xml.security.utils.UnsyncBufferedOutputStream;
 import org.apache.xml.security.utils.XMLUtils;
 import org.w3c.dom.Attr;
@@ -458,6 +461,59 @@ public final class DOMReference extends DOMStructure
     private byte[] transform(Data dereferencedData,
                              XMLCryptoContext context)
         throws XMLSignatureException
+    {
+        Object digestCache = context.getProperty(DOMXMLSignature.DIGEST_CACHE);
+        if (!(digestCache instanceof ReferenceDigestCache) || !(dereferencedData instanceof ApacheData)
+            || Boolean.TRUE.equals(context.getProperty("javax.xml.crypto.dsig.cacheReference"))) {
+            return transformAndDigest(dereferencedData, context);
+        }
+        // When signing with the C14N 1.1 property the Transforms may still be changed
+        if (context instanceof XMLSignContext && (useC14N11 ||
+            Boolean.TRUE.equals(context.getProperty("org.apache.xml.security.useC14N11")))) {
+            return transformAndDigest(dereferencedData, context);
+        }
+        XMLSignatureInput input = ((ApacheData)dereferencedData).getXMLSignatureInput();
+        if (!(input instanceof XMLSignatureFileInput)) {
+            return transformAndDigest(dereferencedData, context);
+        }
+
+        List<String> transformURIs = new ArrayList<>(transforms.size());
+        for (Transform transform : transforms) {
+            if (transform.getParameterSpec() != null) {
+                // Parameters can't be represented in the cache key
+                return transformAndDigest(dereferencedData, context);
+            }
+            transformURIs.add(transform.getAlgorithm());
+        }
+
+        ReferenceDigestCache referenceDigestCache = (ReferenceDigestCache)digestCache;
+        XMLSignatureFileInput fileInput = (XMLSignatureFileInput)input;
+        String fileURI = fileInput.getFile().toUri().toString();
+        String validator;
+        try {
+            validator = ReferenceDigestCache.getValidator(fileInput.getFile());
+        } catch (IOException e) {
+            throw new XMLSignatureException(e);
+        }
+
+        byte[] cachedDigestValue =
+            referenceDigestCache.get(fileURI, digestMethod.getAlgorithm(), transformURIs, validator);
+        if (cachedDigestValue != null) {
+            try {
+                fileInput.close();
+            } catch (IOException e) {
+                throw new XMLSignatureException(e);
+            }
+            return cachedDigestValue;
+        }
+        byte[] value = transformAndDigest(dereferencedData, context);
+        referenceDigestCache.put(fileURI, digestMethod.getAlgorithm(), transformURIs, validator, value);
+        return value;
+    }
+
+    private byte[] transformAndDigest(Data dereferencedData,
+                                      XMLCryptoContext context)
+        throws XMLSignatureException
     {
         if (md == null) {
             try {
@@ -471,6 +527,18 @@ public final class DOMReference extends DOMStructure
         DigesterOutputStream dos;
         Boolean cache = (Boolean)
             context.getProperty("javax.xml.crypto.dsig.cacheReference");
+        if (transforms.isEmpty() && (cache == null || !cache) && dereferencedData instanceof ApacheData) {
+            XMLSignatureInput input = ((ApacheData)dereferencedData).getXMLSignatureInput();
+            if (input instanceof XMLSignatureFileInput) {
+                // Nothing to transform, so digest the file directly instead of streaming it
+                try (XMLSignatureFileInput fileInput = (XMLSignatureFileInput)input) {
+                    JavaUtils.updateDigest(md, fileInput.getFile());
+                    return md.digest();
+                } catch (IOException e) {
+                    throw new XMLSignatureException(e);
+                }
+            }
+        }
         if (cache != null && cache) {
             this.derefData = copyDerefData(dereferencedData);
             dos = new DigesterOutputStream(md, true);
@@ -299,7 +299,7 @@ public abstract class DOMSignatureMethod extends AbstractDOMSignatureMethod {
 
     @Override
     boolean verify(Key key, SignedInfo si, byte[] sig,
-                   XMLValidateContext context)
+                   byte[] canonicalizedSignedInfo, XMLValidateContext context)
         throws InvalidKeyException, SignatureException, XMLSignatureException
     {
         if (key == null || si == null || sig == null) {
@@ -325,7 +325,7 @@ public abstract class DOMSignatureMethod extends AbstractDOMSignatureMethod {
 
         byte[] s;
         try (SignerOutputStream outputStream = new SignerOutputStream(signature)) {
-            ((DOMSignedInfo)si).canonicalize(context, outputStream);
+            canonicalize(si, canonicalizedSignedInfo, context, outputStream);
             // Do any necessary format conversions
             s = preVerifyFormat(key, sig);
         } catch (IOException ioe) {
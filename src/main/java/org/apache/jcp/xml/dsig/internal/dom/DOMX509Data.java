@@ -29,6 +29,7 @@ import java.security.cert.CertificateException;
 import java.security.cert.CertificateFactory;
 import java.security.cert.X509CRL;
 import java.security.cert.X509Certificate;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -101,6 +102,18 @@ public final class DOMX509Data extends DOMStructure implements X509Data {
      * @throws MarshalException if there is an error while unmarshalling
      */
     public DOMX509Data(Element xdElem) throws MarshalException {
+        this(xdElem, false);
+    }
+
+    /**
+     * Creates a <code>DOMX509Data</code> from an element.
+     *
+     * @param xdElem an X509Data element
+     * @param lazy if true, X509Certificate and X509CRL elements are only decoded
+     *    when the corresponding entry of the content list is first accessed
+     * @throws MarshalException if there is an error while unmarshalling
+     */
+    public DOMX509Data(Element xdElem, boolean lazy) throws MarshalException {
         // get all children nodes
         List<Object> newContent = new ArrayList<>();
         Node firstChild = xdElem.getFirstChild();
@@ -110,7 +123,7 @@ public final class DOMX509Data extends DOMStructure implements X509Data {
                 String localName = childElem.getLocalName();
                 String namespace = childElem.getNamespaceURI();
                 if ("X509Certificate".equals(localName) && XMLSignature.XMLNS.equals(namespace)) {
-                    newContent.add(unmarshalX509Certificate(childElem));
+                    newContent.add(lazy ? childElem : unmarshalX509Certificate(childElem));
                 } else if ("X509IssuerSerial".equals(localName) && XMLSignature.XMLNS.equals(namespace)) {
                     newContent.add(new DOMX509IssuerSerial(childElem));
                 } else if ("X509SubjectName".equals(localName) && XMLSignature.XMLNS.equals(namespace)) {
@@ -119,14 +132,18 @@ public final class DOMX509Data extends DOMStructure implements X509Data {
                     String content = XMLUtils.getFullTextChildrenFromNode(childElem);
                     newContent.add(XMLUtils.decode(content));
                 } else if ("X509CRL".equals(localName) && XMLSignature.XMLNS.equals(namespace)) {
-                    newContent.add(unmarshalX509CRL(childElem));
+                    newContent.add(lazy ? childElem : unmarshalX509CRL(childElem));
                 } else {
                     newContent.add(new javax.xml.crypto.dom.DOMStructure(childElem));
                 }
             }
             firstChild = firstChild.getNextSibling();
         }
-        this.content = Collections.unmodifiableList(newContent);
+        if (lazy) {
+            this.content = new LazyContent(newContent.toArray());
+        } else {
+            this.content = Collections.unmodifiableList(newContent);
+        }
     }
 
     @Override
@@ -292,4 +309,41 @@ public final class DOMX509Data extends DOMStructure implements X509Data {
 
         return result;
     }
+
+    /**
+     * An unmodifiable content list in which X509Certificate and X509CRL entries are
+     * held as their (undecoded) elements until they are first accessed.
+     */
+    private final class LazyContent extends AbstractList<Object> {
+
+        private final Object[] entries;
+
+        LazyContent(Object[] entries) {
+            this.entries = entries;
+        }
+
+        @Override
+        public Object get(int index) {
+            Object entry = entries[index];
+            if (entry instanceof Element) {
+                Element elem = (Element)entry;
+                try {
+                    if ("X509Certificate".equals(elem.getLocalName())) {
+                        entry = unmarshalX509Certificate(elem);
+                    } else {
+                        entry = unmarshalX509CRL(elem);
+                    }
+                } catch (MarshalException e) {
+                    throw new IllegalStateException(e.getMessage(), e);
+                }
+                entries[index] = entry;
+            }
+            return entry;
+        }
+
+        @Override
+        public int size() {
+            return entries.length;
+        }
+    }
 }
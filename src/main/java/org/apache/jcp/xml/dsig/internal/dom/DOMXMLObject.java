@@ -117,7 +117,7 @@ public final class DOMXMLObject extends DOMStructure implements XMLObject {
                 } else if ("SignatureProperties".equals(tag) && XMLSignature.XMLNS.equals(namespace)) {
                     newContent.add(new DOMSignatureProperties(childElem));
                 } else if ("X509Data".equals(tag) && XMLSignature.XMLNS.equals(namespace)) {
-                    newContent.add(new DOMX509Data(childElem));
+                    newContent.add(new DOMX509Data(childElem, Utils.lazyUnmarshal(context)));
                 } else {
                     //@@@FIXME: check for other dsig structures
                     newContent.add(new javax.xml.crypto.dom.DOMStructure(firstChild));
@@ -146,6 +146,33 @@ public final class DOMXMLObject extends DOMStructure implements XMLObject {
         this.objectElem = objElem;
     }
 
+    /**
+     * Registers the Id attributes of an Object element and of the Manifest, Reference,
+     * SignatureProperties and SignatureProperty elements it contains, as unmarshalling
+     * the Object would, so that same-document References to them can be dereferenced
+     * without unmarshalling the Object.
+     *
+     * @param objElem an Object element
+     */
+    static void registerIds(Element objElem) {
+        DOMUtils.getIdAttributeValue(objElem, "Id");
+        Element childElem = DOMUtils.getFirstChildElement(objElem);
+        while (childElem != null) {
+            if (XMLSignature.XMLNS.equals(childElem.getNamespaceURI())) {
+                String tag = childElem.getLocalName();
+                if ("Manifest".equals(tag) || "SignatureProperties".equals(tag)) {
+                    DOMUtils.getIdAttributeValue(childElem, "Id");
+                    Element grandChildElem = DOMUtils.getFirstChildElement(childElem);
+                    while (grandChildElem != null) {
+                        DOMUtils.getIdAttributeValue(grandChildElem, "Id");
+                        grandChildElem = DOMUtils.getNextSiblingElement(grandChildElem);
+                    }
+                }
+            }
+            childElem = DOMUtils.getNextSiblingElement(childElem);
+        }
+    }
+
     @Override
     public List<XMLStructure> getContent() {
         return content;
@@ -28,6 +28,8 @@
  */
 package org.apache.jcp.xml.dsig.internal.dom;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.lang.System.Logger;
 import java.lang.System.Logger.Level;
 import java.security.InvalidKeyException;
@@ -60,6 +62,9 @@ import javax.xml.crypto.dsig.dom.DOMSignContext;
 import javax.xml.crypto.dsig.dom.DOMValidateContext;
 import javax.xml.crypto.dsig.keyinfo.KeyInfo;
 
+import org.apache.xml.security.metrics.Metrics;
+import org.apache.xml.security.metrics.Operation;
+import org.apache.xml.security.signature.SignatureVerificationCache;
 import org.apache.xml.security.utils.XMLUtils;
 import org.w3c.dom.Attr;
 import org.w3c.dom.Document;
@@ -75,10 +80,40 @@ public final class DOMXMLSignature extends DOMStructure
 
     private static final Logger LOG = System.getLogger(DOMXMLSignature.class.getName());
 
+    /**
+     * The XMLValidateContext property under which an optional
+     * {@link SignatureVerificationCache} can be set. If present, successful SignatureValue
+     * verifications are cached and the asymmetric operation is skipped when the same
+     * canonicalized SignedInfo and SignatureValue is validated again with the same key.
+     */
+    public static final String VERIFICATION_CACHE = "org.apache.jcp.xml.dsig.verificationCache";
+
+    /**
+     * The XMLCryptoContext property under which an optional
+     * {@link org.apache.xml.security.signature.ReferenceDigestCache} can be set. If present,
+     * the digest values of References to local files whose Transforms have no parameters are
+     * cached, and reused as long as the file is unchanged.
+     */
+    public static final String DIGEST_CACHE = "org.apache.jcp.xml.dsig.digestCache";
+
+    /**
+     * The XMLCryptoContext property which, if set to Boolean.TRUE when unmarshalling,
+     * defers the unmarshalling of the Object elements of the Signature until they are first
+     * accessed, and the decoding of X509Certificate and X509CRL elements until the
+     * corresponding X509Data content entry is first accessed. The Id attributes of the
+     * deferred elements are still registered during unmarshalling. As the deferred work
+     * happens in methods which cannot throw a MarshalException, errors in deferred
+     * structures are reported as an IllegalStateException on first access.
+     */
+    public static final String LAZY_UNMARSHAL = "org.apache.jcp.xml.dsig.lazyUnmarshal";
+
     private final String id;
     private final SignatureValue sv;
     private KeyInfo ki;
     private List<XMLObject> objects;
+    private List<Element> objectElems;
+    private XMLCryptoContext unmarshalContext;
+    private Provider unmarshalProvider;
     private final SignedInfo si;
     private Document ownerDoc = null;
     private Element localSigElem = null;
@@ -169,7 +204,7 @@ public final class DOMXMLSignature extends DOMStructure
         if (nextSibling == null) {
             objects = Collections.emptyList();
         } else {
-            List<XMLObject> tempObjects = new ArrayList<>();
+            List<Element> tempObjectElems = new ArrayList<>();
             while (nextSibling != null) {
                 String name = nextSibling.getLocalName();
                 String namespace = nextSibling.getNamespaceURI();
@@ -177,12 +212,42 @@ public final class DOMXMLSignature extends DOMStructure
                     throw new MarshalException("Invalid element name: " + namespace + ":" + name +
                                                ", expected KeyInfo or Object");
                 }
-                tempObjects.add(new DOMXMLObject(nextSibling,
-                                                 context, provider));
+                tempObjectElems.add(nextSibling);
                 nextSibling = DOMUtils.getNextSiblingElement(nextSibling);
             }
-            objects = Collections.unmodifiableList(tempObjects);
+            if (Utils.lazyUnmarshal(context)) {
+                for (Element objectElem : tempObjectElems) {
+                    DOMXMLObject.registerIds(objectElem);
+                }
+                objectElems = tempObjectElems;
+                unmarshalContext = context;
+                unmarshalProvider = provider;
+            } else {
+                objects = unmarshalObjects(tempObjectElems, context, provider);
+            }
+        }
+    }
+
+    private static List<XMLObject> unmarshalObjects(List<Element> objectElems,
+                                                    XMLCryptoContext context,
+                                                    Provider provider)
+        throws MarshalException
+    {
+        List<XMLObject> tempObjects = new ArrayList<>(objectElems.size());
+        for (Element objectElem : objectElems) {
+            tempObjects.add(new DOMXMLObject(objectElem, context, provider));
         }
+        return Collections.unmodifiableList(tempObjects);
+    }
+
+    private List<XMLObject> objects() throws MarshalException {
+        if (objects == null) {
+            objects = unmarshalObjects(objectElems, unmarshalContext, unmarshalProvider);
+            objectElems = null;
+            unmarshalContext = null;
+            unmarshalProvider = null;
+        }
+        return objects;
     }
 
     @Override
@@ -202,7 +267,11 @@ public final class DOMXMLSignature extends DOMStructure
 
     @Override
     public List<XMLObject> getObjects() {
-        return objects;
+        try {
+            return objects();
+        } catch (MarshalException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
     }
 
     @Override
@@ -251,7 +320,7 @@ public final class DOMXMLSignature extends DOMStructure
         }
 
         // create and append Object elements if necessary
-        for (XMLObject object : objects) {
+        for (XMLObject object : getObjects()) {
             ((DOMXMLObject)object).marshal(sigElem, dsPrefix, context);
         }
 
@@ -278,6 +347,14 @@ public final class DOMXMLSignature extends DOMStructure
             return validationStatus;
         }
 
+        try (Metrics.Timer timer = Metrics.start(Operation.VERIFY, si.getSignatureMethod().getAlgorithm())) {
+            return validateSignature(vc);
+        }
+    }
+
+    private boolean validateSignature(XMLValidateContext vc)
+        throws XMLSignatureException
+    {
         // validate the signature
         boolean sigValidity = sv.validate(vc);
         if (!sigValidity) {
@@ -308,8 +385,14 @@ public final class DOMXMLSignature extends DOMStructure
         if (Boolean.TRUE.equals(vc.getProperty
                                 ("org.jcp.xml.dsig.validateManifests")))
         {
-            for (int i=0, size=objects.size(); validateMans && i < size; i++) {
-                XMLObject xo = objects.get(i);
+            List<XMLObject> xmlObjects;
+            try {
+                xmlObjects = objects();
+            } catch (MarshalException e) {
+                throw new XMLSignatureException(e);
+            }
+            for (int i=0, size=xmlObjects.size(); validateMans && i < size; i++) {
+                XMLObject xo = xmlObjects.get(i);
                 @SuppressWarnings("unchecked")
                 List<XMLStructure> content = xo.getContent();
                 int csize = content.size();
@@ -346,6 +429,14 @@ public final class DOMXMLSignature extends DOMStructure
         if (signContext == null) {
             throw new NullPointerException("signContext cannot be null");
         }
+        try (Metrics.Timer timer = Metrics.start(Operation.SIGN, si.getSignatureMethod().getAlgorithm())) {
+            digestAndSign(signContext);
+        }
+    }
+
+    private void digestAndSign(XMLSignContext signContext)
+        throws MarshalException, XMLSignatureException
+    {
         DOMSignContext context = (DOMSignContext)signContext;
         marshal(context.getParent(), context.getNextSibling(),
                 DOMUtils.getSignaturePrefix(context), context);
@@ -363,7 +454,7 @@ public final class DOMXMLSignature extends DOMStructure
         for (Reference ref : refs) {
             signatureIdMap.put(ref.getId(), ref);
         }
-        for (XMLObject obj : objects) {
+        for (XMLObject obj : getObjects()) {
             signatureIdMap.put(obj.getId(), obj);
             @SuppressWarnings("unchecked")
             List<XMLStructure> content = obj.getContent();
@@ -445,7 +536,7 @@ public final class DOMXMLSignature extends DOMStructure
         return idEqual && keyInfoEqual &&
                 sv.equals(osig.getSignatureValue()) &&
                 si.equals(osig.getSignedInfo()) &&
-                objects.equals(osig.getObjects());
+                getObjects().equals(osig.getObjects());
     }
 
     @Override
@@ -459,7 +550,7 @@ public final class DOMXMLSignature extends DOMStructure
         }
         result = 31 * result + sv.hashCode();
         result = 31 * result + si.hashCode();
-        result = 31 * result + objects.hashCode();
+        result = 31 * result + getObjects().hashCode();
 
         return result;
     }
@@ -582,13 +673,35 @@ public final class DOMXMLSignature extends DOMStructure
                                                 "key", kse);
             }
 
-            // canonicalize SignedInfo and verify signature
+            SignatureVerificationCache cache = (SignatureVerificationCache)
+                validateContext.getProperty(VERIFICATION_CACHE);
+            byte[] canonicalizedSignedInfo = null;
+            if (cache != null) {
+                try (ByteArrayOutputStream bos = new ByteArrayOutputStream()) {
+                    ((DOMSignedInfo)si).canonicalize(validateContext, bos);
+                    canonicalizedSignedInfo = bos.toByteArray();
+                } catch (IOException e) {
+                    throw new XMLSignatureException(e);
+                }
+                if (cache.isVerified(sm.getAlgorithm(), canonicalizedSignedInfo, value, validationKey)) {
+                    LOG.log(Level.DEBUG, "SignatureValue verification found in the verification cache");
+                    validationStatus = true;
+                    validated = true;
+                    ksr = ksResult;
+                    return validationStatus;
+                }
+            }
+
+            // canonicalize SignedInfo, unless done for the cache, and verify signature
             try {
                 validationStatus = ((AbstractDOMSignatureMethod)sm).verify
-                    (validationKey, si, value, validateContext);
+                    (validationKey, si, value, canonicalizedSignedInfo, validateContext);
             } catch (Exception e) {
                 throw new XMLSignatureException(e);
             }
+            if (validationStatus && cache != null) {
+                cache.markVerified(sm.getAlgorithm(), canonicalizedSignedInfo, value, validationKey);
+            }
 
             validated = true;
             ksr = ksResult;
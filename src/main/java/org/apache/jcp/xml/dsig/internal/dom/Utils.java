@@ -116,4 +116,8 @@ public final class Utils {
         return secureValidation;
     }
 
+    static boolean lazyUnmarshal(XMLCryptoContext xc) {
+        return xc != null && Boolean.TRUE.equals(xc.getProperty(DOMXMLSignature.LAZY_UNMARSHAL));
+    }
+
 }
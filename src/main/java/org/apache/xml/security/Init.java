@@ -57,14 +57,17 @@ public class Init {
 
     private static final Logger LOG = System.getLogger(Init.class.getName());
 
-    /** Field alreadyInitialized */
-    private static boolean alreadyInitialized = false;
+    /**
+     * Field alreadyInitialized. This is volatile so that the common "already initialized" check
+     * does not have to acquire the class lock.
+     */
+    private static volatile boolean alreadyInitialized = false;
 
     /**
      * Method isInitialized
      * @return true if the library is already initialized.
      */
-    public static final synchronized boolean isInitialized() {
+    public static final boolean isInitialized() {
         return Init.alreadyInitialized;
     }
 
@@ -72,7 +75,14 @@ public class Init {
      * Method init
      *
      */
-    public static synchronized void init() {
+    public static void init() {
+        if (alreadyInitialized) {
+            return;
+        }
+        doInit();
+    }
+
+    private static synchronized void doInit() {
         if (alreadyInitialized) {
             return;
         }
@@ -58,6 +58,13 @@ public class SignatureAlgorithm extends Algorithm {
     private static Map<String, Class<? extends SignatureAlgorithmSpi>> algorithmHash =
         new ConcurrentHashMap<>();
 
+    /**
+     * Direct constructor references for the default algorithms, so that they can be created
+     * without reflection. Algorithms registered by class (name) are instantiated reflectively.
+     */
+    private static Map<String, SpiConstructor> algorithmConstructors =
+        new ConcurrentHashMap<>();
+
     /** Field signatureAlgorithm */
     private final SignatureAlgorithmSpi signatureAlgorithmSpi;
 
@@ -115,6 +122,31 @@ public class SignatureAlgorithm extends Algorithm {
         signatureAlgorithmSpi.engineAddContextToElement(getElement());
     }
 
+    private SignatureAlgorithm(Document doc, SignatureAlgorithm signatureAlgorithm) throws XMLSecurityException {
+        super((Element) doc.importNode(signatureAlgorithm.getElement(), true), null);
+        this.algorithmURI = signatureAlgorithm.algorithmURI;
+        this.signatureAlgorithmSpi = signatureAlgorithm.signatureAlgorithmSpi;
+    }
+
+    /**
+     * Creates a SignatureAlgorithm which shares the SignatureAlgorithmSpi of another
+     * SignatureAlgorithm, including any key it has been initialized with. The SignatureMethod
+     * element of the other SignatureAlgorithm is copied into the given Document.
+     * <p>
+     * This is for the internal use of XMLSignatureTemplate and is not part of the public API.
+     * The two instances share the stateful JCA Signature, so they are not thread-safe: they
+     * must never be used concurrently, nor may their update and sign calls be interleaved.
+     *
+     * @param doc the Document of the SignatureMethod element
+     * @param signatureAlgorithm the SignatureAlgorithm to share the SignatureAlgorithmSpi with
+     * @return the SignatureAlgorithm sharing the SignatureAlgorithmSpi
+     * @throws XMLSecurityException
+     */
+    public static SignatureAlgorithm newInstanceSharingSpi(Document doc, SignatureAlgorithm signatureAlgorithm)
+        throws XMLSecurityException {
+        return new SignatureAlgorithm(doc, signatureAlgorithm);
+    }
+
     /**
      * Constructor SignatureAlgorithm
      *
@@ -171,6 +203,11 @@ public class SignatureAlgorithm extends Algorithm {
      */
     private static SignatureAlgorithmSpi getSignatureAlgorithmSpi(String algorithmURI, Provider provider)
         throws XMLSignatureException {
+        SpiConstructor spiConstructor = algorithmConstructors.get(algorithmURI);
+        if (spiConstructor != null) {
+            LOG.log(Level.DEBUG, "Create URI \"{0}\" from registered constructor", algorithmURI);
+            return spiConstructor.newInstance(provider);
+        }
         try {
             Class<? extends SignatureAlgorithmSpi> implementingClass = algorithmHash.get(algorithmURI);
             LOG.log(Level.DEBUG, "Create URI \"{0}\" class \"{1}\"", algorithmURI, implementingClass);
@@ -415,124 +452,130 @@ public class SignatureAlgorithm extends Algorithm {
      * This method registers the default algorithms.
      */
     public static void registerDefaultAlgorithms() {
-        algorithmHash.put(
-            XMLSignature.ALGO_ID_SIGNATURE_DSA, SignatureDSA.class
+        registerDefault(
+            XMLSignature.ALGO_ID_SIGNATURE_DSA, SignatureDSA.class, SignatureDSA::new
         );
-        algorithmHash.put(
-            XMLSignature.ALGO_ID_SIGNATURE_DSA_SHA256, SignatureDSA.SHA256.class
+        registerDefault(
+            XMLSignature.ALGO_ID_SIGNATURE_DSA_SHA256, SignatureDSA.SHA256.class, SignatureDSA.SHA256::new
         );
-        algorithmHash.put(
-            XMLSignature.ALGO_ID_SIGNATURE_RSA_SHA1, SignatureBaseRSA.SignatureRSASHA1.class
+        registerDefault(
+            XMLSignature.ALGO_ID_SIGNATURE_RSA_SHA1, SignatureBaseRSA.SignatureRSASHA1.class, SignatureBaseRSA.SignatureRSASHA1::new
         );
-        algorithmHash.put(
-            XMLSignature.ALGO_ID_MAC_HMAC_SHA1, IntegrityHmac.IntegrityHmacSHA1.class
+        registerDefault(
+            XMLSignature.ALGO_ID_MAC_HMAC_SHA1, IntegrityHmac.IntegrityHmacSHA1.class, IntegrityHmac.IntegrityHmacSHA1::new
         );
-        algorithmHash.put(
-            XMLSignature.ALGO_ID_SIGNATURE_NOT_RECOMMENDED_RSA_MD5,
-            SignatureBaseRSA.SignatureRSAMD5.class
+        registerDefault(
+            XMLSignature.ALGO_ID_SIGNATURE_NOT_RECOMMENDED_RSA_MD5, SignatureBaseRSA.SignatureRSAMD5.class, SignatureBaseRSA.SignatureRSAMD5::new
         );
-        algorithmHash.put(
-            XMLSignature.ALGO_ID_SIGNATURE_RSA_RIPEMD160,
-            SignatureBaseRSA.SignatureRSARIPEMD160.class
+        registerDefault(
+            XMLSignature.ALGO_ID_SIGNATURE_RSA_RIPEMD160, SignatureBaseRSA.SignatureRSARIPEMD160.class, SignatureBaseRSA.SignatureRSARIPEMD160::new
         );
-        algorithmHash.put(
-            XMLSignature.ALGO_ID_SIGNATURE_RSA_SHA224, SignatureBaseRSA.SignatureRSASHA224.class
+        registerDefault(
+            XMLSignature.ALGO_ID_SIGNATURE_RSA_SHA224, SignatureBaseRSA.SignatureRSASHA224.class, SignatureBaseRSA.SignatureRSASHA224::new
         );
-        algorithmHash.put(
-            XMLSignature.ALGO_ID_SIGNATURE_RSA_SHA256, SignatureBaseRSA.SignatureRSASHA256.class
+        registerDefault(
+            XMLSignature.ALGO_ID_SIGNATURE_RSA_SHA256, SignatureBaseRSA.SignatureRSASHA256.class, SignatureBaseRSA.SignatureRSASHA256::new
         );
-        algorithmHash.put(
-            XMLSignature.ALGO_ID_SIGNATURE_RSA_SHA384, SignatureBaseRSA.SignatureRSASHA384.class
+        registerDefault(
+            XMLSignature.ALGO_ID_SIGNATURE_RSA_SHA384, SignatureBaseRSA.SignatureRSASHA384.class, SignatureBaseRSA.SignatureRSASHA384::new
         );
-        algorithmHash.put(
-            XMLSignature.ALGO_ID_SIGNATURE_RSA_SHA512, SignatureBaseRSA.SignatureRSASHA512.class
+        registerDefault(
+            XMLSignature.ALGO_ID_SIGNATURE_RSA_SHA512, SignatureBaseRSA.SignatureRSASHA512.class, SignatureBaseRSA.SignatureRSASHA512::new
         );
-        algorithmHash.put(
-            XMLSignature.ALGO_ID_SIGNATURE_RSA_SHA1_MGF1, SignatureBaseRSA.SignatureRSASHA1MGF1.class
+        registerDefault(
+            XMLSignature.ALGO_ID_SIGNATURE_RSA_SHA1_MGF1, SignatureBaseRSA.SignatureRSASHA1MGF1.class, SignatureBaseRSA.SignatureRSASHA1MGF1::new
         );
-        algorithmHash.put(
-            XMLSignature.ALGO_ID_SIGNATURE_RSA_SHA224_MGF1, SignatureBaseRSA.SignatureRSASHA224MGF1.class
+        registerDefault(
+            XMLSignature.ALGO_ID_SIGNATURE_RSA_SHA224_MGF1, SignatureBaseRSA.SignatureRSASHA224MGF1.class, SignatureBaseRSA.SignatureRSASHA224MGF1::new
         );
-        algorithmHash.put(
-            XMLSignature.ALGO_ID_SIGNATURE_RSA_SHA256_MGF1, SignatureBaseRSA.SignatureRSASHA256MGF1.class
+        registerDefault(
+            XMLSignature.ALGO_ID_SIGNATURE_RSA_SHA256_MGF1, SignatureBaseRSA.SignatureRSASHA256MGF1.class, SignatureBaseRSA.SignatureRSASHA256MGF1::new
         );
-        algorithmHash.put(
-            XMLSignature.ALGO_ID_SIGNATURE_RSA_SHA384_MGF1, SignatureBaseRSA.SignatureRSASHA384MGF1.class
+        registerDefault(
+            XMLSignature.ALGO_ID_SIGNATURE_RSA_SHA384_MGF1, SignatureBaseRSA.SignatureRSASHA384MGF1.class, SignatureBaseRSA.SignatureRSASHA384MGF1::new
         );
-        algorithmHash.put(
-            XMLSignature.ALGO_ID_SIGNATURE_RSA_SHA512_MGF1, SignatureBaseRSA.SignatureRSASHA512MGF1.class
+        registerDefault(
+            XMLSignature.ALGO_ID_SIGNATURE_RSA_SHA512_MGF1, SignatureBaseRSA.SignatureRSASHA512MGF1.class, SignatureBaseRSA.SignatureRSASHA512MGF1::new
         );
-        algorithmHash.put(
-            XMLSignature.ALGO_ID_SIGNATURE_RSA_PSS, SignatureBaseRSA.SignatureRSASSAPSS.class
+        registerDefault(
+            XMLSignature.ALGO_ID_SIGNATURE_RSA_PSS, SignatureBaseRSA.SignatureRSASSAPSS.class, SignatureBaseRSA.SignatureRSASSAPSS::new
         );
-        algorithmHash.put(
-            XMLSignature.ALGO_ID_SIGNATURE_RSA_SHA3_224_MGF1, SignatureBaseRSA.SignatureRSASHA3_224MGF1.class
+        registerDefault(
+            XMLSignature.ALGO_ID_SIGNATURE_RSA_SHA3_224_MGF1, SignatureBaseRSA.SignatureRSASHA3_224MGF1.class, SignatureBaseRSA.SignatureRSASHA3_224MGF1::new
         );
-        algorithmHash.put(
-            XMLSignature.ALGO_ID_SIGNATURE_RSA_SHA3_256_MGF1, SignatureBaseRSA.SignatureRSASHA3_256MGF1.class
+        registerDefault(
+            XMLSignature.ALGO_ID_SIGNATURE_RSA_SHA3_256_MGF1, SignatureBaseRSA.SignatureRSASHA3_256MGF1.class, SignatureBaseRSA.SignatureRSASHA3_256MGF1::new
         );
-        algorithmHash.put(
-            XMLSignature.ALGO_ID_SIGNATURE_RSA_SHA3_384_MGF1, SignatureBaseRSA.SignatureRSASHA3_384MGF1.class
+        registerDefault(
+            XMLSignature.ALGO_ID_SIGNATURE_RSA_SHA3_384_MGF1, SignatureBaseRSA.SignatureRSASHA3_384MGF1.class, SignatureBaseRSA.SignatureRSASHA3_384MGF1::new
         );
-        algorithmHash.put(
-            XMLSignature.ALGO_ID_SIGNATURE_RSA_SHA3_512_MGF1, SignatureBaseRSA.SignatureRSASHA3_512MGF1.class
+        registerDefault(
+            XMLSignature.ALGO_ID_SIGNATURE_RSA_SHA3_512_MGF1, SignatureBaseRSA.SignatureRSASHA3_512MGF1.class, SignatureBaseRSA.SignatureRSASHA3_512MGF1::new
         );
-        algorithmHash.put(
-            XMLSignature.ALGO_ID_SIGNATURE_ECDSA_SHA1, SignatureECDSA.SignatureECDSASHA1.class
+        registerDefault(
+            XMLSignature.ALGO_ID_SIGNATURE_ECDSA_SHA1, SignatureECDSA.SignatureECDSASHA1.class, SignatureECDSA.SignatureECDSASHA1::new
         );
-        algorithmHash.put(
-            XMLSignature.ALGO_ID_SIGNATURE_ECDSA_SHA224, SignatureECDSA.SignatureECDSASHA224.class
+        registerDefault(
+            XMLSignature.ALGO_ID_SIGNATURE_ECDSA_SHA224, SignatureECDSA.SignatureECDSASHA224.class, SignatureECDSA.SignatureECDSASHA224::new
         );
-        algorithmHash.put(
-            XMLSignature.ALGO_ID_SIGNATURE_ECDSA_SHA256, SignatureECDSA.SignatureECDSASHA256.class
+        registerDefault(
+            XMLSignature.ALGO_ID_SIGNATURE_ECDSA_SHA256, SignatureECDSA.SignatureECDSASHA256.class, SignatureECDSA.SignatureECDSASHA256::new
         );
-        algorithmHash.put(
-            XMLSignature.ALGO_ID_SIGNATURE_ECDSA_SHA384, SignatureECDSA.SignatureECDSASHA384.class
+        registerDefault(
+            XMLSignature.ALGO_ID_SIGNATURE_ECDSA_SHA384, SignatureECDSA.SignatureECDSASHA384.class, SignatureECDSA.SignatureECDSASHA384::new
         );
-        algorithmHash.put(
-            XMLSignature.ALGO_ID_SIGNATURE_ECDSA_SHA512, SignatureECDSA.SignatureECDSASHA512.class
+        registerDefault(
+            XMLSignature.ALGO_ID_SIGNATURE_ECDSA_SHA512, SignatureECDSA.SignatureECDSASHA512.class, SignatureECDSA.SignatureECDSASHA512::new
         );
-        algorithmHash.put(
-            XMLSignature.ALGO_ID_SIGNATURE_ECDSA_SHA3_224, SignatureECDSA.SignatureECDSASHA3_224.class
+        registerDefault(
+            XMLSignature.ALGO_ID_SIGNATURE_ECDSA_SHA3_224, SignatureECDSA.SignatureECDSASHA3_224.class, SignatureECDSA.SignatureECDSASHA3_224::new
         );
-        algorithmHash.put(
-            XMLSignature.ALGO_ID_SIGNATURE_ECDSA_SHA3_256, SignatureECDSA.SignatureECDSASHA3_256.class
+        registerDefault(
+            XMLSignature.ALGO_ID_SIGNATURE_ECDSA_SHA3_256, SignatureECDSA.SignatureECDSASHA3_256.class, SignatureECDSA.SignatureECDSASHA3_256::new
         );
-        algorithmHash.put(
-                XMLSignature.ALGO_ID_SIGNATURE_ECDSA_SHA3_384, SignatureECDSA.SignatureECDSASHA3_384.class
+        registerDefault(
+            XMLSignature.ALGO_ID_SIGNATURE_ECDSA_SHA3_384, SignatureECDSA.SignatureECDSASHA3_384.class, SignatureECDSA.SignatureECDSASHA3_384::new
         );
-        algorithmHash.put(
-                XMLSignature.ALGO_ID_SIGNATURE_ECDSA_SHA3_512, SignatureECDSA.SignatureECDSASHA3_512.class
+        registerDefault(
+            XMLSignature.ALGO_ID_SIGNATURE_ECDSA_SHA3_512, SignatureECDSA.SignatureECDSASHA3_512.class, SignatureECDSA.SignatureECDSASHA3_512::new
         );
-        algorithmHash.put(
-            XMLSignature.ALGO_ID_SIGNATURE_ECDSA_RIPEMD160, SignatureECDSA.SignatureECDSARIPEMD160.class
+        registerDefault(
+            XMLSignature.ALGO_ID_SIGNATURE_ECDSA_RIPEMD160, SignatureECDSA.SignatureECDSARIPEMD160.class, SignatureECDSA.SignatureECDSARIPEMD160::new
         );
-        algorithmHash.put(
-                XMLSignature.ALGO_ID_SIGNATURE_EDDSA_ED25519, SignatureEDDSA.SignatureEd25519.class
+        registerDefault(
+            XMLSignature.ALGO_ID_SIGNATURE_EDDSA_ED25519, SignatureEDDSA.SignatureEd25519.class, SignatureEDDSA.SignatureEd25519::new
         );
-        algorithmHash.put(
-                XMLSignature.ALGO_ID_SIGNATURE_EDDSA_ED448, SignatureEDDSA.SignatureEd448.class
+        registerDefault(
+            XMLSignature.ALGO_ID_SIGNATURE_EDDSA_ED448, SignatureEDDSA.SignatureEd448.class, SignatureEDDSA.SignatureEd448::new
         );
-        algorithmHash.put(
-            XMLSignature.ALGO_ID_MAC_HMAC_NOT_RECOMMENDED_MD5, IntegrityHmac.IntegrityHmacMD5.class
+        registerDefault(
+            XMLSignature.ALGO_ID_MAC_HMAC_NOT_RECOMMENDED_MD5, IntegrityHmac.IntegrityHmacMD5.class, IntegrityHmac.IntegrityHmacMD5::new
         );
-        algorithmHash.put(
-            XMLSignature.ALGO_ID_MAC_HMAC_RIPEMD160, IntegrityHmac.IntegrityHmacRIPEMD160.class
+        registerDefault(
+            XMLSignature.ALGO_ID_MAC_HMAC_RIPEMD160, IntegrityHmac.IntegrityHmacRIPEMD160.class, IntegrityHmac.IntegrityHmacRIPEMD160::new
         );
-        algorithmHash.put(
-            XMLSignature.ALGO_ID_MAC_HMAC_SHA224, IntegrityHmac.IntegrityHmacSHA224.class
+        registerDefault(
+            XMLSignature.ALGO_ID_MAC_HMAC_SHA224, IntegrityHmac.IntegrityHmacSHA224.class, IntegrityHmac.IntegrityHmacSHA224::new
         );
-        algorithmHash.put(
-            XMLSignature.ALGO_ID_MAC_HMAC_SHA256, IntegrityHmac.IntegrityHmacSHA256.class
+        registerDefault(
+            XMLSignature.ALGO_ID_MAC_HMAC_SHA256, IntegrityHmac.IntegrityHmacSHA256.class, IntegrityHmac.IntegrityHmacSHA256::new
         );
-        algorithmHash.put(
-            XMLSignature.ALGO_ID_MAC_HMAC_SHA384, IntegrityHmac.IntegrityHmacSHA384.class
+        registerDefault(
+            XMLSignature.ALGO_ID_MAC_HMAC_SHA384, IntegrityHmac.IntegrityHmacSHA384.class, IntegrityHmac.IntegrityHmacSHA384::new
         );
-        algorithmHash.put(
-            XMLSignature.ALGO_ID_MAC_HMAC_SHA512, IntegrityHmac.IntegrityHmacSHA512.class
+        registerDefault(
+            XMLSignature.ALGO_ID_MAC_HMAC_SHA512, IntegrityHmac.IntegrityHmacSHA512.class, IntegrityHmac.IntegrityHmacSHA512::new
         );
     }
 
+    private static void registerDefault(
+        String algorithmURI, Class<? extends SignatureAlgorithmSpi> implementingClass,
+        SpiConstructor constructor
+    ) {
+        algorithmHash.put(algorithmURI, implementingClass);
+        algorithmConstructors.put(algorithmURI, constructor);
+    }
+
     /**
      * Method getBaseNamespace
      *
@@ -552,4 +595,13 @@ public class SignatureAlgorithm extends Algorithm {
     public String getBaseLocalName() {
         return Constants._TAG_SIGNATUREMETHOD;
     }
+
+    /**
+     * A direct reference to the Provider constructor of a SignatureAlgorithmSpi implementation.
+     * A null Provider selects the default JCE provider, as the empty constructor does.
+     */
+    @FunctionalInterface
+    private interface SpiConstructor {
+        SignatureAlgorithmSpi newInstance(Provider provider) throws XMLSignatureException;
+    }
 }
@@ -20,9 +20,14 @@ package org.apache.xml.security.c14n;
 
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 import org.apache.xml.security.c14n.implementations.Canonicalizer11_OmitComments;
 import org.apache.xml.security.c14n.implementations.Canonicalizer11_WithComments;
@@ -91,6 +96,28 @@ public final class Canonicalizer {
     private static Map<String, Class<? extends CanonicalizerSpi>> canonicalizerHash =
         new ConcurrentHashMap<>();
 
+    /**
+     * Direct constructor references for the default algorithms, so that they can be created
+     * without reflection. Algorithms registered by class (name) are instantiated reflectively.
+     */
+    private static Map<String, Supplier<CanonicalizerSpi>> canonicalizerConstructors =
+        new ConcurrentHashMap<>();
+
+    /**
+     * The number of idle engines which are kept per default algorithm.
+     */
+    private static final int ENGINE_POOL_SIZE =
+        AccessController.doPrivileged(
+            (PrivilegedAction<Integer>) () -> Integer.getInteger("org.apache.xml.security.c14n.pool-size", 20));
+
+    private static final Map<String, Queue<CanonicalizerSpi>> ENGINE_POOLS = new ConcurrentHashMap<>();
+
+    private final String algorithmURI;
+
+    /**
+     * The engine of an algorithm which is not one of the default algorithms. Engines of the
+     * default algorithms are taken from the pool for every call instead.
+     */
     private final CanonicalizerSpi canonicalizerSpi;
 
     /**
@@ -100,16 +127,11 @@ public final class Canonicalizer {
      * @throws InvalidCanonicalizerException
      */
     private Canonicalizer(String algorithmURI) throws InvalidCanonicalizerException {
-        try {
-            Class<? extends CanonicalizerSpi> implementingClass =
-                canonicalizerHash.get(algorithmURI);
-
-            canonicalizerSpi = JavaUtils.newInstanceWithEmptyConstructor(implementingClass);
-        } catch (Exception e) {
-            Object[] exArgs = { algorithmURI };
-            throw new InvalidCanonicalizerException(
-                e, "signature.Canonicalizer.UnknownCanonicalizer", exArgs
-            );
+        this.algorithmURI = algorithmURI;
+        if (canonicalizerConstructors.containsKey(algorithmURI)) {
+            canonicalizerSpi = null;
+        } else {
+            canonicalizerSpi = newEngine(algorithmURI);
         }
     }
 
@@ -125,6 +147,105 @@ public final class Canonicalizer {
         return new Canonicalizer(algorithmURI);
     }
 
+    /**
+     * Returns an engine for the given algorithm. An idle engine is taken from the pool if one
+     * is available. The engine must be used by one thread at a time only, and should be handed
+     * back with {@link #releaseEngine(CanonicalizerSpi)} afterwards.
+     *
+     * @param algorithmURI
+     * @return an engine which is not used by anyone else
+     * @throws InvalidCanonicalizerException if no engine is registered for the algorithm
+     */
+    public static CanonicalizerSpi acquireEngine(String algorithmURI) throws InvalidCanonicalizerException {
+        CanonicalizerSpi engine = pollEngine(algorithmURI);
+        if (engine != null) {
+            return engine;
+        }
+        Supplier<CanonicalizerSpi> constructor = canonicalizerConstructors.get(algorithmURI);
+        if (constructor != null) {
+            return constructor.get();
+        }
+        return newEngine(algorithmURI);
+    }
+
+    /**
+     * Returns an idle engine of a default algorithm from the pool.
+     *
+     * @param algorithmURI
+     * @return an engine which is not used by anyone else, or null if none is available
+     */
+    public static CanonicalizerSpi pollEngine(String algorithmURI) {
+        return pollEngine(algorithmURI, CanonicalizerSpi.class);
+    }
+
+    private static <T extends CanonicalizerSpi> T pollEngine(String algorithmURI, Class<T> engineClass) {
+        Queue<CanonicalizerSpi> pool = ENGINE_POOLS.get(algorithmURI);
+        CanonicalizerSpi engine = pool != null ? pool.poll() : null;
+        return engineClass.isInstance(engine) ? engineClass.cast(engine) : null;
+    }
+
+    /**
+     * Returns an idle engine of a default algorithm from the pool, or a new one if none of the
+     * given type is available. The engine should be handed back with
+     * {@link #releaseEngine(CanonicalizerSpi)} afterwards.
+     *
+     * @param algorithmURI
+     * @param engineClass the type of the engine
+     * @param constructor creates a new engine of the given type
+     * @return an engine which is not used by anyone else
+     */
+    public static <T extends CanonicalizerSpi> T acquireEngine(String algorithmURI, Class<T> engineClass,
+                                                               Supplier<T> constructor) {
+        T engine = pollEngine(algorithmURI, engineClass);
+        return engine != null ? engine : constructor.get();
+    }
+
+    /**
+     * Hands an engine back after use. Engines of the default algorithms are reset and kept for
+     * reuse, all others are dropped. The engine must not be used by the caller afterwards.
+     *
+     * @param engine the engine, or null
+     */
+    public static void releaseEngine(CanonicalizerSpi engine) {
+        if (engine == null || ENGINE_POOL_SIZE <= 0) {
+            return;
+        }
+        String uri = engine.engineGetURI();
+        if (uri == null || engine.getClass() != canonicalizerHash.get(uri)
+            || !canonicalizerConstructors.containsKey(uri) || !engine.engineReset()) {
+            return;
+        }
+        ENGINE_POOLS.computeIfAbsent(uri, k -> new ArrayBlockingQueue<>(ENGINE_POOL_SIZE)).offer(engine);
+    }
+
+    private static CanonicalizerSpi newEngine(String algorithmURI) throws InvalidCanonicalizerException {
+        try {
+            Class<? extends CanonicalizerSpi> implementingClass =
+                canonicalizerHash.get(algorithmURI);
+
+            return JavaUtils.newInstanceWithEmptyConstructor(implementingClass);
+        } catch (Exception e) {
+            Object[] exArgs = { algorithmURI };
+            throw new InvalidCanonicalizerException(
+                e, "signature.Canonicalizer.UnknownCanonicalizer", exArgs
+            );
+        }
+    }
+
+    private CanonicalizerSpi getEngine() {
+        if (canonicalizerSpi != null) {
+            return canonicalizerSpi;
+        }
+        CanonicalizerSpi engine = pollEngine(algorithmURI);
+        return engine != null ? engine : canonicalizerConstructors.get(algorithmURI).get();
+    }
+
+    private void putEngine(CanonicalizerSpi engine) {
+        if (engine != canonicalizerSpi) {
+            releaseEngine(engine);
+        }
+    }
+
     /**
      * Method register
      *
@@ -180,36 +301,44 @@ public final class Canonicalizer {
      * This method registers the default algorithms.
      */
     public static void registerDefaultAlgorithms() {
-        canonicalizerHash.put(
+        registerDefault(
             Canonicalizer.ALGO_ID_C14N_OMIT_COMMENTS,
-            Canonicalizer20010315OmitComments.class
+            Canonicalizer20010315OmitComments.class, Canonicalizer20010315OmitComments::new
         );
-        canonicalizerHash.put(
+        registerDefault(
             Canonicalizer.ALGO_ID_C14N_WITH_COMMENTS,
-            Canonicalizer20010315WithComments.class
+            Canonicalizer20010315WithComments.class, Canonicalizer20010315WithComments::new
         );
-        canonicalizerHash.put(
+        registerDefault(
             Canonicalizer.ALGO_ID_C14N_EXCL_OMIT_COMMENTS,
-            Canonicalizer20010315ExclOmitComments.class
+            Canonicalizer20010315ExclOmitComments.class, Canonicalizer20010315ExclOmitComments::new
         );
-        canonicalizerHash.put(
+        registerDefault(
             Canonicalizer.ALGO_ID_C14N_EXCL_WITH_COMMENTS,
-            Canonicalizer20010315ExclWithComments.class
+            Canonicalizer20010315ExclWithComments.class, Canonicalizer20010315ExclWithComments::new
         );
-        canonicalizerHash.put(
+        registerDefault(
             Canonicalizer.ALGO_ID_C14N11_OMIT_COMMENTS,
-            Canonicalizer11_OmitComments.class
+            Canonicalizer11_OmitComments.class, Canonicalizer11_OmitComments::new
         );
-        canonicalizerHash.put(
+        registerDefault(
             Canonicalizer.ALGO_ID_C14N11_WITH_COMMENTS,
-            Canonicalizer11_WithComments.class
+            Canonicalizer11_WithComments.class, Canonicalizer11_WithComments::new
         );
-        canonicalizerHash.put(
+        registerDefault(
             Canonicalizer.ALGO_ID_C14N_PHYSICAL,
-            CanonicalizerPhysical.class
+            CanonicalizerPhysical.class, CanonicalizerPhysical::new
         );
     }
 
+    private static void registerDefault(
+        String algorithmURI, Class<? extends CanonicalizerSpi> implementingClass,
+        Supplier<CanonicalizerSpi> constructor
+    ) {
+        canonicalizerHash.put(algorithmURI, implementingClass);
+        canonicalizerConstructors.put(algorithmURI, constructor);
+    }
+
     /**
      * This method tries to canonicalize the given bytes. It's possible to even
      * canonicalize non-wellformed sequences if they are well-formed after being
@@ -224,7 +353,12 @@ public final class Canonicalizer {
      */
     public void canonicalize(byte[] inputBytes, OutputStream writer, boolean secureValidation)
         throws XMLParserException, java.io.IOException, CanonicalizationException {
-        canonicalizerSpi.engineCanonicalize(inputBytes, writer, secureValidation);
+        CanonicalizerSpi engine = getEngine();
+        try {
+            engine.engineCanonicalize(inputBytes, writer, secureValidation);
+        } finally {
+            putEngine(engine);
+        }
     }
 
     /**
@@ -236,7 +370,12 @@ public final class Canonicalizer {
      * @throws CanonicalizationException
      */
     public void canonicalizeSubtree(Node node, OutputStream writer) throws CanonicalizationException {
-        canonicalizerSpi.engineCanonicalizeSubTree(node, writer);
+        CanonicalizerSpi engine = getEngine();
+        try {
+            engine.engineCanonicalizeSubTree(node, writer);
+        } finally {
+            putEngine(engine);
+        }
     }
 
     /**
@@ -249,7 +388,12 @@ public final class Canonicalizer {
      */
     public void canonicalizeSubtree(Node node, String inclusiveNamespaces, OutputStream writer)
         throws CanonicalizationException {
-        canonicalizerSpi.engineCanonicalizeSubTree(node, inclusiveNamespaces, writer);
+        CanonicalizerSpi engine = getEngine();
+        try {
+            engine.engineCanonicalizeSubTree(node, inclusiveNamespaces, writer);
+        } finally {
+            putEngine(engine);
+        }
     }
 
     /**
@@ -263,7 +407,12 @@ public final class Canonicalizer {
     public void canonicalizeSubtree(Node node, String inclusiveNamespaces,
                                     boolean propagateDefaultNamespace, OutputStream writer)
             throws CanonicalizationException {
-        canonicalizerSpi.engineCanonicalizeSubTree(node, inclusiveNamespaces, propagateDefaultNamespace, writer);
+        CanonicalizerSpi engine = getEngine();
+        try {
+            engine.engineCanonicalizeSubTree(node, inclusiveNamespaces, propagateDefaultNamespace, writer);
+        } finally {
+            putEngine(engine);
+        }
     }
 
     /**
@@ -275,7 +424,12 @@ public final class Canonicalizer {
      */
     public void canonicalizeXPathNodeSet(Set<Node> xpathNodeSet, OutputStream writer)
         throws CanonicalizationException {
-        canonicalizerSpi.engineCanonicalizeXPathNodeSet(xpathNodeSet, writer);
+        CanonicalizerSpi engine = getEngine();
+        try {
+            engine.engineCanonicalizeXPathNodeSet(xpathNodeSet, writer);
+        } finally {
+            putEngine(engine);
+        }
     }
 
     /**
@@ -289,7 +443,12 @@ public final class Canonicalizer {
     public void canonicalizeXPathNodeSet(
         Set<Node> xpathNodeSet, String inclusiveNamespaces, OutputStream writer
     ) throws CanonicalizationException {
-        canonicalizerSpi.engineCanonicalizeXPathNodeSet(xpathNodeSet, inclusiveNamespaces, writer);
+        CanonicalizerSpi engine = getEngine();
+        try {
+            engine.engineCanonicalizeXPathNodeSet(xpathNodeSet, inclusiveNamespaces, writer);
+        } finally {
+            putEngine(engine);
+        }
     }
 
 }
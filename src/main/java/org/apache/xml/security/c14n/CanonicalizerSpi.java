@@ -116,5 +116,14 @@ public abstract class CanonicalizerSpi {
             Node rootNode, String inclusiveNamespaces, boolean propagateDefaultNamespace, OutputStream writer)
             throws CanonicalizationException;
 
+    /**
+     * Resets this engine to the state it had after construction, so that it can be reused for
+     * another canonicalization. Engines which can't be reset are not reused.
+     *
+     * @return true if the engine was reset, false (the default) if it can't be reused
+     */
+    public boolean engineReset() {
+        return false;
+    }
 
 }
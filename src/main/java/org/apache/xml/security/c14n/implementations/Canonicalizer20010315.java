@@ -22,13 +22,16 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.util.Map;
 import java.util.Set;
-import java.util.SortedSet;
-import java.util.TreeSet;
 
 import org.apache.xml.security.c14n.CanonicalizationException;
 import org.apache.xml.security.c14n.helper.C14nHelper;
 import org.apache.xml.security.parser.XMLParserException;
 import org.apache.xml.security.signature.XMLSignatureInput;
+import org.apache.xml.security.stax.ext.Transformer;
+import org.apache.xml.security.stax.impl.transformer.canonicalizer.Canonicalizer11_OmitCommentsTransformer;
+import org.apache.xml.security.stax.impl.transformer.canonicalizer.Canonicalizer11_WithCommentsTransformer;
+import org.apache.xml.security.stax.impl.transformer.canonicalizer.Canonicalizer20010315_OmitCommentsTransformer;
+import org.apache.xml.security.stax.impl.transformer.canonicalizer.Canonicalizer20010315_WithCommentsTransformer;
 import org.apache.xml.security.utils.XMLUtils;
 import org.w3c.dom.Attr;
 import org.w3c.dom.DOMException;
@@ -70,6 +73,16 @@ public abstract class Canonicalizer20010315 extends CanonicalizerBase {
         this.c14n11 = c14n11;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean engineReset() {
+        firstCall = true;
+        xmlattrStack.reset();
+        return super.engineReset();
+    }
+
 
     /**
      * Always throws a CanonicalizationException because this is inclusive c14n.
@@ -143,7 +156,7 @@ public abstract class Canonicalizer20010315 extends CanonicalizerBase {
             return;
         }
         // result will contain the attrs which have to be output
-        SortedSet<Attr> result = new TreeSet<>(COMPARE);
+        SortedAttrs result = getSortedAttrs();
 
         if (element.hasAttributes()) {
             NamedNodeMap attrs = element.getAttributes();
@@ -186,7 +199,8 @@ public abstract class Canonicalizer20010315 extends CanonicalizerBase {
         }
 
         //we output all Attrs which are available
-        for (Attr attr : result) {
+        for (int i = 0; i < result.size(); i++) {
+            Attr attr = result.get(i);
             outputAttrToWriter(attr.getNodeName(), attr.getNodeValue(), writer, cache);
         }
     }
@@ -211,7 +225,7 @@ public abstract class Canonicalizer20010315 extends CanonicalizerBase {
         // result will contain the attrs which have to be output
         xmlattrStack.push(ns.getLevel());
         boolean isRealVisible = isVisibleDO(element, ns.getLevel()) == 1;
-        SortedSet<Attr> result = new TreeSet<>(COMPARE);
+        SortedAttrs result = getSortedAttrs();
 
         if (element.hasAttributes()) {
             NamedNodeMap attrs = element.getAttributes();
@@ -291,11 +305,22 @@ public abstract class Canonicalizer20010315 extends CanonicalizerBase {
         }
 
         //we output all Attrs which are available
-        for (Attr attr : result) {
+        for (int i = 0; i < result.size(); i++) {
+            Attr attr = result.get(i);
             outputAttrToWriter(attr.getNodeName(), attr.getNodeValue(), writer, cache);
         }
     }
 
+    @Override
+    protected Transformer createStreamingTransformer(boolean includeComments, boolean octetNodeSet) {
+        if (c14n11) {
+            return includeComments ? new Canonicalizer11_WithCommentsTransformer()
+                : new Canonicalizer11_OmitCommentsTransformer();
+        }
+        return includeComments ? new Canonicalizer20010315_WithCommentsTransformer()
+            : new Canonicalizer20010315_OmitCommentsTransformer();
+    }
+
     @Override
     protected void circumventBugIfNeeded(XMLSignatureInput input)
         throws XMLParserException, IOException {
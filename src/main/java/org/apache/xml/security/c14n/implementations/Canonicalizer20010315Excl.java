@@ -20,16 +20,23 @@ package org.apache.xml.security.c14n.implementations;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
-import java.util.TreeSet;
 
 import org.apache.xml.security.c14n.CanonicalizationException;
 import org.apache.xml.security.c14n.helper.C14nHelper;
+import org.apache.xml.security.exceptions.XMLSecurityException;
 import org.apache.xml.security.parser.XMLParserException;
 import org.apache.xml.security.signature.XMLSignatureInput;
+import org.apache.xml.security.stax.ext.Transformer;
+import org.apache.xml.security.stax.impl.transformer.canonicalizer.Canonicalizer20010315_Excl;
+import org.apache.xml.security.stax.impl.transformer.canonicalizer.Canonicalizer20010315_ExclOmitCommentsTransformer;
+import org.apache.xml.security.stax.impl.transformer.canonicalizer.Canonicalizer20010315_ExclWithCommentsTransformer;
 import org.apache.xml.security.transforms.params.InclusiveNamespaces;
 import org.apache.xml.security.utils.XMLUtils;
 import org.w3c.dom.Attr;
@@ -62,6 +69,11 @@ public abstract class Canonicalizer20010315Excl extends CanonicalizerBase {
     private SortedSet<String> inclusiveNSSet = Collections.emptySortedSet();
     private boolean propagateDefaultNamespace = false;
 
+    /**
+     * The prefixes visibly utilized by the current element, reused between elements.
+     */
+    private final List<String> utilizedPrefixes = new ArrayList<>();
+
     /**
      * Constructor Canonicalizer20010315Excl
      *
@@ -71,6 +83,26 @@ public abstract class Canonicalizer20010315Excl extends CanonicalizerBase {
         super(includeComments);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean engineReset() {
+        inclusiveNSSet = Collections.emptySortedSet();
+        propagateDefaultNamespace = false;
+        utilizedPrefixes.clear();
+        return super.engineReset();
+    }
+
+    /**
+     * @return the emptied list of visibly utilized prefixes, filled with the inclusive namespaces
+     */
+    private List<String> getVisiblyUtilized() {
+        utilizedPrefixes.clear();
+        utilizedPrefixes.addAll(inclusiveNSSet);
+        return utilizedPrefixes;
+    }
+
     /**
      * Method engineCanonicalizeSubTree
      * {@inheritDoc}
@@ -167,14 +199,11 @@ public abstract class Canonicalizer20010315Excl extends CanonicalizerBase {
                                            Map<String, byte[]> cache, OutputStream writer)
         throws CanonicalizationException, DOMException, IOException {
         // result will contain the attrs which have to be output
-        SortedSet<Attr> result = new TreeSet<>(COMPARE);
+        SortedAttrs result = getSortedAttrs();
 
         // The prefix visibly utilized (in the attribute or in the name) in
         // the element
-        SortedSet<String> visiblyUtilized = new TreeSet<>();
-        if (!inclusiveNSSet.isEmpty()) {
-            visiblyUtilized.addAll(inclusiveNSSet);
-        }
+        List<String> visiblyUtilized = getVisiblyUtilized();
 
         if (element.hasAttributes()) {
             NamedNodeMap attrs = element.getAttributes();
@@ -222,15 +251,16 @@ public abstract class Canonicalizer20010315Excl extends CanonicalizerBase {
         }
         visiblyUtilized.add(prefix);
 
-        for (String s : visiblyUtilized) {
-            Attr key = ns.getMapping(s);
+        for (int i = 0; i < visiblyUtilized.size(); i++) {
+            Attr key = ns.getMapping(visiblyUtilized.get(i));
             if (key != null) {
                 result.add(key);
             }
         }
 
         //we output all Attrs which are available
-        for (Attr attr : result) {
+        for (int i = 0; i < result.size(); i++) {
+            Attr attr = result.get(i);
             outputAttrToWriter(attr.getNodeName(), attr.getNodeValue(), writer, cache);
         }
     }
@@ -240,18 +270,15 @@ public abstract class Canonicalizer20010315Excl extends CanonicalizerBase {
                                     Map<String, byte[]> cache, OutputStream writer)
         throws CanonicalizationException, DOMException, IOException {
         // result will contain the attrs which have to be output
-        SortedSet<Attr> result = new TreeSet<>(COMPARE);
+        SortedAttrs result = getSortedAttrs();
 
         // The prefix visibly utilized (in the attribute or in the name) in
         // the element
-        Set<String> visiblyUtilized = null;
+        List<String> visiblyUtilized = null;
         // It's the output selected.
         boolean isOutputElement = isVisibleDO(element, ns.getLevel()) == 1;
         if (isOutputElement) {
-            visiblyUtilized = new TreeSet<>();
-            if (!inclusiveNSSet.isEmpty()) {
-                visiblyUtilized.addAll(inclusiveNSSet);
-            }
+            visiblyUtilized = getVisiblyUtilized();
         }
 
         if (element.hasAttributes()) {
@@ -322,8 +349,8 @@ public abstract class Canonicalizer20010315Excl extends CanonicalizerBase {
             }
             visiblyUtilized.add(prefix);
 
-            for (String s : visiblyUtilized) {
-                Attr key = ns.getMapping(s);
+            for (int i = 0; i < visiblyUtilized.size(); i++) {
+                Attr key = ns.getMapping(visiblyUtilized.get(i));
                 if (key != null) {
                     result.add(key);
                 }
@@ -331,11 +358,34 @@ public abstract class Canonicalizer20010315Excl extends CanonicalizerBase {
         }
 
         //we output all Attrs which are available
-        for (Attr attr : result) {
+        for (int i = 0; i < result.size(); i++) {
+            Attr attr = result.get(i);
             outputAttrToWriter(attr.getNodeName(), attr.getNodeValue(), writer, cache);
         }
     }
 
+    /**
+     * Plain octet input is canonicalized as a whole document without an InclusiveNamespaces
+     * PrefixList, see {@link #engineCanonicalizeSubTree(Node, OutputStream)}. Only octets which
+     * stand for the node-set of the parsed document use the PrefixList.
+     */
+    @Override
+    protected Transformer createStreamingTransformer(boolean includeComments, boolean octetNodeSet)
+        throws XMLSecurityException {
+        Transformer transformer = includeComments ? new Canonicalizer20010315_ExclWithCommentsTransformer()
+            : new Canonicalizer20010315_ExclOmitCommentsTransformer();
+        if (octetNodeSet && !inclusiveNSSet.isEmpty()) {
+            List<String> prefixes = new ArrayList<>(inclusiveNSSet.size());
+            for (String prefix : inclusiveNSSet) {
+                prefixes.add(XMLNS.equals(prefix) ? "#default" : prefix);
+            }
+            Map<String, Object> properties = new HashMap<>();
+            properties.put(Canonicalizer20010315_Excl.INCLUSIVE_NAMESPACES_PREFIX_LIST, prefixes);
+            transformer.setProperties(properties);
+        }
+        return transformer;
+    }
+
     @Override
     protected void circumventBugIfNeeded(XMLSignatureInput input)
         throws XMLParserException, IOException {
@@ -18,9 +18,15 @@
  */
 package org.apache.xml.security.c14n.implementations;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -28,13 +34,27 @@ import java.util.ListIterator;
 import java.util.Map;
 import java.util.Set;
 
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
 import org.apache.xml.security.c14n.CanonicalizationException;
 import org.apache.xml.security.c14n.CanonicalizerSpi;
 import org.apache.xml.security.c14n.helper.AttrCompare;
+import org.apache.xml.security.exceptions.XMLSecurityException;
+import org.apache.xml.security.jfr.XmlSecC14nEvent;
+import org.apache.xml.security.jfr.XmlSecEvents;
 import org.apache.xml.security.parser.XMLParserException;
 import org.apache.xml.security.signature.NodeFilter;
 import org.apache.xml.security.signature.XMLSignatureInput;
+import org.apache.xml.security.stax.ext.Transformer;
+import org.apache.xml.security.stax.ext.stax.XMLSecEvent;
+import org.apache.xml.security.stax.ext.stax.XMLSecEventFactory;
+import org.apache.xml.security.stax.ext.stax.XMLSecStartElement;
+import org.apache.xml.security.stax.impl.transformer.TransformIdentity;
 import org.apache.xml.security.utils.Constants;
+import org.apache.xml.security.utils.UnsyncByteArrayInputStream;
+import org.apache.xml.security.utils.UnsyncByteArrayOutputStream;
 import org.apache.xml.security.utils.XMLUtils;
 import org.w3c.dom.Attr;
 import org.w3c.dom.Comment;
@@ -51,6 +71,9 @@ import org.w3c.dom.ProcessingInstruction;
  * https://issues.apache.org/jira/browse/SANTUARIO-463
  */
 public abstract class CanonicalizerBase extends CanonicalizerSpi {
+
+    private static final Logger LOG = System.getLogger(CanonicalizerBase.class.getName());
+
     public static final String XML = "xml";
     public static final String XMLNS = "xmlns";
     public static final String XMLNS_URI = Constants.NamespaceSpecNS;
@@ -77,7 +100,19 @@ public abstract class CanonicalizerBase extends CanonicalizerSpi {
     private static final byte[] AMP = {'&','a','m','p',';'};
     private static final byte[] EQUALS_STR = {'=','\"'};
 
+    private static final boolean STREAM_OCTETS =
+        AccessController.doPrivileged(
+            (PrivilegedAction<Boolean>) () -> Boolean.getBoolean("org.apache.xml.security.c14n.streamOctets"));
+
+    /**
+     * The maximum number of names of which the UTF-8 encoding is kept between two
+     * canonicalizations.
+     */
+    private static final int MAX_CACHED_NAMES = 512;
+
+    private final boolean includeCommentsByDefault;
     private boolean includeComments;
+    private boolean streamOctets = STREAM_OCTETS;
     private List<NodeFilter> nodeFilter;
 
     private Set<Node> xpathNodeSet;
@@ -87,15 +122,78 @@ public abstract class CanonicalizerBase extends CanonicalizerSpi {
      */
     private Attr nullNode;
 
+    /**
+     * The UTF-8 encoding of element and attribute names.
+     */
+    private final Map<String, byte[]> cache = new HashMap<>();
+
+    /**
+     * The namespace table, which is reset at the start of every canonicalization.
+     */
+    private final NameSpaceSymbTable ns = new NameSpaceSymbTable();
+
+    /**
+     * The attributes to output for the current element.
+     */
+    private final SortedAttrs sortedAttrs = new SortedAttrs();
+
+    /**
+     * The number of elements output by the current canonicalization, for the XmlSecC14nEvent.
+     */
+    private int elementCount;
+
     /**
      * Constructor CanonicalizerBase
      *
      * @param includeComments
      */
     protected CanonicalizerBase(boolean includeComments) {
+        this.includeCommentsByDefault = includeComments;
         this.includeComments = includeComments;
     }
 
+    /**
+     * Resets the state of this engine. The UTF-8 encodings of names are kept, unless there
+     * are too many of them. Subclasses with state of their own must override this method and
+     * call it.
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean engineReset() {
+        includeComments = includeCommentsByDefault;
+        streamOctets = STREAM_OCTETS;
+        nodeFilter = null;
+        xpathNodeSet = null;
+        nullNode = null;
+        // don't keep the attributes of the last document alive while pooled
+        ns.reset();
+        sortedAttrs.clear();
+        if (cache.size() > MAX_CACHED_NAMES) {
+            cache.clear();
+        }
+        return true;
+    }
+
+    /**
+     * Set whether octet input is canonicalized by streaming it through a StAX reader, instead of
+     * parsing it into a DOM first. The default is taken from the
+     * "org.apache.xml.security.c14n.streamOctets" system property.
+     *
+     * @param streamOctets whether to stream octet input
+     */
+    public void setStreamOctets(boolean streamOctets) {
+        this.streamOctets = streamOctets;
+    }
+
+    /**
+     * @return whether octet input is streamed by default, as set by the
+     * "org.apache.xml.security.c14n.streamOctets" system property
+     */
+    public static boolean isStreamOctetsByDefault() {
+        return STREAM_OCTETS;
+    }
+
     /**
      * Method engineCanonicalizeSubTree
      * {@inheritDoc}
@@ -137,7 +235,13 @@ public abstract class CanonicalizerBase extends CanonicalizerSpi {
                 includeComments = false;
             }
             if (input.hasUnprocessedInput()) {
-                engineCanonicalize(input.getBytes(), writer, secureValidation);
+                if (streamOctets || input.isOctetNodeSet()) {
+                    try (InputStream inputStream = input.getUnprocessedInput()) {
+                        canonicalizeOctets(inputStream, input.isOctetNodeSet(), writer, secureValidation);
+                    }
+                } else {
+                    engineCanonicalize(input.getBytes(), writer, secureValidation);
+                }
             } else if (input.isElement()) {
                 engineCanonicalizeSubTree(input.getSubNode(), input.getExcludeNode(), writer);
             } else if (input.isNodeSet()) {
@@ -156,6 +260,124 @@ public abstract class CanonicalizerBase extends CanonicalizerSpi {
         }
     }
 
+    /**
+     * Canonicalizes octet input. If streaming is enabled and this algorithm has a StAX
+     * counterpart, the input is read with a secure StAX reader and canonicalized event by event,
+     * without building a DOM. Input which contains a document type declaration is always parsed
+     * into a DOM, as the declarations may affect the canonical form.
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    public void engineCanonicalize(byte[] inputBytes, OutputStream writer, boolean secureValidation)
+        throws XMLParserException, IOException, CanonicalizationException {
+        if (streamOctets) {
+            try (InputStream inputStream = new UnsyncByteArrayInputStream(inputBytes)) {
+                canonicalizeOctets(inputStream, false, writer, secureValidation);
+            }
+        } else {
+            super.engineCanonicalize(inputBytes, writer, secureValidation);
+        }
+    }
+
+    /**
+     * Creates the StAX canonicalizer which is used to stream octet input.
+     *
+     * @param includeComments whether comments are included in the output
+     * @param octetNodeSet whether the octets are canonicalized like the node-set of the parsed
+     * document, see {@link XMLSignatureInput#isOctetNodeSet()}
+     * @return the StAX canonicalizer, or null if octet input is always parsed into a DOM
+     * @throws XMLSecurityException
+     */
+    protected Transformer createStreamingTransformer(boolean includeComments, boolean octetNodeSet)
+        throws XMLSecurityException {
+        return null;
+    }
+
+    private void canonicalizeOctets(
+        InputStream inputStream, boolean octetNodeSet, OutputStream writer, boolean secureValidation
+    ) throws XMLParserException, IOException, CanonicalizationException {
+        if (!inputStream.markSupported()) {
+            inputStream = new BufferedInputStream(inputStream);
+        }
+        Transformer transformer = null;
+        if (streamOctets) {
+            try {
+                transformer = createStreamingTransformer(includeComments, octetNodeSet);
+            } catch (XMLSecurityException ex) {
+                throw new CanonicalizationException(ex);
+            }
+        }
+        if (transformer != null) {
+            inputStream.mark(Integer.MAX_VALUE);
+            if (canonicalizeStream(transformer, inputStream, writer)) {
+                return;
+            }
+            inputStream.reset();
+        }
+
+        Document document = XMLUtils.read(inputStream, secureValidation);
+        if (octetNodeSet) {
+            // Unlike engineCanonicalizeSubTree(Node, OutputStream), this keeps the parameters of the algorithm
+            engineCanonicalizeSubTree(document, (Node) null, writer);
+        } else {
+            engineCanonicalizeSubTree(document, writer);
+        }
+    }
+
+    /**
+     * Feeds the parsed events of the input to the transformer. Nothing is written until the
+     * document element starts, so that the caller can still reset the input and fall back to the
+     * DOM if a document type declaration is encountered. From then on the input is no longer
+     * buffered for a reset.
+     *
+     * @return false if the input contains a document type declaration
+     */
+    private static boolean canonicalizeStream(Transformer transformer, InputStream inputStream, OutputStream writer)
+        throws CanonicalizationException, IOException {
+        UnsyncByteArrayOutputStream prolog = new UnsyncByteArrayOutputStream();
+        XMLStreamReader xmlStreamReader = null;
+        try {
+            transformer.setOutputStream(prolog);
+            xmlStreamReader = TransformIdentity.getXmlInputFactory().createXMLStreamReader(inputStream);
+            boolean inProlog = true;
+            XMLSecStartElement parentXmlSecStartElement = null;
+            while (true) {
+                XMLSecEvent xmlSecEvent = XMLSecEventFactory.allocate(xmlStreamReader, parentXmlSecStartElement);
+                int eventType = xmlSecEvent.getEventType();
+                if (eventType == XMLStreamConstants.START_ELEMENT) {
+                    if (inProlog) {
+                        inputStream.mark(0);
+                        writer.write(prolog.toByteArray());
+                        transformer.setOutputStream(writer);
+                        inProlog = false;
+                    }
+                    parentXmlSecStartElement = xmlSecEvent.asStartElement();
+                } else if (eventType == XMLStreamConstants.END_ELEMENT) {
+                    parentXmlSecStartElement = parentXmlSecStartElement.getParentXMLSecStartElement();
+                } else if (eventType == XMLStreamConstants.DTD && inProlog) {
+                    LOG.log(Level.DEBUG, "Input contains a document type declaration, falling back to the DOM");
+                    return false;
+                }
+                transformer.transform(xmlSecEvent);
+                if (!xmlStreamReader.hasNext()) {
+                    return true;
+                }
+                xmlStreamReader.next();
+            }
+        } catch (XMLStreamException | XMLSecurityException ex) {
+            throw new CanonicalizationException(ex);
+        } finally {
+            if (xmlStreamReader != null) {
+                try {
+                    xmlStreamReader.close();
+                } catch (XMLStreamException ex) {
+                    LOG.log(Level.DEBUG, ex.getMessage(), ex);
+                }
+            }
+        }
+    }
+
     /**
      * Canonicalizes a Subtree node.
      *
@@ -168,8 +390,13 @@ public abstract class CanonicalizerBase extends CanonicalizerSpi {
      */
     protected void engineCanonicalizeSubTree(Node rootNode, Node excludeNode, OutputStream writer)
         throws CanonicalizationException {
+        XmlSecC14nEvent event = XmlSecEvents.AVAILABLE ? new XmlSecC14nEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+        elementCount = 0;
         try {
-            NameSpaceSymbTable ns = new NameSpaceSymbTable();
+            ns.reset();
             int nodeLevel = NODE_BEFORE_DOCUMENT_ELEMENT;
             if (rootNode != null && Node.ELEMENT_NODE == rootNode.getNodeType()) {
                 //Fills the nssymbtable with the definitions of the parent of the root subnode
@@ -182,6 +409,8 @@ public abstract class CanonicalizerBase extends CanonicalizerSpi {
             throw new CanonicalizationException(ex);
         } catch (IOException ex) {
             throw new CanonicalizationException(ex);
+        } finally {
+            commit(event, false);
         }
     }
 
@@ -207,7 +436,6 @@ public abstract class CanonicalizerBase extends CanonicalizerSpi {
         }
         Node sibling = null;
         Node parentNode = null;
-        Map<String, byte[]> cache = new HashMap<>();
         do {    //NOPMD
             switch (currentNode.getNodeType()) {
 
@@ -245,6 +473,7 @@ public abstract class CanonicalizerBase extends CanonicalizerSpi {
                     break;
                 }
                 Element currentElement = (Element)currentNode;
+                elementCount++;
                 //Add a level to the nssymbtable. So latter can be pop-back.
                 ns.outputNodePush();
                 writer.write('<');
@@ -300,11 +529,27 @@ public abstract class CanonicalizerBase extends CanonicalizerSpi {
 
     private void engineCanonicalizeXPathNodeSetInternal(Node doc, OutputStream writer)
         throws CanonicalizationException {
+        XmlSecC14nEvent event = XmlSecEvents.AVAILABLE ? new XmlSecC14nEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+        elementCount = 0;
         try {
             this.canonicalizeXPathNodeSet(doc, doc, writer);
             writer.flush();
         } catch (IOException ex) {
             throw new CanonicalizationException(ex);
+        } finally {
+            commit(event, true);
+        }
+    }
+
+    private void commit(XmlSecC14nEvent event, boolean nodeSet) {
+        if (event != null && event.shouldCommit()) {
+            event.algorithm = engineGetURI();
+            event.nodeSet = nodeSet;
+            event.elementCount = elementCount;
+            event.commit();
         }
     }
 
@@ -324,7 +569,7 @@ public abstract class CanonicalizerBase extends CanonicalizerSpi {
             return;
         }
         boolean currentNodeIsVisible = false;
-        NameSpaceSymbTable ns = new NameSpaceSymbTable();
+        ns.reset();
         if (currentNode != null && Node.ELEMENT_NODE == currentNode.getNodeType()) {
             getParentNameSpaces((Element)currentNode, ns);
         }
@@ -334,7 +579,6 @@ public abstract class CanonicalizerBase extends CanonicalizerSpi {
         Node sibling = null;
         Node parentNode = null;
         int documentLevel = NODE_BEFORE_DOCUMENT_ELEMENT;
-        Map<String, byte[]> cache = new HashMap<>();
         do {    //NOPMD
             switch (currentNode.getNodeType()) {
 
@@ -390,6 +634,7 @@ public abstract class CanonicalizerBase extends CanonicalizerSpi {
                 }
                 currentNodeIsVisible = i == 1;
                 if (currentNodeIsVisible) {
+                    elementCount++;
                     ns.outputNodePush();
                     writer.write('<');
                     name = currentElement.getTagName();
@@ -828,4 +1073,12 @@ public abstract class CanonicalizerBase extends CanonicalizerSpi {
         return nullNode;
     }
 
+    /**
+     * @return the emptied list of the attributes to output for an element, in c14n order
+     */
+    SortedAttrs getSortedAttrs() {
+        sortedAttrs.clear();
+        return sortedAttrs;
+    }
+
 }
@@ -22,8 +22,6 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.util.Map;
 import java.util.Set;
-import java.util.SortedSet;
-import java.util.TreeSet;
 
 import org.apache.xml.security.c14n.CanonicalizationException;
 import org.apache.xml.security.c14n.Canonicalizer;
@@ -126,7 +124,7 @@ public class CanonicalizerPhysical extends CanonicalizerBase {
         throws CanonicalizationException, DOMException, IOException {
         if (element.hasAttributes()) {
             // result will contain all the attrs declared directly on that element
-            SortedSet<Attr> result = new TreeSet<>(COMPARE);
+            SortedAttrs result = getSortedAttrs();
 
             NamedNodeMap attrs = element.getAttributes();
             int attrsLength = attrs.getLength();
@@ -137,7 +135,8 @@ public class CanonicalizerPhysical extends CanonicalizerBase {
             }
 
             //we output all Attrs which are available
-            for (Attr attr : result) {
+            for (int i = 0; i < result.size(); i++) {
+                Attr attr = result.get(i);
                 outputAttrToWriter(attr.getNodeName(), attr.getNodeValue(), writer, cache);
             }
         }
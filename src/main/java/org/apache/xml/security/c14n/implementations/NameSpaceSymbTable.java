@@ -18,50 +18,58 @@
  */
 package org.apache.xml.security.c14n.implementations;
 
-import java.lang.System.Logger;
-import java.lang.System.Logger.Level;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.List;
 
 import org.w3c.dom.Attr;
 import org.w3c.dom.Node;
 
 /**
  * A stack based Symbol Table.
- *<br>For speed reasons all the symbols are introduced in the same map,
- * and at the same time in a list so it can be removed when the frame is pop back.
+ *<br>For speed reasons all the symbols are introduced in the same map. Every change of a
+ * mapping after the first push is recorded in an undo log, so that a pop only has to revert
+ * the changes of its own frame.
  */
 public class NameSpaceSymbTable {
 
-    private static final Logger LOG = System.getLogger(NameSpaceSymbTable.class.getName());
-
     private static final String XMLNS = "xmlns";
-    private static final SymbMap initialMap = new SymbMap();
-
-    static {
-        NameSpaceSymbEntry ne = new NameSpaceSymbEntry("", null, true, XMLNS);
-        ne.lastrendered = "";
-        initialMap.put(XMLNS, ne);
-    }
 
     /**The map between prefix-> entry table. */
-    private SymbMap symb;
+    private final SymbMap symb = new SymbMap();
 
-    /**The stacks for removing the definitions when doing pop.*/
-    private final List<SymbMap> level = new ArrayList<>();
-    private boolean cloned = true;
+    /**The prefixes and the replaced entries of the changes, for reverting them on pop.*/
+    private String[] undoPrefixes = new String[16];
+    private NameSpaceSymbEntry[] undoEntries = new NameSpaceSymbEntry[16];
+    private int undoSize;
+
+    /**The size of the undo log at each push.*/
+    private int[] levels = new int[16];
+    private int levelSize;
+
+    /**The number of definitions which are not rendered yet.*/
+    private int unrendered;
 
     /**
      * Default constructor
      **/
     public NameSpaceSymbTable() {
+        reset();
+    }
+
+    /**
+     * Removes all frames and definitions, except for the default binding for xmlns.
+     */
+    public void reset() {
+        symb.clear();
+        Arrays.fill(undoPrefixes, 0, undoSize, null);
+        Arrays.fill(undoEntries, 0, undoSize, null);
+        undoSize = 0;
+        levelSize = 0;
+        unrendered = 0;
         //Insert the default binding for xmlns.
-        try {
-            symb = initialMap.clone();
-        } catch (CloneNotSupportedException e) {
-            LOG.log(Level.ERROR, "Error cloning the initial map");
-        }
+        NameSpaceSymbEntry ne = new NameSpaceSymbEntry("", null, true, XMLNS);
+        ne.lastrendered = "";
+        symb.put(XMLNS, ne);
     }
 
     /**
@@ -70,14 +78,18 @@ public class NameSpaceSymbTable {
      * @param result the list where to fill the unrendered xmlns definitions.
      **/
     public void getUnrenderedNodes(Collection<Attr> result) {
-        for (NameSpaceSymbEntry nsEntry : symb.entrySet()) {
+        if (unrendered == 0) {
+            return;
+        }
+        NameSpaceSymbEntry[] entries = symb.entries;
+        for (NameSpaceSymbEntry nsEntry : entries) {
             //put them rendered?
-            if (!nsEntry.rendered && nsEntry.n != null) {
+            if (isUnrendered(nsEntry)) {
                 nsEntry = nsEntry.clone();
-                needsClone();
-                symb.put(nsEntry.prefix, nsEntry);
                 nsEntry.lastrendered = nsEntry.uri;
                 nsEntry.rendered = true;
+                // the prefix is already in the map, so the entries are not rehashed
+                set(nsEntry.prefix, nsEntry);
 
                 result.add(nsEntry.n);
             }
@@ -104,9 +116,10 @@ public class NameSpaceSymbTable {
      * Inclusive or Exclusive.
      **/
     public void push() {
-        //Put the number of namespace definitions in the stack.
-        level.add(null);
-        cloned = false;
+        if (levelSize == levels.length) {
+            levels = Arrays.copyOf(levels, levelSize << 1);
+        }
+        levels[levelSize++] = undoSize;
     }
 
     /**
@@ -114,32 +127,47 @@ public class NameSpaceSymbTable {
      * Inclusive or Exclusive.
      **/
     public void pop() {
-        int size = level.size() - 1;
-        Object ob = level.remove(size);
-        if (ob != null) {
-            symb = (SymbMap)ob;
-            if (size == 0) {
-                cloned = false;
-            } else {
-                cloned = level.get(size - 1) != symb;
-            }
-        } else {
-            cloned = false;
+        int mark = levels[--levelSize];
+        while (undoSize > mark) {
+            undoSize--;
+            String prefix = undoPrefixes[undoSize];
+            replace(prefix, symb.get(prefix), undoEntries[undoSize]);
+            undoPrefixes[undoSize] = null;
+            undoEntries[undoSize] = null;
         }
     }
 
-    final void needsClone() {
-        if (!cloned) {
-            level.set(level.size() - 1, symb);
-            try {
-                symb = symb.clone();
-            } catch (CloneNotSupportedException e) {
-                LOG.log(Level.ERROR, "Error cloning the symbol map");
+    /**
+     * Sets the entry of a prefix. Entries are never modified once they are in the map, as
+     * they may be restored by a pop.
+     */
+    private void set(String prefix, NameSpaceSymbEntry entry) {
+        NameSpaceSymbEntry old = symb.get(prefix);
+        if (levelSize > 0) {
+            if (undoSize == undoPrefixes.length) {
+                undoPrefixes = Arrays.copyOf(undoPrefixes, undoSize << 1);
+                undoEntries = Arrays.copyOf(undoEntries, undoSize << 1);
             }
-            cloned = true;
+            undoPrefixes[undoSize] = prefix;
+            undoEntries[undoSize] = old;
+            undoSize++;
+        }
+        replace(prefix, old, entry);
+    }
+
+    private void replace(String prefix, NameSpaceSymbEntry old, NameSpaceSymbEntry entry) {
+        if (isUnrendered(old)) {
+            unrendered--;
+        }
+        if (isUnrendered(entry)) {
+            unrendered++;
         }
+        symb.put(prefix, entry);
     }
 
+    private static boolean isUnrendered(NameSpaceSymbEntry entry) {
+        return entry != null && !entry.rendered && entry.n != null && !entry.uri.isEmpty();
+    }
 
     /**
      * Gets the attribute node that defines the binding for the prefix.
@@ -159,10 +187,9 @@ public class NameSpaceSymbTable {
         }
         // Mark this entry as render.
         entry = entry.clone();
-        needsClone();
-        symb.put(prefix, entry);
         entry.rendered = true;
         entry.lastrendered = entry.uri;
+        set(prefix, entry);
         // Return the node for outputting.
         return entry.n;
     }
@@ -199,8 +226,6 @@ public class NameSpaceSymbTable {
         }
         //Creates and entry in the table for this new definition.
         NameSpaceSymbEntry ne = new NameSpaceSymbEntry(uri, n, false, prefix);
-        needsClone();
-        symb.put(prefix, ne);
         if (ob != null) {
             //We have a previous definition store it for the pop.
             //Check if a previous definition(not the inmidiatly one) has been rendered.
@@ -210,6 +235,7 @@ public class NameSpaceSymbTable {
                 ne.rendered = true;
             }
         }
+        set(prefix, ne);
         return true;
     }
 
@@ -227,10 +253,9 @@ public class NameSpaceSymbTable {
         if (ob != null && uri.equals(ob.uri)) {
             if (!ob.rendered) {
                 ob = ob.clone();
-                needsClone();
-                symb.put(prefix, ob);
                 ob.lastrendered = uri;
                 ob.rendered = true;
+                set(prefix, ob);
                 return ob.n;
             }
             return null;
@@ -238,25 +263,22 @@ public class NameSpaceSymbTable {
 
         NameSpaceSymbEntry ne = new NameSpaceSymbEntry(uri, n, true, prefix);
         ne.lastrendered = uri;
-        needsClone();
-        symb.put(prefix, ne);
+        set(prefix, ne);
         if (ob != null && ob.lastrendered != null && ob.lastrendered.equals(uri)) {
-            ne.rendered = true;
             return null;
         }
         return ne.n;
     }
 
     public int getLevel() {
-        return level.size();
+        return levelSize;
     }
 
     public void removeMapping(String prefix) {
         NameSpaceSymbEntry ob = symb.get(prefix);
 
         if (ob != null) {
-            needsClone();
-            symb.put(prefix, null);
+            set(prefix, null);
         }
     }
 
@@ -264,8 +286,7 @@ public class NameSpaceSymbTable {
         NameSpaceSymbEntry ob = symb.get(prefix);
 
         if (ob != null && !ob.rendered) {
-            needsClone();
-            symb.put(prefix, null);
+            set(prefix, null);
         }
     }
 
@@ -273,8 +294,7 @@ public class NameSpaceSymbTable {
         NameSpaceSymbEntry ob = symb.get(prefix);
 
         if (ob != null && ob.rendered) {
-            needsClone();
-            symb.put(prefix, null);
+            set(prefix, null);
         }
         return false;
     }
@@ -317,7 +337,7 @@ class NameSpaceSymbEntry implements Cloneable {
     }
 }
 
-class SymbMap implements Cloneable {
+class SymbMap {
     int free = 23;
     NameSpaceSymbEntry[] entries;
     String[] keys;
@@ -339,14 +359,15 @@ class SymbMap implements Cloneable {
         }
     }
 
-    List<NameSpaceSymbEntry> entrySet() {
-        List<NameSpaceSymbEntry> a = new ArrayList<>();
-        for (NameSpaceSymbEntry nsEntry : entries) {
-            if (nsEntry != null && !nsEntry.uri.isEmpty()) {
-                a.add(nsEntry);
-            }
+    void clear() {
+        if (keys.length > 23) {
+            entries = new NameSpaceSymbEntry[23];
+            keys = new String[23];
+        } else {
+            Arrays.fill(entries, null);
+            Arrays.fill(keys, null);
         }
-        return a;
+        free = 23;
     }
 
     protected int index(Object obj) {
@@ -393,15 +414,4 @@ class SymbMap implements Cloneable {
     NameSpaceSymbEntry get(String key) {
         return entries[index(key)];
     }
-
-    @Override
-    public SymbMap clone() throws CloneNotSupportedException  {
-        SymbMap copy = (SymbMap) super.clone();
-        copy.entries = new NameSpaceSymbEntry[entries.length];
-        System.arraycopy(entries, 0, copy.entries, 0, entries.length);
-        copy.keys = new String[keys.length];
-        System.arraycopy(keys, 0, copy.keys, 0, keys.length);
-
-        return copy;
-    }
 }
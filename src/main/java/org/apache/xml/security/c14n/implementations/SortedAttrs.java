@@ -0,0 +1,187 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.c14n.implementations;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.xml.security.c14n.helper.AttrCompare;
+import org.apache.xml.security.utils.Constants;
+import org.w3c.dom.Attr;
+
+/**
+ * The attributes and namespace nodes of one element in the order of {@link AttrCompare}.
+ * Attributes are inserted at their sorted position when they are added, and an attribute
+ * which compares equal to one already added is ignored, like in a TreeSet. The sort keys
+ * are read once per attribute. The arrays are kept between elements, so filling and
+ * reading the list with {@link #get(int)} doesn't allocate for the usual handful of
+ * attributes.
+ */
+final class SortedAttrs extends AbstractCollection<Attr> {
+
+    private static final String XMLNS_URI = Constants.NamespaceSpecNS;
+    private static final String XMLNS = "xmlns";
+
+    private Attr[] attrs = new Attr[8];
+    /** Whether the attribute is a namespace node */
+    private boolean[] namespaces = new boolean[8];
+    /** The prefix of a namespace node ("" for the default namespace), or the namespace URI */
+    private String[] primaryKeys = new String[8];
+    /** The local name, or the qualified name of an attribute without namespace URI */
+    private String[] secondaryKeys = new String[8];
+    private int size;
+
+    @Override
+    public boolean add(Attr attr) {
+        String namespaceURI = attr.getNamespaceURI();
+        boolean namespace = XMLNS_URI.equals(namespaceURI);
+        String primaryKey;
+        String secondaryKey;
+        if (namespace) {
+            primaryKey = attr.getLocalName();
+            if (XMLNS.equals(primaryKey)) {
+                primaryKey = "";
+            }
+            secondaryKey = null;
+        } else {
+            primaryKey = namespaceURI;
+            secondaryKey = namespaceURI == null ? attr.getName() : attr.getLocalName();
+        }
+
+        // the attributes are mostly added in order, so compare with the last one first
+        int index = size;
+        if (size > 0) {
+            int compare = compare(size - 1, namespace, primaryKey, secondaryKey);
+            if (compare == 0) {
+                return false;
+            }
+            if (compare > 0) {
+                int low = 0;
+                int high = size - 1;
+                while (low < high) {
+                    int middle = (low + high) >>> 1;
+                    compare = compare(middle, namespace, primaryKey, secondaryKey);
+                    if (compare == 0) {
+                        return false;
+                    } else if (compare < 0) {
+                        low = middle + 1;
+                    } else {
+                        high = middle;
+                    }
+                }
+                index = low;
+            }
+        }
+
+        if (size == attrs.length) {
+            int capacity = size << 1;
+            attrs = Arrays.copyOf(attrs, capacity);
+            namespaces = Arrays.copyOf(namespaces, capacity);
+            primaryKeys = Arrays.copyOf(primaryKeys, capacity);
+            secondaryKeys = Arrays.copyOf(secondaryKeys, capacity);
+        }
+        int moved = size - index;
+        if (moved > 0) {
+            System.arraycopy(attrs, index, attrs, index + 1, moved);
+            System.arraycopy(namespaces, index, namespaces, index + 1, moved);
+            System.arraycopy(primaryKeys, index, primaryKeys, index + 1, moved);
+            System.arraycopy(secondaryKeys, index, secondaryKeys, index + 1, moved);
+        }
+        attrs[index] = attr;
+        namespaces[index] = namespace;
+        primaryKeys[index] = primaryKey;
+        secondaryKeys[index] = secondaryKey;
+        size++;
+        return true;
+    }
+
+    /**
+     * Compares the attribute at index with the given keys, in the order of AttrCompare.
+     */
+    private int compare(int index, boolean namespace, String primaryKey, String secondaryKey) {
+        if (namespaces[index] != namespace) {
+            // namespace nodes come first
+            return namespace ? 1 : -1;
+        }
+        if (namespace) {
+            return compare(primaryKeys[index], primaryKey);
+        }
+        String otherPrimaryKey = primaryKeys[index];
+        if (otherPrimaryKey != primaryKey) {    //NOPMD
+            // an attribute without namespace URI comes first
+            if (otherPrimaryKey == null) {
+                return -1;
+            } else if (primaryKey == null) {
+                return 1;
+            }
+            int compare = otherPrimaryKey.compareTo(primaryKey);
+            if (compare != 0) {
+                return compare;
+            }
+        }
+        return compare(secondaryKeys[index], secondaryKey);
+    }
+
+    private static int compare(String s0, String s1) {
+        // names are mostly interned by the parser
+        return s0 == s1 ? 0 : s0.compareTo(s1);  //NOPMD
+    }
+
+    Attr get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return attrs[index];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(attrs, 0, size, null);
+        Arrays.fill(primaryKeys, 0, size, null);
+        Arrays.fill(secondaryKeys, 0, size, null);
+        size = 0;
+    }
+
+    @Override
+    public Iterator<Attr> iterator() {
+        return new Iterator<Attr>() {
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < size;
+            }
+
+            @Override
+            public Attr next() {
+                if (index >= size) {
+                    throw new NoSuchElementException();
+                }
+                return attrs[index++];
+            }
+        };
+    }
+}
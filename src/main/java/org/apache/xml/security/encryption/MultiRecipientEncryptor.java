@@ -0,0 +1,270 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.encryption;
+
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.security.Key;
+import java.security.NoSuchAlgorithmException;
+import java.security.spec.AlgorithmParameterSpec;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+
+import org.apache.xml.security.algorithms.JCEMapper;
+import org.apache.xml.security.encryption.params.KeyAgreementParameters;
+import org.apache.xml.security.keys.KeyInfo;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * Encrypts an Element (or its content) for several recipients at once.
+ *
+ * A single content key is generated and the data is encrypted once with it. The content key
+ * is then wrapped for every recipient, and the resulting EncryptedKeys are added to the
+ * KeyInfo of the EncryptedData. Every EncryptedKey has a ReferenceList pointing to the
+ * EncryptedData and, if the recipient has a name, a Recipient attribute. If a CarriedKeyName is
+ * set, it is added to every EncryptedKey and as a KeyName to the KeyInfo of the EncryptedData.
+ *
+ * If an Executor is set, the key wrapping for the recipients runs concurrently on it while
+ * the data is encrypted on the calling thread. A MultiRecipientEncryptor must not be used by
+ * more than one thread at a time.
+ */
+public final class MultiRecipientEncryptor {
+
+    private static final Logger LOG = System.getLogger(MultiRecipientEncryptor.class.getName());
+
+    private final String algorithm;
+    private final List<Recipient> recipients = new ArrayList<>();
+    private Executor executor;
+    private String carriedKeyName;
+
+    /**
+     * @param algorithm the URI of the data encryption algorithm
+     */
+    public MultiRecipientEncryptor(String algorithm) {
+        if (algorithm == null) {
+            throw new NullPointerException("algorithm cannot be null");
+        }
+        this.algorithm = algorithm;
+    }
+
+    /**
+     * Set the Executor to wrap the content key on. By default the content key is wrapped for
+     * one recipient after the other on the calling thread.
+     *
+     * @param executor the Executor, or null to wrap on the calling thread
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Set the name of the content key, which is carried by the EncryptedKeys of all recipients.
+     * By default the EncryptedKeys don't carry a key name.
+     *
+     * @param carriedKeyName the name of the content key, or null
+     */
+    public void setCarriedKeyName(String carriedKeyName) {
+        this.carriedKeyName = carriedKeyName;
+    }
+
+    /**
+     * Add a recipient, for which the content key is wrapped with the given key.
+     *
+     * @param keyWrapAlgorithm the URI of the key wrap or key transport algorithm
+     * @param kek the public key or SecretKey of the recipient
+     * @param name the name of the recipient, or null
+     * @throws XMLEncryptionException if no XMLCipher can be created for the algorithm or key
+     */
+    public void addRecipient(String keyWrapAlgorithm, Key kek, String name) throws XMLEncryptionException {
+        XMLCipher keyCipher = XMLCipher.getInstance(keyWrapAlgorithm);
+        keyCipher.init(XMLCipher.WRAP_MODE, kek);
+        addRecipient(keyCipher, null, name);
+    }
+
+    /**
+     * Add a recipient, for which the content key is wrapped with the given XMLCipher.
+     *
+     * @param keyCipher an XMLCipher in WRAP_MODE, which is used for this recipient only
+     * @param params the OAEPParameterSpec or KeyAgreementParameters to wrap with, or null
+     * @param name the name of the recipient, or null
+     */
+    public void addRecipient(XMLCipher keyCipher, AlgorithmParameterSpec params, String name) {
+        if (keyCipher == null) {
+            throw new NullPointerException("keyCipher cannot be null");
+        }
+        recipients.add(new Recipient(keyCipher, params, name));
+    }
+
+    /**
+     * Encrypts an Element (or its content) and replaces it with the EncryptedData.
+     *
+     * @param context the context Document
+     * @param element the Element to encrypt
+     * @param content true to encrypt the content of the Element only
+     * @return the context Document
+     * @throws Exception if the data can't be encrypted or the key can't be wrapped for a recipient
+     */
+    public Document doFinal(Document context, Element element, boolean content) throws Exception {
+        if (recipients.isEmpty()) {
+            throw new XMLEncryptionException("empty", "No recipients to encrypt for");
+        }
+        SecretKey contentKey = generateContentKey();
+
+        List<FutureTask<byte[]>> wrapTasks = new ArrayList<>(recipients.size());
+        List<AlgorithmParameterSpec> wrapParameters = new ArrayList<>(recipients.size());
+        try {
+            for (Recipient recipient : recipients) {
+                AlgorithmParameterSpec params = copyParameters(recipient.params);
+                FutureTask<byte[]> wrapTask =
+                    new FutureTask<>(() -> recipient.keyCipher.wrapKey(contentKey, params, null));
+                wrapTasks.add(wrapTask);
+                wrapParameters.add(params);
+                if (executor == null) {
+                    wrapTask.run();
+                } else {
+                    executor.execute(wrapTask);
+                }
+            }
+
+            XMLCipher dataCipher = XMLCipher.getInstance(algorithm);
+            dataCipher.init(XMLCipher.ENCRYPT_MODE, contentKey);
+            EncryptedData encryptedData = dataCipher.encryptData(context, element, content);
+            if (encryptedData.getId() == null) {
+                encryptedData.setId("ED-" + UUID.randomUUID());
+            }
+            KeyInfo keyInfo = encryptedData.getKeyInfo();
+            if (keyInfo == null) {
+                keyInfo = new KeyInfo(context);
+                encryptedData.setKeyInfo(keyInfo);
+            }
+            if (carriedKeyName != null) {
+                keyInfo.addKeyName(carriedKeyName);
+            }
+
+            for (int i = 0; i < recipients.size(); i++) {
+                Recipient recipient = recipients.get(i);
+                byte[] encryptedBytes = getWrappedKey(wrapTasks.get(i));
+                EncryptedKey encryptedKey =
+                    recipient.keyCipher.createEncryptedKey(context, encryptedBytes, wrapParameters.get(i));
+                encryptedKey.setId("EK-" + UUID.randomUUID());
+                ReferenceList referenceList = recipient.keyCipher.createReferenceList(ReferenceList.DATA_REFERENCE);
+                referenceList.add(referenceList.newDataReference("#" + encryptedData.getId()));
+                encryptedKey.setReferenceList(referenceList);
+                if (recipient.name != null) {
+                    encryptedKey.setRecipient(recipient.name);
+                }
+                if (carriedKeyName != null) {
+                    encryptedKey.setCarriedName(carriedKeyName);
+                }
+                keyInfo.add(encryptedKey);
+            }
+            LOG.log(Level.DEBUG, "Wrapped the content key for {0} recipients", recipients.size());
+
+            Element encryptedElement = dataCipher.martial(context, encryptedData);
+            if (content) {
+                Node child = element.getFirstChild();
+                while (child != null) {
+                    Node next = child.getNextSibling();
+                    element.removeChild(child);
+                    child = next;
+                }
+                element.appendChild(encryptedElement);
+            } else {
+                element.getParentNode().replaceChild(encryptedElement, element);
+            }
+            return context;
+        } finally {
+            for (FutureTask<byte[]> wrapTask : wrapTasks) {
+                wrapTask.cancel(true);
+            }
+        }
+    }
+
+    private SecretKey generateContentKey() throws XMLEncryptionException {
+        String keyAlgorithm = JCEMapper.getJCEKeyAlgorithmFromURI(algorithm);
+        int keyLength = JCEMapper.getKeyLengthFromURI(algorithm);
+        if (keyAlgorithm == null || keyLength <= 0) {
+            throw new XMLEncryptionException("algorithms.NoSuchMap", algorithm);
+        }
+        try {
+            KeyGenerator keyGenerator = KeyGenerator.getInstance(keyAlgorithm);
+            keyGenerator.init(keyLength);
+            return keyGenerator.generateKey();
+        } catch (NoSuchAlgorithmException e) {
+            throw new XMLEncryptionException(e);
+        }
+    }
+
+    /**
+     * KeyAgreementParameters are completed with the ephemeral originator key pair, which must
+     * not be reused for another document.
+     */
+    private static AlgorithmParameterSpec copyParameters(AlgorithmParameterSpec params) {
+        if (!(params instanceof KeyAgreementParameters)) {
+            return params;
+        }
+        KeyAgreementParameters keyAgreementParameters = (KeyAgreementParameters) params;
+        KeyAgreementParameters copy = new KeyAgreementParameters(keyAgreementParameters.getActorType(),
+            keyAgreementParameters.getKeyAgreementAlgorithm(), keyAgreementParameters.getKeyDerivationParameter());
+        copy.setRecipientPublicKey(keyAgreementParameters.getRecipientPublicKey());
+        copy.setOriginatorPublicKey(keyAgreementParameters.getOriginatorPublicKey());
+        copy.setOriginatorPrivateKey(keyAgreementParameters.getOriginatorPrivateKey());
+        return copy;
+    }
+
+    private static byte[] getWrappedKey(FutureTask<byte[]> wrapTask) throws XMLEncryptionException {
+        try {
+            return wrapTask.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof XMLEncryptionException) {
+                throw (XMLEncryptionException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new XMLEncryptionException((Exception) cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new XMLEncryptionException(e);
+        }
+    }
+
+    private static final class Recipient {
+
+        private final XMLCipher keyCipher;
+        private final AlgorithmParameterSpec params;
+        private final String name;
+
+        Recipient(XMLCipher keyCipher, AlgorithmParameterSpec params, String name) {
+            this.keyCipher = keyCipher;
+            this.params = params;
+            this.name = name;
+        }
+    }
+}
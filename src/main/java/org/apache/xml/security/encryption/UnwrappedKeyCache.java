@@ -0,0 +1,183 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.encryption;
+
+import java.nio.ByteBuffer;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.apache.xml.security.utils.CacheUtils;
+
+/**
+ * An opt-in cache of unwrapped EncryptedKeys, for senders which reuse the same wrapped key
+ * for many messages.
+ *
+ * An entry is keyed by a SHA-256 hash over the encrypted key octets (the CipherValue), the
+ * encoded unwrapping key and the algorithm parameters of the EncryptedKey. A hit means that
+ * exactly these octets were already unwrapped with exactly this key and these parameters, so
+ * the private key (or key agreement) operation can be skipped. Only successful unwraps are
+ * stored.
+ *
+ * The cache is held in memory only. It is bounded in size (least recently used entries are
+ * evicted first) and every entry expires after the configured time to live. The key octets
+ * of evicted, expired and cleared entries are overwritten with zeros. Instances are
+ * thread-safe and are meant to be shared.
+ */
+public final class UnwrappedKeyCache {
+
+    private final long timeToLiveNanos;
+    private final Map<ByteBuffer, CachedKey> entries;
+
+    /**
+     * @param maxEntries the maximum number of cached keys
+     * @param timeToLive how long an unwrapped key stays cached
+     */
+    public UnwrappedKeyCache(int maxEntries, Duration timeToLive) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        if (timeToLive == null || timeToLive.isNegative() || timeToLive.isZero()) {
+            throw new IllegalArgumentException("timeToLive must be positive");
+        }
+        this.timeToLiveNanos = timeToLive.toNanos();
+        this.entries = CacheUtils.newLRUMap(maxEntries, CachedKey::destroy);
+    }
+
+    /**
+     * Returns the key octets which were unwrapped from the given encrypted octets before.
+     *
+     * @param encryptedKey the encrypted key octets
+     * @param unwrappingKey the key which unwraps the encrypted key
+     * @param algorithmParameters the algorithm URIs and parameters of the EncryptedKey
+     * @return a copy of the key octets, or null if they are not cached
+     */
+    public byte[] get(byte[] encryptedKey, Key unwrappingKey, String... algorithmParameters) {
+        ByteBuffer cacheKey = getCacheKey(encryptedKey, unwrappingKey, algorithmParameters);
+        if (cacheKey == null) {
+            return null;
+        }
+        long now = System.nanoTime();
+        synchronized (entries) {
+            CachedKey entry = entries.get(cacheKey);
+            if (entry == null) {
+                return null;
+            }
+            if (now - entry.expiry >= 0) {
+                entries.remove(cacheKey);
+                entry.destroy();
+                return null;
+            }
+            return entry.key.clone();
+        }
+    }
+
+    /**
+     * Records the key octets which were unwrapped from the given encrypted octets.
+     *
+     * @param encryptedKey the encrypted key octets
+     * @param unwrappingKey the key which unwrapped the encrypted key
+     * @param unwrappedKey the unwrapped key octets, which are copied
+     * @param algorithmParameters the algorithm URIs and parameters of the EncryptedKey
+     */
+    public void put(byte[] encryptedKey, Key unwrappingKey, byte[] unwrappedKey, String... algorithmParameters) {
+        ByteBuffer cacheKey = getCacheKey(encryptedKey, unwrappingKey, algorithmParameters);
+        if (cacheKey == null || unwrappedKey == null) {
+            return;
+        }
+        CachedKey entry = new CachedKey(unwrappedKey.clone(), System.nanoTime() + timeToLiveNanos);
+        synchronized (entries) {
+            CachedKey previous = entries.put(cacheKey, entry);
+            if (previous != null) {
+                previous.destroy();
+            }
+        }
+    }
+
+    /**
+     * @return the number of cached keys, including keys that have expired but were not
+     * looked up since
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Removes all cached keys.
+     */
+    public void clear() {
+        synchronized (entries) {
+            Iterator<CachedKey> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                iterator.next().destroy();
+                iterator.remove();
+            }
+        }
+    }
+
+    private static ByteBuffer getCacheKey(byte[] encryptedKey, Key unwrappingKey, String... algorithmParameters) {
+        if (encryptedKey == null || unwrappingKey == null || algorithmParameters == null) {
+            return null;
+        }
+        byte[] encodedKey = unwrappingKey.getEncoded();
+        if (encodedKey == null) {
+            // Keys which can't be exported (e.g. held in a HSM) can't be fingerprinted
+            return null;
+        }
+        MessageDigest md = CacheUtils.getKeyDigest();
+        if (md == null) {
+            return null;
+        }
+        CacheUtils.updateKeyDigest(md, unwrappingKey.getAlgorithm());
+        CacheUtils.updateKeyDigest(md, encodedKey);
+        Arrays.fill(encodedKey, (byte) 0);
+        CacheUtils.updateKeyDigest(md, encryptedKey);
+        md.update((byte) algorithmParameters.length);
+        for (String algorithmParameter : algorithmParameters) {
+            if (algorithmParameter == null) {
+                // A missing parameter must differ from an empty one
+                md.update((byte) 0);
+            } else {
+                md.update((byte) 1);
+                CacheUtils.updateKeyDigest(md, algorithmParameter);
+            }
+        }
+        return ByteBuffer.wrap(md.digest());
+    }
+
+    private static final class CachedKey {
+
+        private final byte[] key;
+        private final long expiry;
+
+        CachedKey(byte[] key, long expiry) {
+            this.key = key;
+            this.expiry = expiry;
+        }
+
+        void destroy() {
+            Arrays.fill(key, (byte) 0);
+        }
+    }
+}
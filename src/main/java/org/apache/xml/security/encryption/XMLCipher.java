@@ -31,6 +31,7 @@ import java.security.*;
 import java.security.spec.AlgorithmParameterSpec;
 import java.security.spec.MGF1ParameterSpec;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -47,6 +48,7 @@ import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.NoSuchPaddingException;
 import javax.crypto.spec.OAEPParameterSpec;
 import javax.crypto.spec.PSource;
+import javax.crypto.spec.SecretKeySpec;
 import javax.xml.transform.TransformerConfigurationException;
 
 import org.apache.xml.security.algorithms.JCEMapper;
@@ -54,13 +56,20 @@ import org.apache.xml.security.algorithms.MessageDigestAlgorithm;
 import org.apache.xml.security.c14n.Canonicalizer;
 import org.apache.xml.security.c14n.InvalidCanonicalizerException;
 import org.apache.xml.security.encryption.keys.KeyInfoEnc;
+import org.apache.xml.security.encryption.params.ConcatKDFParams;
+import org.apache.xml.security.encryption.params.HKDFParams;
 import org.apache.xml.security.encryption.params.KeyAgreementParameters;
+import org.apache.xml.security.encryption.params.KeyDerivationParameters;
 import org.apache.xml.security.exceptions.XMLSecurityException;
+import org.apache.xml.security.jfr.XmlSecDecryptEvent;
+import org.apache.xml.security.jfr.XmlSecEvents;
 import org.apache.xml.security.keys.KeyInfo;
 import org.apache.xml.security.encryption.keys.content.AgreementMethodImpl;
 import org.apache.xml.security.keys.keyresolver.KeyResolverException;
 import org.apache.xml.security.keys.keyresolver.KeyResolverSpi;
 import org.apache.xml.security.keys.keyresolver.implementations.EncryptedKeyResolver;
+import org.apache.xml.security.metrics.Metrics;
+import org.apache.xml.security.metrics.Operation;
 import org.apache.xml.security.signature.XMLSignatureException;
 import org.apache.xml.security.stax.ext.XMLSecurityConstants;
 import org.apache.xml.security.transforms.InvalidTransformException;
@@ -290,6 +299,12 @@ public final class XMLCipher {
 
     private String digestAlg;
 
+    /** Pool of ephemeral key pairs for key agreement, if any */
+    private EphemeralKeyPairPool ephemeralKeyPairPool;
+
+    /** Cache of unwrapped keys, if any */
+    private UnwrappedKeyCache unwrappedKeyCache;
+
     /** List of internal KeyResolvers for DECRYPT and UNWRAP modes. */
     private List<KeyResolverSpi> internalKeyResolvers;
 
@@ -674,6 +689,27 @@ public final class XMLCipher {
         this.secureValidation = secureValidation;
     }
 
+    /**
+     * Set the pool to take the ephemeral originator key pairs from when wrapping keys with
+     * a key agreement. By default, the key pairs are generated when they are needed.
+     *
+     * @param ephemeralKeyPairPool the pool or null to generate the key pairs
+     */
+    public void setEphemeralKeyPairPool(EphemeralKeyPairPool ephemeralKeyPairPool) {
+        this.ephemeralKeyPairPool = ephemeralKeyPairPool;
+    }
+
+    /**
+     * Set a cache of the keys unwrapped in UNWRAP_MODE, and when resolving EncryptedKeys in
+     * DECRYPT_MODE. An EncryptedKey with the same encrypted octets, unwrapping key and
+     * algorithm parameters as a cached one is not unwrapped again. By default no cache is used.
+     *
+     * @param unwrappedKeyCache the cache to use, or null to disable caching
+     */
+    public void setUnwrappedKeyCache(UnwrappedKeyCache unwrappedKeyCache) {
+        this.unwrappedKeyCache = unwrappedKeyCache;
+    }
+
     /**
      * This method is used to add a custom {@link KeyResolverSpi} to an XMLCipher.
      * These KeyResolvers are used in KeyInfo objects in DECRYPT and
@@ -1093,6 +1129,14 @@ public final class XMLCipher {
 
     private EncryptedData encryptData(
         Document context, Element element, String type, InputStream serializedData
+    ) throws /* XMLEncryption */ Exception {
+        try (Metrics.Timer timer = Metrics.start(Operation.ENCRYPT, algorithm)) {
+            return encryptData(context, element, type, serializedData, timer);
+        }
+    }
+
+    private EncryptedData encryptData(
+        Document context, Element element, String type, InputStream serializedData, Metrics.Timer timer
     ) throws /* XMLEncryption */ Exception {
         contextDocument = context;
 
@@ -1172,6 +1216,7 @@ public final class XMLCipher {
                 | BadPaddingException | UnsupportedEncodingException e) {
             throw new XMLEncryptionException(e);
         }
+        timer.setBytes(encryptedBytes.length);
 
         // Get IV from Cipher Object. If this is null (see BouncyCastle issue BJA-473) then use
         // the original IV that was generated
@@ -1356,6 +1401,21 @@ public final class XMLCipher {
             AlgorithmParameterSpec params,
             SecureRandom random
     ) throws XMLEncryptionException {
+        byte[] encryptedBytes = wrapKey(key, params, random);
+        return createEncryptedKey(doc, encryptedBytes, params);
+    }
+
+    /**
+     * Wraps a key with the KEK of this XMLCipher, without creating any DOM nodes. Instances
+     * which are used by different threads can therefore share the same Document.
+     *
+     * @param key Key to encrypt
+     * @param params the OAEPParameterSpec or KeyAgreementParameters, or null
+     * @param random The SecureRandom instance to use when initializing the Cipher, or null
+     * @return the encrypted key octets
+     * @throws XMLEncryptionException
+     */
+    byte[] wrapKey(Key key, AlgorithmParameterSpec params, SecureRandom random) throws XMLEncryptionException {
         LOG.log(Level.DEBUG, "Encrypting key using algorithm specs [{0}] ...", params);
 
         if (null == key) {
@@ -1368,8 +1428,6 @@ public final class XMLCipher {
             throw new XMLEncryptionException("empty", "XMLCipher instance without transformation specified");
         }
 
-        contextDocument = doc;
-
         byte[] encryptedBytes = null;
         Cipher c;
 
@@ -1412,6 +1470,21 @@ public final class XMLCipher {
         } catch (InvalidKeyException | IllegalBlockSizeException | InvalidAlgorithmParameterException e) {
             throw new XMLEncryptionException(e);
         }
+        return encryptedBytes;
+    }
+
+    /**
+     * Creates the EncryptedKey structure for key octets returned by {@link #wrapKey}.
+     *
+     * @param doc the Context document that will be used to general DOM
+     * @param encryptedBytes the encrypted key octets
+     * @param params the parameters which were used to wrap the key
+     * @return the <code>EncryptedKey</code>
+     * @throws XMLEncryptionException
+     */
+    EncryptedKey createEncryptedKey(Document doc, byte[] encryptedBytes, AlgorithmParameterSpec params)
+        throws XMLEncryptionException {
+        contextDocument = doc;
 
         String base64EncodedEncryptedOctets = XMLUtils.encodeToString(encryptedBytes);
         LOG.log(Level.DEBUG, "Encrypted key octets:\n{0}", base64EncodedEncryptedOctets);
@@ -1522,6 +1595,18 @@ public final class XMLCipher {
             throw new XMLEncryptionException(e);
         }
 
+        String[] cacheParameters = null;
+        if (unwrappedKeyCache != null) {
+            cacheParameters = getUnwrappedKeyCacheParameters(encryptedKey.getEncryptionMethod(), params, jceKeyAlgorithm);
+            byte[] cachedKey = unwrappedKeyCache.get(encryptedBytes, key, cacheParameters);
+            if (cachedKey != null) {
+                LOG.log(Level.DEBUG, "Found the unwrapped key of type {0} in the cache", algorithm);
+                ret = new SecretKeySpec(cachedKey, jceKeyAlgorithm);
+                Arrays.fill(cachedKey, (byte) 0);
+                return ret;
+            }
+        }
+
         try {
 
             if (params == null) {
@@ -1539,6 +1624,14 @@ public final class XMLCipher {
         }
         LOG.log(Level.DEBUG, "Decryption of key type {0} OK", algorithm);
 
+        if (cacheParameters != null) {
+            byte[] encodedKey = ret.getEncoded();
+            if (encodedKey != null) {
+                unwrappedKeyCache.put(encryptedBytes, key, encodedKey, cacheParameters);
+                Arrays.fill(encodedKey, (byte) 0);
+            }
+        }
+
         return ret;
     }
 
@@ -1574,12 +1667,61 @@ public final class XMLCipher {
         if (keyAgreementParameter.getOriginatorPrivateKey() == null) {
             LOG.log(Level.DEBUG, "Originator's private key is not set in keyAgreementParameter, " +
                     "generate an ephemeral key for the originator's private key.");
-            KeyPair originatorKeyPair = KeyUtils.generateEphemeralDHKeyPair(
-                    keyAgreementParameter.getRecipientPublicKey(), null);
+            PublicKey recipientPublicKey = keyAgreementParameter.getRecipientPublicKey();
+            KeyPair originatorKeyPair = ephemeralKeyPairPool == null
+                    ? KeyUtils.generateEphemeralDHKeyPair(recipientPublicKey, null)
+                    : ephemeralKeyPairPool.take(recipientPublicKey);
             keyAgreementParameter.setOriginatorKeyPair(originatorKeyPair);
         }
     }
 
+    /**
+     * Returns the algorithm parameters which an unwrapped key depends on, besides the encrypted
+     * octets and the unwrapping key, or null if the key can't be cached.
+     */
+    private static String[] getUnwrappedKeyCacheParameters(EncryptionMethod encryptionMethod,
+                                                           AlgorithmParameterSpec params, String jceKeyAlgorithm) {
+        byte[] oaepParams = encryptionMethod.getOAEPparams();
+        List<String> parameters = new ArrayList<>();
+        parameters.add(jceKeyAlgorithm);
+        parameters.add(encryptionMethod.getAlgorithm());
+        parameters.add(encryptionMethod.getDigestAlgorithm());
+        parameters.add(encryptionMethod.getMGFAlgorithm());
+        parameters.add(oaepParams == null ? null : XMLUtils.encodeToString(oaepParams));
+        if (params instanceof KeyAgreementParameters) {
+            KeyAgreementParameters keyAgreementParameters = (KeyAgreementParameters) params;
+            PublicKey originatorPublicKey = keyAgreementParameters.getOriginatorPublicKey();
+            KeyDerivationParameters keyDerivationParameters = keyAgreementParameters.getKeyDerivationParameter();
+            if (originatorPublicKey == null || originatorPublicKey.getEncoded() == null
+                || keyDerivationParameters == null) {
+                return null;
+            }
+            parameters.add(keyAgreementParameters.getKeyAgreementAlgorithm());
+            parameters.add(XMLUtils.encodeToString(originatorPublicKey.getEncoded()));
+            parameters.add(keyDerivationParameters.getAlgorithm());
+            parameters.add(String.valueOf(keyDerivationParameters.getKeyBitLength()));
+            if (keyDerivationParameters instanceof ConcatKDFParams) {
+                ConcatKDFParams concatKDFParams = (ConcatKDFParams) keyDerivationParameters;
+                parameters.add(concatKDFParams.getDigestAlgorithm());
+                parameters.add(concatKDFParams.getAlgorithmID());
+                parameters.add(concatKDFParams.getPartyUInfo());
+                parameters.add(concatKDFParams.getPartyVInfo());
+                parameters.add(concatKDFParams.getSuppPubInfo());
+                parameters.add(concatKDFParams.getSuppPrivInfo());
+            } else if (keyDerivationParameters instanceof HKDFParams) {
+                HKDFParams hkdfParams = (HKDFParams) keyDerivationParameters;
+                parameters.add(hkdfParams.getHmacHashAlgorithm());
+                parameters.add(hkdfParams.getSalt() == null ? null : XMLUtils.encodeToString(hkdfParams.getSalt()));
+                parameters.add(hkdfParams.getInfo() == null ? null : XMLUtils.encodeToString(hkdfParams.getInfo()));
+            } else {
+                return null;
+            }
+        } else if (params != null && !(params instanceof OAEPParameterSpec)) {
+            return null;
+        }
+        return parameters.toArray(new String[0]);
+    }
+
     /**
      *  Method resolves the EncryptedKey  using the EncryptedKeyResolver
      *
@@ -1841,13 +1983,53 @@ public final class XMLCipher {
 
         EncryptedData encryptedData = factory.newEncryptedData(element);
         String encMethodAlgorithm = encryptedData.getEncryptionMethod().getAlgorithm();
+        checkNotSegmented(element, encMethodAlgorithm);
+
+        XmlSecDecryptEvent event = XmlSecEvents.AVAILABLE ? new XmlSecDecryptEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+        try (Metrics.Timer timer = Metrics.start(Operation.DECRYPT, encMethodAlgorithm)) {
+            byte[] decryptedBytes = decryptToByteArray(encryptedData, encMethodAlgorithm);
+            timer.setBytes(decryptedBytes.length);
+            if (event != null) {
+                event.bytes = decryptedBytes.length;
+            }
+            return decryptedBytes;
+        } finally {
+            if (event != null && event.shouldCommit()) {
+                event.encryptionAlgorithm = encMethodAlgorithm;
+                event.commit();
+            }
+        }
+    }
 
+    /**
+     * AES-GCM ciphertext which the streaming API encrypted in segments, see
+     * {@link org.apache.xml.security.stax.ext.XMLSecurityProperties#setEncryptionSegmentSize(int)},
+     * is marked by a SegmentSize parameter of the EncryptionMethod and can't be decrypted here.
+     */
+    private static void checkNotSegmented(Element element, String encMethodAlgorithm)
+        throws XMLEncryptionException {
+        Element encryptionMethodElement =
+            XMLUtils.selectXencNode(element.getFirstChild(), EncryptionConstants._TAG_ENCRYPTIONMETHOD, 0);
+        if (encryptionMethodElement != null
+            && encryptionMethodElement.getElementsByTagNameNS(
+                XMLSecurityConstants.TAG_sgcm_SegmentSize.getNamespaceURI(),
+                XMLSecurityConstants.TAG_sgcm_SegmentSize.getLocalPart()).getLength() > 0) {
+            throw new XMLEncryptionException("encryption.segmentedGCMNotSupported", encMethodAlgorithm);
+        }
+    }
+
+    private byte[] decryptToByteArray(EncryptedData encryptedData, String encMethodAlgorithm)
+        throws XMLEncryptionException {
         if (key == null) {
             KeyInfo ki = encryptedData.getKeyInfo();
             if (ki != null) {
                 try {
                     // Add an EncryptedKey resolver
-                    EncryptedKeyResolver resolver = new EncryptedKeyResolver(encMethodAlgorithm, kek, internalKeyResolvers);
+                    EncryptedKeyResolver resolver =
+                        new EncryptedKeyResolver(encMethodAlgorithm, kek, internalKeyResolvers, unwrappedKeyCache);
                     ki.registerInternalKeyResolver(resolver);
                     ki.setSecureValidation(secureValidation);
                     key = ki.getSecretKey();
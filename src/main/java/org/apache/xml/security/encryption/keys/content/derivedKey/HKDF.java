@@ -22,6 +22,7 @@ import org.apache.xml.security.algorithms.JCEMapper;
 import org.apache.xml.security.encryption.params.HKDFParams;
 import org.apache.xml.security.exceptions.XMLSecurityException;
 import org.apache.xml.security.utils.I18n;
+import org.apache.xml.security.utils.JCEInstanceCache;
 
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
@@ -156,25 +157,19 @@ public class HKDF implements DerivationAlgorithm<HKDFParams> {
      *  fails to initialize
      */
     private Mac initHMac(String jceAlgorithmName, byte[] initSecret, boolean initPRK) throws XMLSecurityException {
-        Mac mac;
         try {
             LOG.log(DEBUG, "Init Mac with hash algorithm: [{}]", jceAlgorithmName);
-            mac = Mac.getInstance(jceAlgorithmName);
+            if (initPRK && (initSecret == null || initSecret.length == 0)) {
+                //  If "initSecret"/salt is not provided, a string of zero octets as long as the hash function output is used
+                LOG.log(DEBUG, "Init Mac with hmac algorithm [{}] and empty salt!", jceAlgorithmName);
+                initSecret = new byte[JCEInstanceCache.getMac(jceAlgorithmName).getMacLength()];
+            }
+            SecretKeySpec secretKey = new SecretKeySpec(initSecret, jceAlgorithmName);
+            return JCEInstanceCache.getMac(jceAlgorithmName, secretKey);
         } catch (NoSuchAlgorithmException e) {
             throw new XMLSecurityException(e, "KeyDerivation.NotSupportedParameter", new Object[]{jceAlgorithmName});
-        }
-
-        if (initPRK && (initSecret == null || initSecret.length == 0)) {
-            //  If "initSecret"/salt is not provided, a string of zero octets as long as the hash function output is used
-            LOG.log(DEBUG, "Init Mac with hmac algorithm [{}] and empty salt!", jceAlgorithmName);
-            initSecret = new byte[mac.getMacLength()];
-        }
-        SecretKeySpec secretKey = new SecretKeySpec(initSecret, jceAlgorithmName);
-        try {
-            mac.init(secretKey);
         } catch (InvalidKeyException e) {
             throw new XMLSecurityException(e);
         }
-        return mac;
     }
 }
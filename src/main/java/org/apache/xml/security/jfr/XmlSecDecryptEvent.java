@@ -0,0 +1,50 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Decrypts an EncryptedData.
+ */
+@Name(XmlSecEvents.NAME_PREFIX + "Decrypt")
+@Label("XML Encryption Decrypt")
+@Category(XmlSecEvents.CATEGORY)
+@Description("Decrypts an EncryptedData")
+@StackTrace(false)
+public final class XmlSecDecryptEvent extends Event {
+
+    @Label("Encryption Algorithm")
+    public String encryptionAlgorithm;
+
+    @Label("Streaming")
+    @Description("Whether the EncryptedData was decrypted by the streaming (StAX) API")
+    public boolean streaming;
+
+    @Label("Decrypted Bytes")
+    @Description("The number of bytes decrypted, 0 if the decryption was streamed")
+    @DataAmount
+    public long bytes;
+}
@@ -0,0 +1,56 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.jfr;
+
+/**
+ * The JDK Flight Recorder events of the XML Security operations. The events are disabled unless
+ * a recording enables them, e.g. with
+ * <pre>
+ * -XX:StartFlightRecording:settings=profile,org.apache.xml.security.Sign#enabled=true
+ * </pre>
+ * or through {@code jdk.jfr.Recording.enable(XmlSecSignEvent.class)}. A disabled event costs
+ * a field read of the JVM.
+ * <p>
+ * The jdk.jfr module is optional, a runtime image built without it runs with the events
+ * switched off. The callers create an event only if {@link #AVAILABLE} is set.
+ */
+public final class XmlSecEvents {
+
+    /** The prefix of the names of the events */
+    public static final String NAME_PREFIX = "org.apache.xml.security.";
+
+    /** The category of the events in JDK Mission Control */
+    public static final String CATEGORY = "XML Security";
+
+    /** Whether the jdk.jfr module is present, the events cannot be loaded otherwise */
+    public static final boolean AVAILABLE = isJfrPresent();
+
+    private XmlSecEvents() {
+        // complete
+    }
+
+    private static boolean isJfrPresent() {
+        try {
+            Class.forName("jdk.jfr.Event", false, XmlSecEvents.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Dereferences, transforms and digests a Reference.
+ */
+@Name(XmlSecEvents.NAME_PREFIX + "ReferenceDigest")
+@Label("XML Signature Reference Digest")
+@Category(XmlSecEvents.CATEGORY)
+@Description("Dereferences, transforms and digests a Reference")
+@StackTrace(false)
+public final class XmlSecReferenceDigestEvent extends Event {
+
+    @Label("Reference URI")
+    public String referenceURI;
+
+    @Label("Digest Algorithm")
+    public String digestAlgorithm;
+
+    @Label("Transforms")
+    public int transformCount;
+
+    @Label("Digested Bytes")
+    @Description("The number of bytes digested, or the size of the file if its digest value was cached")
+    @DataAmount
+    public long bytes;
+
+    @Label("Validating")
+    public boolean validating;
+}
@@ -0,0 +1,46 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Digests the References of an XML Signature and signs its SignedInfo.
+ */
+@Name(XmlSecEvents.NAME_PREFIX + "Sign")
+@Label("XML Signature Sign")
+@Category(XmlSecEvents.CATEGORY)
+@Description("Digests the References of an XML Signature and signs its SignedInfo")
+@StackTrace(false)
+public final class XmlSecSignEvent extends Event {
+
+    @Label("Signature Algorithm")
+    public String signatureAlgorithm;
+
+    @Label("Canonicalization Algorithm")
+    public String canonicalizationAlgorithm;
+
+    @Label("References")
+    public int referenceCount;
+}
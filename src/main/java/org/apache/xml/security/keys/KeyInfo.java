@@ -33,6 +33,8 @@ import org.apache.xml.security.encryption.EncryptedKey;
 import org.apache.xml.security.encryption.XMLCipher;
 import org.apache.xml.security.encryption.XMLEncryptionException;
 import org.apache.xml.security.exceptions.XMLSecurityException;
+import org.apache.xml.security.jfr.XmlSecEvents;
+import org.apache.xml.security.jfr.XmlSecKeyResolveEvent;
 import org.apache.xml.security.keys.content.*;
 import org.apache.xml.security.keys.content.keyvalues.DSAKeyValue;
 import org.apache.xml.security.keys.content.keyvalues.RSAKeyValue;
@@ -40,6 +42,8 @@ import org.apache.xml.security.keys.keyresolver.KeyResolver;
 import org.apache.xml.security.keys.keyresolver.KeyResolverException;
 import org.apache.xml.security.keys.keyresolver.KeyResolverSpi;
 import org.apache.xml.security.keys.storage.StorageResolver;
+import org.apache.xml.security.metrics.Metrics;
+import org.apache.xml.security.metrics.Operation;
 import org.apache.xml.security.transforms.Transforms;
 import org.apache.xml.security.utils.*;
 import org.w3c.dom.Attr;
@@ -106,6 +110,9 @@ public class KeyInfo extends ElementProxy {
 
     private boolean secureValidation = true;
 
+    /** The KeyResolverSpi which resolved the last key, for the XmlSecKeyResolveEvent */
+    private KeyResolverSpi resolvedBy;
+
     /**
      * Constructor KeyInfo
      * @param doc
@@ -821,6 +828,10 @@ public class KeyInfo extends ElementProxy {
      * @throws KeyResolverException
      */
     public PublicKey getPublicKey() throws KeyResolverException {
+        return resolve("PublicKey", this::resolvePublicKey);
+    }
+
+    private PublicKey resolvePublicKey() throws KeyResolverException {
         PublicKey pk = this.getPublicKeyFromInternalResolvers();
 
         if (pk != null) {
@@ -842,6 +853,34 @@ public class KeyInfo extends ElementProxy {
         return null;
     }
 
+    /**
+     * Resolves a key or certificate, which is timed by the Metrics and reported as XmlSecKeyResolveEvent.
+     */
+    private <T> T resolve(String keyType, Resolution<T> resolution) throws KeyResolverException {
+        XmlSecKeyResolveEvent event = XmlSecEvents.AVAILABLE ? new XmlSecKeyResolveEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+        resolvedBy = null;
+        T resolved = null;
+        try (Metrics.Timer timer = Metrics.start(Operation.KEY_RESOLUTION, keyType)) {
+            resolved = resolution.resolve();
+            return resolved;
+        } finally {
+            if (event != null && event.shouldCommit()) {
+                event.keyType = keyType;
+                event.resolved = resolved != null;
+                event.resolver = resolvedBy == null ? null : resolvedBy.getClass().getName();
+                event.commit();
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface Resolution<T> {
+        T resolve() throws KeyResolverException;
+    }
+
     /**
      * Searches the library wide KeyResolvers for public keys
      *
@@ -863,6 +902,7 @@ public class KeyInfo extends ElementProxy {
                             );
 
                         if (pk != null) {
+                            resolvedBy = keyResolver;
                             return pk;
                         }
                     }
@@ -893,6 +933,7 @@ public class KeyInfo extends ElementProxy {
                             );
 
                         if (pk != null) {
+                            resolvedBy = keyResolver;
                             return pk;
                         }
                     }
@@ -911,6 +952,10 @@ public class KeyInfo extends ElementProxy {
      * @throws KeyResolverException
      */
     public X509Certificate getX509Certificate() throws KeyResolverException {
+        return resolve("X509Certificate", this::resolveX509Certificate);
+    }
+
+    private X509Certificate resolveX509Certificate() throws KeyResolverException {
         // First search using the individual resolvers from the user
         X509Certificate cert = this.getX509CertificateFromInternalResolvers();
 
@@ -953,6 +998,7 @@ public class KeyInfo extends ElementProxy {
             KeyResolverSpi keyResolver = it.next();
             X509Certificate cert = applyCurrentResolver(uri, keyResolver);
             if (cert != null) {
+                resolvedBy = keyResolver;
                 return cert;
             }
         }
@@ -998,6 +1044,7 @@ public class KeyInfo extends ElementProxy {
             LOG.log(Level.DEBUG, "Try {0}", keyResolver.getClass().getName());
             X509Certificate cert = applyCurrentResolver(uri, keyResolver);
             if (cert != null) {
+                resolvedBy = keyResolver;
                 return cert;
             }
         }
@@ -1011,6 +1058,10 @@ public class KeyInfo extends ElementProxy {
      * @throws KeyResolverException
      */
     public SecretKey getSecretKey() throws KeyResolverException {
+        return resolve("SecretKey", this::resolveSecretKey);
+    }
+
+    private SecretKey resolveSecretKey() throws KeyResolverException {
         SecretKey sk = this.getSecretKeyFromInternalResolvers();
 
         if (sk != null) {
@@ -1054,6 +1105,7 @@ public class KeyInfo extends ElementProxy {
                             );
 
                         if (sk != null) {
+                            resolvedBy = keyResolver;
                             return sk;
                         }
                     }
@@ -1085,6 +1137,7 @@ public class KeyInfo extends ElementProxy {
                             );
 
                         if (sk != null) {
+                            resolvedBy = keyResolver;
                             return sk;
                         }
                     }
@@ -1102,6 +1155,10 @@ public class KeyInfo extends ElementProxy {
      * @throws KeyResolverException
      */
     public PrivateKey getPrivateKey() throws KeyResolverException {
+        return resolve("PrivateKey", this::resolvePrivateKey);
+    }
+
+    private PrivateKey resolvePrivateKey() throws KeyResolverException {
         PrivateKey pk = this.getPrivateKeyFromInternalResolvers();
 
         if (pk != null) {
@@ -1143,6 +1200,7 @@ public class KeyInfo extends ElementProxy {
                         );
 
                     if (pk != null) {
+                        resolvedBy = keyResolver;
                         return pk;
                     }
                 }
@@ -1173,6 +1231,7 @@ public class KeyInfo extends ElementProxy {
                         );
 
                     if (pk != null) {
+                        resolvedBy = keyResolver;
                         return pk;
                     }
                 }
@@ -26,6 +26,7 @@ import java.security.spec.X509EncodedKeySpec;
 
 import org.apache.xml.security.exceptions.XMLSecurityException;
 import org.apache.xml.security.utils.Constants;
+import org.apache.xml.security.utils.JCEInstanceCache;
 import org.apache.xml.security.utils.Signature11ElementProxy;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -114,7 +115,7 @@ public class DEREncodedKeyValue extends Signature11ElementProxy implements KeyIn
         // Iterate over the supported key types until one produces a public key.
         for (String keyType : supportedKeyTypes) {
             try {
-                KeyFactory keyFactory = KeyFactory.getInstance(keyType);
+                KeyFactory keyFactory = JCEInstanceCache.getKeyFactory(keyType);
                 X509EncodedKeySpec keySpec = new X509EncodedKeySpec(encodedKey);
                 PublicKey publicKey = keyFactory.generatePublic(keySpec);
                 if (publicKey != null) {
@@ -135,7 +136,7 @@ public class DEREncodedKeyValue extends Signature11ElementProxy implements KeyIn
      */
     protected byte[] getEncodedDER(PublicKey publicKey) throws XMLSecurityException {
         try {
-            KeyFactory keyFactory = KeyFactory.getInstance(publicKey.getAlgorithm());
+            KeyFactory keyFactory = JCEInstanceCache.getKeyFactory(publicKey.getAlgorithm(), publicKey);
             X509EncodedKeySpec keySpec = keyFactory.getKeySpec(publicKey, X509EncodedKeySpec.class);
             return keySpec.getEncoded();
         } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
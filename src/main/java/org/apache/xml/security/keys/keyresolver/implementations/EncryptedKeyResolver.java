@@ -31,6 +31,7 @@ import java.util.List;
 import javax.crypto.SecretKey;
 
 import org.apache.xml.security.encryption.EncryptedKey;
+import org.apache.xml.security.encryption.UnwrappedKeyCache;
 import org.apache.xml.security.encryption.XMLCipher;
 import org.apache.xml.security.encryption.XMLEncryptionException;
 import org.apache.xml.security.keys.keyresolver.KeyResolverSpi;
@@ -57,6 +58,7 @@ public class EncryptedKeyResolver extends KeyResolverSpi {
     private final Key kek;
     private final String algorithm;
     private final List<KeyResolverSpi> internalKeyResolvers;
+    private final UnwrappedKeyCache unwrappedKeyCache;
 
     /**
      * Constructor for use when a KEK needs to be derived from a KeyInfo
@@ -75,8 +77,21 @@ public class EncryptedKeyResolver extends KeyResolverSpi {
      * @param internalKeyResolvers
      */
     public EncryptedKeyResolver(String algorithm, Key kek, List<KeyResolverSpi> internalKeyResolvers) {
+        this(algorithm, kek, internalKeyResolvers, null);
+    }
+
+    /**
+     * Constructor used for when a KEK has been set and unwrapped keys are cached
+     * @param algorithm
+     * @param kek
+     * @param internalKeyResolvers
+     * @param unwrappedKeyCache the cache of unwrapped keys, or null
+     */
+    public EncryptedKeyResolver(String algorithm, Key kek, List<KeyResolverSpi> internalKeyResolvers,
+                                UnwrappedKeyCache unwrappedKeyCache) {
         this.algorithm = algorithm;
         this.kek = kek;
+        this.unwrappedKeyCache = unwrappedKeyCache;
         if (internalKeyResolvers != null) {
             this.internalKeyResolvers = new ArrayList<>(internalKeyResolvers);
         } else {
@@ -123,6 +138,7 @@ public class EncryptedKeyResolver extends KeyResolverSpi {
         try {
             XMLCipher cipher = XMLCipher.getInstance();
             cipher.init(XMLCipher.UNWRAP_MODE, kek);
+            cipher.setUnwrappedKeyCache(unwrappedKeyCache);
             int size = internalKeyResolvers.size();
             for (int i = 0; i < size; i++) {
                 cipher.registerInternalKeyResolver(internalKeyResolvers.get(i));
@@ -0,0 +1,196 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.metrics;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A MetricsRecorder which keeps a histogram of the durations per operation and name in memory.
+ * The durations are counted in buckets of powers of two nanoseconds, so the percentiles are
+ * accurate to a factor of two, which is enough to tell where the time goes.
+ */
+public class HistogramMetricsRecorder implements MetricsRecorder {
+
+    private static final int BUCKETS = 64;
+
+    private final Map<Operation, Map<String, Histogram>> histograms = new EnumMap<>(Operation.class);
+
+    public HistogramMetricsRecorder() {
+        for (Operation operation : Operation.values()) {
+            histograms.put(operation, new ConcurrentHashMap<>());
+        }
+    }
+
+    @Override
+    public void record(Operation operation, String name, long durationNanos, long bytes, long allocatedBytes) {
+        histograms.get(operation).computeIfAbsent(String.valueOf(name), k -> new Histogram())
+            .record(durationNanos, bytes, allocatedBytes);
+    }
+
+    /**
+     * @param operation the operation
+     * @param name the name of the operation
+     * @return the statistics of the operation, or null if it wasn't recorded
+     */
+    public Statistics getStatistics(Operation operation, String name) {
+        Histogram histogram = histograms.get(operation).get(String.valueOf(name));
+        return histogram == null ? null : histogram.getStatistics();
+    }
+
+    /**
+     * @param operation the operation
+     * @return the statistics of the operation by name, sorted by name
+     */
+    public Map<String, Statistics> getStatistics(Operation operation) {
+        Map<String, Statistics> statistics = new TreeMap<>();
+        histograms.get(operation).forEach((name, histogram) -> statistics.put(name, histogram.getStatistics()));
+        return Collections.unmodifiableMap(statistics);
+    }
+
+    /**
+     * Discards all recorded operations.
+     */
+    public void clear() {
+        histograms.values().forEach(Map::clear);
+    }
+
+    private static int getBucket(long durationNanos) {
+        // bucket i > 0 holds the durations from 2^(i-1) to 2^i - 1
+        return durationNanos <= 0 ? 0 : BUCKETS - Long.numberOfLeadingZeros(durationNanos);
+    }
+
+    private static final class Histogram {
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+        private final LongAdder totalBytes = new LongAdder();
+        private final LongAdder totalAllocatedBytes = new LongAdder();
+
+        void record(long durationNanos, long bytes, long allocatedBytes) {
+            buckets.incrementAndGet(getBucket(durationNanos));
+            count.increment();
+            totalNanos.add(durationNanos);
+            maxNanos.accumulate(durationNanos);
+            if (bytes > 0) {
+                totalBytes.add(bytes);
+            }
+            if (allocatedBytes > 0) {
+                totalAllocatedBytes.add(allocatedBytes);
+            }
+        }
+
+        Statistics getStatistics() {
+            long[] counts = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets.get(i);
+            }
+            return new Statistics(counts, count.sum(), totalNanos.sum(), maxNanos.get(),
+                                  totalBytes.sum(), totalAllocatedBytes.sum());
+        }
+    }
+
+    /**
+     * A snapshot of the recorded timings of one operation and name.
+     */
+    public static final class Statistics {
+
+        private final long[] buckets;
+        private final long count;
+        private final long totalNanos;
+        private final long maxNanos;
+        private final long totalBytes;
+        private final long totalAllocatedBytes;
+
+        Statistics(long[] buckets, long count, long totalNanos, long maxNanos,
+                   long totalBytes, long totalAllocatedBytes) {
+            this.buckets = buckets;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+            this.totalBytes = totalBytes;
+            this.totalAllocatedBytes = totalAllocatedBytes;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        public double getMeanNanos() {
+            return count == 0 ? 0 : (double) totalNanos / count;
+        }
+
+        /**
+         * @return the total number of bytes processed, as far as reported
+         */
+        public long getTotalBytes() {
+            return totalBytes;
+        }
+
+        /**
+         * @return the total number of bytes allocated, as far as measured
+         */
+        public long getTotalAllocatedBytes() {
+            return totalAllocatedBytes;
+        }
+
+        /**
+         * @param percentile the percentile between 0 and 1, e.g. 0.99
+         * @return the upper bound of the durations below the percentile, at most twice the exact value
+         */
+        public long getPercentileNanos(double percentile) {
+            if (percentile < 0 || percentile > 1) {
+                throw new IllegalArgumentException("percentile must be between 0 and 1: " + percentile);
+            }
+            long threshold = (long) Math.ceil(percentile * count);
+            long cumulated = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                cumulated += buckets[i];
+                if (cumulated >= threshold && cumulated > 0) {
+                    long upperBound = i == 0 ? 0 : i == BUCKETS - 1 ? Long.MAX_VALUE : (1L << i) - 1;
+                    return Math.min(upperBound, maxNanos);
+                }
+            }
+            return maxNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + count + ", mean=" + (long) getMeanNanos() + "ns, p50=" + getPercentileNanos(0.5)
+                + "ns, p99=" + getPercentileNanos(0.99) + "ns, max=" + maxNanos + "ns, bytes=" + totalBytes
+                + ", allocated=" + totalAllocatedBytes;
+        }
+    }
+}
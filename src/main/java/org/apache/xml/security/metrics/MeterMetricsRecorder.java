@@ -0,0 +1,111 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongConsumer;
+
+/**
+ * A MetricsRecorder which feeds meters of a metrics library like Micrometer, without depending
+ * on it. For every operation and name, three meters are created through the {@link MeterFactory}:
+ * <ul>
+ * <li>"&lt;prefix&gt;.&lt;operation&gt;.duration" with the base unit "nanoseconds"</li>
+ * <li>"&lt;prefix&gt;.&lt;operation&gt;.bytes" with the base unit "bytes"</li>
+ * <li>"&lt;prefix&gt;.&lt;operation&gt;.allocated" with the base unit "bytes"</li>
+ * </ul>
+ * where the operation is {@link Operation#getMetricName()}. With Micrometer, the factory would be
+ * <pre>
+ * (metricName, baseUnit, name) -&gt; {
+ *     if ("nanoseconds".equals(baseUnit)) {
+ *         Timer timer = Timer.builder(metricName).tag("name", name).register(registry);
+ *         return nanos -&gt; timer.record(nanos, TimeUnit.NANOSECONDS);
+ *     }
+ *     return DistributionSummary.builder(metricName).baseUnit(baseUnit).tag("name", name)
+ *         .register(registry)::record;
+ * }
+ * </pre>
+ */
+public class MeterMetricsRecorder implements MetricsRecorder {
+
+    public static final String DEFAULT_PREFIX = "xmlsec";
+
+    static final String NANOSECONDS = "nanoseconds";
+    static final String BYTES = "bytes";
+
+    /**
+     * Creates the meters of the metrics library.
+     */
+    @FunctionalInterface
+    public interface MeterFactory {
+
+        /**
+         * @param metricName the name of the metric, e.g. "xmlsec.sign.duration"
+         * @param baseUnit "nanoseconds" or "bytes"
+         * @param name the algorithm URI or other name of the operation, to be used as tag
+         * @return the meter, which is called with every value
+         */
+        LongConsumer create(String metricName, String baseUnit, String name);
+
+    }
+
+    private final String prefix;
+    private final MeterFactory meterFactory;
+    private final Map<Operation, Map<String, Meters>> meters = new EnumMap<>(Operation.class);
+
+    public MeterMetricsRecorder(MeterFactory meterFactory) {
+        this(DEFAULT_PREFIX, meterFactory);
+    }
+
+    public MeterMetricsRecorder(String prefix, MeterFactory meterFactory) {
+        this.prefix = prefix;
+        this.meterFactory = meterFactory;
+        for (Operation operation : Operation.values()) {
+            meters.put(operation, new ConcurrentHashMap<>());
+        }
+    }
+
+    @Override
+    public void record(Operation operation, String name, long durationNanos, long bytes, long allocatedBytes) {
+        Meters operationMeters =
+            meters.get(operation).computeIfAbsent(String.valueOf(name), k -> new Meters(operation, k));
+        operationMeters.duration.accept(durationNanos);
+        if (bytes >= 0) {
+            operationMeters.bytes.accept(bytes);
+        }
+        if (allocatedBytes >= 0) {
+            operationMeters.allocatedBytes.accept(allocatedBytes);
+        }
+    }
+
+    private final class Meters {
+
+        private final LongConsumer duration;
+        private final LongConsumer bytes;
+        private final LongConsumer allocatedBytes;
+
+        Meters(Operation operation, String name) {
+            String metricName = prefix + "." + operation.getMetricName();
+            duration = meterFactory.create(metricName + ".duration", NANOSECONDS, name);
+            bytes = meterFactory.create(metricName + ".bytes", BYTES, name);
+            allocatedBytes = meterFactory.create(metricName + ".allocated", BYTES, name);
+        }
+    }
+}
@@ -0,0 +1,272 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.metrics;
+
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+
+import org.apache.xml.security.utils.ClassLoaderUtils;
+import org.apache.xml.security.utils.JavaUtils;
+
+/**
+ * Times the security operations and reports them to the installed {@link MetricsRecorder}.
+ * Without a recorder, {@link #start(Operation, String)} returns a shared no-op {@link Timer},
+ * so an operation is timed with
+ * <pre>
+ * try (Metrics.Timer timer = Metrics.start(Operation.SIGN, algorithmURI)) {
+ *     ...
+ *     timer.setBytes(length);
+ * }
+ * </pre>
+ * at the cost of a volatile read when metrics are disabled.
+ */
+public final class Metrics {
+
+    /**
+     * The system property with the class name of a {@link MetricsRecorder} to install at startup.
+     */
+    public static final String RECORDER_PROPERTY = "org.apache.xml.security.metrics.recorder";
+
+    /**
+     * The name of the INBOUND_DOCUMENT and OUTBOUND_DOCUMENT operations.
+     */
+    public static final String DOCUMENT = "document";
+
+    private static final Logger LOG = System.getLogger(Metrics.class.getName());
+
+    private static final Timer DISABLED = new Timer(null, null, null, false);
+
+    /** The innermost running exclusive timer of the thread */
+    private static final ThreadLocal<Timer> EXCLUSIVE_TIMER = new ThreadLocal<>();
+
+    private static volatile MetricsRecorder recorder =
+            AccessController.doPrivileged(
+                    (PrivilegedAction<MetricsRecorder>) () -> {
+                        String recorderClass = System.getProperty(RECORDER_PROPERTY);
+                        if (recorderClass != null) {
+                            try {
+                                return (MetricsRecorder) JavaUtils.newInstanceWithEmptyConstructor(
+                                        ClassLoaderUtils.loadClass(recorderClass, Metrics.class));
+                            } catch (ClassNotFoundException | IllegalAccessException | InstantiationException e) {
+                                LOG.log(Level.ERROR, "Error instantiating MetricsRecorder. Metrics are disabled", e);
+                            }
+                        }
+                        return null;
+                    });
+
+    private Metrics() {
+        // complete
+    }
+
+    /**
+     * Installs the recorder of the operations.
+     *
+     * @param metricsRecorder the recorder, or null to disable metrics
+     */
+    public static void setRecorder(MetricsRecorder metricsRecorder) {
+        JavaUtils.checkRegisterPermission();
+        recorder = metricsRecorder;
+    }
+
+    /**
+     * @return the installed recorder, or null if metrics are disabled
+     */
+    public static MetricsRecorder getRecorder() {
+        return recorder;
+    }
+
+    /**
+     * @return whether a recorder is installed
+     */
+    public static boolean isEnabled() {
+        return recorder != null;
+    }
+
+    /**
+     * Starts timing an operation. The timing includes nested operations, and the bytes allocated
+     * by the thread are measured if the JVM supports it.
+     *
+     * @param operation the operation
+     * @param name the algorithm URI or other name of the operation, see {@link Operation}
+     * @return the timer, which reports the operation when it is closed
+     */
+    public static Timer start(Operation operation, String name) {
+        MetricsRecorder metricsRecorder = recorder;
+        if (metricsRecorder == null) {
+            return DISABLED;
+        }
+        return new Timer(metricsRecorder, operation, name, false);
+    }
+
+    /**
+     * Starts timing an operation exclusive of the nested exclusive timers of the same thread.
+     * This is used for the StAX processors, which call the next processor of the chain. The
+     * allocated bytes are not measured, as that would cost more than most processors.
+     *
+     * @param operation the operation
+     * @param name the class name of the processor
+     * @return the timer, which reports the operation when it is closed
+     */
+    public static Timer startExclusive(Operation operation, String name) {
+        MetricsRecorder metricsRecorder = recorder;
+        if (metricsRecorder == null) {
+            return DISABLED;
+        }
+        return new Timer(metricsRecorder, operation, name, true);
+    }
+
+    /**
+     * Records an operation which was timed by the caller, e.g. because it is spread over several calls.
+     *
+     * @param operation the operation
+     * @param name the name of the operation, see {@link Operation}
+     * @param durationNanos the duration of the operation in nanoseconds
+     * @param bytes the number of bytes processed, or -1 if not known
+     */
+    public static void record(Operation operation, String name, long durationNanos, long bytes) {
+        MetricsRecorder metricsRecorder = recorder;
+        if (metricsRecorder != null) {
+            metricsRecorder.record(operation, name, durationNanos, bytes, -1);
+        }
+    }
+
+    /**
+     * The timing of one operation.
+     */
+    public static final class Timer implements AutoCloseable {
+
+        private final MetricsRecorder recorder;
+        private final Operation operation;
+        private final String name;
+        private final boolean exclusive;
+        private final long startAllocatedBytes;
+        private final long startNanos;
+        private final Timer parent;
+        private long childNanos;
+        private long bytes = -1;
+        private boolean closed;
+
+        private Timer(MetricsRecorder recorder, Operation operation, String name, boolean exclusive) {
+            this.recorder = recorder;
+            this.operation = operation;
+            this.name = name;
+            this.exclusive = exclusive;
+            if (recorder == null) {
+                startAllocatedBytes = -1;
+                startNanos = 0;
+                parent = null;
+            } else if (exclusive) {
+                startAllocatedBytes = -1;
+                parent = EXCLUSIVE_TIMER.get();
+                EXCLUSIVE_TIMER.set(this);
+                startNanos = System.nanoTime();
+            } else {
+                startAllocatedBytes = AllocationCounter.getAllocatedBytes();
+                parent = null;
+                startNanos = System.nanoTime();
+            }
+        }
+
+        /**
+         * Sets the number of bytes processed by the operation.
+         *
+         * @param bytes the number of bytes, or -1 if not known
+         */
+        public void setBytes(long bytes) {
+            // the disabled timer is shared
+            if (recorder != null) {
+                this.bytes = bytes;
+            }
+        }
+
+        /**
+         * Reports the operation to the recorder. Only the first call has an effect.
+         */
+        @Override
+        public void close() {
+            if (recorder == null || closed) {
+                return;
+            }
+            closed = true;
+            long durationNanos = System.nanoTime() - startNanos;
+            long allocatedBytes = -1;
+            if (exclusive) {
+                EXCLUSIVE_TIMER.set(parent);
+                if (parent != null) {
+                    parent.childNanos += durationNanos;
+                }
+                durationNanos -= childNanos;
+            } else if (startAllocatedBytes >= 0) {
+                long endAllocatedBytes = AllocationCounter.getAllocatedBytes();
+                if (endAllocatedBytes >= 0) {
+                    allocatedBytes = endAllocatedBytes - startAllocatedBytes;
+                }
+            }
+            recorder.record(operation, name, durationNanos, bytes, allocatedBytes);
+        }
+    }
+
+    /**
+     * Reads the bytes allocated by the current thread from com.sun.management.ThreadMXBean,
+     * which is not available on every JVM. Loaded when the first operation is timed.
+     */
+    private static final class AllocationCounter {
+
+        private static final MethodHandle GET_THREAD_ALLOCATED_BYTES = findGetThreadAllocatedBytes();
+
+        private static MethodHandle findGetThreadAllocatedBytes() {
+            try {
+                ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+                Class<?> beanClass = Class.forName("com.sun.management.ThreadMXBean");
+                if (!beanClass.isInstance(threadMXBean)) {
+                    return null;
+                }
+                MethodHandle isSupported = MethodHandles.publicLookup().findVirtual(beanClass,
+                        "isThreadAllocatedMemorySupported", MethodType.methodType(boolean.class));
+                if (!(boolean) isSupported.invoke(threadMXBean)) {
+                    return null;
+                }
+                return MethodHandles.publicLookup().findVirtual(beanClass,
+                        "getThreadAllocatedBytes", MethodType.methodType(long.class, long.class))
+                        .bindTo(threadMXBean);
+            } catch (Throwable t) { //NOPMD
+                LOG.log(Level.DEBUG, "The allocated bytes of threads can't be measured", t);
+                return null;
+            }
+        }
+
+        static long getAllocatedBytes() {
+            if (GET_THREAD_ALLOCATED_BYTES == null) {
+                return -1;
+            }
+            try {
+                return (long) GET_THREAD_ALLOCATED_BYTES.invokeExact(Thread.currentThread().getId());
+            } catch (Throwable t) { //NOPMD
+                return -1;
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.metrics;
+
+/**
+ * A interface to allow pluggable ways of recording the timings of the security operations.
+ * A recorder is installed with {@link Metrics#setRecorder(MetricsRecorder)} or with the system
+ * property {@value Metrics#RECORDER_PROPERTY}. It is called by the threads which process the
+ * documents, so it must be thread-safe and should return quickly.
+ */
+public interface MetricsRecorder {
+
+    /**
+     * Records one operation.
+     *
+     * @param operation the operation
+     * @param name the algorithm URI, processor class or kind of key, see {@link Operation}
+     * @param durationNanos the duration of the operation in nanoseconds
+     * @param bytes the number of bytes processed, or -1 if not known
+     * @param allocatedBytes the number of bytes allocated by the thread during the operation,
+     *        or -1 if not known
+     */
+    void record(Operation operation, String name, long durationNanos, long bytes, long allocatedBytes);
+
+}
@@ -0,0 +1,71 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.metrics;
+
+/**
+ * The operations which are reported to a {@link MetricsRecorder}. The timings of the DOM and
+ * JSR-105 operations include the operations they trigger, e.g. the time of a SIGN includes the
+ * REFERENCE_DIGEST of its References, whereas the timings of the StAX processors exclude the
+ * time spent in the following processors of the chain.
+ */
+public enum Operation {
+
+    /** Digesting the References and signing the SignedInfo, named by the signature algorithm URI */
+    SIGN("sign"),
+
+    /** Verifying a signature including its References, named by the signature algorithm URI */
+    VERIFY("verify"),
+
+    /** Dereferencing, transforming and digesting a Reference, named by the JCE digest algorithm */
+    REFERENCE_DIGEST("reference.digest"),
+
+    /** Resolving a key from a KeyInfo, named by the kind of key */
+    KEY_RESOLUTION("key.resolution"),
+
+    /** Encrypting a document, element or element content, named by the encryption algorithm URI */
+    ENCRYPT("encrypt"),
+
+    /** Decrypting an EncryptedData, named by the encryption algorithm URI */
+    DECRYPT("decrypt"),
+
+    /** The time spent in the input processors for one streamed document */
+    INBOUND_DOCUMENT("inbound.document"),
+
+    /** The time spent in the output processors for one streamed document */
+    OUTBOUND_DOCUMENT("outbound.document"),
+
+    /** The time of one event in an InputProcessor, named by the class of the processor */
+    INPUT_PROCESSOR("input.processor"),
+
+    /** The time of one event in an OutputProcessor, named by the class of the processor */
+    OUTPUT_PROCESSOR("output.processor");
+
+    private final String metricName;
+
+    Operation(String metricName) {
+        this.metricName = metricName;
+    }
+
+    /**
+     * @return the name of the operation as used for the names of meters, e.g. "reference.digest"
+     */
+    public String getMetricName() {
+        return metricName;
+    }
+}
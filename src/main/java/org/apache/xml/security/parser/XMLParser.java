@@ -38,4 +38,15 @@ public interface XMLParser {
      */
     Document parse(InputStream inputStream, boolean disallowDocTypeDeclarations) throws XMLParserException;
 
+    /**
+     * Creates an empty, namespace aware document. Implementations which don't provide their
+     * own DocumentBuilders use the default XMLParserImpl.
+     *
+     * @return {@link Document}
+     * @throws XMLParserException
+     */
+    default Document newDocument() throws XMLParserException {
+        return new XMLParserImpl().newDocument();
+    }
+
 }
\ No newline at end of file
@@ -74,6 +74,27 @@ public class XMLParserImpl implements XMLParser {
         }
     }
 
+    @Override
+    public Document newDocument() throws XMLParserException {
+        try {
+            ClassLoader loader = getContextClassLoader();
+            if (loader == null) {
+                loader = getClassLoader(XMLUtils.class);
+            }
+            if (loader == null) {
+                return createDocumentBuilder(true).newDocument();
+            }
+
+            Queue<DocumentBuilder> queue = getDocumentBuilderQueue(true, loader);
+            DocumentBuilder documentBuilder = getDocumentBuilder(true, queue);
+            Document doc = documentBuilder.newDocument();
+            repoolDocumentBuilder(documentBuilder, queue);
+            return doc;
+        } catch (ParserConfigurationException ex) {
+            throw new XMLParserException(ex, "empty", new Object[] {"Error creating a document"});
+        }
+    }
+
     private static Queue<DocumentBuilder> getDocumentBuilderQueue(boolean disallowDocTypeDeclarations, ClassLoader loader) throws ParserConfigurationException {
         Map<ClassLoader, Queue<DocumentBuilder>> docBuilderCache =
                 disallowDocTypeDeclarations ? DOCUMENT_BUILDERS_DISALLOW_DOCTYPE : DOCUMENT_BUILDERS;
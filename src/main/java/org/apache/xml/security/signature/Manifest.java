@@ -18,10 +18,15 @@
  */
 package org.apache.xml.security.signature;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.System.Logger;
 import java.lang.System.Logger.Level;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.security.AccessController;
+import java.security.DigestOutputStream;
 import java.security.PrivilegedAction;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -29,16 +34,22 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
 
+import org.apache.xml.security.algorithms.MessageDigestAlgorithm;
 import org.apache.xml.security.c14n.CanonicalizationException;
 import org.apache.xml.security.c14n.InvalidCanonicalizerException;
 import org.apache.xml.security.exceptions.XMLSecurityException;
 import org.apache.xml.security.parser.XMLParserException;
 import org.apache.xml.security.transforms.Transforms;
 import org.apache.xml.security.utils.Constants;
+import org.apache.xml.security.utils.DigestPrefetcher;
 import org.apache.xml.security.utils.I18n;
+import org.apache.xml.security.utils.JavaUtils;
 import org.apache.xml.security.utils.SignatureElementProxy;
 import org.apache.xml.security.utils.XMLUtils;
+import org.apache.xml.security.utils.resolver.ResourceResolver;
+import org.apache.xml.security.utils.resolver.ResourceResolverContext;
 import org.apache.xml.security.utils.resolver.ResourceResolverSpi;
 import org.w3c.dom.Attr;
 import org.w3c.dom.DOMException;
@@ -77,6 +88,11 @@ public class Manifest extends SignatureElementProxy {
     /** Field perManifestResolvers */
     private List<ResourceResolverSpi> perManifestResolvers;
 
+    private ReferenceDigestCache digestCache;
+
+    private Executor prefetchExecutor;
+    private int prefetchConcurrency;
+
     private boolean secureValidation = true;
 
     /**
@@ -324,11 +340,32 @@ public class Manifest extends SignatureElementProxy {
             throw new XMLSecurityException("signature.tooManyReferences", exArgs);
         }
 
+        if (prefetchExecutor == null) {
+            return verifyReferences(followManifests, new Reference[referencesEl.length]);
+        }
+
+        // Start to digest the external References, which are then verified in order below
+        Reference[] prefetchedReferences = new Reference[referencesEl.length];
+        for (int i = 0; i < this.referencesEl.length; i++) {
+            prefetchedReferences[i] = new Reference(referencesEl[i], this.baseURI, this, secureValidation);
+        }
+        try (DigestPrefetcher prefetcher = new DigestPrefetcher(prefetchExecutor, prefetchConcurrency)) {
+            for (Reference reference : prefetchedReferences) {
+                prefetch(prefetcher, reference);
+            }
+            return verifyReferences(followManifests, prefetchedReferences);
+        }
+    }
+
+    private boolean verifyReferences(boolean followManifests, Reference[] prefetchedReferences)
+        throws MissingResourceFailureException, XMLSecurityException {
         this.verificationResults = new ArrayList<>(referencesEl.length);
         boolean verify = true;
         for (int i = 0; i < this.referencesEl.length; i++) {
-            Reference currentRef =
-                new Reference(referencesEl[i], this.baseURI, this, secureValidation);
+            Reference currentRef = prefetchedReferences[i];
+            if (currentRef == null) {
+                currentRef = new Reference(referencesEl[i], this.baseURI, this, secureValidation);
+            }
 
             this.references.set(i, currentRef);
 
@@ -380,6 +417,9 @@ public class Manifest extends SignatureElementProxy {
 
                         referencedManifest.perManifestResolvers = this.perManifestResolvers;
                         referencedManifest.resolverProperties = this.resolverProperties;
+                        referencedManifest.digestCache = this.digestCache;
+                        referencedManifest.prefetchExecutor = this.prefetchExecutor;
+                        referencedManifest.prefetchConcurrency = this.prefetchConcurrency;
 
                         boolean referencedManifestValid =
                             referencedManifest.verifyReferences(followManifests);
@@ -412,6 +452,58 @@ public class Manifest extends SignatureElementProxy {
         return verify;
     }
 
+    /**
+     * Starts to digest the content of the given Reference, if it is a Reference without
+     * Transforms to an external http, https or file URI.
+     */
+    private void prefetch(DigestPrefetcher prefetcher, Reference reference) throws XMLSecurityException {
+        Transforms referenceTransforms = reference.getTransforms();
+        if (referenceTransforms != null && referenceTransforms.getLength() != 0) {
+            return;
+        }
+        String uri = reference.getURI();
+        if (uri == null || uri.isEmpty() || uri.charAt(0) == '#') {
+            return;
+        }
+        String scheme;
+        try {
+            URI resolvedURI = baseURI == null || baseURI.isEmpty() ? new URI(uri) : new URI(baseURI).resolve(uri);
+            scheme = resolvedURI.getScheme();
+        } catch (URISyntaxException | IllegalArgumentException ex) {
+            return;
+        }
+        // Local files are looked up in the digest cache by Reference#verify instead
+        if (!"http".equalsIgnoreCase(scheme) && !"https".equalsIgnoreCase(scheme)
+            && !("file".equalsIgnoreCase(scheme) && digestCache == null)) {
+            return;
+        }
+        MessageDigestAlgorithm mda = reference.getMessageDigestAlgorithm();
+        if (mda == null) {
+            return;
+        }
+
+        // The resolver context is created here, as the DOM must not be accessed by the prefetch task
+        Attr uriAttr = reference.getElement().getAttributeNodeNS(null, Constants._ATT_URI);
+        ResourceResolverContext resolverContext =
+            new ResourceResolverContext(uriAttr, baseURI, secureValidation, resolverProperties);
+        List<ResourceResolverSpi> resolvers = perManifestResolvers;
+        LOG.log(Level.DEBUG, "Prefetching Reference {0}", uri);
+        reference.setPrefetchedDigest(prefetcher.submit(mda.getAlgorithm(), messageDigest -> {
+            XMLSignatureInput input = ResourceResolver.resolve(resolvers, resolverContext);
+            try {
+                if (input instanceof XMLSignatureFileInput) {
+                    JavaUtils.updateDigest(messageDigest, ((XMLSignatureFileInput) input).getFile());
+                } else {
+                    input.write(new DigestOutputStream(OutputStream.nullOutputStream(), messageDigest));
+                }
+            } finally {
+                if (input instanceof Closeable) {
+                    ((Closeable) input).close();
+                }
+            }
+        }));
+    }
+
     /**
      * After verifying a {@link Manifest} or a {@link SignedInfo} using the
      * {@link Manifest#verifyReferences()} or {@link SignedInfo#verify()} methods,
@@ -510,6 +602,45 @@ public class Manifest extends SignatureElementProxy {
         return this.resolverProperties.get(key);
     }
 
+    /**
+     * Set a cache of digest values of external References to local files. If a referenced
+     * file did not change since its digest value was cached, it is not read again. By default
+     * no cache is used.
+     *
+     * @param digestCache the cache to use, or null to disable caching
+     */
+    public void setDigestCache(ReferenceDigestCache digestCache) {
+        this.digestCache = digestCache;
+    }
+
+    /**
+     * @return the cache of digest values of external References, or null if none is used
+     */
+    public ReferenceDigestCache getDigestCache() {
+        return digestCache;
+    }
+
+    /**
+     * Enable the concurrent prefetching of external References when verifying. The content of
+     * every Reference without Transforms to an http, https or file URI is then resolved and
+     * digested on the given Executor as soon as the verification starts, instead of one
+     * Reference after the other. If one of them fails, the others are cancelled.
+     * <p>
+     * The contents of prefetched References are not kept, so they are not available from
+     * {@link Reference#getReferenceData()} after the verification. By default References are
+     * not prefetched.
+     *
+     * @param executor the Executor to resolve the References on, or null to disable prefetching
+     * @param maxConcurrency the maximum number of References which are resolved at the same time
+     */
+    public void setReferencePrefetch(Executor executor, int maxConcurrency) {
+        if (executor != null && maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency must be positive");
+        }
+        this.prefetchExecutor = executor;
+        this.prefetchConcurrency = maxConcurrency;
+    }
+
     /**
      * Method getSignedContentItem
      *
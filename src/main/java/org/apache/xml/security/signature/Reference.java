@@ -23,17 +23,25 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.lang.System.Logger;
 import java.lang.System.Logger.Level;
+import java.nio.file.Files;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Future;
 
 import org.apache.xml.security.algorithms.Algorithm;
 import org.apache.xml.security.algorithms.MessageDigestAlgorithm;
 import org.apache.xml.security.c14n.CanonicalizationException;
 import org.apache.xml.security.exceptions.XMLSecurityException;
+import org.apache.xml.security.jfr.XmlSecEvents;
+import org.apache.xml.security.jfr.XmlSecReferenceDigestEvent;
+import org.apache.xml.security.metrics.Metrics;
+import org.apache.xml.security.metrics.Operation;
 import org.apache.xml.security.signature.reference.ReferenceData;
 import org.apache.xml.security.signature.reference.ReferenceNodeSetData;
 import org.apache.xml.security.signature.reference.ReferenceOctetStreamData;
@@ -44,7 +52,9 @@ import org.apache.xml.security.transforms.TransformationException;
 import org.apache.xml.security.transforms.Transforms;
 import org.apache.xml.security.transforms.params.InclusiveNamespaces;
 import org.apache.xml.security.utils.Constants;
+import org.apache.xml.security.utils.DigestPrefetcher;
 import org.apache.xml.security.utils.DigesterOutputStream;
+import org.apache.xml.security.utils.JavaUtils;
 import org.apache.xml.security.utils.SignatureElementProxy;
 import org.apache.xml.security.utils.UnsyncBufferedOutputStream;
 import org.apache.xml.security.utils.XMLUtils;
@@ -139,6 +149,8 @@ public class Reference extends SignatureElementProxy {
 
     private ReferenceData referenceData;
 
+    private Future<byte[]> prefetchedDigest;
+
     private static final Set<String> TRANSFORM_ALGORITHMS;
 
     static {
@@ -695,6 +707,16 @@ public class Reference extends SignatureElementProxy {
      */
     private byte[] calculateDigest(boolean validating)
         throws ReferenceNotInitializedException, XMLSignatureException {
+        if (validating && prefetchedDigest != null) {
+            Future<byte[]> future = prefetchedDigest;
+            prefetchedDigest = null;
+            try {
+                return DigestPrefetcher.get(future);
+            } catch (Exception ex) {
+                throw new ReferenceNotInitializedException(ex);
+            }
+        }
+
         XMLSignatureInput input = this.getContentsBeforeTransformation();
         if (input.getPreCalculatedDigest() != null) {
             return getPreCalculatedDigest(input);
@@ -702,9 +724,111 @@ public class Reference extends SignatureElementProxy {
 
         cacheDereferencedElement(input);
 
+        // When signing with the C14N 1.1 property the Transforms may still be changed below
+        ReferenceDigestCache digestCache = this.manifest.getDigestCache();
+        if (digestCache != null && input instanceof XMLSignatureFileInput && (validating || !Reference.useC14N11)) {
+            List<String> transformURIs = getCacheableTransformURIs();
+            if (transformURIs != null) {
+                return calculateDigest(input, validating, digestCache, transformURIs);
+            }
+        }
+
+        return calculateDigest(input, validating, null, null);
+    }
+
+    /**
+     * Returns the algorithm URIs of the Transforms, or null if any Transform has parameters,
+     * which can't be represented in a ReferenceDigestCache key.
+     */
+    private List<String> getCacheableTransformURIs() throws XMLSignatureException {
+        if (transforms == null) {
+            return Collections.emptyList();
+        }
+        try {
+            List<String> transformURIs = new ArrayList<>(transforms.getLength());
+            for (int i = 0; i < transforms.getLength(); i++) {
+                Transform transform = transforms.item(i);
+                if (XMLUtils.getNextElement(transform.getElement().getFirstChild()) != null) {
+                    return null;
+                }
+                transformURIs.add(transform.getURI());
+            }
+            return transformURIs;
+        } catch (XMLSecurityException ex) {
+            throw new XMLSignatureException(ex);
+        }
+    }
+
+    private byte[] calculateDigest(XMLSignatureInput input, boolean validating, ReferenceDigestCache digestCache,
+                                   List<String> transformURIs)
+        throws ReferenceNotInitializedException, XMLSignatureException {
         MessageDigestAlgorithm mda = this.getMessageDigestAlgorithm();
         mda.reset();
 
+        XmlSecReferenceDigestEvent event = XmlSecEvents.AVAILABLE ? new XmlSecReferenceDigestEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+        try (Metrics.Timer timer = Metrics.start(Operation.REFERENCE_DIGEST, mda.getJCEAlgorithmString())) {
+            if (digestCache == null) {
+                return calculateDigest(input, validating, mda, timer, event);
+            }
+
+            XMLSignatureFileInput fileInput = (XMLSignatureFileInput) input;
+            String uri = fileInput.getFile().toUri().toString();
+            String validator;
+            try {
+                validator = ReferenceDigestCache.getValidator(fileInput.getFile());
+            } catch (IOException ex) {
+                throw new ReferenceNotInitializedException(ex);
+            }
+
+            byte[] digestValue = digestCache.get(uri, mda.getAlgorithmURI(), transformURIs, validator);
+            if (digestValue != null) {
+                try {
+                    long size = Files.size(fileInput.getFile());
+                    timer.setBytes(size);
+                    if (event != null) {
+                        event.bytes = size;
+                    }
+                    fileInput.close();
+                } catch (IOException ex) {
+                    LOG.log(Level.DEBUG, ex.getMessage(), ex);
+                }
+                return digestValue;
+            }
+            digestValue = calculateDigest(input, validating, mda, timer, event);
+            digestCache.put(uri, mda.getAlgorithmURI(), transformURIs, validator, digestValue);
+            return digestValue;
+        } finally {
+            if (event != null && event.shouldCommit()) {
+                event.referenceURI = this.getURI();
+                event.digestAlgorithm = mda.getAlgorithmURI();
+                event.transformCount = transforms == null ? 0 : transforms.getLength();
+                event.validating = validating;
+                event.commit();
+            }
+        }
+    }
+
+    private byte[] calculateDigest(XMLSignatureInput input, boolean validating, MessageDigestAlgorithm mda,
+                                   Metrics.Timer timer, XmlSecReferenceDigestEvent event)
+        throws ReferenceNotInitializedException, XMLSignatureException {
+        if (input instanceof XMLSignatureFileInput && (transforms == null || transforms.getLength() == 0)) {
+            // Nothing to transform, so digest the file directly instead of streaming it
+            try (XMLSignatureFileInput fileInput = (XMLSignatureFileInput) input) {
+                this.transformsOutput = fileInput;
+                long bytes = JavaUtils.updateDigest(mda.getAlgorithm(), fileInput.getFile());
+                timer.setBytes(bytes);
+                if (event != null) {
+                    event.bytes = bytes;
+                }
+                return mda.digest();
+            } catch (IOException ex) {
+                throw new ReferenceNotInitializedException(ex);
+            }
+        }
+
         XMLSignatureInput output = null;
         try (DigesterOutputStream diOs = new DigesterOutputStream(mda);
             OutputStream os = new UnsyncBufferedOutputStream(diOs)) {
@@ -731,6 +855,10 @@ public class Reference extends SignatureElementProxy {
             //this.getReferencedBytes(diOs);
             //mda.update(data);
 
+            timer.setBytes(diOs.getByteCount());
+            if (event != null) {
+                event.bytes = diOs.getByteCount();
+            }
             return diOs.getDigestValue();
         } catch (XMLSecurityException | IOException ex) {
             throw new ReferenceNotInitializedException(ex);
@@ -741,6 +869,14 @@ public class Reference extends SignatureElementProxy {
         }
     }
 
+    /**
+     * Set the digest value of the content of this Reference, which is being calculated by
+     * {@link Manifest} ahead of the verification.
+     */
+    void setPrefetchedDigest(Future<byte[]> prefetchedDigest) {
+        this.prefetchedDigest = prefetchedDigest;
+    }
+
     /**
      * Get the pre-calculated digest value from the XMLSignatureInput.
      *
@@ -0,0 +1,264 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.signature;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.xml.security.utils.CacheUtils;
+
+/**
+ * An opt-in cache of the digest values of external References.
+ *
+ * An entry is keyed by a SHA-256 hash over the resolved URI, the digest algorithm URI, the
+ * algorithm URIs of the Transforms and a validator which changes whenever the referenced
+ * content changes. For local files the validator is built from the file size, last modified
+ * time and file key (see {@link #getValidator(Path)}). A hit means the content did not change
+ * since it was last digested, so the digest value can be reused without reading the content.
+ *
+ * Only Transforms without parameters can be represented in the key. Callers don't use the
+ * cache for References whose Transforms have parameters.
+ *
+ * As a hit relies on the validator, the cache must only be used where the referenced content
+ * cannot be modified without changing its validator, e.g. a local file which is replaced
+ * but keeps its size and modification time would not be detected.
+ *
+ * The cache is bounded in size (least recently used entries are evicted first) and can be
+ * persisted to a local file with {@link #save()}. Instances are thread-safe and are meant
+ * to be shared.
+ */
+public final class ReferenceDigestCache {
+
+    private static final Logger LOG = System.getLogger(ReferenceDigestCache.class.getName());
+
+    private final Path storeFile;
+    private final Map<ByteBuffer, byte[]> entries;
+
+    /**
+     * Creates an in-memory cache.
+     *
+     * @param maxEntries the maximum number of cached digest values
+     */
+    public ReferenceDigestCache(int maxEntries) {
+        this(maxEntries, null, false);
+    }
+
+    /**
+     * Creates a cache which is persisted to the given file. Existing entries are loaded from
+     * the file if it exists. Entries which can't be parsed are ignored.
+     *
+     * @param maxEntries the maximum number of cached digest values
+     * @param storeFile the file to load the cache from and to save it to
+     * @throws IOException if the existing file cannot be read
+     */
+    public ReferenceDigestCache(int maxEntries, Path storeFile) throws IOException {
+        this(maxEntries, storeFile, true);
+        load();
+    }
+
+    private ReferenceDigestCache(int maxEntries, Path storeFile, boolean persistent) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        if (persistent && storeFile == null) {
+            throw new NullPointerException("storeFile cannot be null");
+        }
+        this.storeFile = storeFile;
+        this.entries = CacheUtils.newLRUMap(maxEntries);
+    }
+
+    /**
+     * Returns a validator for a local file, which changes if the size, last modified time
+     * or identity of the file changes.
+     *
+     * @param file the file
+     * @return the validator
+     * @throws IOException if the file attributes cannot be read
+     */
+    public static String getValidator(Path file) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        StringBuilder sb = new StringBuilder();
+        sb.append(attributes.size()).append(':').append(attributes.lastModifiedTime());
+        if (attributes.fileKey() != null) {
+            sb.append(':').append(attributes.fileKey());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns the cached digest value of the given reference.
+     *
+     * @param uri the resolved URI of the referenced content
+     * @param digestAlgorithmURI the DigestMethod algorithm URI
+     * @param transformURIs the algorithm URIs of the Transforms, in order
+     * @param validator the current validator of the referenced content
+     * @return the cached digest value, or null if none is cached
+     */
+    public byte[] get(String uri, String digestAlgorithmURI, List<String> transformURIs, String validator) {
+        ByteBuffer cacheKey = getCacheKey(uri, digestAlgorithmURI, transformURIs, validator);
+        if (cacheKey == null) {
+            return null;
+        }
+        byte[] digestValue;
+        synchronized (entries) {
+            digestValue = entries.get(cacheKey);
+        }
+        if (digestValue != null) {
+            LOG.log(Level.DEBUG, "Using cached digest value for {0}", uri);
+            return digestValue.clone();
+        }
+        return null;
+    }
+
+    /**
+     * Records the digest value of the given reference.
+     *
+     * @param uri the resolved URI of the referenced content
+     * @param digestAlgorithmURI the DigestMethod algorithm URI
+     * @param transformURIs the algorithm URIs of the Transforms, in order
+     * @param validator the validator of the referenced content when it was digested
+     * @param digestValue the calculated digest value
+     */
+    public void put(String uri, String digestAlgorithmURI, List<String> transformURIs, String validator,
+                    byte[] digestValue) {
+        ByteBuffer cacheKey = getCacheKey(uri, digestAlgorithmURI, transformURIs, validator);
+        if (cacheKey == null || digestValue == null) {
+            return;
+        }
+        synchronized (entries) {
+            entries.put(cacheKey, digestValue.clone());
+        }
+    }
+
+    /**
+     * @return the number of cached digest values
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Removes all cached digest values. The store file is not changed until the next
+     * {@link #save()}.
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * Writes all cached digest values to the store file. The file is replaced atomically
+     * where the file system supports it.
+     *
+     * @throws IOException if the file cannot be written
+     * @throws IllegalStateException if this cache was created without a store file
+     */
+    public void save() throws IOException {
+        if (storeFile == null) {
+            throw new IllegalStateException("No store file configured");
+        }
+        List<String> lines;
+        synchronized (entries) {
+            lines = new ArrayList<>(entries.size());
+            Base64.Encoder encoder = Base64.getEncoder();
+            for (Map.Entry<ByteBuffer, byte[]> entry : entries.entrySet()) {
+                lines.add(encoder.encodeToString(entry.getKey().array()) + " "
+                          + encoder.encodeToString(entry.getValue()));
+            }
+        }
+        Path dir = storeFile.toAbsolutePath().getParent();
+        Path tempFile = Files.createTempFile(dir, storeFile.getFileName().toString(), ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(tempFile, StandardCharsets.US_ASCII)) {
+                for (String line : lines) {
+                    writer.write(line);
+                    writer.newLine();
+                }
+            }
+            try {
+                Files.move(tempFile, storeFile,
+                           StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException ex) {
+                Files.move(tempFile, storeFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private void load() throws IOException {
+        Base64.Decoder decoder = Base64.getDecoder();
+        try (BufferedReader reader = Files.newBufferedReader(storeFile, StandardCharsets.US_ASCII)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int separator = line.indexOf(' ');
+                if (separator <= 0) {
+                    continue;
+                }
+                try {
+                    byte[] key = decoder.decode(line.substring(0, separator));
+                    byte[] digestValue = decoder.decode(line.substring(separator + 1));
+                    synchronized (entries) {
+                        entries.put(ByteBuffer.wrap(key), digestValue);
+                    }
+                } catch (IllegalArgumentException ex) {
+                    LOG.log(Level.DEBUG, "Ignoring invalid digest cache entry in {0}", storeFile);
+                }
+            }
+        } catch (NoSuchFileException ex) {
+            LOG.log(Level.DEBUG, "Digest cache file {0} does not exist yet", storeFile);
+        }
+    }
+
+    private static ByteBuffer getCacheKey(String uri, String digestAlgorithmURI, List<String> transformURIs,
+                                          String validator) {
+        if (uri == null || digestAlgorithmURI == null || transformURIs == null || validator == null) {
+            return null;
+        }
+        MessageDigest md = CacheUtils.getKeyDigest();
+        if (md == null) {
+            return null;
+        }
+        CacheUtils.updateKeyDigest(md, uri);
+        CacheUtils.updateKeyDigest(md, digestAlgorithmURI);
+        CacheUtils.updateKeyDigest(md, validator);
+        for (String transformURI : transformURIs) {
+            CacheUtils.updateKeyDigest(md, transformURI);
+        }
+        return ByteBuffer.wrap(md.digest());
+    }
+}
@@ -0,0 +1,151 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.signature;
+
+import java.nio.ByteBuffer;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Map;
+
+import org.apache.xml.security.utils.CacheUtils;
+
+/**
+ * An opt-in cache of successful SignatureValue verifications.
+ *
+ * An entry is keyed by a SHA-256 hash over the signature algorithm URI, the canonicalized
+ * SignedInfo octets, the SignatureValue and the encoded verification key. A hit means that
+ * exactly these SignedInfo octets were already verified with exactly this key, so the asymmetric
+ * (or MAC) operation can be skipped. The References are not covered by the cache and are
+ * always re-digested by the caller. Only successful verifications are stored.
+ *
+ * The cache is bounded in size (least recently used entries are evicted first) and every entry
+ * expires after the configured time to live. Instances are thread-safe and are meant to be shared.
+ */
+public final class SignatureVerificationCache {
+
+    private final long timeToLiveNanos;
+    private final Map<ByteBuffer, Long> entries;
+
+    /**
+     * @param maxEntries the maximum number of cached verification results
+     * @param timeToLive how long a verification result stays valid
+     */
+    public SignatureVerificationCache(int maxEntries, Duration timeToLive) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        if (timeToLive == null || timeToLive.isNegative() || timeToLive.isZero()) {
+            throw new IllegalArgumentException("timeToLive must be positive");
+        }
+        this.timeToLiveNanos = timeToLive.toNanos();
+        this.entries = CacheUtils.newLRUMap(maxEntries);
+    }
+
+    /**
+     * Returns whether the given SignedInfo octets were already successfully verified against
+     * the given SignatureValue and key, and the result has not expired yet.
+     *
+     * @param algorithmURI the SignatureMethod algorithm URI
+     * @param canonicalizedSignedInfo the canonicalized SignedInfo octets
+     * @param signatureValue the decoded SignatureValue
+     * @param key the verification key
+     * @return true if a valid cached verification exists
+     */
+    public boolean isVerified(String algorithmURI, byte[] canonicalizedSignedInfo,
+                              byte[] signatureValue, Key key) {
+        ByteBuffer cacheKey = getCacheKey(algorithmURI, canonicalizedSignedInfo, signatureValue, key);
+        if (cacheKey == null) {
+            return false;
+        }
+        long now = System.nanoTime();
+        synchronized (entries) {
+            Long expiry = entries.get(cacheKey);
+            if (expiry == null) {
+                return false;
+            }
+            if (now - expiry >= 0) {
+                entries.remove(cacheKey);
+                return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Records a successful verification of the given SignedInfo octets.
+     *
+     * @param algorithmURI the SignatureMethod algorithm URI
+     * @param canonicalizedSignedInfo the canonicalized SignedInfo octets
+     * @param signatureValue the decoded SignatureValue
+     * @param key the verification key
+     */
+    public void markVerified(String algorithmURI, byte[] canonicalizedSignedInfo,
+                             byte[] signatureValue, Key key) {
+        ByteBuffer cacheKey = getCacheKey(algorithmURI, canonicalizedSignedInfo, signatureValue, key);
+        if (cacheKey == null) {
+            return;
+        }
+        long expiry = System.nanoTime() + timeToLiveNanos;
+        synchronized (entries) {
+            entries.put(cacheKey, expiry);
+        }
+    }
+
+    /**
+     * @return the number of cached entries, including entries that have expired but were not
+     * looked up since
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Removes all cached verification results.
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    private static ByteBuffer getCacheKey(String algorithmURI, byte[] canonicalizedSignedInfo,
+                                          byte[] signatureValue, Key key) {
+        if (algorithmURI == null || canonicalizedSignedInfo == null || signatureValue == null || key == null) {
+            return null;
+        }
+        byte[] encodedKey = key.getEncoded();
+        if (encodedKey == null) {
+            // Keys which can't be exported (e.g. held in a HSM) can't be fingerprinted
+            return null;
+        }
+        MessageDigest md = CacheUtils.getKeyDigest();
+        if (md == null) {
+            return null;
+        }
+        CacheUtils.updateKeyDigest(md, algorithmURI);
+        CacheUtils.updateKeyDigest(md, key.getAlgorithm());
+        CacheUtils.updateKeyDigest(md, encodedKey);
+        CacheUtils.updateKeyDigest(md, signatureValue);
+        CacheUtils.updateKeyDigest(md, canonicalizedSignedInfo);
+        return ByteBuffer.wrap(md.digest());
+    }
+}
@@ -160,6 +160,35 @@ public class SignedInfo extends Manifest {
         addReturnToSelf();
     }
 
+    /**
+     * Constructs {@link SignedInfo} which shares the SignatureAlgorithmSpi of an existing
+     * SignatureAlgorithm, see {@link SignatureAlgorithm#newInstanceSharingSpi(Document, SignatureAlgorithm)}.
+     *
+     * @param doc <code>SignedInfo</code> is placed in this document
+     * @param signatureAlgorithm the SignatureAlgorithm to share
+     * @param canonicalizationMethodURI URI representation of the
+     *    Canonicalization method
+     * @throws XMLSecurityException
+     */
+    SignedInfo(
+        Document doc, SignatureAlgorithm signatureAlgorithm, String canonicalizationMethodURI
+    ) throws XMLSecurityException {
+        super(doc);
+
+        c14nMethod =
+            XMLUtils.createElementInSignatureSpace(getDocument(), Constants._TAG_CANONICALIZATIONMETHOD);
+
+        c14nMethod.setAttributeNS(null, Constants._ATT_ALGORITHM, canonicalizationMethodURI);
+        appendSelf(c14nMethod);
+        addReturnToSelf();
+
+        this.signatureAlgorithm = SignatureAlgorithm.newInstanceSharingSpi(getDocument(), signatureAlgorithm);
+
+        signatureMethod = this.signatureAlgorithm.getElement();
+        appendSelf(signatureMethod);
+        addReturnToSelf();
+    }
+
     /**
      * @param doc
      * @param signatureMethodElem
@@ -18,6 +18,7 @@
  */
 package org.apache.xml.security.signature;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.lang.System.Logger;
@@ -27,14 +28,20 @@ import java.security.Provider;
 import java.security.PublicKey;
 import java.security.cert.X509Certificate;
 import java.security.spec.AlgorithmParameterSpec;
+import java.util.concurrent.Executor;
 
 import javax.crypto.SecretKey;
 
 import org.apache.xml.security.algorithms.SignatureAlgorithm;
 import org.apache.xml.security.c14n.Canonicalizer;
 import org.apache.xml.security.exceptions.XMLSecurityException;
+import org.apache.xml.security.jfr.XmlSecEvents;
+import org.apache.xml.security.jfr.XmlSecSignEvent;
+import org.apache.xml.security.jfr.XmlSecVerifyEvent;
 import org.apache.xml.security.keys.KeyInfo;
 import org.apache.xml.security.keys.content.X509Data;
+import org.apache.xml.security.metrics.Metrics;
+import org.apache.xml.security.metrics.Operation;
 import org.apache.xml.security.transforms.Transforms;
 import org.apache.xml.security.utils.Constants;
 import org.apache.xml.security.utils.I18n;
@@ -243,6 +250,9 @@ public final class XMLSignature extends SignatureElementProxy {
      */
     private boolean followManifestsDuringValidation = false;
 
+    /** An optional cache of successful SignatureValue verifications */
+    private SignatureVerificationCache verificationCache;
+
     private Element signatureValueElement;
 
     private static final int MODE_SIGN = 0;
@@ -482,6 +492,50 @@ public final class XMLSignature extends SignatureElementProxy {
         addReturnToSelf();
     }
 
+    /**
+     * Creates a XMLSignature in a Document which shares the SignatureAlgorithmSpi of an
+     * existing SignatureAlgorithm. This is used by {@link XMLSignatureTemplate}.
+     *
+     * @param doc Document in which the signature will be appended after creation.
+     * @param baseURI URI to be used as context for all relative URIs.
+     * @param signatureAlgorithm the SignatureAlgorithm to share
+     * @param canonicalizationMethodURI the canonicalization algorithm to be used to c14nize the SignedInfo element.
+     * @throws XMLSecurityException
+     */
+    XMLSignature(
+        Document doc,
+        String baseURI,
+        SignatureAlgorithm signatureAlgorithm,
+        String canonicalizationMethodURI
+    ) throws XMLSecurityException {
+        super(doc);
+
+        String xmlnsDsPrefix = getDefaultPrefix(Constants.SignatureSpecNS);
+        if (xmlnsDsPrefix == null || xmlnsDsPrefix.length() == 0) {
+            getElement().setAttributeNS(
+                Constants.NamespaceSpecNS, "xmlns", Constants.SignatureSpecNS
+            );
+        } else {
+            getElement().setAttributeNS(
+                Constants.NamespaceSpecNS, "xmlns:" + xmlnsDsPrefix, Constants.SignatureSpecNS
+            );
+        }
+        addReturnToSelf();
+
+        this.baseURI = baseURI;
+        this.signedInfo = new SignedInfo(getDocument(), signatureAlgorithm, canonicalizationMethodURI);
+
+        appendSelf(this.signedInfo);
+        addReturnToSelf();
+
+        // create an empty SignatureValue; this is filled by setSignatureValueElement
+        signatureValueElement =
+            XMLUtils.createElementInSignatureSpace(getDocument(), Constants._TAG_SIGNATUREVALUE);
+
+        appendSelf(signatureValueElement);
+        addReturnToSelf();
+    }
+
     /**
      * This will parse the element and construct the Java Objects.
      * That will allow a user to validate the signature.
@@ -798,17 +852,32 @@ public final class XMLSignature extends SignatureElementProxy {
             );
         }
 
+        sign(signingKey, true);
+    }
+
+    /**
+     * Digests all References and signs the SignedInfo. If initSign is false, the
+     * SignatureAlgorithm must already be initialized for signing, and signingKey is ignored.
+     */
+    void sign(Key signingKey, boolean initSign) throws XMLSignatureException {
         //Create a SignatureAlgorithm object
         SignedInfo si = this.getSignedInfo();
         SignatureAlgorithm sa = si.getSignatureAlgorithm();
-        try (SignerOutputStream output = new SignerOutputStream(sa);
+        XmlSecSignEvent event = XmlSecEvents.AVAILABLE ? new XmlSecSignEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+        try (Metrics.Timer timer = Metrics.start(Operation.SIGN, sa.getURI());
+            SignerOutputStream output = new SignerOutputStream(sa);
             OutputStream so = new UnsyncBufferedOutputStream(output)) {
 
             // generate digest values for all References in this SignedInfo
             si.generateDigestValues();
 
             // initialize SignatureAlgorithm for signing
-            sa.initSign(signingKey);
+            if (initSign) {
+                sa.initSign(signingKey);
+            }
 
             // get the canonicalized bytes from SignedInfo
             si.signInOctetStream(so);
@@ -819,6 +888,13 @@ public final class XMLSignature extends SignatureElementProxy {
             throw ex;
         } catch (XMLSecurityException | IOException ex) {
             throw new XMLSignatureException(ex);
+        } finally {
+            if (event != null && event.shouldCommit()) {
+                event.signatureAlgorithm = sa.getURI();
+                event.canonicalizationAlgorithm = si.getCanonicalizationMethodURI();
+                event.referenceCount = si.getLength();
+                event.commit();
+            }
         }
     }
 
@@ -865,6 +941,41 @@ public final class XMLSignature extends SignatureElementProxy {
      * @throws XMLSignatureException
      */
     public boolean checkSignatureValue(Key pk) throws XMLSignatureException {
+        return checkSignatureValue(pk, null, true);
+    }
+
+    /**
+     * Verifies the signature as {@link #checkSignatureValue(Key)} does. If signatureAlgorithm
+     * is not null, it is used instead of the SignatureAlgorithm of this SignedInfo. If
+     * initVerify is false, the SignatureAlgorithm must already be initialized for verification
+     * with pk.
+     */
+    boolean checkSignatureValue(Key pk, SignatureAlgorithm signatureAlgorithm, boolean initVerify)
+        throws XMLSignatureException {
+        SignatureAlgorithm sa =
+            signatureAlgorithm != null ? signatureAlgorithm : this.getSignedInfo().getSignatureAlgorithm();
+        XmlSecVerifyEvent event = XmlSecEvents.AVAILABLE ? new XmlSecVerifyEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+        boolean valid = false;
+        try (Metrics.Timer timer = Metrics.start(Operation.VERIFY, sa.getURI())) {
+            valid = verifySignatureValue(pk, sa, initVerify);
+            return valid;
+        } finally {
+            if (event != null && event.shouldCommit()) {
+                SignedInfo si = this.getSignedInfo();
+                event.signatureAlgorithm = sa.getURI();
+                event.canonicalizationAlgorithm = si.getCanonicalizationMethodURI();
+                event.referenceCount = si.getLength();
+                event.valid = valid;
+                event.commit();
+            }
+        }
+    }
+
+    private boolean verifySignatureValue(Key pk, SignatureAlgorithm sa, boolean initVerify)
+        throws XMLSignatureException {
         //COMMENT: pk suggests it can only be a public key?
         //check to see if the key is not null
         if (pk == null) {
@@ -878,18 +989,21 @@ public final class XMLSignature extends SignatureElementProxy {
         // References inside a Manifest.
         try {
             SignedInfo si = this.getSignedInfo();
-            //create a SignatureAlgorithms from the SignatureMethod inside
-            //SignedInfo. This is used to validate the signature.
-            SignatureAlgorithm sa = si.getSignatureAlgorithm();
             LOG.log(Level.DEBUG, "signatureMethodURI = {0}", sa.getAlgorithmURI());
             LOG.log(Level.DEBUG, "jceSigAlgorithm = {0}", sa.getJCEAlgorithmString());
             LOG.log(Level.DEBUG, "PublicKey = {0}", pk);
 
+            if (verificationCache != null) {
+                return checkSignatureValue(si, sa, pk, initVerify);
+            }
+
             byte[] sigBytes = null;
             try (SignerOutputStream so = new SignerOutputStream(sa);
                 OutputStream bos = new UnsyncBufferedOutputStream(so)) {
 
-                sa.initVerify(pk);
+                if (initVerify) {
+                    sa.initVerify(pk);
+                }
                 LOG.log(Level.DEBUG, "jceSigProvider = {0}", sa.getJCEProviderName());
 
                 // Get the canonicalized (normalized) SignedInfo
@@ -918,6 +1032,41 @@ public final class XMLSignature extends SignatureElementProxy {
         }
     }
 
+    /**
+     * Verifies the SignatureValue using the configured SignatureVerificationCache. The SignedInfo
+     * is canonicalized once into memory, so that the same octets are used for the cache lookup
+     * and (on a miss) for the actual verification.
+     */
+    private boolean checkSignatureValue(SignedInfo si, SignatureAlgorithm sa, Key pk, boolean initVerify)
+        throws XMLSecurityException {
+        byte[] canonicalizedSignedInfo;
+        try (ByteArrayOutputStream bos = new ByteArrayOutputStream()) {
+            si.signInOctetStream(bos);
+            canonicalizedSignedInfo = bos.toByteArray();
+        } catch (IOException ex) {
+            throw new XMLSignatureException(ex);
+        }
+        byte[] sigBytes = this.getSignatureValue();
+        String algorithmURI = sa.getAlgorithmURI();
+
+        if (verificationCache.isVerified(algorithmURI, canonicalizedSignedInfo, sigBytes, pk)) {
+            LOG.log(Level.DEBUG, "SignatureValue verification found in the verification cache");
+        } else {
+            if (initVerify) {
+                sa.initVerify(pk);
+            }
+            LOG.log(Level.DEBUG, "jceSigProvider = {0}", sa.getJCEProviderName());
+            sa.update(canonicalizedSignedInfo);
+            if (!sa.verify(sigBytes)) {
+                LOG.log(Level.WARNING, "Signature verification failed.");
+                return false;
+            }
+            verificationCache.markVerified(algorithmURI, canonicalizedSignedInfo, sigBytes, pk);
+        }
+
+        return si.verify(this.followManifestsDuringValidation);
+    }
+
     /**
      * Add a Reference with full parameters to this Signature
      *
@@ -1013,6 +1162,26 @@ public final class XMLSignature extends SignatureElementProxy {
         this.getKeyInfo().add(pk);
     }
 
+    /**
+     * Add a KeyInfo element, e.g. one copied from another document, to the Signature.
+     * This is only possible while signing, and before {@link #getKeyInfo()} was called.
+     *
+     * @param keyInfoElement the ds:KeyInfo element, owned by this Signature's document
+     * @throws XMLSecurityException
+     */
+    void addKeyInfo(Element keyInfoElement) throws XMLSecurityException {
+        this.keyInfo = new KeyInfo(keyInfoElement, this.baseURI);
+        Element firstObject =
+            XMLUtils.selectDsNode(getElement().getFirstChild(), Constants._TAG_OBJECT, 0);
+        if (firstObject != null) {
+            getElement().insertBefore(keyInfoElement, firstObject);
+            XMLUtils.addReturnBeforeChild(getElement(), firstObject);
+        } else {
+            appendSelf(keyInfoElement);
+            addReturnToSelf();
+        }
+    }
+
     /**
      * Proxy method for {@link SignedInfo#createSecretKey(byte[])}. If you want
      * to create a MAC, this method helps you to obtain the
@@ -1040,6 +1209,40 @@ public final class XMLSignature extends SignatureElementProxy {
         this.followManifestsDuringValidation = followManifests;
     }
 
+    /**
+     * Set a cache of successful SignatureValue verifications to be used by
+     * {@link #checkSignatureValue(Key)}. If the same canonicalized SignedInfo and
+     * SignatureValue was already verified with the same key, the asymmetric operation is
+     * skipped. The References are always re-digested. By default no cache is used.
+     *
+     * @param verificationCache the cache to use, or null to disable caching
+     */
+    public void setVerificationCache(SignatureVerificationCache verificationCache) {
+        this.verificationCache = verificationCache;
+    }
+
+    /**
+     * Set a cache of digest values of external References to local files, which is used when
+     * signing and verifying. By default no cache is used.
+     *
+     * @param digestCache the cache to use, or null to disable caching
+     * @see SignedInfo#setDigestCache(ReferenceDigestCache)
+     */
+    public void setDigestCache(ReferenceDigestCache digestCache) {
+        signedInfo.setDigestCache(digestCache);
+    }
+
+    /**
+     * Enable the concurrent prefetching of external References when verifying.
+     *
+     * @param executor the Executor to resolve the References on, or null to disable prefetching
+     * @param maxConcurrency the maximum number of References which are resolved at the same time
+     * @see SignedInfo#setReferencePrefetch(Executor, int)
+     */
+    public void setReferencePrefetch(Executor executor, int maxConcurrency) {
+        signedInfo.setReferencePrefetch(executor, maxConcurrency);
+    }
+
     /**
      * Get the local name of this element
      *
@@ -0,0 +1,351 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.signature;
+
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.security.Key;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import org.apache.xml.security.algorithms.SignatureAlgorithm;
+import org.apache.xml.security.exceptions.XMLSecurityException;
+import org.apache.xml.security.utils.Constants;
+import org.apache.xml.security.utils.XMLUtils;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * Verifies the Signatures of many documents.
+ *
+ * The Signature of every document is parsed and its verification key is selected first. The
+ * documents are then grouped by SignatureMethod and key. All documents of a group are verified
+ * one after the other by the same task, sharing one SignatureAlgorithm, which is initialized
+ * for verification only once per group. The groups are verified on the configured Executor.
+ *
+ * As a DOM is not thread-safe, even for reading, a Document is only accessed by one task at a
+ * time: the Signatures of a Document are parsed by the same task, and groups which contain
+ * Signatures of the same Document are verified by the same task. The caller must not access the
+ * Documents while they are verified.
+ *
+ * Every document is verified with the same semantics as
+ * {@link XMLSignature#checkSignatureValue(Key)}, and gets its own {@link Result}.
+ */
+public final class XMLSignatureBatchVerifier {
+
+    private static final Logger LOG = System.getLogger(XMLSignatureBatchVerifier.class.getName());
+
+    /**
+     * Selects the verification key for a Signature.
+     */
+    @FunctionalInterface
+    public interface KeySelector {
+
+        /**
+         * @param signature the Signature to verify
+         * @return the key to verify the Signature with
+         * @throws XMLSecurityException if no key can be selected
+         */
+        Key select(XMLSignature signature) throws XMLSecurityException;
+    }
+
+    private final KeySelector keySelector;
+    private final Executor executor;
+    private boolean secureValidation = true;
+    private String baseURI;
+
+    /**
+     * Creates a batch verifier which verifies all groups in the calling thread.
+     *
+     * @param keySelector selects the verification key for each Signature
+     */
+    public XMLSignatureBatchVerifier(KeySelector keySelector) {
+        this(keySelector, Runnable::run);
+    }
+
+    /**
+     * @param keySelector selects the verification key for each Signature
+     * @param executor the Executor to parse and verify on
+     */
+    public XMLSignatureBatchVerifier(KeySelector keySelector, Executor executor) {
+        if (keySelector == null || executor == null) {
+            throw new NullPointerException();
+        }
+        this.keySelector = keySelector;
+        this.executor = executor;
+    }
+
+    /**
+     * Set whether secure validation is enabled or not. The default is true.
+     */
+    public void setSecureValidation(boolean secureValidation) {
+        this.secureValidation = secureValidation;
+    }
+
+    /**
+     * Set the base URI used to resolve relative Reference URIs.
+     */
+    public void setBaseURI(String baseURI) {
+        this.baseURI = baseURI;
+    }
+
+    /**
+     * Verifies the first Signature element of each of the given documents.
+     *
+     * @param documents the documents to verify
+     * @return one Result per document, in the order of the given documents
+     */
+    public List<Result> verify(List<Document> documents) {
+        List<Element> signatureElements = new ArrayList<>(documents.size());
+        for (Document document : documents) {
+            Node signatureElement =
+                document.getElementsByTagNameNS(Constants.SignatureSpecNS, Constants._TAG_SIGNATURE).item(0);
+            signatureElements.add((Element)signatureElement);
+        }
+        return verifySignatures(signatureElements);
+    }
+
+    /**
+     * Verifies the given Signature elements.
+     *
+     * @param signatureElements the ds:Signature elements to verify
+     * @return one Result per Signature element, in the order of the given elements
+     */
+    public List<Result> verifySignatures(List<Element> signatureElements) {
+        Result[] results = new Result[signatureElements.size()];
+
+        // Parse the Signatures and select the keys, with one task per Document
+        Map<Document, List<Integer>> documents = new IdentityHashMap<>();
+        for (int i = 0; i < results.length; i++) {
+            Element signatureElement = signatureElements.get(i);
+            if (signatureElement == null) {
+                results[i] = parse(null);
+            } else {
+                documents.computeIfAbsent(signatureElement.getOwnerDocument(), k -> new ArrayList<>()).add(i);
+            }
+        }
+        Map<List<Integer>, CompletableFuture<Void>> parsed = new IdentityHashMap<>();
+        for (List<Integer> indexes : documents.values()) {
+            parsed.put(indexes, CompletableFuture.runAsync(() -> {
+                for (int index : indexes) {
+                    results[index] = parse(signatureElements.get(index));
+                }
+            }, executor));
+        }
+        for (Map.Entry<List<Integer>, CompletableFuture<Void>> entry : parsed.entrySet()) {
+            try {
+                entry.getValue().join();
+            } catch (CompletionException ex) {
+                // the Signatures of the Document which were not parsed yet get the failure
+                for (int index : entry.getKey()) {
+                    if (results[index] == null) {
+                        results[index] = new Result(signatureElements.get(index));
+                        results[index].exception =
+                            ex.getCause() instanceof Exception ? (Exception) ex.getCause() : ex;
+                    }
+                }
+            }
+        }
+
+        Map<GroupKey, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < results.length; i++) {
+            if (results[i].exception == null) {
+                groups.computeIfAbsent(new GroupKey(results[i], i), k -> new ArrayList<>()).add(i);
+            }
+        }
+        List<List<List<Integer>>> tasks = getTasks(results, new ArrayList<>(groups.values()));
+        LOG.log(Level.DEBUG, "Verifying {0} Signatures in {1} groups and {2} tasks",
+                results.length, groups.size(), tasks.size());
+
+        // Verify the groups
+        List<CompletableFuture<Void>> verified = new ArrayList<>(tasks.size());
+        for (List<List<Integer>> task : tasks) {
+            verified.add(CompletableFuture.runAsync(() -> {
+                for (List<Integer> group : task) {
+                    verifyGroup(results, group);
+                }
+            }, executor));
+        }
+        for (CompletableFuture<Void> future : verified) {
+            future.join();
+        }
+
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Puts groups which contain Signatures of the same Document into the same task.
+     */
+    private static List<List<List<Integer>>> getTasks(Result[] results, List<List<Integer>> groups) {
+        int[] parent = new int[groups.size()];
+        Map<Document, Integer> documentGroups = new IdentityHashMap<>();
+        for (int i = 0; i < groups.size(); i++) {
+            parent[i] = i;
+            for (int index : groups.get(i)) {
+                Integer other = documentGroups.putIfAbsent(results[index].signatureElement.getOwnerDocument(), i);
+                if (other != null) {
+                    parent[find(parent, i)] = find(parent, other);
+                }
+            }
+        }
+        Map<Integer, List<List<Integer>>> tasks = new LinkedHashMap<>();
+        for (int i = 0; i < groups.size(); i++) {
+            tasks.computeIfAbsent(find(parent, i), k -> new ArrayList<>()).add(groups.get(i));
+        }
+        return new ArrayList<>(tasks.values());
+    }
+
+    private static int find(int[] parent, int i) {
+        int root = i;
+        while (parent[root] != root) {
+            root = parent[root];
+        }
+        return root;
+    }
+
+    private Result parse(Element signatureElement) {
+        Result result = new Result(signatureElement);
+        try {
+            if (signatureElement == null) {
+                throw new XMLSignatureException("empty", new Object[] {"No Signature element found"});
+            }
+            result.signature = new XMLSignature(signatureElement, baseURI, secureValidation);
+            result.key = keySelector.select(result.signature);
+            if (result.key == null) {
+                throw new XMLSignatureException("empty", new Object[] {"Didn't get a key"});
+            }
+        } catch (XMLSecurityException | RuntimeException ex) {
+            result.exception = ex;
+        }
+        return result;
+    }
+
+    private static void verifyGroup(Result[] results, List<Integer> group) {
+        SignatureAlgorithm sharedSignatureAlgorithm = null;
+        if (group.size() > 1) {
+            sharedSignatureAlgorithm = results[group.get(0)].signature.getSignedInfo().getSignatureAlgorithm();
+        }
+        boolean initVerify = true;
+        for (int index : group) {
+            Result result = results[index];
+            try {
+                // The JCA object is reset after each verification, so it only needs to be
+                // initialized again if a previous verification was interrupted by an exception
+                result.valid =
+                    result.signature.checkSignatureValue(result.key, sharedSignatureAlgorithm, initVerify);
+                initVerify = false;
+            } catch (XMLSignatureException | RuntimeException ex) {
+                result.exception = ex;
+                initVerify = true;
+            }
+        }
+    }
+
+    /**
+     * Signatures can share a SignatureAlgorithm if they use the same algorithm and key, and the
+     * SignatureMethod has no parameters (e.g. HMACOutputLength or RSA-PSS parameters).
+     */
+    private static final class GroupKey {
+        private final String algorithmURI;
+        private final Key key;
+        private final int index;
+
+        GroupKey(Result result, int index) {
+            SignatureAlgorithm sa = result.signature.getSignedInfo().getSignatureAlgorithm();
+            this.algorithmURI = sa.getAlgorithmURI();
+            this.key = result.key;
+            boolean hasParameters =
+                XMLUtils.getNextElement(sa.getElement().getFirstChild()) != null;
+            this.index = hasParameters ? index : -1;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof GroupKey)) {
+                return false;
+            }
+            GroupKey other = (GroupKey) o;
+            return index == other.index && algorithmURI.equals(other.algorithmURI) && key.equals(other.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * algorithmURI.hashCode() + key.hashCode() + index;
+        }
+    }
+
+    /**
+     * The verification result of a single Signature.
+     */
+    public static final class Result {
+        private final Element signatureElement;
+        private XMLSignature signature;
+        private Key key;
+        private boolean valid;
+        private Exception exception;
+
+        Result(Element signatureElement) {
+            this.signatureElement = signatureElement;
+        }
+
+        /**
+         * @return the ds:Signature element, or null if the document contained none
+         */
+        public Element getSignatureElement() {
+            return signatureElement;
+        }
+
+        /**
+         * @return the parsed XMLSignature, or null if it couldn't be parsed
+         */
+        public XMLSignature getSignature() {
+            return signature;
+        }
+
+        /**
+         * @return the selected verification key, or null if none was selected
+         */
+        public Key getKey() {
+            return key;
+        }
+
+        /**
+         * @return true if the Signature is valid, as {@link XMLSignature#checkSignatureValue(Key)}
+         * would have returned it
+         */
+        public boolean isValid() {
+            return valid;
+        }
+
+        /**
+         * @return the exception which prevented the verification, or null
+         */
+        public Exception getException() {
+            return exception;
+        }
+    }
+}
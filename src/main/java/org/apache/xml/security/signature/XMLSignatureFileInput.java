@@ -31,6 +31,8 @@ import java.nio.file.Path;
  */
 public class XMLSignatureFileInput extends XMLSignatureStreamInput {
 
+    private final Path file;
+
     /**
      * Construct a XMLSignatureInput from a File
      * <p>
@@ -41,6 +43,7 @@ public class XMLSignatureFileInput extends XMLSignatureStreamInput {
      */
     public XMLSignatureFileInput(Path file) throws IOException {
         super(new BufferedInputStream(Files.newInputStream(file), 8192));
+        this.file = file;
     }
 
 
@@ -53,6 +56,13 @@ public class XMLSignatureFileInput extends XMLSignatureStreamInput {
      * @throws IOException
      */
     public XMLSignatureFileInput(File file) throws IOException {
-        super(new BufferedInputStream(Files.newInputStream(file.toPath()), 8192));
+        this(file.toPath());
+    }
+
+    /**
+     * @return the file this input reads from
+     */
+    public Path getFile() {
+        return file;
     }
 }
@@ -28,6 +28,7 @@ import java.util.List;
 import java.util.Set;
 
 import org.apache.xml.security.c14n.CanonicalizationException;
+import org.apache.xml.security.c14n.Canonicalizer;
 import org.apache.xml.security.c14n.implementations.Canonicalizer11_OmitComments;
 import org.apache.xml.security.c14n.implementations.Canonicalizer20010315OmitComments;
 import org.apache.xml.security.c14n.implementations.CanonicalizerBase;
@@ -53,6 +54,7 @@ public abstract class XMLSignatureInput {
     /** Exclude Node *for enveloped transformations */
     private Node excludeNode;
     private boolean excludeComments;
+    private boolean octetNodeSet;
 
     private String sourceURI;
     private String mimeType;
@@ -317,6 +319,27 @@ public abstract class XMLSignatureInput {
     }
 
 
+    /**
+     * @return true if the unprocessed octets stand for the node-set of the parsed document,
+     *         which is canonicalized with all parameters of the canonicalization algorithm
+     */
+    public boolean isOctetNodeSet() {
+        return octetNodeSet;
+    }
+
+
+    /**
+     * Set whether the unprocessed octets stand for the node-set of the parsed document. This
+     * allows a transform to defer parsing the octets to a subsequent canonicalization, which
+     * can then stream them.
+     *
+     * @param octetNodeSet whether the octets stand for the node-set of the parsed document
+     */
+    public void setOctetNodeSet(boolean octetNodeSet) {
+        this.octetNodeSet = octetNodeSet;
+    }
+
+
     /**
      * @return Source URI
      */
@@ -459,13 +482,20 @@ public abstract class XMLSignatureInput {
      * @throws IOException
      */
     protected void canonicalize(OutputStream output, boolean c14n11) throws CanonicalizationException, IOException {
-        final CanonicalizerBase c14nizer;
+        CanonicalizerBase c14nizer;
         if (c14n11) {
-            c14nizer = new Canonicalizer11_OmitComments();
+            c14nizer = Canonicalizer.acquireEngine(Canonicalizer.ALGO_ID_C14N11_OMIT_COMMENTS,
+                                                   Canonicalizer11_OmitComments.class, Canonicalizer11_OmitComments::new);
         } else {
-            c14nizer = new Canonicalizer20010315OmitComments();
+            c14nizer = Canonicalizer.acquireEngine(Canonicalizer.ALGO_ID_C14N_OMIT_COMMENTS,
+                                                   Canonicalizer20010315OmitComments.class,
+                                                   Canonicalizer20010315OmitComments::new);
+        }
+        try {
+            c14nizer.engineCanonicalize(this, output, isSecureValidation());
+        } finally {
+            Canonicalizer.releaseEngine(c14nizer);
         }
-        c14nizer.engineCanonicalize(this, output, isSecureValidation());
         output.flush();
     }
 }
@@ -0,0 +1,277 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.signature;
+
+import java.io.OutputStream;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.security.Key;
+import java.security.Provider;
+import java.security.PublicKey;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.xml.security.algorithms.SignatureAlgorithm;
+import org.apache.xml.security.exceptions.XMLSecurityException;
+import org.apache.xml.security.keys.KeyInfo;
+import org.apache.xml.security.keys.content.X509Data;
+import org.apache.xml.security.transforms.Transforms;
+import org.apache.xml.security.utils.I18n;
+import org.apache.xml.security.utils.XMLUtils;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * A reusable template for signing many documents with the same key, algorithms, References
+ * and KeyInfo.
+ *
+ * The SignatureAlgorithm is created and initialized with the signing key once, and the KeyInfo
+ * is built once and copied into every signed document. Signing a document then only requires
+ * building the Signature structure, digesting the References, canonicalizing the SignedInfo and
+ * the raw signature operation.
+ *
+ * As the underlying JCA signature object is shared, an XMLSignatureTemplate must not be used
+ * by more than one thread at a time. Use one template per thread for concurrent signing. The
+ * throughput counters can be read from any thread.
+ */
+public final class XMLSignatureTemplate {
+
+    private static final Logger LOG = System.getLogger(XMLSignatureTemplate.class.getName());
+
+    private final Document templateDocument;
+    private final SignatureAlgorithm signatureAlgorithm;
+    private final String canonicalizationMethodURI;
+    private final Key signingKey;
+    private final List<ReferenceTemplate> references = new ArrayList<>();
+    private KeyInfo keyInfo;
+    private String baseURI;
+    private boolean initialized;
+
+    private final LongAdder signedDocuments = new LongAdder();
+    private final LongAdder failedDocuments = new LongAdder();
+    private final LongAdder signingTimeNanos = new LongAdder();
+
+    /**
+     * @param signatureMethodURI the Signature method to be used
+     * @param canonicalizationMethodURI the canonicalization algorithm to be used to c14nize the SignedInfo element
+     * @param signingKey the private key or SecretKey to sign with
+     * @throws XMLSecurityException
+     */
+    public XMLSignatureTemplate(String signatureMethodURI, String canonicalizationMethodURI, Key signingKey)
+        throws XMLSecurityException {
+        this(signatureMethodURI, canonicalizationMethodURI, signingKey, null);
+    }
+
+    /**
+     * @param signatureMethodURI the Signature method to be used
+     * @param canonicalizationMethodURI the canonicalization algorithm to be used to c14nize the SignedInfo element
+     * @param signingKey the private key or SecretKey to sign with
+     * @param provider security provider to use, or null for the default
+     * @throws XMLSecurityException
+     */
+    public XMLSignatureTemplate(
+        String signatureMethodURI, String canonicalizationMethodURI, Key signingKey, Provider provider
+    ) throws XMLSecurityException {
+        if (signingKey instanceof PublicKey) {
+            throw new IllegalArgumentException(
+                I18n.translate("algorithms.operationOnlyVerification")
+            );
+        }
+        templateDocument = XMLUtils.newDocument();
+        this.signatureAlgorithm = new SignatureAlgorithm(templateDocument, signatureMethodURI, provider);
+        this.canonicalizationMethodURI = canonicalizationMethodURI;
+        this.signingKey = signingKey;
+        initSign();
+    }
+
+    /**
+     * Add a Reference which is created in every signed document.
+     *
+     * @param referenceURI URI of the resource to be signed, e.g. "" for the whole document
+     * @param digestURI URI of the digest algorithm to use
+     * @param transformURIs the Transforms (without parameters) to apply, in order
+     */
+    public void addReference(String referenceURI, String digestURI, String... transformURIs) {
+        references.add(new ReferenceTemplate(referenceURI, digestURI, transformURIs));
+    }
+
+    /**
+     * Add an X509 Certificate to the KeyInfo which is copied into every signed document.
+     *
+     * @param cert the certificate to include
+     * @throws XMLSecurityException
+     */
+    public void addKeyInfo(X509Certificate cert) throws XMLSecurityException {
+        X509Data x509data = new X509Data(templateDocument);
+        x509data.addCertificate(cert);
+        getKeyInfo().add(x509data);
+    }
+
+    /**
+     * Add a public key to the KeyInfo which is copied into every signed document.
+     *
+     * @param pk the public key to include
+     */
+    public void addKeyInfo(PublicKey pk) {
+        getKeyInfo().add(pk);
+    }
+
+    /**
+     * Returns the KeyInfo which is copied into every signed document. It is created on demand,
+     * and allows to add arbitrary content to the KeyInfo.
+     *
+     * @return the KeyInfo object
+     */
+    public KeyInfo getKeyInfo() {
+        if (keyInfo == null) {
+            keyInfo = new KeyInfo(templateDocument);
+        }
+        return keyInfo;
+    }
+
+    /**
+     * Set the base URI used to resolve relative Reference URIs.
+     *
+     * @param baseURI the base URI
+     */
+    public void setBaseURI(String baseURI) {
+        this.baseURI = baseURI;
+    }
+
+    /**
+     * Creates a Signature as the last child of the document element of the given Document
+     * and signs it.
+     *
+     * @param doc the document to sign
+     * @return the created and signed XMLSignature
+     * @throws XMLSecurityException
+     */
+    public XMLSignature sign(Document doc) throws XMLSecurityException {
+        return sign(doc, doc.getDocumentElement());
+    }
+
+    /**
+     * Creates a Signature as the last child of the given parent Element and signs it.
+     *
+     * @param doc the document to sign
+     * @param parent the element to append the Signature to
+     * @return the created and signed XMLSignature
+     * @throws XMLSecurityException
+     */
+    public XMLSignature sign(Document doc, Element parent) throws XMLSecurityException {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            if (!initialized) {
+                initSign();
+            }
+            XMLSignature signature =
+                new XMLSignature(doc, baseURI, signatureAlgorithm, canonicalizationMethodURI);
+            parent.appendChild(signature.getElement());
+
+            for (ReferenceTemplate reference : references) {
+                Transforms transforms = null;
+                if (reference.transformURIs.length > 0) {
+                    transforms = new Transforms(doc);
+                    for (String transformURI : reference.transformURIs) {
+                        transforms.addTransform(transformURI);
+                    }
+                }
+                signature.addDocument(reference.referenceURI, transforms, reference.digestURI);
+            }
+            if (keyInfo != null) {
+                signature.addKeyInfo((Element) doc.importNode(keyInfo.getElement(), true));
+            }
+
+            // An exception part way through signing leaves the shared JCA object in an
+            // unknown state, so it is re-initialized before the next document
+            initialized = false;
+            signature.sign(signingKey, false);
+            initialized = true;
+
+            success = true;
+            return signature;
+        } finally {
+            signingTimeNanos.add(System.nanoTime() - start);
+            if (success) {
+                signedDocuments.increment();
+            } else {
+                failedDocuments.increment();
+            }
+        }
+    }
+
+    /**
+     * Signs the given Document as {@link #sign(Document)} does, and writes it to the given
+     * OutputStream.
+     *
+     * @param doc the document to sign
+     * @param os the OutputStream to write the signed document to
+     * @return the created and signed XMLSignature
+     * @throws XMLSecurityException
+     */
+    public XMLSignature sign(Document doc, OutputStream os) throws XMLSecurityException {
+        XMLSignature signature = sign(doc);
+        XMLUtils.outputDOM(doc, os);
+        return signature;
+    }
+
+    /**
+     * @return the number of documents which were signed successfully
+     */
+    public long getSignedDocumentCount() {
+        return signedDocuments.sum();
+    }
+
+    /**
+     * @return the number of documents for which signing failed
+     */
+    public long getFailedDocumentCount() {
+        return failedDocuments.sum();
+    }
+
+    /**
+     * @return the total time spent in {@link #sign(Document, Element)} in nanoseconds,
+     * including failed attempts
+     */
+    public long getTotalSigningTimeNanos() {
+        return signingTimeNanos.sum();
+    }
+
+    private void initSign() throws XMLSignatureException {
+        signatureAlgorithm.initSign(signingKey);
+        initialized = true;
+        LOG.log(Level.DEBUG, "Initialized {0} for signing", signatureAlgorithm.getAlgorithmURI());
+    }
+
+    private static final class ReferenceTemplate {
+        private final String referenceURI;
+        private final String digestURI;
+        private final String[] transformURIs;
+
+        ReferenceTemplate(String referenceURI, String digestURI, String[] transformURIs) {
+            this.referenceURI = referenceURI;
+            this.digestURI = digestURI;
+            this.transformURIs = transformURIs == null ? new String[0] : Arrays.copyOf(transformURIs, transformURIs.length);
+        }
+    }
+}
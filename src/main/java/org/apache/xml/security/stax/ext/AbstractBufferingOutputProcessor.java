@@ -18,6 +18,7 @@
  */
 package org.apache.xml.security.stax.ext;
 
+import java.io.UncheckedIOException;
 import java.util.ArrayDeque;
 import java.util.Deque;
 
@@ -25,6 +26,7 @@ import javax.xml.stream.XMLStreamException;
 
 import org.apache.xml.security.exceptions.XMLSecurityException;
 import org.apache.xml.security.stax.ext.stax.XMLSecEvent;
+import org.apache.xml.security.stax.impl.util.SpillingXMLSecEventDeque;
 
 /**
  * An abstract OutputProcessor class for reusabilty
@@ -32,26 +34,48 @@ import org.apache.xml.security.stax.ext.stax.XMLSecEvent;
  */
 public abstract class AbstractBufferingOutputProcessor extends AbstractOutputProcessor {
 
-    private final ArrayDeque<XMLSecEvent> xmlSecEventBuffer = new ArrayDeque<>(100);
+    private Deque<XMLSecEvent> xmlSecEventBuffer;
 
     protected AbstractBufferingOutputProcessor() throws XMLSecurityException {
         super();
     }
 
     protected Deque<XMLSecEvent> getXmlSecEventBuffer() {
+        if (xmlSecEventBuffer == null) {
+            int memoryLimit = getSecurityProperties() != null ? getSecurityProperties().getOutboundBufferMemoryLimit() : -1;
+            if (memoryLimit < 0) {
+                xmlSecEventBuffer = new ArrayDeque<>(100);
+            } else {
+                xmlSecEventBuffer = new SpillingXMLSecEventDeque(
+                    memoryLimit, getSecurityProperties().getOutboundBufferDirectory());
+            }
+        }
         return xmlSecEventBuffer;
     }
 
     @Override
     public void processEvent(XMLSecEvent xmlSecEvent, OutputProcessorChain outputProcessorChain)
             throws XMLStreamException, XMLSecurityException {
-        xmlSecEventBuffer.offer(xmlSecEvent);
+        try {
+            getXmlSecEventBuffer().offer(xmlSecEvent);
+        } catch (UncheckedIOException e) {
+            throw new XMLStreamException(e.getCause());
+        }
     }
 
     @Override
     public void doFinal(OutputProcessorChain outputProcessorChain) throws XMLStreamException, XMLSecurityException {
         OutputProcessorChain subOutputProcessorChain = outputProcessorChain.createSubChain(this);
-        flushBufferAndCallbackAfterHeader(subOutputProcessorChain, getXmlSecEventBuffer());
+        Deque<XMLSecEvent> xmlSecEventDeque = getXmlSecEventBuffer();
+        try {
+            flushBufferAndCallbackAfterHeader(subOutputProcessorChain, xmlSecEventDeque);
+        } catch (UncheckedIOException e) {
+            throw new XMLStreamException(e.getCause());
+        } finally {
+            if (xmlSecEventDeque instanceof SpillingXMLSecEventDeque) {
+                ((SpillingXMLSecEventDeque) xmlSecEventDeque).close();
+            }
+        }
         //call final on the rest of the chain
         subOutputProcessorChain.doFinal();
         //this processor is now finished and we can remove it now
@@ -21,6 +21,7 @@ package org.apache.xml.security.stax.ext;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.xml.security.stax.securityEvent.SecurityEventConstants;
 import org.apache.xml.security.stax.securityEvent.SecurityEventListener;
 
 /**
@@ -38,6 +39,13 @@ public interface SecurityContext extends SecurityEventListener {
 
     <T> List<T> getAsList(Object key);
 
+    /**
+     * Adds an entry to the map stored under the key, which may be read while it is added to.
+     *
+     * @param key the key of the map
+     * @param mapKey the key of the entry, not null
+     * @param mapValue the value of the entry, not null
+     */
     <T, U> void putAsMap(Object key, T mapKey, U mapValue);
 
     <T, U> Map<T, U> getAsMap(Object key);
@@ -48,4 +56,15 @@ public interface SecurityContext extends SecurityEventListener {
      * @param securityEventListener The SecurityEventListener
      */
     void addSecurityEventListener(SecurityEventListener securityEventListener);
+
+    /**
+     * Tells whether SecurityEvents of the given type are wanted by a registered SecurityEventListener
+     * or by this SecurityContext itself. If not, the processors skip building them.
+     *
+     * @param securityEventType the type of the SecurityEvent
+     * @return whether a SecurityEvent of this type must be registered
+     */
+    default boolean isSecurityEventRequested(SecurityEventConstants.Event securityEventType) {
+        return true;
+    }
 }
@@ -26,6 +26,7 @@ import java.net.URL;
 import java.security.interfaces.DSAPrivateKey;
 import java.security.interfaces.RSAPrivateKey;
 import java.util.HashSet;
+import java.util.Set;
 
 import javax.crypto.SecretKey;
 import javax.xml.validation.Schema;
@@ -43,6 +44,12 @@ import org.xml.sax.SAXException;
  */
 public class XMLSec {
 
+    private static final Set<String> SEGMENTED_ENCRYPTION_ALGORITHMS = Set.of(
+        XMLSecurityConstants.NS_XENC11_AES128_GCM,
+        XMLSecurityConstants.NS_XENC11_AES192_GCM,
+        XMLSecurityConstants.NS_XENC11_AES256_GCM
+    );
+
     static {
         try {
             URL resource = ClassLoaderUtils.getResource("security-config.xml", XMLSec.class);
@@ -162,6 +169,12 @@ public class XMLSec {
                 if (securityProperties.getSignatureKeyIdentifiers().isEmpty()) {
                     securityProperties.setSignatureKeyIdentifier(SecurityTokenConstants.KeyIdentifier_IssuerSerial);
                 }
+                if (securityProperties.isSignaturePositionEnd()
+                    && (securityProperties.isSignaturePositionStart()
+                        || securityProperties.getSignaturePositionQName() != null
+                        || securityProperties.getSignaturePosition() != 0)) {
+                    throw new XMLSecurityConfigurationException("stax.signature.conflictingSignaturePosition");
+                }
             } else if (XMLSecurityConstants.ENCRYPTION.equals(action)) {
                 if (securityProperties.getEncryptionKeyTransportAlgorithm() == null) {
                     //@see http://www.w3.org/TR/2002/REC-xmlenc-core-20021210/Overview.html#rsa-1_5 :
@@ -172,6 +185,11 @@ public class XMLSec {
                 if (securityProperties.getEncryptionSymAlgorithm() == null) {
                     securityProperties.setEncryptionSymAlgorithm("http://www.w3.org/2001/04/xmlenc#aes256-cbc");
                 }
+                if (securityProperties.getEncryptionSegmentSize() > 0
+                    && !SEGMENTED_ENCRYPTION_ALGORITHMS.contains(securityProperties.getEncryptionSymAlgorithm())) {
+                    throw new XMLSecurityConfigurationException("stax.encryption.segmentedGCMOnly",
+                        securityProperties.getEncryptionSymAlgorithm());
+                }
                 if (securityProperties.getEncryptionKeyIdentifier() == null) {
                     securityProperties.setEncryptionKeyIdentifier(SecurityTokenConstants.KeyIdentifier_IssuerSerial);
                 }
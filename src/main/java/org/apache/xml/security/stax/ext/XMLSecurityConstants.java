@@ -147,6 +147,7 @@ public class XMLSecurityConstants {
     public static final String NS_DSIG11 = "http://www.w3.org/2009/xmldsig11#";
     public static final String NS_WSSE11 = "http://docs.oasis-open.org/wss/oasis-wss-wssecurity-secext-1.1.xsd";
     public static final String NS_XOP = "http://www.w3.org/2004/08/xop/include";
+    public static final String NS_SEGMENTED_GCM = "http://santuario.apache.org/xmlenc/segmented-gcm#";
 
     public static final String PREFIX_XENC = "xenc";
     public static final String PREFIX_XENC11 = "xenc11";
@@ -224,6 +225,9 @@ public class XMLSecurityConstants {
     public static final QName TAG_dsig11_NamedCurve = new QName(NS_DSIG11, "NamedCurve", PREFIX_DSIG11);
     public static final QName TAG_dsig11_PublicKey = new QName(NS_DSIG11, "PublicKey", PREFIX_DSIG11);
 
+    public static final String PREFIX_SEGMENTED_GCM = "sgcm";
+    public static final QName TAG_sgcm_SegmentSize = new QName(NS_SEGMENTED_GCM, "SegmentSize", PREFIX_SEGMENTED_GCM);
+
     public static final String NS_C14N_EXCL = "http://www.w3.org/2001/10/xml-exc-c14n#";
     public static final String NS_XMLDSIG_FILTER2 = "http://www.w3.org/2002/06/xmldsig-filter2";
     public static final String NS_XMLDSIG_ENVELOPED_SIGNATURE = NS_DSIG + "enveloped-signature";
@@ -18,6 +18,7 @@
  */
 package org.apache.xml.security.stax.ext;
 
+import java.nio.file.Path;
 import java.security.Key;
 import java.security.cert.X509Certificate;
 import java.security.spec.AlgorithmParameterSpec;
@@ -27,9 +28,13 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 import javax.xml.namespace.QName;
 
+import org.apache.xml.security.encryption.UnwrappedKeyCache;
+import org.apache.xml.security.signature.ReferenceDigestCache;
+import org.apache.xml.security.stax.impl.util.SegmentedGCMOutputStream;
 import org.apache.xml.security.stax.securityToken.SecurityTokenConstants;
 
 
@@ -84,7 +89,15 @@ public class XMLSecurityProperties {
 
     private QName signaturePositionQName;
     private boolean signaturePositionStart = false;
+    private boolean signaturePositionEnd = false;
     private AlgorithmParameterSpec algorithmParameterSpec;
+    private ReferenceDigestCache digestCache;
+    private Executor referencePrefetchExecutor;
+    private int referencePrefetchConcurrency;
+    private UnwrappedKeyCache unwrappedKeyCache;
+    private int encryptionSegmentSize;
+    private int outboundBufferMemoryLimit = -1;
+    private Path outboundBufferDirectory;
 
     public XMLSecurityProperties() {
     }
@@ -124,7 +137,15 @@ public class XMLSecurityProperties {
         this.signatureIncludeDigestTransform = xmlSecurityProperties.signatureIncludeDigestTransform;
         this.signaturePositionQName = xmlSecurityProperties.signaturePositionQName;
         this.signaturePositionStart = xmlSecurityProperties.signaturePositionStart;
+        this.signaturePositionEnd = xmlSecurityProperties.signaturePositionEnd;
         this.algorithmParameterSpec = xmlSecurityProperties.algorithmParameterSpec;
+        this.digestCache = xmlSecurityProperties.digestCache;
+        this.referencePrefetchExecutor = xmlSecurityProperties.referencePrefetchExecutor;
+        this.referencePrefetchConcurrency = xmlSecurityProperties.referencePrefetchConcurrency;
+        this.unwrappedKeyCache = xmlSecurityProperties.unwrappedKeyCache;
+        this.encryptionSegmentSize = xmlSecurityProperties.encryptionSegmentSize;
+        this.outboundBufferMemoryLimit = xmlSecurityProperties.outboundBufferMemoryLimit;
+        this.outboundBufferDirectory = xmlSecurityProperties.outboundBufferDirectory;
     }
 
     public boolean isSignaturePositionStart() {
@@ -135,6 +156,23 @@ public class XMLSecurityProperties {
         this.signaturePositionStart = signaturePositionStart;
     }
 
+    public boolean isSignaturePositionEnd() {
+        return signaturePositionEnd;
+    }
+
+    /**
+     * Place the Signature as the last child of the root element. This can't be combined with a
+     * signaturePosition, signaturePositionQName or signaturePositionStart. All digests are complete when the end of the
+     * root element is reached, so the document is written out while it is signed and only the
+     * events from the end tag of the root element on are held back, instead of the whole
+     * document.
+     *
+     * @param signaturePositionEnd true to place the Signature at the end of the root element
+     */
+    public void setSignaturePositionEnd(boolean signaturePositionEnd) {
+        this.signaturePositionEnd = signaturePositionEnd;
+    }
+
     @Deprecated
     public SecurityTokenConstants.KeyIdentifier getSignatureKeyIdentifier() {
         if (signatureKeyIdentifiers.isEmpty()) {
@@ -544,4 +582,116 @@ public class XMLSecurityProperties {
     public void setAlgorithmParameterSpec(AlgorithmParameterSpec algorithmParameterSpec) {
         this.algorithmParameterSpec = algorithmParameterSpec;
     }
+
+    public ReferenceDigestCache getDigestCache() {
+        return digestCache;
+    }
+
+    /**
+     * Set a cache of digest values of external References to local files without Transforms.
+     * If a referenced file did not change since its digest value was cached, it is not read
+     * again. By default no cache is used.
+     *
+     * @param digestCache the cache to use, or null to disable caching
+     */
+    public void setDigestCache(ReferenceDigestCache digestCache) {
+        this.digestCache = digestCache;
+    }
+
+    public Executor getReferencePrefetchExecutor() {
+        return referencePrefetchExecutor;
+    }
+
+    public int getReferencePrefetchConcurrency() {
+        return referencePrefetchConcurrency;
+    }
+
+    /**
+     * Enable the concurrent prefetching of external References without Transforms when
+     * verifying. Their content is resolved and digested on the given Executor as soon as the
+     * SignedInfo is parsed, instead of one Reference after the other at the end of the document.
+     * If one of them fails, the others are cancelled. By default References are not prefetched.
+     *
+     * @param executor the Executor to resolve the References on, or null to disable prefetching
+     * @param maxConcurrency the maximum number of References which are resolved at the same time
+     */
+    public void setReferencePrefetch(Executor executor, int maxConcurrency) {
+        if (executor != null && maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency must be positive");
+        }
+        this.referencePrefetchExecutor = executor;
+        this.referencePrefetchConcurrency = maxConcurrency;
+    }
+
+    public UnwrappedKeyCache getUnwrappedKeyCache() {
+        return unwrappedKeyCache;
+    }
+
+    /**
+     * Set a cache of unwrapped EncryptedKeys. An EncryptedKey with the same encrypted octets,
+     * unwrapping key and algorithm parameters as a cached one is not unwrapped again.
+     * By default no cache is used.
+     *
+     * @param unwrappedKeyCache the cache to use, or null to disable caching
+     */
+    public void setUnwrappedKeyCache(UnwrappedKeyCache unwrappedKeyCache) {
+        this.unwrappedKeyCache = unwrappedKeyCache;
+    }
+
+    public int getEncryptionSegmentSize() {
+        return encryptionSegmentSize;
+    }
+
+    /**
+     * Encrypt the CipherValue in independently authenticated AES-GCM segments of the given
+     * number of plaintext octets, so that the receiver can release decrypted data segment by
+     * segment instead of buffering it completely. The segment size is written as a
+     * {@link XMLSecurityConstants#TAG_sgcm_SegmentSize} parameter of the EncryptionMethod.
+     * Only receivers which support this parameter can decrypt such data. By default the
+     * CipherValue is not segmented.
+     *
+     * @param encryptionSegmentSize the segment size, or 0 to disable segmentation
+     */
+    public void setEncryptionSegmentSize(int encryptionSegmentSize) {
+        if (encryptionSegmentSize < 0 || encryptionSegmentSize > SegmentedGCMOutputStream.MAX_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("Invalid segment size " + encryptionSegmentSize);
+        }
+        this.encryptionSegmentSize = encryptionSegmentSize;
+    }
+
+    public int getOutboundBufferMemoryLimit() {
+        return outboundBufferMemoryLimit;
+    }
+
+    /**
+     * Buffer the outbound events, which have to be held back until the Signature or the
+     * EncryptedKey is written in front of them, in serialized form instead of as objects.
+     * Serialized events beyond the given number of octets are written to a temporary file,
+     * so that header placement doesn't need memory in proportion to the document size. The
+     * temporary file holds the buffered events unencrypted and is deleted after they are
+     * written out. By default all buffered events are held in memory as objects.
+     *
+     * @param outboundBufferMemoryLimit the number of octets to buffer in memory, or -1 to
+     * keep the events as objects
+     */
+    public void setOutboundBufferMemoryLimit(int outboundBufferMemoryLimit) {
+        if (outboundBufferMemoryLimit < -1) {
+            throw new IllegalArgumentException("Invalid memory limit " + outboundBufferMemoryLimit);
+        }
+        this.outboundBufferMemoryLimit = outboundBufferMemoryLimit;
+    }
+
+    public Path getOutboundBufferDirectory() {
+        return outboundBufferDirectory;
+    }
+
+    /**
+     * Set the directory for the temporary files of the outbound buffer.
+     *
+     * @param outboundBufferDirectory the directory, or null for the default temporary directory
+     * @see #setOutboundBufferMemoryLimit(int)
+     */
+    public void setOutboundBufferDirectory(Path outboundBufferDirectory) {
+        this.outboundBufferDirectory = outboundBufferDirectory;
+    }
 }
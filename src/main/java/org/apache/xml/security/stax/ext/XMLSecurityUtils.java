@@ -62,6 +62,7 @@ import org.apache.xml.security.stax.securityEvent.DefaultTokenSecurityEvent;
 import org.apache.xml.security.stax.securityEvent.EncryptedKeyTokenSecurityEvent;
 import org.apache.xml.security.stax.securityEvent.KeyNameTokenSecurityEvent;
 import org.apache.xml.security.stax.securityEvent.KeyValueTokenSecurityEvent;
+import org.apache.xml.security.stax.securityEvent.SecurityEventConstants;
 import org.apache.xml.security.stax.securityEvent.TokenSecurityEvent;
 import org.apache.xml.security.stax.securityEvent.X509TokenSecurityEvent;
 import org.apache.xml.security.stax.securityToken.InboundSecurityToken;
@@ -383,31 +384,52 @@ public class XMLSecurityUtils {
     public static TokenSecurityEvent<? extends InboundSecurityToken> createTokenSecurityEvent(
             final InboundSecurityToken inboundSecurityToken, String correlationID) throws XMLSecurityException {
 
-        SecurityTokenConstants.TokenType tokenType = inboundSecurityToken.getTokenType();
+        SecurityEventConstants.Event securityEventType = getTokenSecurityEventType(inboundSecurityToken);
 
         TokenSecurityEvent tokenSecurityEvent = null;
-        if (SecurityTokenConstants.X509V1Token.equals(tokenType)
-                || SecurityTokenConstants.X509V3Token.equals(tokenType)
-                || SecurityTokenConstants.X509Pkcs7Token.equals(tokenType)
-                || SecurityTokenConstants.X509PkiPathV1Token.equals(tokenType)) {
+        if (SecurityEventConstants.X509Token.equals(securityEventType)) {
             tokenSecurityEvent = new X509TokenSecurityEvent();
-        } else if (SecurityTokenConstants.KeyValueToken.equals(tokenType)) {
+        } else if (SecurityEventConstants.KeyValueToken.equals(securityEventType)) {
             tokenSecurityEvent = new KeyValueTokenSecurityEvent();
-        } else if (SecurityTokenConstants.KeyNameToken.equals(tokenType)) {
+        } else if (SecurityEventConstants.KeyNameToken.equals(securityEventType)) {
             tokenSecurityEvent = new KeyNameTokenSecurityEvent();
-        } else if (SecurityTokenConstants.DefaultToken.equals(tokenType)) {
+        } else if (SecurityEventConstants.DefaultToken.equals(securityEventType)) {
             tokenSecurityEvent = new DefaultTokenSecurityEvent();
-        } else if (SecurityTokenConstants.EncryptedKeyToken.equals(tokenType)) {
-            tokenSecurityEvent = new EncryptedKeyTokenSecurityEvent();
         } else {
-            throw new XMLSecurityException("stax.unsupportedToken",
-                                           new Object[]{tokenType});
+            tokenSecurityEvent = new EncryptedKeyTokenSecurityEvent();
         }
         tokenSecurityEvent.setSecurityToken(inboundSecurityToken);
         tokenSecurityEvent.setCorrelationID(correlationID);
         return tokenSecurityEvent;
     }
 
+    /**
+     * Returns the type of the SecurityEvent which {@link #createTokenSecurityEvent(InboundSecurityToken, String)}
+     * creates for the token, so that the event is only created if it is requested.
+     */
+    public static SecurityEventConstants.Event getTokenSecurityEventType(InboundSecurityToken inboundSecurityToken)
+            throws XMLSecurityException {
+
+        SecurityTokenConstants.TokenType tokenType = inboundSecurityToken.getTokenType();
+
+        if (SecurityTokenConstants.X509V1Token.equals(tokenType)
+                || SecurityTokenConstants.X509V3Token.equals(tokenType)
+                || SecurityTokenConstants.X509Pkcs7Token.equals(tokenType)
+                || SecurityTokenConstants.X509PkiPathV1Token.equals(tokenType)) {
+            return SecurityEventConstants.X509Token;
+        } else if (SecurityTokenConstants.KeyValueToken.equals(tokenType)) {
+            return SecurityEventConstants.KeyValueToken;
+        } else if (SecurityTokenConstants.KeyNameToken.equals(tokenType)) {
+            return SecurityEventConstants.KeyNameToken;
+        } else if (SecurityTokenConstants.DefaultToken.equals(tokenType)) {
+            return SecurityEventConstants.DefaultToken;
+        } else if (SecurityTokenConstants.EncryptedKeyToken.equals(tokenType)) {
+            return SecurityEventConstants.EncryptedKeyToken;
+        }
+        throw new XMLSecurityException("stax.unsupportedToken",
+                                       new Object[]{tokenType});
+    }
+
     public static Set<String> getExcC14NInclusiveNamespacePrefixes(XMLSecStartElement xmlSecStartElement, boolean excludeVisible) {
 
         if (xmlSecStartElement == null) {
@@ -552,7 +574,8 @@ public class XMLSecurityUtils {
                         new StreamSource(ClassLoaderUtils.getResourceAsStream("bindings/schemas/xmldsig11-schema.xsd", XMLSecurityConstants.class)),
                         new StreamSource(ClassLoaderUtils.getResourceAsStream("bindings/schemas/dsig-more_2001_04.xsd", XMLSecurityConstants.class)),
                         new StreamSource(ClassLoaderUtils.getResourceAsStream("bindings/schemas/dsig-more_2007_05.xsd", XMLSecurityConstants.class)),
-                        new StreamSource(ClassLoaderUtils.getResourceAsStream("bindings/schemas/dsig-more_2021_04.xsd", XMLSecurityConstants.class))
+                        new StreamSource(ClassLoaderUtils.getResourceAsStream("bindings/schemas/dsig-more_2021_04.xsd", XMLSecurityConstants.class)),
+                        new StreamSource(ClassLoaderUtils.getResourceAsStream("bindings/schemas/segmented-gcm.xsd", XMLSecurityConstants.class))
                 }
                 );
         return schema;
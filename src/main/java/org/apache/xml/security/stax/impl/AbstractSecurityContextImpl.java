@@ -19,29 +19,99 @@
 package org.apache.xml.security.stax.impl;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
 
 import org.apache.xml.security.exceptions.XMLSecurityException;
+import org.apache.xml.security.stax.ext.XMLSecurityConstants;
 import org.apache.xml.security.stax.securityEvent.SecurityEvent;
+import org.apache.xml.security.stax.securityEvent.SecurityEventConstants;
 import org.apache.xml.security.stax.securityEvent.SecurityEventListener;
+import org.apache.xml.security.stax.securityEvent.SecurityEventMask;
 
 /**
+ * The SecurityEvents are forwarded to the listeners without locking, so a listener which is shared
+ * between documents processed in parallel must be thread-safe. Only the SecurityEvents requested
+ * by the listeners are built, unless a subclass overrides {@link #registerSecurityEvent(SecurityEvent)}
+ * or {@link #forwardSecurityEvent(SecurityEvent)}: such a subclass may consume the SecurityEvents
+ * itself and gets all of them, as before the listeners could narrow them down.
+ *
+ * The content is thread-safe as well, as it is accessed from the decryption thread: the well-known
+ * keys are stored in slots of an array, the other keys in a concurrent map. The lists created by
+ * putList and putAsList are synchronized, a thread iterating one while another thread adds to it
+ * must synchronize on the list. The maps created by putAsMap are concurrent maps, which do not
+ * accept null keys or values. A null value is not stored, and the keys must not be null.
  */
 public class AbstractSecurityContextImpl {
-    @SuppressWarnings("unchecked")
-    private final Map content = Collections.synchronizedMap(new HashMap());
-    private final List<SecurityEventListener> securityEventListeners = new ArrayList<>(2);
 
-    public void addSecurityEventListener(SecurityEventListener securityEventListener) {
+    /**
+     * The slots of the well-known keys. A lookup costs one hash probe, also for the other keys.
+     */
+    private static final Map<Object, Integer> SLOTS = Map.of(
+        XMLSecurityConstants.XMLINPUTFACTORY, 0,
+        XMLSecurityConstants.PROP_USE_THIS_TOKEN_ID_FOR_SIGNATURE, 1,
+        XMLSecurityConstants.PROP_USE_THIS_TOKEN_ID_FOR_ENCRYPTION, 2,
+        XMLSecurityConstants.PROP_USE_THIS_TOKEN_ID_FOR_ENCRYPTED_KEY, 3,
+        XMLSecurityConstants.SIGNATURE_PARTS, 4,
+        XMLSecurityConstants.ENCRYPTION_PARTS, 5,
+        EncryptionPartDef.class, 6,
+        SecurityEvent.class, 7
+    );
+
+    /**
+     * Whether a context class, or one of its superclasses below the built-in contexts, overrides
+     * registerSecurityEvent or forwardSecurityEvent. InboundSecurityContextImpl requests the events
+     * it checks itself.
+     */
+    private static final ClassValue<Boolean> OVERRIDES_SECURITY_EVENT_METHODS = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            for (Class<?> c = type; c != AbstractSecurityContextImpl.class; c = c.getSuperclass()) {
+                if (c != InboundSecurityContextImpl.class
+                    && (declaresSecurityEventMethod(c, "registerSecurityEvent")
+                        || declaresSecurityEventMethod(c, "forwardSecurityEvent"))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    };
+
+    private final AtomicReferenceArray<Object> slots = new AtomicReferenceArray<>(SLOTS.size());
+    private final Map<Object, Object> content = new ConcurrentHashMap<>();
+    private volatile SecurityEventListener[] securityEventListeners = new SecurityEventListener[0];
+    private volatile SecurityEventMask requestedSecurityEvents =
+        OVERRIDES_SECURITY_EVENT_METHODS.get(getClass()) ? SecurityEventMask.ALL : SecurityEventMask.NONE;
+
+    public synchronized void addSecurityEventListener(SecurityEventListener securityEventListener) {
         if (securityEventListener != null) {
-            this.securityEventListeners.add(securityEventListener);
+            SecurityEventListener[] listeners =
+                Arrays.copyOf(securityEventListeners, securityEventListeners.length + 1);
+            listeners[listeners.length - 1] = securityEventListener;
+            this.securityEventListeners = listeners;
+            this.requestedSecurityEvents =
+                requestedSecurityEvents.union(securityEventListener.getRequestedSecurityEvents());
         }
     }
 
-    public synchronized void registerSecurityEvent(SecurityEvent securityEvent) throws XMLSecurityException {
+    /**
+     * @return the SecurityEvent types requested by the registered listeners, all types if a subclass
+     *         overrides registerSecurityEvent or forwardSecurityEvent
+     */
+    public SecurityEventMask getRequestedSecurityEvents() {
+        return requestedSecurityEvents;
+    }
+
+    public boolean isSecurityEventRequested(SecurityEventConstants.Event securityEventType) {
+        return requestedSecurityEvents.contains(securityEventType);
+    }
+
+    public void registerSecurityEvent(SecurityEvent securityEvent) throws XMLSecurityException {
         forwardSecurityEvent(securityEvent);
     }
 
@@ -51,19 +121,62 @@ public class AbstractSecurityContextImpl {
         }
     }
 
-    @SuppressWarnings("unchecked")
+    private static boolean declaresSecurityEventMethod(Class<?> type, String name) {
+        try {
+            type.getDeclaredMethod(name, SecurityEvent.class);
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private static int getSlot(Object key) {
+        Integer slot = SLOTS.get(key);
+        return slot == null ? -1 : slot;
+    }
+
+    private Object getValue(Object key) {
+        int slot = getSlot(key);
+        return slot < 0 ? content.get(key) : slots.get(slot);
+    }
+
+    private Object putValue(Object key, Object value) {
+        int slot = getSlot(key);
+        if (slot >= 0) {
+            return slots.getAndSet(slot, value);
+        }
+        return value == null ? content.remove(key) : content.put(key, value);
+    }
+
+    private Object getOrCreateValue(Object key, Supplier<Object> factory) {
+        int slot = getSlot(key);
+        if (slot < 0) {
+            return content.computeIfAbsent(key, k -> factory.get());
+        }
+        Object value = slots.get(slot);
+        if (value == null) {
+            Object newValue = factory.get();
+            value = slots.compareAndSet(slot, null, newValue) ? newValue : slots.get(slot);
+        }
+        return value;
+    }
+
+    private static Object newList() {
+        return Collections.synchronizedList(new ArrayList<>());
+    }
+
     public <T> void put(String key, T value) {
-        content.put(key, value);
+        putValue(key, value);
     }
 
     @SuppressWarnings("unchecked")
     public <T> T get(String key) {
-        return (T) content.get(key);
+        return (T) getValue(key);
     }
 
     @SuppressWarnings("unchecked")
     public <T> T remove(String key) {
-        return (T) content.remove(key);
+        return (T) putValue(key, null);
     }
 
     @SuppressWarnings("unchecked")
@@ -71,41 +184,32 @@ public class AbstractSecurityContextImpl {
         if (value == null) {
             return;
         }
-        List<T> entry = (List<T>) content.get(key);
-        if (entry == null) {
-            entry = new ArrayList<>();
-            content.put(key, entry);
-        }
+        List<T> entry = (List<T>) getOrCreateValue(key, AbstractSecurityContextImpl::newList);
         entry.addAll(value);
     }
 
     @SuppressWarnings("unchecked")
     public <T> void putAsList(Object key, T value) {
-        List<T> entry = (List<T>) content.get(key);
-        if (entry == null) {
-            entry = new ArrayList<>();
-            content.put(key, entry);
-        }
+        List<T> entry = (List<T>) getOrCreateValue(key, AbstractSecurityContextImpl::newList);
         entry.add(value);
     }
 
     @SuppressWarnings("unchecked")
     public <T> List<T> getAsList(Object key) {
-        return (List<T>) content.get(key);
+        return (List<T>) getValue(key);
     }
 
     @SuppressWarnings("unchecked")
     public <T, U> void putAsMap(Object key, T mapKey, U mapValue) {
-        Map<T, U> entry = (Map<T, U>) content.get(key);
-        if (entry == null) {
-            entry = new HashMap<>();
-            content.put(key, entry);
+        if (mapKey == null || mapValue == null) {
+            throw new IllegalArgumentException("The key and the value of a map entry must not be null");
         }
+        Map<T, U> entry = (Map<T, U>) getOrCreateValue(key, ConcurrentHashMap::new);
         entry.put(mapKey, mapValue);
     }
 
     @SuppressWarnings("unchecked")
     public <T, U> Map<T, U> getAsMap(Object key) {
-        return (Map<T, U>) content.get(key);
+        return (Map<T, U>) getValue(key);
     }
 }
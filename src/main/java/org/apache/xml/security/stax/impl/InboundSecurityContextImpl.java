@@ -29,6 +29,7 @@ import org.apache.xml.security.stax.ext.InboundSecurityContext;
 import org.apache.xml.security.stax.securityEvent.AlgorithmSuiteSecurityEvent;
 import org.apache.xml.security.stax.securityEvent.SecurityEvent;
 import org.apache.xml.security.stax.securityEvent.SecurityEventConstants;
+import org.apache.xml.security.stax.securityEvent.SecurityEventMask;
 import org.apache.xml.security.stax.securityToken.InboundSecurityToken;
 import org.apache.xml.security.stax.securityToken.SecurityTokenProvider;
 
@@ -42,6 +43,22 @@ public class InboundSecurityContextImpl extends AbstractSecurityContextImpl impl
     private final Map<String, SecurityTokenProvider<? extends InboundSecurityToken>> securityTokenProviders =
             new HashMap<>();
 
+    private static final SecurityEventMask MD5_CHECK_SECURITY_EVENTS =
+        SecurityEventMask.of(SecurityEventConstants.AlgorithmSuite);
+
+    @Override
+    public SecurityEventMask getRequestedSecurityEvents() {
+        SecurityEventMask requestedSecurityEvents = super.getRequestedSecurityEvents();
+        return allowMD5Algorithm ? requestedSecurityEvents : requestedSecurityEvents.union(MD5_CHECK_SECURITY_EVENTS);
+    }
+
+    @Override
+    public boolean isSecurityEventRequested(SecurityEventConstants.Event securityEventType) {
+        // the AlgorithmSuite events are checked for MD5 even without listeners
+        return !allowMD5Algorithm && SecurityEventConstants.AlgorithmSuite.equals(securityEventType)
+            || super.isSecurityEventRequested(securityEventType);
+    }
+
     @Override
     protected void forwardSecurityEvent(SecurityEvent securityEvent) throws XMLSecurityException {
         if (!InboundSecurityContextImpl.allowMD5Algorithm && SecurityEventConstants.AlgorithmSuite.equals(securityEvent.getSecurityEventType())) {
@@ -26,6 +26,8 @@ import java.util.List;
 import javax.xml.stream.XMLStreamException;
 
 import org.apache.xml.security.exceptions.XMLSecurityException;
+import org.apache.xml.security.metrics.Metrics;
+import org.apache.xml.security.metrics.Operation;
 import org.apache.xml.security.stax.ext.DocumentContext;
 import org.apache.xml.security.stax.ext.InboundSecurityContext;
 import org.apache.xml.security.stax.ext.InputProcessor;
@@ -184,17 +186,39 @@ public class InputProcessorChainImpl implements InputProcessorChain {
 
     @Override
     public XMLSecEvent processHeaderEvent() throws XMLStreamException, XMLSecurityException {
-        return inputProcessors.get(this.curPos++).processHeaderEvent(this);
+        InputProcessor inputProcessor = inputProcessors.get(this.curPos++);
+        if (!Metrics.isEnabled()) {
+            return inputProcessor.processHeaderEvent(this);
+        }
+        try (Metrics.Timer timer =
+                 Metrics.startExclusive(Operation.INPUT_PROCESSOR, inputProcessor.getClass().getName())) {
+            return inputProcessor.processHeaderEvent(this);
+        }
     }
 
     @Override
     public XMLSecEvent processEvent() throws XMLStreamException, XMLSecurityException {
-        return inputProcessors.get(this.curPos++).processEvent(this);
+        InputProcessor inputProcessor = inputProcessors.get(this.curPos++);
+        if (!Metrics.isEnabled()) {
+            return inputProcessor.processEvent(this);
+        }
+        try (Metrics.Timer timer =
+                 Metrics.startExclusive(Operation.INPUT_PROCESSOR, inputProcessor.getClass().getName())) {
+            return inputProcessor.processEvent(this);
+        }
     }
 
     @Override
     public void doFinal() throws XMLStreamException, XMLSecurityException {
-        inputProcessors.get(this.curPos++).doFinal(this);
+        InputProcessor inputProcessor = inputProcessors.get(this.curPos++);
+        if (!Metrics.isEnabled()) {
+            inputProcessor.doFinal(this);
+            return;
+        }
+        try (Metrics.Timer timer =
+                 Metrics.startExclusive(Operation.INPUT_PROCESSOR, inputProcessor.getClass().getName())) {
+            inputProcessor.doFinal(this);
+        }
     }
 
     @Override
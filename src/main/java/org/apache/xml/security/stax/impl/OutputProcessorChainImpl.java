@@ -27,6 +27,8 @@ import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
 
 import org.apache.xml.security.exceptions.XMLSecurityException;
+import org.apache.xml.security.metrics.Metrics;
+import org.apache.xml.security.metrics.Operation;
 import org.apache.xml.security.stax.ext.DocumentContext;
 import org.apache.xml.security.stax.ext.OutboundSecurityContext;
 import org.apache.xml.security.stax.ext.OutputProcessor;
@@ -191,7 +193,15 @@ public class OutputProcessorChainImpl implements OutputProcessorChain {
                     break;
             }
         }
-        outputProcessors.get(this.curPos++).processEvent(xmlSecEvent, this);
+        OutputProcessor outputProcessor = outputProcessors.get(this.curPos++);
+        if (!Metrics.isEnabled()) {
+            outputProcessor.processEvent(xmlSecEvent, this);
+        } else {
+            try (Metrics.Timer timer =
+                     Metrics.startExclusive(Operation.OUTPUT_PROCESSOR, outputProcessor.getClass().getName())) {
+                outputProcessor.processEvent(xmlSecEvent, this);
+            }
+        }
         if (reparent && parentXmlSecStartElement != null) {
             parentXmlSecStartElement = parentXmlSecStartElement.getParentXMLSecStartElement();
         }
@@ -199,7 +209,15 @@ public class OutputProcessorChainImpl implements OutputProcessorChain {
 
     @Override
     public void doFinal() throws XMLStreamException, XMLSecurityException {
-        outputProcessors.get(this.curPos++).doFinal(this);
+        OutputProcessor outputProcessor = outputProcessors.get(this.curPos++);
+        if (!Metrics.isEnabled()) {
+            outputProcessor.doFinal(this);
+            return;
+        }
+        try (Metrics.Timer timer =
+                 Metrics.startExclusive(Operation.OUTPUT_PROCESSOR, outputProcessor.getClass().getName())) {
+            outputProcessor.doFinal(this);
+        }
     }
 
     @Override
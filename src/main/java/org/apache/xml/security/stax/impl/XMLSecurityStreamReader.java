@@ -36,6 +36,8 @@ import javax.xml.stream.events.ProcessingInstruction;
 import javax.xml.stream.events.StartDocument;
 
 import org.apache.xml.security.exceptions.XMLSecurityException;
+import org.apache.xml.security.metrics.Metrics;
+import org.apache.xml.security.metrics.Operation;
 import org.apache.xml.security.stax.ext.InputProcessorChain;
 import org.apache.xml.security.stax.ext.XMLSecurityProperties;
 import org.apache.xml.security.stax.ext.stax.XMLSecEvent;
@@ -55,6 +57,8 @@ public class XMLSecurityStreamReader implements XMLStreamReader, AutoCloseable {
     private boolean standalone;
     private boolean standaloneSet;
     private String characterEncodingScheme;
+    /** The time spent in the input processors, if metrics are enabled */
+    private long processingNanos;
 
     private static final String ERR_STATE_NOT_ELEM = "Current state not START_ELEMENT or END_ELEMENT";
     private static final String ERR_STATE_NOT_STELEM = "Current state not START_ELEMENT";
@@ -75,6 +79,8 @@ public class XMLSecurityStreamReader implements XMLStreamReader, AutoCloseable {
 
     @Override
     public int next() throws XMLStreamException {
+        final boolean timed = Metrics.isEnabled();
+        final long startNanos = timed ? System.nanoTime() : 0;
         int eventType;
         try {
             inputProcessorChain.reset();
@@ -98,6 +104,9 @@ public class XMLSecurityStreamReader implements XMLStreamReader, AutoCloseable {
         } catch (XMLSecurityException e) {
             throw new XMLStreamException(e);
         }
+        if (timed) {
+            processingNanos += System.nanoTime() - startNanos;
+        }
         return eventType;
     }
 
@@ -206,12 +215,18 @@ public class XMLSecurityStreamReader implements XMLStreamReader, AutoCloseable {
 
     @Override
     public void close() throws XMLStreamException {
+        final boolean timed = Metrics.isEnabled();
+        final long startNanos = timed ? System.nanoTime() : 0;
         try {
             inputProcessorChain.reset();
             inputProcessorChain.doFinal();
         } catch (XMLSecurityException e) {
             throw new XMLStreamException(e);
         }
+        if (timed) {
+            Metrics.record(Operation.INBOUND_DOCUMENT, Metrics.DOCUMENT,
+                           processingNanos + System.nanoTime() - startNanos, -1);
+        }
     }
 
     @Override
@@ -30,6 +30,8 @@ import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
 
 import org.apache.xml.security.exceptions.XMLSecurityException;
+import org.apache.xml.security.metrics.Metrics;
+import org.apache.xml.security.metrics.Operation;
 import org.apache.xml.security.stax.ext.OutputProcessorChain;
 import org.apache.xml.security.stax.ext.SecurePart;
 import org.apache.xml.security.stax.ext.XMLSecurityConstants;
@@ -52,15 +54,22 @@ public class XMLSecurityStreamWriter implements XMLStreamWriter, AutoCloseable {
     private boolean haveToWriteEndElement = false;
     private SecurePart signEntireRequestPart;
     private SecurePart encryptEntireRequestPart;
+    /** The time spent in the output processors, if metrics are enabled */
+    private long processingNanos;
 
     public XMLSecurityStreamWriter(OutputProcessorChain outputProcessorChain) {
         this.outputProcessorChain = outputProcessorChain;
     }
 
     private void chainProcessEvent(XMLSecEvent xmlSecEvent) throws XMLStreamException {
+        final boolean timed = Metrics.isEnabled();
+        final long startNanos = timed ? System.nanoTime() : 0;
         try {
             outputProcessorChain.reset();
             outputProcessorChain.processEvent(xmlSecEvent);
+            if (timed) {
+                processingNanos += System.nanoTime() - startNanos;
+            }
         } catch (XMLSecurityException e) {
             throw new XMLStreamException(e);
         } catch (XMLStreamException e) {
@@ -187,8 +196,14 @@ public class XMLSecurityStreamWriter implements XMLStreamWriter, AutoCloseable {
     public void close() throws XMLStreamException {
         try {
             writeEndDocument();
+            final boolean timed = Metrics.isEnabled();
+            final long startNanos = timed ? System.nanoTime() : 0;
             outputProcessorChain.reset();
             outputProcessorChain.doFinal();
+            if (timed) {
+                Metrics.record(Operation.OUTBOUND_DOCUMENT, Metrics.DOCUMENT,
+                               processingNanos + System.nanoTime() - startNanos, -1);
+            }
         } catch (XMLSecurityException e) {
             throw new XMLStreamException(e);
         }
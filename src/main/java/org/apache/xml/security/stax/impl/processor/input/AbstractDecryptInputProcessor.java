@@ -65,6 +65,8 @@ import org.apache.xml.security.binding.xmlenc.ReferenceList;
 import org.apache.xml.security.binding.xmlenc.ReferenceType;
 import org.apache.xml.security.binding.xop.Include;
 import org.apache.xml.security.exceptions.XMLSecurityException;
+import org.apache.xml.security.jfr.XmlSecDecryptEvent;
+import org.apache.xml.security.jfr.XmlSecEvents;
 import org.apache.xml.security.stax.config.ConfigurationProperties;
 import org.apache.xml.security.stax.ext.AbstractInputProcessor;
 import org.apache.xml.security.stax.ext.InboundSecurityContext;
@@ -84,11 +86,13 @@ import org.apache.xml.security.stax.impl.util.IDGenerator;
 import org.apache.xml.security.stax.impl.util.IVSplittingOutputStream;
 import org.apache.xml.security.stax.impl.util.MultiInputStream;
 import org.apache.xml.security.stax.impl.util.ReplaceableOuputStream;
+import org.apache.xml.security.stax.impl.util.SegmentedGCMOutputStream;
 import org.apache.xml.security.stax.securityToken.InboundSecurityToken;
 import org.apache.xml.security.stax.securityToken.SecurityTokenConstants;
 import org.apache.xml.security.stax.securityToken.SecurityTokenFactory;
 import org.apache.xml.security.stax.securityToken.SecurityTokenProvider;
 import org.apache.xml.security.utils.UnsyncByteArrayInputStream;
+import org.w3c.dom.Element;
 
 /**
  * Processor for decryption of EncryptedData XML structures
@@ -233,11 +237,21 @@ public abstract class AbstractDecryptInputProcessor extends AbstractInputProcess
                 handleSecurityToken(inboundSecurityToken, inputProcessorChain.getSecurityContext(), encryptedDataType);
 
                 final String algorithmURI = encryptedDataType.getEncryptionMethod().getAlgorithm();
+                XmlSecDecryptEvent decryptEvent = XmlSecEvents.AVAILABLE ? new XmlSecDecryptEvent() : null;
+                if (decryptEvent != null) {
+                    decryptEvent.begin();
+                }
                 final int ivLength = JCEMapper.getIVLengthFromURI(algorithmURI) / 8;
                 Cipher symCipher = getCipher(algorithmURI);
+                final int segmentSize = getSegmentSize(encryptedDataType, symCipher);
 
                 if (encryptedDataType.getCipherData().getCipherReference() != null) {
+                    if (segmentSize > 0) {
+                        throw new XMLSecurityException("stax.encryption.segmentedExternalCipherData",
+                                                       new Object[] {"CipherReference"});
+                    }
                     handleCipherReference(inputProcessorChain, encryptedDataType, symCipher, inboundSecurityToken);
+                    commit(decryptEvent, algorithmURI);
                     subInputProcessorChain.reset();
                     return isSecurityHeaderEvent
                         ? subInputProcessorChain.processHeaderEvent()
@@ -254,6 +268,9 @@ public abstract class AbstractDecryptInputProcessor extends AbstractInputProcess
                                 inputProcessorChain.getSecurityContext()
                         );
 
+                //the event is committed when the decrypted content is read completely
+                decryptedEventReaderInputProcessor.setDecryptEvent(decryptEvent);
+
                 //add the new created EventReader processor to the chain.
                 inputProcessorChain.addProcessor(decryptedEventReaderInputProcessor);
 
@@ -296,6 +313,10 @@ public abstract class AbstractDecryptInputProcessor extends AbstractInputProcess
                         Include include = includeJAXBElement.getValue();
                         String href = include.getHref();
 
+                        if (segmentSize > 0) {
+                            throw new XMLSecurityException("stax.encryption.segmentedExternalCipherData",
+                                                           new Object[] {"XOP"});
+                        }
                         decryptInputStream =
                             handleXOPInclude(inputProcessorChain, encryptedDataType, href, symCipher, inboundSecurityToken);
                     } catch (JAXBException e) {
@@ -310,6 +331,7 @@ public abstract class AbstractDecryptInputProcessor extends AbstractInputProcess
                     decryptionThread.setSecretKey(decryptionKey);
                     decryptionThread.setSymmetricCipher(symCipher);
                     decryptionThread.setIvLength(ivLength);
+                    decryptionThread.setSegmentSize(segmentSize);
 
                     Thread thread = new Thread(decryptionThread);
                     thread.setPriority(Thread.NORM_PRIORITY + 1);
@@ -361,6 +383,14 @@ public abstract class AbstractDecryptInputProcessor extends AbstractInputProcess
         return xmlSecEvent;
     }
 
+    private static void commit(XmlSecDecryptEvent decryptEvent, String algorithmURI) {
+        if (decryptEvent != null && decryptEvent.shouldCommit()) {
+            decryptEvent.encryptionAlgorithm = algorithmURI;
+            decryptEvent.streaming = true;
+            decryptEvent.commit();
+        }
+    }
+
     protected InputStream applyTransforms(ReferenceType referenceType, InputStream inputStream) throws XMLSecurityException {
         return inputStream;
     }
@@ -454,6 +484,39 @@ public abstract class AbstractDecryptInputProcessor extends AbstractInputProcess
         return symCipher;
     }
 
+    /**
+     * Returns the size of the segments of a segmented AES-GCM CipherValue, or 0 if the
+     * CipherValue is not segmented.
+     */
+    private static int getSegmentSize(EncryptedDataType encryptedDataType, Cipher symCipher)
+        throws XMLSecurityException {
+        for (Object content : encryptedDataType.getEncryptionMethod().getContent()) {
+            if (!(content instanceof Element)) {
+                continue;
+            }
+            Element element = (Element) content;
+            if (!XMLSecurityConstants.TAG_sgcm_SegmentSize.getNamespaceURI().equals(element.getNamespaceURI())
+                || !XMLSecurityConstants.TAG_sgcm_SegmentSize.getLocalPart().equals(element.getLocalName())) {
+                continue;
+            }
+            if (!symCipher.getAlgorithm().toUpperCase().contains("GCM")) {
+                throw new XMLSecurityException("stax.encryption.segmentedGCMOnly",
+                    new Object[] {encryptedDataType.getEncryptionMethod().getAlgorithm()});
+            }
+            String segmentSize = element.getTextContent().trim();
+            try {
+                int size = Integer.parseInt(segmentSize);
+                if (size > 0 && size <= SegmentedGCMOutputStream.MAX_SEGMENT_SIZE) {
+                    return size;
+                }
+            } catch (NumberFormatException e) { //NOPMD
+                //handled below
+            }
+            throw new XMLSecurityException("stax.encryption.invalidSegmentSize", new Object[] {segmentSize});
+        }
+        return 0;
+    }
+
     private InboundSecurityToken getSecurityToken(InputProcessorChain inputProcessorChain,
                                            XMLSecStartElement xmlSecStartElement,
                                            EncryptedDataType encryptedDataType) throws XMLSecurityException {
@@ -621,6 +684,7 @@ public abstract class AbstractDecryptInputProcessor extends AbstractInputProcess
         private boolean rootElementProcessed;
         private EncryptedDataType encryptedDataType;
         private Thread decryptionThread;
+        private XmlSecDecryptEvent decryptEvent;
 
         public AbstractDecryptedEventReaderInputProcessor(
                 XMLSecurityProperties securityProperties, SecurePart.Modifier encryptionModifier,
@@ -646,6 +710,10 @@ public abstract class AbstractDecryptInputProcessor extends AbstractInputProcess
             this.decryptionThread = decryptionThread;
         }
 
+        public void setDecryptEvent(XmlSecDecryptEvent decryptEvent) {
+            this.decryptEvent = decryptEvent;
+        }
+
         public void setXmlStreamReader(XMLStreamReader xmlStreamReader) {
             this.xmlStreamReader = xmlStreamReader;
         }
@@ -735,6 +803,9 @@ public abstract class AbstractDecryptInputProcessor extends AbstractInputProcess
                         testAndThrowUncaughtException();
                     }
                     inputProcessorChain.removeProcessor(this);
+                    if (decryptEvent != null) {
+                        commit(decryptEvent, encryptedDataType.getEncryptionMethod().getAlgorithm());
+                    }
                 }
             }
             xmlStreamReader.next();
@@ -775,6 +846,7 @@ public abstract class AbstractDecryptInputProcessor extends AbstractInputProcess
         private final PipedInputStream pipedInputStream;
         private Cipher symmetricCipher;
         private int ivLength;
+        private int segmentSize;
         private Key secretKey;
         private final XMLSecEvent firstEvent;
 
@@ -815,7 +887,11 @@ public abstract class AbstractDecryptInputProcessor extends AbstractInputProcess
                 final OutputStream outputStream;    //NOPMD
 
                 final Cipher cipher = getSymmetricCipher();
-                if (cipher.getAlgorithm().toUpperCase().contains("GCM")) {
+                if (getSegmentSize() > 0) {
+                    //every segment is authenticated on its own, so it can be released as soon as it is decrypted
+                    decryptSegments();
+                    return;
+                } else if (cipher.getAlgorithm().toUpperCase().contains("GCM")) {
                     //we have to buffer the whole data until they are authenticated.
                     //In GCM mode the authentication tag is appended after the last cipher block...
                     outputStream = new FullyBufferedOutputStream(pipedOutputStream);
@@ -850,34 +926,12 @@ public abstract class AbstractDecryptInputProcessor extends AbstractInputProcess
                         new OutputStreamWriter(base64OutputStream,
                                                Charset.forName(inputProcessorChain.getDocumentContext().getEncoding()));
 
-                //read the encrypted data from the stream until an end-element occurs and write then
-                //to the decrypter-stream
-                XMLSecEvent xmlSecEvent = firstEvent;
-                // End element must be the CipherValue EndElement.
-                while (xmlSecEvent.getEventType() != XMLStreamConstants.END_ELEMENT) {
-                    if (xmlSecEvent.getEventType() == XMLStreamConstants.CHARACTERS) {
-                        final char[] data = xmlSecEvent.asCharacters().getText();
-                        outputStreamWriter.write(data);
-                    } else {
-                        throw new XMLSecurityException(
-                                "stax.unexpectedXMLEvent",
-                                new Object[] {XMLSecurityUtils.getXMLEventAsString(xmlSecEvent)}
-                        );
-                    }
-                    xmlSecEvent = processNextEvent();
-                }
+                writeCipherValue(outputStreamWriter);
 
                 //close to get Cipher.doFinal() called
                 outputStreamWriter.close();
 
-                // Clean the secret key from memory now that we're done with it
-                if (secretKey instanceof Destroyable) {
-                    try {
-                        ((Destroyable)secretKey).destroy();
-                    } catch (DestroyFailedException e) {
-                        LOG.log(Level.DEBUG, "Error destroying key: {0}", e.getMessage());
-                    }
-                }
+                destroySecretKey();
 
                 LOG.log(Level.DEBUG, "Decryption thread finished");
 
@@ -893,6 +947,53 @@ public abstract class AbstractDecryptInputProcessor extends AbstractInputProcess
             }
         }
 
+        /**
+         * Reads the encrypted data from the stream until an end-element occurs and writes it
+         * to the decrypter-stream
+         */
+        private void writeCipherValue(OutputStreamWriter outputStreamWriter)
+            throws IOException, XMLSecurityException, XMLStreamException {
+            XMLSecEvent xmlSecEvent = firstEvent;
+            // End element must be the CipherValue EndElement.
+            while (xmlSecEvent.getEventType() != XMLStreamConstants.END_ELEMENT) {
+                if (xmlSecEvent.getEventType() == XMLStreamConstants.CHARACTERS) {
+                    final char[] data = xmlSecEvent.asCharacters().getText();
+                    outputStreamWriter.write(data);
+                } else {
+                    throw new XMLSecurityException(
+                            "stax.unexpectedXMLEvent",
+                            new Object[] {XMLSecurityUtils.getXMLEventAsString(xmlSecEvent)}
+                    );
+                }
+                xmlSecEvent = processNextEvent();
+            }
+        }
+
+        // Clean the secret key from memory now that we're done with it
+        private void destroySecretKey() {
+            if (secretKey instanceof Destroyable) {
+                try {
+                    ((Destroyable)secretKey).destroy();
+                } catch (DestroyFailedException e) {
+                    LOG.log(Level.DEBUG, "Error destroying key: {0}", e.getMessage());
+                }
+            }
+        }
+
+        private void decryptSegments() throws Exception {
+            OutputStream segmentedOutputStream = new SegmentedGCMOutputStream(    //NOPMD
+                pipedOutputStream, getSymmetricCipher(), Cipher.DECRYPT_MODE, getSecretKey(), null, getSegmentSize());
+            OutputStream base64OutputStream = new Base64OutputStream(segmentedOutputStream, false); //NOPMD
+            OutputStreamWriter outputStreamWriter = //NOPMD
+                    new OutputStreamWriter(base64OutputStream,
+                                           Charset.forName(inputProcessorChain.getDocumentContext().getEncoding()));
+            writeCipherValue(outputStreamWriter);
+            //close to get the last segment decrypted and authenticated
+            outputStreamWriter.close();
+            destroySecretKey();
+            LOG.log(Level.DEBUG, "Decryption thread finished");
+        }
+
         protected Cipher getSymmetricCipher() {
             return symmetricCipher;
         }
@@ -909,6 +1010,14 @@ public abstract class AbstractDecryptInputProcessor extends AbstractInputProcess
             this.ivLength = ivLength;
         }
 
+        int getSegmentSize() {
+            return segmentSize;
+        }
+
+        void setSegmentSize(int segmentSize) {
+            this.segmentSize = segmentSize;
+        }
+
         protected Key getSecretKey() {
             return secretKey;
         }
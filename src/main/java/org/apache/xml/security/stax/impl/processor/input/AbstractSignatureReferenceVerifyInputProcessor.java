@@ -26,6 +26,7 @@ import java.lang.System.Logger;
 import java.lang.System.Logger.Level;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.nio.file.Path;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
@@ -34,6 +35,8 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
 
 import javax.xml.namespace.QName;
 import javax.xml.stream.XMLStreamConstants;
@@ -45,6 +48,7 @@ import org.apache.xml.security.binding.xmldsig.ReferenceType;
 import org.apache.xml.security.binding.xmldsig.SignatureType;
 import org.apache.xml.security.binding.xmldsig.TransformType;
 import org.apache.xml.security.exceptions.XMLSecurityException;
+import org.apache.xml.security.signature.ReferenceDigestCache;
 import org.apache.xml.security.stax.config.ConfigurationProperties;
 import org.apache.xml.security.stax.config.ResourceResolverMapper;
 import org.apache.xml.security.stax.ext.AbstractInputProcessor;
@@ -58,13 +62,17 @@ import org.apache.xml.security.stax.ext.XMLSecurityUtils;
 import org.apache.xml.security.stax.ext.stax.XMLSecEndElement;
 import org.apache.xml.security.stax.ext.stax.XMLSecEvent;
 import org.apache.xml.security.stax.ext.stax.XMLSecStartElement;
+import org.apache.xml.security.stax.impl.resourceResolvers.ResolverFilesystem;
 import org.apache.xml.security.stax.impl.transformer.canonicalizer.Canonicalizer20010315_Excl;
 import org.apache.xml.security.stax.impl.transformer.canonicalizer.Canonicalizer20010315_OmitCommentsTransformer;
 import org.apache.xml.security.stax.impl.util.DigestOutputStream;
 import org.apache.xml.security.stax.impl.util.IDGenerator;
 import org.apache.xml.security.stax.impl.util.KeyValue;
 import org.apache.xml.security.stax.securityEvent.AlgorithmSuiteSecurityEvent;
+import org.apache.xml.security.stax.securityEvent.SecurityEventConstants;
 import org.apache.xml.security.stax.securityToken.InboundSecurityToken;
+import org.apache.xml.security.utils.DigestPrefetcher;
+import org.apache.xml.security.utils.JavaUtils;
 import org.apache.xml.security.utils.UnsyncBufferedOutputStream;
 import org.apache.xml.security.utils.XMLUtils;
 
@@ -88,6 +96,8 @@ public abstract class AbstractSignatureReferenceVerifyInputProcessor extends Abs
     private final List<KeyValue<ResourceResolver, ReferenceType>> sameDocumentReferences;
     private final List<KeyValue<ResourceResolver, ReferenceType>> externalReferences;
     private final List<ReferenceType> processedReferences;
+    private DigestPrefetcher digestPrefetcher;
+    private Map<ReferenceType, Future<byte[]>> prefetchedDigests;
 
     public AbstractSignatureReferenceVerifyInputProcessor(
             InputProcessorChain inputProcessorChain,
@@ -134,6 +144,71 @@ public abstract class AbstractSignatureReferenceVerifyInputProcessor extends Abs
                 externalReferences.add(new KeyValue<>(resourceResolver, referenceType));
             }
         }
+
+        Executor prefetchExecutor = securityProperties.getReferencePrefetchExecutor();
+        if (prefetchExecutor != null && !externalReferences.isEmpty()) {
+            prefetchExternalReferences(prefetchExecutor, securityProperties.getReferencePrefetchConcurrency());
+        }
+    }
+
+    /**
+     * Starts to digest the content of all external References without Transforms.
+     */
+    private void prefetchExternalReferences(Executor executor, int maxConcurrency) throws XMLSecurityException {
+        digestPrefetcher = new DigestPrefetcher(executor, maxConcurrency);
+        prefetchedDigests = new HashMap<>();
+        try {
+            submitExternalReferences();
+        } catch (XMLSecurityException | RuntimeException e) {
+            closeDigestPrefetcher();
+            throw e;
+        }
+    }
+
+    private void submitExternalReferences() throws XMLSecurityException {
+        for (KeyValue<ResourceResolver, ReferenceType> keyValue : externalReferences) {
+            ReferenceType referenceType = keyValue.getValue();
+            ResourceResolver resourceResolver = keyValue.getKey();
+            if (referenceType.getTransforms() != null || referenceType.getDigestMethod() == null
+                || JCEMapper.translateURItoJCEID(referenceType.getDigestMethod().getAlgorithm()) == null) {
+                continue;
+            }
+            Path file = null;
+            if (resourceResolver instanceof ResolverFilesystem) {
+                file = ((ResolverFilesystem) resourceResolver).getFile();
+                // Local files are looked up in the digest cache by verifyExternalFileReference instead
+                if (file != null && getSecurityProperties().getDigestCache() != null) {
+                    continue;
+                }
+            }
+            Path prefetchFile = file;
+            MessageDigest messageDigest = createMessageDigest(referenceType.getDigestMethod().getAlgorithm());
+            prefetchedDigests.put(referenceType, digestPrefetcher.submit(messageDigest, md -> {
+                if (prefetchFile != null) {
+                    JavaUtils.updateDigest(md, prefetchFile);
+                } else {
+                    try (InputStream inputStream = resourceResolver.getInputStreamFromExternalReference()) {
+                        byte[] buffer = new byte[8192];
+                        int read;
+                        while ((read = inputStream.read(buffer)) != -1) {
+                            md.update(buffer, 0, read);
+                        }
+                    }
+                }
+            }));
+        }
+    }
+
+    /**
+     * Cancels the prefetch tasks which are not done yet. The tasks are started before the
+     * document is processed, so this is called when this processor or one of its
+     * InternalSignatureReferenceVerifiers fails, and by doFinal, which also runs when the
+     * XMLStreamReader is closed after a failure elsewhere in the chain.
+     */
+    private void closeDigestPrefetcher() {
+        if (digestPrefetcher != null) {
+            digestPrefetcher.close();
+        }
     }
 
     public SignatureType getSignatureType() {
@@ -151,12 +226,27 @@ public abstract class AbstractSignatureReferenceVerifyInputProcessor extends Abs
     @Override
     public XMLSecEvent processHeaderEvent(InputProcessorChain inputProcessorChain)
             throws XMLStreamException, XMLSecurityException {
-        return inputProcessorChain.processHeaderEvent();
+        try {
+            return inputProcessorChain.processHeaderEvent();
+        } catch (XMLStreamException | XMLSecurityException | RuntimeException e) {
+            closeDigestPrefetcher();
+            throw e;
+        }
     }
 
     @Override
     public XMLSecEvent processEvent(InputProcessorChain inputProcessorChain)
             throws XMLStreamException, XMLSecurityException {
+        try {
+            return processNextEvent(inputProcessorChain);
+        } catch (XMLStreamException | XMLSecurityException | RuntimeException e) {
+            closeDigestPrefetcher();
+            throw e;
+        }
+    }
+
+    private XMLSecEvent processNextEvent(InputProcessorChain inputProcessorChain)
+            throws XMLStreamException, XMLSecurityException {
 
         XMLSecEvent xmlSecEvent = inputProcessorChain.processEvent();
         if (XMLStreamConstants.START_ELEMENT == xmlSecEvent.getEventType()) {
@@ -232,6 +322,15 @@ public abstract class AbstractSignatureReferenceVerifyInputProcessor extends Abs
 
     @Override
     public void doFinal(InputProcessorChain inputProcessorChain) throws XMLStreamException, XMLSecurityException {
+        try {
+            verifyReferences(inputProcessorChain);
+        } finally {
+            closeDigestPrefetcher();
+        }
+    }
+
+    private void verifyReferences(InputProcessorChain inputProcessorChain)
+        throws XMLStreamException, XMLSecurityException {
         inputProcessorChain.doFinal();
 
         for (int i = 0; i < sameDocumentReferences.size(); i++) {
@@ -242,14 +341,7 @@ public abstract class AbstractSignatureReferenceVerifyInputProcessor extends Abs
         }
 
         if (!externalReferences.isEmpty()) {
-            for (int i = 0; i < externalReferences.size(); i++) {
-                KeyValue<ResourceResolver, ReferenceType> keyValue = externalReferences.get(i);
-                verifyExternalReference(
-                        inputProcessorChain,
-                        keyValue.getKey().getInputStreamFromExternalReference(),
-                        keyValue.getValue());
-                processedReferences.add(keyValue.getValue());
-            }
+            verifyExternalReferences(inputProcessorChain);
 
             for (int i = 0; i < externalReferences.size(); i++) {
                 KeyValue<ResourceResolver, ReferenceType> keyValue = externalReferences.get(i);
@@ -260,6 +352,31 @@ public abstract class AbstractSignatureReferenceVerifyInputProcessor extends Abs
         }
     }
 
+    private void verifyExternalReferences(InputProcessorChain inputProcessorChain)
+        throws XMLStreamException, XMLSecurityException {
+        for (int i = 0; i < externalReferences.size(); i++) {
+            KeyValue<ResourceResolver, ReferenceType> keyValue = externalReferences.get(i);
+            Future<byte[]> prefetchedDigest =
+                prefetchedDigests != null ? prefetchedDigests.get(keyValue.getValue()) : null;
+            Path file = null;
+            if (keyValue.getValue().getTransforms() == null
+                && keyValue.getKey() instanceof ResolverFilesystem) {
+                file = ((ResolverFilesystem) keyValue.getKey()).getFile();
+            }
+            if (prefetchedDigest != null) {
+                verifyPrefetchedReference(inputProcessorChain, prefetchedDigest, keyValue.getValue());
+            } else if (file != null) {
+                verifyExternalFileReference(inputProcessorChain, file, keyValue.getValue());
+            } else {
+                verifyExternalReference(
+                        inputProcessorChain,
+                        keyValue.getKey().getInputStreamFromExternalReference(),
+                        keyValue.getValue());
+            }
+            processedReferences.add(keyValue.getValue());
+        }
+    }
+
     protected InternalSignatureReferenceVerifier getSignatureReferenceVerifier(
             XMLSecurityProperties securityProperties, InputProcessorChain inputProcessorChain,
             ReferenceType referenceType, XMLSecStartElement startElement) throws XMLSecurityException {
@@ -285,15 +402,83 @@ public abstract class AbstractSignatureReferenceVerifyInputProcessor extends Abs
                 bufferedDigestOutputStream.close();
             }
             compareDigest(digestOutputStream.getDigestValue(), referenceType);
+        } catch (IOException e) {
+            throw new XMLSecurityException(e, "stax.signature.externalReferenceFailed",
+                                           new Object[] {referenceType.getURI()});
+        }
+    }
+
+    /**
+     * Verifies an external reference to a local file without Transforms. The file is digested
+     * directly instead of being streamed through {@link #verifyExternalReference}.
+     */
+    protected void verifyExternalFileReference(InputProcessorChain inputProcessorChain, Path file,
+                                               ReferenceType referenceType) throws XMLSecurityException {
+
+        try (DigestOutputStream digestOutputStream =
+                    createMessageDigestOutputStream(referenceType, inputProcessorChain.getSecurityContext())) {
+            ReferenceDigestCache digestCache = getSecurityProperties().getDigestCache();
+            if (digestCache == null) {
+                digestOutputStream.write(file);
+                compareDigest(digestOutputStream.getDigestValue(), referenceType);
+                return;
+            }
+
+            String fileURI = file.toUri().toString();
+            String digestAlgorithm = referenceType.getDigestMethod().getAlgorithm();
+            String validator = ReferenceDigestCache.getValidator(file);
+            byte[] digestValue =
+                digestCache.get(fileURI, digestAlgorithm, Collections.emptyList(), validator);
+            if (digestValue == null) {
+                digestOutputStream.write(file);
+                digestValue = digestOutputStream.getDigestValue();
+                digestCache.put(fileURI, digestAlgorithm, Collections.emptyList(), validator, digestValue);
+            }
+            compareDigest(digestValue, referenceType);
         } catch (IOException e) {
             throw new XMLSecurityException(e);
         }
     }
 
+    /**
+     * Verifies an external reference whose digest value was calculated by a prefetch task.
+     */
+    protected void verifyPrefetchedReference(InputProcessorChain inputProcessorChain, Future<byte[]> prefetchedDigest,
+                                             ReferenceType referenceType) throws XMLSecurityException {
+        registerDigestAlgorithm(referenceType, inputProcessorChain.getSecurityContext());
+        byte[] digestValue;
+        try {
+            digestValue = DigestPrefetcher.get(prefetchedDigest);
+        } catch (XMLSecurityException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new XMLSecurityException(e, "stax.signature.externalReferenceFailed",
+                                           new Object[] {referenceType.getURI()});
+        }
+        compareDigest(digestValue, referenceType);
+    }
+
     protected DigestOutputStream createMessageDigestOutputStream(ReferenceType referenceType, InboundSecurityContext inboundSecurityContext)
             throws XMLSecurityException {
 
         String digestMethodAlgorithm = referenceType.getDigestMethod().getAlgorithm();
+        MessageDigest messageDigest = createMessageDigest(digestMethodAlgorithm);
+        registerDigestAlgorithm(referenceType, inboundSecurityContext);
+        return new DigestOutputStream(messageDigest);
+    }
+
+    private void registerDigestAlgorithm(ReferenceType referenceType, InboundSecurityContext inboundSecurityContext)
+            throws XMLSecurityException {
+        if (inboundSecurityContext.isSecurityEventRequested(SecurityEventConstants.AlgorithmSuite)) {
+            AlgorithmSuiteSecurityEvent algorithmSuiteSecurityEvent = new AlgorithmSuiteSecurityEvent();
+            algorithmSuiteSecurityEvent.setAlgorithmURI(referenceType.getDigestMethod().getAlgorithm());
+            algorithmSuiteSecurityEvent.setAlgorithmUsage(XMLSecurityConstants.SigDig);
+            algorithmSuiteSecurityEvent.setCorrelationID(referenceType.getId());
+            inboundSecurityContext.registerSecurityEvent(algorithmSuiteSecurityEvent);
+        }
+    }
+
+    private static MessageDigest createMessageDigest(String digestMethodAlgorithm) throws XMLSecurityException {
         String jceName = JCEMapper.translateURItoJCEID(digestMethodAlgorithm);
         String jceProvider = JCEMapper.getJCEProviderFromURI(digestMethodAlgorithm);
         if (jceName == null) {
@@ -301,12 +486,6 @@ public abstract class AbstractSignatureReferenceVerifyInputProcessor extends Abs
                                            new Object[] {digestMethodAlgorithm});
         }
 
-        AlgorithmSuiteSecurityEvent algorithmSuiteSecurityEvent = new AlgorithmSuiteSecurityEvent();
-        algorithmSuiteSecurityEvent.setAlgorithmURI(digestMethodAlgorithm);
-        algorithmSuiteSecurityEvent.setAlgorithmUsage(XMLSecurityConstants.SigDig);
-        algorithmSuiteSecurityEvent.setCorrelationID(referenceType.getId());
-        inboundSecurityContext.registerSecurityEvent(algorithmSuiteSecurityEvent);
-
         MessageDigest messageDigest;
         try {
             if (jceProvider != null) {
@@ -320,7 +499,7 @@ public abstract class AbstractSignatureReferenceVerifyInputProcessor extends Abs
             throw new XMLSecurityException(e);
         }
 
-        return new DigestOutputStream(messageDigest);
+        return messageDigest;
     }
 
     protected Transformer buildTransformerChain(ReferenceType referenceType, OutputStream outputStream,
@@ -331,11 +510,13 @@ public abstract class AbstractSignatureReferenceVerifyInputProcessor extends Abs
         // If no Transforms then just default to an Inclusive without comments transform
         if (referenceType.getTransforms() == null || referenceType.getTransforms().getTransform().isEmpty()) {
 
-            AlgorithmSuiteSecurityEvent algorithmSuiteSecurityEvent = new AlgorithmSuiteSecurityEvent();
-            algorithmSuiteSecurityEvent.setAlgorithmURI(XMLSecurityConstants.NS_C14N_OMIT_COMMENTS);
-            algorithmSuiteSecurityEvent.setAlgorithmUsage(XMLSecurityConstants.SigTransform);
-            algorithmSuiteSecurityEvent.setCorrelationID(referenceType.getId());
-            inputProcessorChain.getSecurityContext().registerSecurityEvent(algorithmSuiteSecurityEvent);
+            if (inputProcessorChain.getSecurityContext().isSecurityEventRequested(SecurityEventConstants.AlgorithmSuite)) {
+                AlgorithmSuiteSecurityEvent algorithmSuiteSecurityEvent = new AlgorithmSuiteSecurityEvent();
+                algorithmSuiteSecurityEvent.setAlgorithmURI(XMLSecurityConstants.NS_C14N_OMIT_COMMENTS);
+                algorithmSuiteSecurityEvent.setAlgorithmUsage(XMLSecurityConstants.SigTransform);
+                algorithmSuiteSecurityEvent.setCorrelationID(referenceType.getId());
+                inputProcessorChain.getSecurityContext().registerSecurityEvent(algorithmSuiteSecurityEvent);
+            }
 
             Transformer transformer = new Canonicalizer20010315_OmitCommentsTransformer();
             transformer.setOutputStream(outputStream);
@@ -363,11 +544,13 @@ public abstract class AbstractSignatureReferenceVerifyInputProcessor extends Abs
 
             String algorithm = transformType.getAlgorithm();
 
-            AlgorithmSuiteSecurityEvent algorithmSuiteSecurityEvent = new AlgorithmSuiteSecurityEvent();
-            algorithmSuiteSecurityEvent.setAlgorithmURI(algorithm);
-            algorithmSuiteSecurityEvent.setAlgorithmUsage(XMLSecurityConstants.SigTransform);
-            algorithmSuiteSecurityEvent.setCorrelationID(referenceType.getId());
-            inputProcessorChain.getSecurityContext().registerSecurityEvent(algorithmSuiteSecurityEvent);
+            if (inputProcessorChain.getSecurityContext().isSecurityEventRequested(SecurityEventConstants.AlgorithmSuite)) {
+                AlgorithmSuiteSecurityEvent algorithmSuiteSecurityEvent = new AlgorithmSuiteSecurityEvent();
+                algorithmSuiteSecurityEvent.setAlgorithmURI(algorithm);
+                algorithmSuiteSecurityEvent.setAlgorithmUsage(XMLSecurityConstants.SigTransform);
+                algorithmSuiteSecurityEvent.setCorrelationID(referenceType.getId());
+                inputProcessorChain.getSecurityContext().registerSecurityEvent(algorithmSuiteSecurityEvent);
+            }
 
             InclusiveNamespaces inclusiveNamespacesType =
                     XMLSecurityUtils.getQNameType(transformType.getContent(),
@@ -443,9 +626,14 @@ public abstract class AbstractSignatureReferenceVerifyInputProcessor extends Abs
         @Override
         public XMLSecEvent processEvent(InputProcessorChain inputProcessorChain)
                 throws XMLStreamException, XMLSecurityException {
-            XMLSecEvent xmlSecEvent = inputProcessorChain.processEvent();
-            processEvent(xmlSecEvent, inputProcessorChain);
-            return xmlSecEvent;
+            try {
+                XMLSecEvent xmlSecEvent = inputProcessorChain.processEvent();
+                processEvent(xmlSecEvent, inputProcessorChain);
+                return xmlSecEvent;
+            } catch (XMLStreamException | XMLSecurityException | RuntimeException e) {
+                closeDigestPrefetcher();
+                throw e;
+            }
         }
 
         public void processEvent(XMLSecEvent xmlSecEvent, InputProcessorChain inputProcessorChain)
@@ -35,6 +35,7 @@ import org.apache.xml.security.stax.ext.XMLSecurityUtils;
 import org.apache.xml.security.stax.ext.stax.XMLSecStartElement;
 import org.apache.xml.security.stax.securityEvent.ContentEncryptedElementSecurityEvent;
 import org.apache.xml.security.stax.securityEvent.EncryptedElementSecurityEvent;
+import org.apache.xml.security.stax.securityEvent.SecurityEventConstants;
 import org.apache.xml.security.stax.securityEvent.TokenSecurityEvent;
 import org.apache.xml.security.stax.securityToken.InboundSecurityToken;
 import org.apache.xml.security.stax.securityToken.SecurityTokenConstants;
@@ -65,8 +66,10 @@ public class XMLDecryptInputProcessor extends AbstractDecryptInputProcessor {
     ) throws XMLSecurityException {
         inboundSecurityToken.addTokenUsage(SecurityTokenConstants.TokenUsage_Encryption);
 
-        TokenSecurityEvent<?> tokenSecurityEvent = XMLSecurityUtils.createTokenSecurityEvent(inboundSecurityToken, encryptedDataType.getId());
-        inboundSecurityContext.registerSecurityEvent(tokenSecurityEvent);
+        if (inboundSecurityContext.isSecurityEventRequested(XMLSecurityUtils.getTokenSecurityEventType(inboundSecurityToken))) {
+            TokenSecurityEvent<?> tokenSecurityEvent = XMLSecurityUtils.createTokenSecurityEvent(inboundSecurityToken, encryptedDataType.getId());
+            inboundSecurityContext.registerSecurityEvent(tokenSecurityEvent);
+        }
     }
 
     @Override
@@ -76,6 +79,9 @@ public class XMLDecryptInputProcessor extends AbstractDecryptInputProcessor {
                                           EncryptedDataType encryptedDataType)
             throws XMLSecurityException {
 
+        if (!inputProcessorChain.getSecurityContext().isSecurityEventRequested(SecurityEventConstants.ContentEncrypted)) {
+            return;
+        }
         final DocumentContext documentContext = inputProcessorChain.getDocumentContext();
         List<QName> elementPath = parentXMLSecStartElement.getElementPath();
 
@@ -124,6 +130,9 @@ public class XMLDecryptInputProcessor extends AbstractDecryptInputProcessor {
                                               InboundSecurityToken inboundSecurityToken,
                                               EncryptedDataType encryptedDataType) throws XMLSecurityException {
             //fire a SecurityEvent:
+            if (!inputProcessorChain.getSecurityContext().isSecurityEventRequested(SecurityEventConstants.EncryptedElement)) {
+                return;
+            }
             final DocumentContext documentContext = inputProcessorChain.getDocumentContext();
             List<QName> elementPath = xmlSecStartElement.getElementPath();
 
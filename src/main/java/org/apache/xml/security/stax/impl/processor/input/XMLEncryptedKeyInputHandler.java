@@ -45,6 +45,7 @@ import org.apache.xml.security.binding.xmlenc.CipherValueType;
 import org.apache.xml.security.binding.xmlenc.EncryptedKeyType;
 import org.apache.xml.security.binding.xmlenc11.MGFType;
 import org.apache.xml.security.binding.xop.Include;
+import org.apache.xml.security.encryption.UnwrappedKeyCache;
 import org.apache.xml.security.exceptions.XMLSecurityException;
 import org.apache.xml.security.stax.ext.AbstractInputSecurityHeaderHandler;
 import org.apache.xml.security.stax.ext.InboundSecurityContext;
@@ -57,6 +58,7 @@ import org.apache.xml.security.stax.impl.securityToken.AbstractInboundSecurityTo
 import org.apache.xml.security.stax.impl.util.IDGenerator;
 import org.apache.xml.security.stax.securityEvent.AlgorithmSuiteSecurityEvent;
 import org.apache.xml.security.stax.securityEvent.EncryptedKeyTokenSecurityEvent;
+import org.apache.xml.security.stax.securityEvent.SecurityEventConstants;
 import org.apache.xml.security.stax.securityToken.InboundSecurityToken;
 import org.apache.xml.security.stax.securityToken.SecurityTokenConstants;
 import org.apache.xml.security.stax.securityToken.SecurityTokenFactory;
@@ -180,6 +182,10 @@ public class XMLEncryptedKeyInputHandler extends AbstractInputSecurityHeaderHand
                         final InboundSecurityToken wrappingSecurityToken = getWrappingSecurityToken(wrappedSecurityToken);
 
                         Cipher cipher;
+                        Key wrappingKey;
+                        String digestAlgorithmURI = null;
+                        String mgfAlgorithmURI = null;
+                        byte[] oaepParams = null;
                         try {
                             XMLSecurityConstants.AlgorithmUsage algorithmUsage;
                             if (wrappingSecurityToken.isAsymmetric()) {
@@ -200,17 +206,20 @@ public class XMLEncryptedKeyInputHandler extends AbstractInputSecurityHeaderHand
                                         XMLSecurityUtils.getQNameType(encryptedKeyType.getEncryptionMethod().getContent(), XMLSecurityConstants.TAG_dsig_DigestMethod);
                                 String jceDigestAlgorithm = "SHA-1";
                                 if (digestMethodType != null) {
-                                    AlgorithmSuiteSecurityEvent algorithmSuiteSecurityEvent = new AlgorithmSuiteSecurityEvent();
-                                    algorithmSuiteSecurityEvent.setAlgorithmURI(digestMethodType.getAlgorithm());
-                                    algorithmSuiteSecurityEvent.setAlgorithmUsage(XMLSecurityConstants.EncDig);
-                                    algorithmSuiteSecurityEvent.setCorrelationID(correlationID);
-                                    inboundSecurityContext.registerSecurityEvent(algorithmSuiteSecurityEvent);
+                                    digestAlgorithmURI = digestMethodType.getAlgorithm();
+                                    if (inboundSecurityContext.isSecurityEventRequested(SecurityEventConstants.AlgorithmSuite)) {
+                                        AlgorithmSuiteSecurityEvent algorithmSuiteSecurityEvent = new AlgorithmSuiteSecurityEvent();
+                                        algorithmSuiteSecurityEvent.setAlgorithmURI(digestMethodType.getAlgorithm());
+                                        algorithmSuiteSecurityEvent.setAlgorithmUsage(XMLSecurityConstants.EncDig);
+                                        algorithmSuiteSecurityEvent.setCorrelationID(correlationID);
+                                        inboundSecurityContext.registerSecurityEvent(algorithmSuiteSecurityEvent);
+                                    }
 
                                     jceDigestAlgorithm = JCEMapper.translateURItoJCEID(digestMethodType.getAlgorithm());
                                 }
 
                                 PSource.PSpecified pSource = PSource.PSpecified.DEFAULT;
-                                final byte[] oaepParams =
+                                oaepParams =
                                         XMLSecurityUtils.getQNameType(encryptedKeyType.getEncryptionMethod().getContent(), XMLSecurityConstants.TAG_xenc_OAEPparams);
                                 if (oaepParams != null) {
                                     pSource = new PSource.PSpecified(oaepParams);
@@ -220,13 +229,16 @@ public class XMLEncryptedKeyInputHandler extends AbstractInputSecurityHeaderHand
                                 final MGFType mgfType =
                                         XMLSecurityUtils.getQNameType(encryptedKeyType.getEncryptionMethod().getContent(), XMLSecurityConstants.TAG_xenc11_MGF);
                                 if (mgfType != null) {
+                                    mgfAlgorithmURI = mgfType.getAlgorithm();
                                     String jceMGFAlgorithm = JCEMapper.translateURItoJCEID(mgfType.getAlgorithm());
                                     mgfParameterSpec = new MGF1ParameterSpec(jceMGFAlgorithm);
                                 }
                                 OAEPParameterSpec oaepParameterSpec = new OAEPParameterSpec(jceDigestAlgorithm, "MGF1", mgfParameterSpec, pSource);
-                                cipher.init(Cipher.UNWRAP_MODE, wrappingSecurityToken.getSecretKey(algorithmURI, algorithmUsage, correlationID), oaepParameterSpec);
+                                wrappingKey = wrappingSecurityToken.getSecretKey(algorithmURI, algorithmUsage, correlationID);
+                                cipher.init(Cipher.UNWRAP_MODE, wrappingKey, oaepParameterSpec);
                             } else {
-                                cipher.init(Cipher.UNWRAP_MODE, wrappingSecurityToken.getSecretKey(algorithmURI, algorithmUsage, correlationID));
+                                wrappingKey = wrappingSecurityToken.getSecretKey(algorithmURI, algorithmUsage, correlationID);
+                                cipher.init(Cipher.UNWRAP_MODE, wrappingKey);
                             }
                             if (encryptedKeyType.getCipherData() == null
                                     || encryptedKeyType.getCipherData().getCipherValue() == null
@@ -244,11 +256,26 @@ public class XMLEncryptedKeyInputHandler extends AbstractInputSecurityHeaderHand
                         String sha1Identifier = XMLUtils.encodeToString(sha1Bytes);
                         super.setSha1Identifier(sha1Identifier);
 
+                        UnwrappedKeyCache unwrappedKeyCache = securityProperties.getUnwrappedKeyCache();
+                        String oaepParamsValue = oaepParams == null ? null : XMLUtils.encodeToString(oaepParams);
+                        if (unwrappedKeyCache != null) {
+                            byte[] cachedKey = unwrappedKeyCache.get(encryptedBytes, wrappingKey,
+                                algorithmURI, digestAlgorithmURI, mgfAlgorithmURI, oaepParamsValue);
+                            if (cachedKey != null) {
+                                return this.decryptedKey = cachedKey;
+                            }
+                        }
+
                         try {
                             Key key = cipher.unwrap(encryptedBytes,
                                     jceName,
                                     Cipher.SECRET_KEY);
-                            return this.decryptedKey = key.getEncoded();
+                            this.decryptedKey = key.getEncoded();
+                            if (unwrappedKeyCache != null) {
+                                unwrappedKeyCache.put(encryptedBytes, wrappingKey, this.decryptedKey,
+                                    algorithmURI, digestAlgorithmURI, mgfAlgorithmURI, oaepParamsValue);
+                            }
+                            return this.decryptedKey;
                         } catch (IllegalStateException e) {
                             throw new XMLSecurityException(e);
                         } catch (Exception e) {
@@ -297,10 +324,12 @@ public class XMLEncryptedKeyInputHandler extends AbstractInputSecurityHeaderHand
         inboundSecurityContext.registerSecurityTokenProvider(encryptedKeyType.getId(), securityTokenProvider);
 
         //fire a tokenSecurityEvent
-        EncryptedKeyTokenSecurityEvent tokenSecurityEvent = new EncryptedKeyTokenSecurityEvent();
-        tokenSecurityEvent.setSecurityToken(securityTokenProvider.getSecurityToken());
-        tokenSecurityEvent.setCorrelationID(encryptedKeyType.getId());
-        inboundSecurityContext.registerSecurityEvent(tokenSecurityEvent);
+        if (inboundSecurityContext.isSecurityEventRequested(SecurityEventConstants.EncryptedKeyToken)) {
+            EncryptedKeyTokenSecurityEvent tokenSecurityEvent = new EncryptedKeyTokenSecurityEvent();
+            tokenSecurityEvent.setSecurityToken(securityTokenProvider.getSecurityToken());
+            tokenSecurityEvent.setCorrelationID(encryptedKeyType.getId());
+            inboundSecurityContext.registerSecurityEvent(tokenSecurityEvent);
+        }
 
         //if this EncryptedKey structure contains a reference list, delegate it to a subclass
         if (encryptedKeyType.getReferenceList() != null) {
@@ -29,6 +29,7 @@ import org.apache.xml.security.stax.ext.DocumentContext;
 import org.apache.xml.security.stax.ext.InputProcessorChain;
 import org.apache.xml.security.stax.ext.XMLSecurityProperties;
 import org.apache.xml.security.stax.ext.stax.XMLSecEvent;
+import org.apache.xml.security.stax.securityEvent.SecurityEventConstants;
 import org.apache.xml.security.stax.securityEvent.SignedElementSecurityEvent;
 import org.apache.xml.security.stax.securityToken.InboundSecurityToken;
 
@@ -50,12 +51,14 @@ public class XMLSignatureReferenceVerifyInputProcessor extends AbstractSignature
             List<QName> elementPath, InputProcessorChain inputProcessorChain, XMLSecEvent xmlSecEvent,
             ReferenceType referenceType) throws XMLSecurityException {
         final DocumentContext documentContext = inputProcessorChain.getDocumentContext();
-        SignedElementSecurityEvent signedElementSecurityEvent =
-                new SignedElementSecurityEvent(getInboundSecurityToken(), true, documentContext.getProtectionOrder());
-        signedElementSecurityEvent.setElementPath(elementPath);
-        signedElementSecurityEvent.setXmlSecEvent(xmlSecEvent);
-        signedElementSecurityEvent.setCorrelationID(referenceType.getId());
-        inputProcessorChain.getSecurityContext().registerSecurityEvent(signedElementSecurityEvent);
+        if (inputProcessorChain.getSecurityContext().isSecurityEventRequested(SecurityEventConstants.SignedElement)) {
+            SignedElementSecurityEvent signedElementSecurityEvent =
+                    new SignedElementSecurityEvent(getInboundSecurityToken(), true, documentContext.getProtectionOrder());
+            signedElementSecurityEvent.setElementPath(elementPath);
+            signedElementSecurityEvent.setXmlSecEvent(xmlSecEvent);
+            signedElementSecurityEvent.setCorrelationID(referenceType.getId());
+            inputProcessorChain.getSecurityContext().registerSecurityEvent(signedElementSecurityEvent);
+        }
     }
 
 }
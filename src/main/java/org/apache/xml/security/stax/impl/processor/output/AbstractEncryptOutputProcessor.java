@@ -56,6 +56,7 @@ import org.apache.xml.security.stax.ext.stax.XMLSecEventFactory;
 import org.apache.xml.security.stax.ext.stax.XMLSecStartElement;
 import org.apache.xml.security.stax.impl.EncryptionPartDef;
 import org.apache.xml.security.stax.impl.XMLSecurityEventWriter;
+import org.apache.xml.security.stax.impl.util.SegmentedGCMOutputStream;
 import org.apache.xml.security.stax.impl.util.TrimmerOutputStream;
 import org.apache.xml.security.utils.XMLUtils;
 
@@ -170,9 +171,12 @@ public abstract class AbstractEncryptOutputProcessor extends AbstractOutputProce
 
                 int ivLen = JCEMapper.getIVLengthFromURI(encryptionSymAlgorithm) / 8;
                 byte[] iv = XMLSecurityConstants.generateBytes(ivLen);
-                AlgorithmParameterSpec parameterSpec =
-                    XMLCipherUtil.constructBlockCipherParameters(encryptionSymAlgorithm, iv);
-                symmetricCipher.init(Cipher.ENCRYPT_MODE, encryptionPartDef.getSymmetricKey(), parameterSpec);
+                int segmentSize = securityProperties.getEncryptionSegmentSize();
+                if (segmentSize <= 0) {
+                    AlgorithmParameterSpec parameterSpec =
+                        XMLCipherUtil.constructBlockCipherParameters(encryptionSymAlgorithm, iv);
+                    symmetricCipher.init(Cipher.ENCRYPT_MODE, encryptionPartDef.getSymmetricKey(), parameterSpec);
+                }
 
                 characterEventGeneratorOutputStream = new CharacterEventGeneratorOutputStream();
                 Base64OutputStream base64EncoderStream = null;  //NOPMD
@@ -183,7 +187,14 @@ public abstract class AbstractEncryptOutputProcessor extends AbstractOutputProce
                 }
                 base64EncoderStream.write(iv);
 
-                OutputStream outputStream = new CipherOutputStream(base64EncoderStream, symmetricCipher);   //NOPMD
+                OutputStream outputStream;  //NOPMD
+                if (segmentSize > 0) {
+                    //the cipher is initialized per segment
+                    outputStream = new SegmentedGCMOutputStream(base64EncoderStream, symmetricCipher,
+                        Cipher.ENCRYPT_MODE, encryptionPartDef.getSymmetricKey(), iv, segmentSize);
+                } else {
+                    outputStream = new CipherOutputStream(base64EncoderStream, symmetricCipher);
+                }
                 outputStream = applyTransforms(outputStream);
                 //the trimmer output stream is needed to strip away the dummy wrapping element which must be added
                 cipherOutputStream = new TrimmerOutputStream(outputStream, 8192 * 10, 3, 4);
@@ -299,7 +310,12 @@ public abstract class AbstractEncryptOutputProcessor extends AbstractOutputProce
             attributes = new ArrayList<>(1);
             attributes.add(createAttribute(XMLSecurityConstants.ATT_NULL_Algorithm, securityProperties.getEncryptionSymAlgorithm()));
             createStartElementAndOutputAsEvent(outputProcessorChain, XMLSecurityConstants.TAG_xenc_EncryptionMethod, false, attributes);
-
+            if (securityProperties.getEncryptionSegmentSize() > 0) {
+                createStartElementAndOutputAsEvent(outputProcessorChain, XMLSecurityConstants.TAG_sgcm_SegmentSize, true, null);
+                createCharactersAndOutputAsEvent(outputProcessorChain,
+                    String.valueOf(securityProperties.getEncryptionSegmentSize()));
+                createEndElementAndOutputAsEvent(outputProcessorChain, XMLSecurityConstants.TAG_sgcm_SegmentSize);
+            }
             createEndElementAndOutputAsEvent(outputProcessorChain, XMLSecurityConstants.TAG_xenc_EncryptionMethod);
             createKeyInfoStructure(outputProcessorChain);
             createStartElementAndOutputAsEvent(outputProcessorChain, XMLSecurityConstants.TAG_xenc_CipherData, false, null);
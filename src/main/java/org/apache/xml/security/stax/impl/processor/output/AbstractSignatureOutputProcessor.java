@@ -23,10 +23,12 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.System.Logger;
 import java.lang.System.Logger.Level;
+import java.nio.file.Path;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -38,6 +40,7 @@ import javax.xml.stream.XMLStreamException;
 
 import org.apache.xml.security.algorithms.JCEMapper;
 import org.apache.xml.security.exceptions.XMLSecurityException;
+import org.apache.xml.security.signature.ReferenceDigestCache;
 import org.apache.xml.security.stax.config.ResourceResolverMapper;
 import org.apache.xml.security.stax.ext.AbstractOutputProcessor;
 import org.apache.xml.security.stax.ext.OutputProcessorChain;
@@ -49,6 +52,7 @@ import org.apache.xml.security.stax.ext.XMLSecurityUtils;
 import org.apache.xml.security.stax.ext.stax.XMLSecEvent;
 import org.apache.xml.security.stax.ext.stax.XMLSecStartElement;
 import org.apache.xml.security.stax.impl.SignaturePartDef;
+import org.apache.xml.security.stax.impl.resourceResolvers.ResolverFilesystem;
 import org.apache.xml.security.stax.impl.transformer.TransformIdentity;
 import org.apache.xml.security.stax.impl.transformer.canonicalizer.Canonicalizer20010315_Excl;
 import org.apache.xml.security.stax.impl.util.DigestOutputStream;
@@ -112,7 +116,6 @@ public abstract class AbstractSignatureOutputProcessor extends AbstractOutputPro
         }
 
         DigestOutputStream digestOutputStream = createMessageDigestOutputStream(digestAlgo);    //NOPMD
-        InputStream inputStream = resourceResolver.getInputStreamFromExternalReference();   //NOPMD
 
         SignaturePartDef signaturePartDef = new SignaturePartDef();
         signaturePartDef.setSecurePart(securePart);
@@ -121,13 +124,34 @@ public abstract class AbstractSignatureOutputProcessor extends AbstractOutputPro
         signaturePartDef.setTransforms(securePart.getTransforms());
         signaturePartDef.setDigestAlgo(digestAlgo);
 
+        Path file = null;
+        if (securePart.getTransforms() == null && resourceResolver instanceof ResolverFilesystem) {
+            file = ((ResolverFilesystem) resourceResolver).getFile();
+        }
+
+        ReferenceDigestCache digestCache = getSecurityProperties().getDigestCache();
+        byte[] digestValue = null;
         try {
-            if (securePart.getTransforms() != null) {
+            if (file != null && digestCache != null) {
+                String fileURI = file.toUri().toString();
+                String validator = ReferenceDigestCache.getValidator(file);
+                digestValue = digestCache.get(fileURI, digestAlgo, Collections.emptyList(), validator);
+                if (digestValue == null) {
+                    digestOutputStream.write(file);
+                    digestValue = digestOutputStream.getDigestValue();
+                    digestCache.put(fileURI, digestAlgo, Collections.emptyList(), validator, digestValue);
+                }
+            } else if (file != null) {
+                // Nothing to transform, so digest the file directly instead of streaming it
+                digestOutputStream.write(file);
+            } else if (securePart.getTransforms() != null) {
+                InputStream inputStream = resourceResolver.getInputStreamFromExternalReference();   //NOPMD
                 signaturePartDef.setExcludeVisibleC14Nprefixes(true);
                 Transformer transformer = buildTransformerChain(digestOutputStream, signaturePartDef, null);
                 transformer.transform(inputStream);
                 transformer.doFinal();
             } else {
+                InputStream inputStream = resourceResolver.getInputStreamFromExternalReference();   //NOPMD
                 XMLSecurityUtils.copy(inputStream, digestOutputStream);
             }
             digestOutputStream.close();
@@ -135,8 +159,10 @@ public abstract class AbstractSignatureOutputProcessor extends AbstractOutputPro
             throw new XMLSecurityException(e);
         }
 
-        String calculatedDigest =
-            XMLUtils.encodeToString(digestOutputStream.getDigestValue());
+        if (digestValue == null) {
+            digestValue = digestOutputStream.getDigestValue();
+        }
+        String calculatedDigest = XMLUtils.encodeToString(digestValue);
         LOG.log(Level.DEBUG, "Calculated Digest: {0}", calculatedDigest);
 
         signaturePartDef.setDigestValue(calculatedDigest);
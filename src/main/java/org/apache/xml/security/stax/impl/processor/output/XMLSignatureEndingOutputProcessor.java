@@ -35,6 +35,7 @@ import org.apache.xml.security.stax.ext.stax.XMLSecEvent;
 import org.apache.xml.security.stax.ext.stax.XMLSecStartElement;
 import org.apache.xml.security.stax.impl.SignaturePartDef;
 import org.apache.xml.security.stax.impl.algorithms.SignatureAlgorithm;
+import org.apache.xml.security.stax.securityEvent.SecurityEventConstants;
 import org.apache.xml.security.stax.securityEvent.SignatureValueSecurityEvent;
 import org.apache.xml.security.stax.securityToken.OutboundSecurityToken;
 import org.apache.xml.security.stax.securityToken.SecurityTokenConstants;
@@ -47,6 +48,8 @@ import static org.apache.xml.security.stax.ext.XMLSecurityConstants.NS_XMLDSIG_E
 public class XMLSignatureEndingOutputProcessor extends AbstractSignatureEndingOutputProcessor {
 
     private SignedInfoProcessor signedInfoProcessor;
+    private int depth;
+    private boolean rootElementEnded;
 
     public XMLSignatureEndingOutputProcessor(XMLSignatureOutputProcessor signatureOutputProcessor) throws XMLSecurityException {
         super(signatureOutputProcessor);
@@ -66,13 +69,38 @@ public class XMLSignatureEndingOutputProcessor extends AbstractSignatureEndingOu
         return this.signedInfoProcessor;
     }
 
+    @Override
+    public void processEvent(XMLSecEvent xmlSecEvent, OutputProcessorChain outputProcessorChain)
+            throws XMLStreamException, XMLSecurityException {
+
+        if (!getSecurityProperties().isSignaturePositionEnd() || rootElementEnded) {
+            super.processEvent(xmlSecEvent, outputProcessorChain);
+            return;
+        }
+        // the Signature is appended to the root element, so everything before its end tag is
+        // output right away and only the rest of the document is buffered
+        if (xmlSecEvent.isStartElement()) {
+            depth++;
+        } else if (xmlSecEvent.isEndElement()) {
+            depth--;
+            if (depth == 0) {
+                rootElementEnded = true;
+                super.processEvent(xmlSecEvent, outputProcessorChain);
+                return;
+            }
+        }
+        outputProcessorChain.processEvent(xmlSecEvent);
+    }
+
     @Override
     public void processHeaderEvent(OutputProcessorChain outputProcessorChain) throws XMLStreamException, XMLSecurityException {
         super.processHeaderEvent(outputProcessorChain);
-        SignatureValueSecurityEvent signatureValueSecurityEvent = new SignatureValueSecurityEvent();
-        signatureValueSecurityEvent.setSignatureValue(this.signedInfoProcessor.getSignatureValue());
-        signatureValueSecurityEvent.setCorrelationID(this.signedInfoProcessor.getSignatureId());
-        outputProcessorChain.getSecurityContext().registerSecurityEvent(signatureValueSecurityEvent);
+        if (outputProcessorChain.getSecurityContext().isSecurityEventRequested(SecurityEventConstants.SignatureValue)) {
+            SignatureValueSecurityEvent signatureValueSecurityEvent = new SignatureValueSecurityEvent();
+            signatureValueSecurityEvent.setSignatureValue(this.signedInfoProcessor.getSignatureValue());
+            signatureValueSecurityEvent.setCorrelationID(this.signedInfoProcessor.getSignatureId());
+            outputProcessorChain.getSecurityContext().registerSecurityEvent(signatureValueSecurityEvent);
+        }
     }
 
     @Override
@@ -80,6 +108,12 @@ public class XMLSignatureEndingOutputProcessor extends AbstractSignatureEndingOu
             OutputProcessorChain outputProcessorChain, Deque<XMLSecEvent> xmlSecEventDeque)
             throws XMLStreamException, XMLSecurityException {
 
+        if (getSecurityProperties().isSignaturePositionEnd()) {
+            // the buffer starts with the end tag of the root element
+            super.flushBufferAndCallbackAfterHeader(outputProcessorChain, xmlSecEventDeque);
+            return;
+        }
+
         // forward to the root element and output it
         XMLSecEvent xmlSecEvent = xmlSecEventDeque.pop();
         while (!xmlSecEvent.isStartElement()) {
@@ -20,6 +20,9 @@ package org.apache.xml.security.stax.impl.resourceResolvers;
 
 import java.io.InputStream;
 import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 import org.apache.xml.security.exceptions.XMLSecurityException;
 import org.apache.xml.security.stax.ext.ResourceResolver;
@@ -73,19 +76,42 @@ public class ResolverFilesystem implements ResourceResolver, ResourceResolverLoo
     @Override
     public InputStream getInputStreamFromExternalReference() throws XMLSecurityException {
         try {
-            URI tmp;
-            if (baseURI == null || baseURI.length() == 0) {
-                tmp = new URI(uri);
-            } else {
-                tmp = new URI(baseURI).resolve(uri);
-            }
+            return getURI().toURL().openStream();
+        } catch (Exception e) {
+            throw new XMLSecurityException(e);
+        }
+    }
 
-            if (tmp.getFragment() != null) {
-                tmp = new URI(tmp.getScheme(), tmp.getSchemeSpecificPart(), null);
+    /**
+     * Returns the referenced file, which allows the content to be read directly instead of
+     * through {@link #getInputStreamFromExternalReference()}.
+     *
+     * @return the referenced file, or null if the reference does not resolve to a "file:" URI
+     * @throws XMLSecurityException if the reference is not a valid URI
+     */
+    public Path getFile() throws XMLSecurityException {
+        try {
+            URI tmp = getURI();
+            if ("file".equalsIgnoreCase(tmp.getScheme())) {
+                return Paths.get(tmp);
             }
-            return tmp.toURL().openStream();
-        } catch (Exception e) {
+            return null;
+        } catch (URISyntaxException | IllegalArgumentException e) {
             throw new XMLSecurityException(e);
         }
     }
+
+    private URI getURI() throws URISyntaxException {
+        URI tmp;
+        if (baseURI == null || baseURI.length() == 0) {
+            tmp = new URI(uri);
+        } else {
+            tmp = new URI(baseURI).resolve(uri);
+        }
+
+        if (tmp.getFragment() != null) {
+            tmp = new URI(tmp.getScheme(), tmp.getSchemeSpecificPart(), null);
+        }
+        return tmp;
+    }
 }
@@ -0,0 +1,122 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.stax.impl.resourceResolvers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.regex.Pattern;
+
+import org.apache.xml.security.exceptions.XMLSecurityException;
+import org.apache.xml.security.stax.ext.ResourceResolver;
+import org.apache.xml.security.stax.ext.ResourceResolverLookup;
+import org.apache.xml.security.stax.ext.stax.XMLSecStartElement;
+
+/**
+ * Resolver for external http[s] resources, which shares a pooled HttpClient between all
+ * requests. It can be used instead of {@link ResolverHttp} in the ResourceResolvers of the
+ * security configuration. The requests are made by
+ * {@link org.apache.xml.security.utils.resolver.implementations.ResolverHttpClient}, which
+ * can be configured with {@link #setHttpResolver}.
+ */
+public class ResolverHttpClient implements ResourceResolver, ResourceResolverLookup {
+
+    private static volatile org.apache.xml.security.utils.resolver.implementations.ResolverHttpClient httpResolver;
+
+    private String uri;
+    private String baseURI;
+    private Pattern pattern = Pattern.compile("^http[s]?://.*");
+
+    public ResolverHttpClient() {
+    }
+
+    public ResolverHttpClient(String uri, String baseURI) {
+        this.uri = uri;
+        this.baseURI = baseURI;
+    }
+
+    /**
+     * Set the resolver which makes the HTTP requests. By default a resolver with the default
+     * configuration is created on first use.
+     */
+    public static void setHttpResolver(
+        org.apache.xml.security.utils.resolver.implementations.ResolverHttpClient httpResolver) {
+        ResolverHttpClient.httpResolver = httpResolver;
+    }
+
+    private static org.apache.xml.security.utils.resolver.implementations.ResolverHttpClient getHttpResolver() {
+        org.apache.xml.security.utils.resolver.implementations.ResolverHttpClient resolver = httpResolver;
+        if (resolver == null) {
+            synchronized (ResolverHttpClient.class) {
+                resolver = httpResolver;
+                if (resolver == null) {
+                    resolver = new org.apache.xml.security.utils.resolver.implementations.ResolverHttpClient();
+                    httpResolver = resolver;
+                }
+            }
+        }
+        return resolver;
+    }
+
+    @Override
+    public ResourceResolverLookup canResolve(String uri, String baseURI) {
+        if (uri == null) {
+            return null;
+        }
+        if (pattern.matcher(uri).matches() || baseURI != null && pattern.matcher(baseURI).matches()) {
+            return this;
+        }
+        return null;
+    }
+
+    @Override
+    public ResourceResolver newInstance(String uri, String baseURI) {
+        return new ResolverHttpClient(uri, baseURI);
+    }
+
+    @Override
+    public boolean isSameDocumentReference() {
+        return false;
+    }
+
+    @Override
+    public boolean matches(XMLSecStartElement xmlSecStartElement) {
+        return false;
+    }
+
+    @Override
+    public InputStream getInputStreamFromExternalReference() throws XMLSecurityException {
+        try {
+            URI tmp;
+            if (baseURI == null || baseURI.length() == 0) {
+                tmp = new URI(uri);
+            } else {
+                tmp = new URI(baseURI).resolve(uri);
+            }
+
+            if (tmp.getFragment() != null) {
+                tmp = new URI(tmp.getScheme(), tmp.getSchemeSpecificPart(), null);
+            }
+            return getHttpResolver().openStream(tmp);
+        } catch (URISyntaxException | IOException e) {
+            throw new XMLSecurityException(e);
+        }
+    }
+}
@@ -35,6 +35,7 @@ import org.apache.xml.security.stax.ext.InboundSecurityContext;
 import org.apache.xml.security.stax.ext.XMLSecurityConstants;
 import org.apache.xml.security.stax.ext.stax.XMLSecEvent;
 import org.apache.xml.security.stax.securityEvent.AlgorithmSuiteSecurityEvent;
+import org.apache.xml.security.stax.securityEvent.SecurityEventConstants;
 import org.apache.xml.security.stax.securityToken.InboundSecurityToken;
 import org.apache.xml.security.stax.securityToken.SecurityTokenConstants;
 
@@ -122,7 +123,8 @@ public abstract class AbstractInboundSecurityToken extends AbstractSecurityToken
         }
         testAndSetInvocation();
         Key key = getKey(algorithmURI, algorithmUsage, correlationID);
-        if (key != null && this.inboundSecurityContext != null) {
+        if (key != null && this.inboundSecurityContext != null
+            && this.inboundSecurityContext.isSecurityEventRequested(SecurityEventConstants.AlgorithmSuite)) {
             AlgorithmSuiteSecurityEvent algorithmSuiteSecurityEvent = new AlgorithmSuiteSecurityEvent();
             algorithmSuiteSecurityEvent.setAlgorithmURI(algorithmURI);
             algorithmSuiteSecurityEvent.setAlgorithmUsage(algorithmUsage);
@@ -162,7 +164,8 @@ public abstract class AbstractInboundSecurityToken extends AbstractSecurityToken
         }
         testAndSetInvocation();
         PublicKey publicKey = getPubKey(algorithmURI, algorithmUsage, correlationID);
-        if (publicKey != null && this.inboundSecurityContext != null) {
+        if (publicKey != null && this.inboundSecurityContext != null
+            && this.inboundSecurityContext.isSecurityEventRequested(SecurityEventConstants.AlgorithmSuite)) {
             AlgorithmSuiteSecurityEvent algorithmSuiteSecurityEvent = new AlgorithmSuiteSecurityEvent();
             algorithmSuiteSecurityEvent.setAlgorithmURI(algorithmURI);
             algorithmSuiteSecurityEvent.setAlgorithmUsage(algorithmUsage);
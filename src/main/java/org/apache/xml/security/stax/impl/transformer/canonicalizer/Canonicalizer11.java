@@ -61,7 +61,7 @@ public class Canonicalizer11 extends CanonicalizerBase {
                 utilizedAttributes = new ArrayList<>(2);
             }
             utilizedAttributes.add(comparableAttribute);
-            outputStack.peek().add(comparableAttribute);
+            outputStack.add(comparableAttribute);
         }
 
         List<XMLSecAttribute> elementAttributes = xmlSecStartElement.getOnElementDeclaredAttributes();
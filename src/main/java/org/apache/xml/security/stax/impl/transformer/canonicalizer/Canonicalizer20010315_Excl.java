@@ -84,7 +84,7 @@ public abstract class Canonicalizer20010315_Excl extends CanonicalizerBase {
         if (found == null || found.getNamespaceURI() == null || !found.getNamespaceURI().equals(elementNamespace.getNamespaceURI())) {
             utilizedNamespaces = new ArrayList<>(2);
             utilizedNamespaces.add(elementNamespace);
-            outputStack.peek().add(elementNamespace);
+            outputStack.add(elementNamespace);
         }
 
         List<XMLSecAttribute> comparableAttributes = xmlSecStartElement.getOnElementDeclaredAttributes();
@@ -106,7 +106,7 @@ public abstract class Canonicalizer20010315_Excl extends CanonicalizerBase {
                     utilizedNamespaces = new ArrayList<>(2);
                 }
                 utilizedNamespaces.add(attributeNamespace);
-                outputStack.peek().add(attributeNamespace);
+                outputStack.add(attributeNamespace);
             }
         }
 
@@ -132,7 +132,7 @@ public abstract class Canonicalizer20010315_Excl extends CanonicalizerBase {
                         utilizedNamespaces = new ArrayList<>(2);
                     }
                     utilizedNamespaces.add(comparableNamespace);
-                    outputStack.peek().add(comparableNamespace);
+                    outputStack.add(comparableNamespace);
                 }
             }
         }
@@ -21,12 +21,13 @@ package org.apache.xml.security.stax.impl.transformer.canonicalizer;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Iterator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.WeakHashMap;
 
 import javax.xml.namespace.QName;
@@ -80,8 +81,12 @@ public abstract class CanonicalizerBase extends TransformIdentity {
         NODE_AFTER_DOCUMENT_ELEMENT
     }
 
+    private static final int MAX_INSERTION_SORT = 16;
+
     private static final Map<String, byte[]> CACHE = Collections.synchronizedMap(new WeakHashMap<>());
     private final C14NStack<XMLSecEvent> outputStack = new C14NStack<>();
+    private XMLSecNamespace[] sortedNamespaces = new XMLSecNamespace[8];
+    private XMLSecAttribute[] sortedAttributes = new XMLSecAttribute[8];
     private boolean includeComments = false;
     private DocumentLevel currentDocumentLevel = DocumentLevel.NODE_BEFORE_DOCUMENT_ELEMENT;
 
@@ -116,7 +121,7 @@ public abstract class CanonicalizerBase extends TransformIdentity {
 
             utilizedNamespaces = new ArrayList<>(2);
             utilizedNamespaces.add(elementNamespace);
-            outputStack.peek().add(elementNamespace);
+            outputStack.add(elementNamespace);
         }
 
         List<XMLSecNamespace> declaredNamespaces = xmlSecStartElement.getOnElementDeclaredNamespaces();
@@ -133,7 +138,7 @@ public abstract class CanonicalizerBase extends TransformIdentity {
                 utilizedNamespaces = new ArrayList<>(2);
             }
             utilizedNamespaces.add(comparableNamespace);
-            outputStack.peek().add(comparableNamespace);
+            outputStack.add(comparableNamespace);
         }
 
         List<XMLSecAttribute> comparableAttributes = xmlSecStartElement.getOnElementDeclaredAttributes();
@@ -155,7 +160,7 @@ public abstract class CanonicalizerBase extends TransformIdentity {
                     utilizedNamespaces = new ArrayList<>(2);
                 }
                 utilizedNamespaces.add(attributeNamespace);
-                outputStack.peek().add(attributeNamespace);
+                outputStack.add(attributeNamespace);
             }
         }
 
@@ -164,12 +169,8 @@ public abstract class CanonicalizerBase extends TransformIdentity {
 
     protected List<XMLSecAttribute> getCurrentUtilizedAttributes(final XMLSecStartElement xmlSecStartElement,
                                                                       final C14NStack<XMLSecEvent> outputStack) {
-        List<XMLSecAttribute> comparableAttributes = xmlSecStartElement.getOnElementDeclaredAttributes();
-        if (comparableAttributes.isEmpty()) {
-            return Collections.emptyList();
-        }
-
-        return new ArrayList<>(comparableAttributes);
+        // the attributes are sorted into a copy, so the list of the element can be returned as is
+        return xmlSecStartElement.getOnElementDeclaredAttributes();
     }
 
     protected List<XMLSecNamespace> getInitialUtilizedNamespaces(final XMLSecStartElement xmlSecStartElement,
@@ -189,7 +190,7 @@ public abstract class CanonicalizerBase extends TransformIdentity {
                 //for prefix equality
                 utilizedNamespaces.remove(comparableNamespace);
             }
-            outputStack.peek().add(comparableNamespace);
+            outputStack.add(comparableNamespace);
 
             //don't add xmlns="" declarations:
             if (!comparableNamespace.getNamespaceURI().isEmpty() || !comparableNamespace.getPrefix().isEmpty()) {
@@ -219,7 +220,7 @@ public abstract class CanonicalizerBase extends TransformIdentity {
                 utilizedAttributes = new ArrayList<>(2);
             }
             utilizedAttributes.add(comparableAttribute);
-            outputStack.peek().add(comparableAttribute);
+            outputStack.add(comparableAttribute);
         }
 
         List<XMLSecAttribute> elementAttributes = xmlSecStartElement.getOnElementDeclaredAttributes();
@@ -262,7 +263,7 @@ public abstract class CanonicalizerBase extends TransformIdentity {
                     final XMLSecStartElement xmlSecStartElement = xmlSecEvent.asStartElement();
 
                     currentDocumentLevel = DocumentLevel.NODE_NOT_BEFORE_OR_AFTER_DOCUMENT_ELEMENT;
-                    outputStack.push(Collections.<Comparable>emptyList());
+                    outputStack.push();
 
                     final List<XMLSecNamespace> utilizedNamespaces;
                     final List<XMLSecAttribute> utilizedAttributes;
@@ -270,8 +271,8 @@ public abstract class CanonicalizerBase extends TransformIdentity {
                     if (firstCall) {
                         utilizedNamespaces = new ArrayList<>();
                         utilizedAttributes = new ArrayList<>();
-                        outputStack.peek().add(XMLSecEventFactory.createXMLSecNamespace(null, ""));
-                        outputStack.push(Collections.<Comparable>emptyList());
+                        outputStack.add(XMLSecEventFactory.createXMLSecNamespace(null, ""));
+                        outputStack.push();
 
                         utilizedNamespaces.addAll(getInitialUtilizedNamespaces(xmlSecStartElement, outputStack));
                         utilizedAttributes.addAll(getInitialUtilizedAttributes(xmlSecStartElement, outputStack));
@@ -291,9 +292,12 @@ public abstract class CanonicalizerBase extends TransformIdentity {
                     final String name = xmlSecStartElement.getName().getLocalPart();
                     UtfHelpper.writeByte(name, outputStream, CACHE);
 
-                    if (!utilizedNamespaces.isEmpty()) {
-                        Collections.sort(utilizedNamespaces);
-                        for (final XMLSecNamespace xmlSecNamespace : utilizedNamespaces) {
+                    final int namespaceCount = utilizedNamespaces.size();
+                    if (namespaceCount > 0) {
+                        sortedNamespaces = sort(utilizedNamespaces, sortedNamespaces);
+                        for (int i = 0; i < namespaceCount; i++) {
+                            final XMLSecNamespace xmlSecNamespace = sortedNamespaces[i];
+                            sortedNamespaces[i] = null;
                             if (!namespaceIsAbsolute(xmlSecNamespace.getNamespaceURI())) {
                                 throw new XMLStreamException("namespace is relative encountered: " + xmlSecNamespace.getNamespaceURI());
                             }
@@ -306,9 +310,12 @@ public abstract class CanonicalizerBase extends TransformIdentity {
                         }
                     }
 
-                    if (!utilizedAttributes.isEmpty()) {
-                        Collections.sort(utilizedAttributes);
-                        for (final XMLSecAttribute xmlSecAttribute : utilizedAttributes) {
+                    final int attributeCount = utilizedAttributes.size();
+                    if (attributeCount > 0) {
+                        sortedAttributes = sort(utilizedAttributes, sortedAttributes);
+                        for (int i = 0; i < attributeCount; i++) {
+                            final XMLSecAttribute xmlSecAttribute = sortedAttributes[i];
+                            sortedAttributes[i] = null;
                             final QName attributeName = xmlSecAttribute.getName();
                             final String attributeNamePrefix = attributeName.getPrefix();
                             if (attributeNamePrefix != null && !attributeNamePrefix.isEmpty()) {
@@ -643,6 +650,37 @@ public abstract class CanonicalizerBase extends TransformIdentity {
         }
     }
 
+    /**
+     * Copies the list into the reusable array, growing it if needed, and sorts it.
+     * Elements usually have only a few namespaces and attributes, which are insertion
+     * sorted without allocating anything.
+     *
+     * @return the array holding the sorted elements of the list
+     */
+    static <T extends Comparable<? super T>> T[] sort(final List<? extends T> list, T[] sorted) {
+        final int size = list.size();
+        if (size > sorted.length) {
+            sorted = Arrays.copyOf(sorted, Math.max(size, sorted.length << 1));
+        }
+        if (size > MAX_INSERTION_SORT) {
+            for (int i = 0; i < size; i++) {
+                sorted[i] = list.get(i);
+            }
+            Arrays.sort(sorted, 0, size);
+            return sorted;
+        }
+        for (int i = 0; i < size; i++) {
+            final T element = list.get(i);
+            int j = i;
+            while (j > 0 && sorted[j - 1].compareTo(element) > 0) {
+                j--;
+            }
+            System.arraycopy(sorted, j, sorted, j + 1, i - j);
+            sorted[j] = element;
+        }
+        return sorted;
+    }
+
     private boolean namespaceIsAbsolute(final String namespaceValue) {
         // assume empty namespaces are absolute
         if (namespaceValue.isEmpty()) {
@@ -652,38 +690,75 @@ public abstract class CanonicalizerBase extends TransformIdentity {
     }
 
 
-    public static class C14NStack<E> extends ArrayDeque<List<Comparable>> {
+    /**
+     * The namespace declarations and xml attributes in scope, keyed by their prefix
+     * respectively local name. Every add records the replaced binding, so that a pop
+     * restores the bindings of the enclosing level in O(number of adds on the level).
+     *
+     * @param <E> not used any more, kept for the signatures of the protected methods of
+     *            CanonicalizerBase which subclasses override
+     */
+    public static class C14NStack<E> {
+
+        private final Map<Object, Object> bindings = new HashMap<>();
+
+        private Object[] undoKeys = new Object[16];
+        private Object[] undoValues = new Object[16];
+        private int undoSize;
+
+        private int[] levels = new int[16];
+        private int levelSize;
 
+        /**
+         * @return the innermost binding equal to the given object, or null
+         */
         public Object containsOnStack(final Object o) {
-            //Important: iteration order from head to tail!
-            final Iterator<List<Comparable>> elementIterator = super.iterator();
-            while (elementIterator.hasNext()) {
-                final List list = elementIterator.next();
-                if (list.isEmpty()) {
-                    continue;
-                }
-                final int idx = list.lastIndexOf(o);
-                if (idx != -1) {
-                    return list.get(idx);
-                }
+            return bindings.get(o);
+        }
+
+        /**
+         * Binds the object on the current level.
+         */
+        public void add(final Object o) {
+            if (levelSize == 0) {
+                throw new IllegalStateException("No level pushed");
+            }
+            if (undoSize == undoKeys.length) {
+                undoKeys = Arrays.copyOf(undoKeys, undoSize << 1);
+                undoValues = Arrays.copyOf(undoValues, undoSize << 1);
+            }
+            undoKeys[undoSize] = o;
+            undoValues[undoSize] = bindings.put(o, o);
+            undoSize++;
+        }
+
+        public void push() {
+            if (levelSize == levels.length) {
+                levels = Arrays.copyOf(levels, levelSize << 1);
             }
-            return null;
+            levels[levelSize++] = undoSize;
         }
 
-        @Override
-        public List<Comparable> peek() {
-            List<Comparable> list = super.peekFirst();
-            if (list == Collections.<Comparable>emptyList()) {
-                super.removeFirst();
-                list = new ArrayList<>();
-                super.addFirst(list);
+        public void pop() {
+            if (levelSize == 0) {
+                throw new NoSuchElementException();
+            }
+            int mark = levels[--levelSize];
+            while (undoSize > mark) {
+                undoSize--;
+                Object previous = undoValues[undoSize];
+                if (previous == null) {
+                    bindings.remove(undoKeys[undoSize]);
+                } else {
+                    bindings.put(previous, previous);
+                }
+                undoKeys[undoSize] = null;
+                undoValues[undoSize] = null;
             }
-            return list;
         }
 
-        @Override
-        public List<Comparable> peekFirst() {
-            throw new UnsupportedOperationException("Use peek()");
+        public int size() {
+            return levelSize;
         }
     }
 }
@@ -18,11 +18,15 @@
  */
 package org.apache.xml.security.stax.impl.util;
 
+import java.io.IOException;
 import java.io.OutputStream;
 import java.lang.System.Logger;
 import java.lang.System.Logger.Level;
+import java.nio.file.Path;
 import java.security.MessageDigest;
 
+import org.apache.xml.security.utils.JavaUtils;
+
 /**
  * A Streaming based message-digest implementation
  *
@@ -64,6 +68,17 @@ public class DigestOutputStream extends OutputStream {
         }
     }
 
+    /**
+     * Digests the content of the given file, bypassing the OutputStream methods.
+     * The content is not captured for debug logging.
+     *
+     * @param file the file to digest
+     * @throws IOException if the file cannot be read
+     */
+    public void write(Path file) throws IOException {
+        JavaUtils.updateDigest(messageDigest, file);
+    }
+
     public byte[] getDigestValue() {
         if (isDebugEnabled) {
             LOG.log(Level.DEBUG, "Pre Digest: ");
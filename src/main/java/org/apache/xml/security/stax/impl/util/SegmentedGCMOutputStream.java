@@ -0,0 +1,169 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.stax.impl.util;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+
+/**
+ * Encrypts or decrypts AES-GCM in independently authenticated segments, so that neither
+ * side has to hold more than one segment in memory.
+ *
+ * The CipherValue of a segmented EncryptedData is the 12 byte base nonce followed by the
+ * encrypted segments. Every segment but the last one holds exactly segmentSize plaintext
+ * octets, the last one holds the rest (1 to segmentSize octets, or none if the plaintext is
+ * empty). A segment is the GCM ciphertext followed by the 16 byte tag. The nonce of segment
+ * i is the base nonce with i (as a 32 bit big-endian integer) XORed into its last four
+ * octets. The additional authenticated data of a segment is a single octet: 1 for the last
+ * segment, 0 for all others. So segments can't be reordered, and a truncated CipherValue
+ * fails to decrypt.
+ *
+ * When decrypting, the plaintext of a segment is written out as soon as the segment is
+ * authenticated, i.e. before the following segments are verified.
+ */
+public class SegmentedGCMOutputStream extends FilterOutputStream {
+
+    public static final int NONCE_LENGTH = 12;
+    public static final int TAG_LENGTH = 16;
+
+    /**
+     * The largest allowed segment size, which bounds the memory an attacker-chosen segment
+     * size can make the decrypting side allocate.
+     */
+    public static final int MAX_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    private static final byte[] NOT_FINAL = {0};
+    private static final byte[] FINAL = {1};
+
+    private final Cipher cipher;
+    private final int opmode;
+    private final Key key;
+    private final byte[] nonce = new byte[NONCE_LENGTH];
+    private int nonceLength;
+    private final byte[] buffer;
+    private int bufferLength;
+    private int segmentIndex;
+    private boolean closed;
+
+    /**
+     * @param out the stream to write the encrypted or decrypted octets to
+     * @param cipher an AES/GCM/NoPadding Cipher
+     * @param opmode Cipher.ENCRYPT_MODE or Cipher.DECRYPT_MODE
+     * @param key the content encryption key
+     * @param nonce the base nonce when encrypting, which the caller writes out itself, or null
+     * to read it from the first octets of the stream when decrypting
+     * @param segmentSize the number of plaintext octets per segment
+     */
+    public SegmentedGCMOutputStream(OutputStream out, Cipher cipher, int opmode, Key key,
+                                    byte[] nonce, int segmentSize) {
+        super(out);
+        if (segmentSize <= 0 || segmentSize > MAX_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("Invalid segment size " + segmentSize);
+        }
+        if (opmode != Cipher.ENCRYPT_MODE && opmode != Cipher.DECRYPT_MODE) {
+            throw new IllegalArgumentException("Invalid mode " + opmode);
+        }
+        this.cipher = cipher;
+        this.opmode = opmode;
+        this.key = key;
+        if (nonce != null) {
+            if (nonce.length != NONCE_LENGTH) {
+                throw new IllegalArgumentException("The nonce must be " + NONCE_LENGTH + " octets long");
+            }
+            System.arraycopy(nonce, 0, this.nonce, 0, NONCE_LENGTH);
+            nonceLength = NONCE_LENGTH;
+        }
+        this.buffer = new byte[opmode == Cipher.ENCRYPT_MODE ? segmentSize : segmentSize + TAG_LENGTH];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        while (len > 0 && nonceLength < NONCE_LENGTH) {
+            nonce[nonceLength++] = b[off++];
+            len--;
+        }
+        while (len > 0) {
+            if (bufferLength == buffer.length) {
+                // More octets follow, so the buffered segment is not the last one
+                processSegment(false);
+            }
+            int count = Math.min(len, buffer.length - bufferLength);
+            System.arraycopy(b, off, buffer, bufferLength, count);
+            bufferLength += count;
+            off += count;
+            len -= count;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (nonceLength < NONCE_LENGTH) {
+                throw new IOException("The segmented CipherValue is too short");
+            }
+            processSegment(true);
+            out.flush();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void processSegment(boolean last) throws IOException {
+        if (segmentIndex < 0) {
+            throw new IOException("Too many segments");
+        }
+        try {
+            cipher.init(opmode, key, new GCMParameterSpec(TAG_LENGTH * 8, segmentNonce(segmentIndex)));
+            cipher.updateAAD(last ? FINAL : NOT_FINAL);
+            byte[] result = cipher.doFinal(buffer, 0, bufferLength);
+            out.write(result);
+        } catch (GeneralSecurityException e) {
+            throw new IOException(e);
+        }
+        bufferLength = 0;
+        segmentIndex++;
+    }
+
+    private byte[] segmentNonce(int index) {
+        byte[] segmentNonce = nonce.clone();
+        segmentNonce[NONCE_LENGTH - 4] ^= (byte) (index >>> 24);
+        segmentNonce[NONCE_LENGTH - 3] ^= (byte) (index >>> 16);
+        segmentNonce[NONCE_LENGTH - 2] ^= (byte) (index >>> 8);
+        segmentNonce[NONCE_LENGTH - 1] ^= (byte) index;
+        return segmentNonce;
+    }
+}
@@ -0,0 +1,539 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.stax.impl.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractCollection;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamConstants;
+
+import org.apache.xml.security.stax.ext.stax.XMLSecAttribute;
+import org.apache.xml.security.stax.ext.stax.XMLSecCharacters;
+import org.apache.xml.security.stax.ext.stax.XMLSecComment;
+import org.apache.xml.security.stax.ext.stax.XMLSecDTD;
+import org.apache.xml.security.stax.ext.stax.XMLSecEvent;
+import org.apache.xml.security.stax.ext.stax.XMLSecEventFactory;
+import org.apache.xml.security.stax.ext.stax.XMLSecNamespace;
+import org.apache.xml.security.stax.ext.stax.XMLSecProcessingInstruction;
+import org.apache.xml.security.stax.ext.stax.XMLSecStartDocument;
+import org.apache.xml.security.stax.ext.stax.XMLSecStartElement;
+import org.apache.xml.security.stax.impl.stax.XMLSecCharactersImpl;
+import org.apache.xml.security.stax.impl.stax.XMLSecCommentImpl;
+import org.apache.xml.security.stax.impl.stax.XMLSecDTDImpl;
+import org.apache.xml.security.stax.impl.stax.XMLSecEndDocumentImpl;
+import org.apache.xml.security.stax.impl.stax.XMLSecEndElementImpl;
+import org.apache.xml.security.stax.impl.stax.XMLSecProcessingInstructionImpl;
+import org.apache.xml.security.stax.impl.stax.XMLSecStartDocumentImpl;
+import org.apache.xml.security.stax.impl.stax.XMLSecStartElementImpl;
+import org.apache.xml.security.utils.UnsyncByteArrayInputStream;
+import org.apache.xml.security.utils.UnsyncByteArrayOutputStream;
+
+/**
+ * A FIFO buffer of XMLSecEvents which holds the events in serialized form instead of as
+ * object graphs. The serialized events are kept in memory up to the given number of octets,
+ * everything beyond is written to a temporary file.
+ *
+ * Events are appended at the tail and taken from the head, and events taken from the head can
+ * be pushed back. These are the operations of the buffering output processors, and they keep
+ * the events serialized. All other operations of the Deque, i.e. appending after the first
+ * event was taken, the operations at the tail other than appending, removing a given event
+ * and iteration, first read all remaining events back into memory, after which the buffer
+ * behaves like an ArrayDeque.
+ *
+ * The events are replayed without their parent XMLSecStartElement. The OutputProcessorChain
+ * sets it again when the events are processed. Events of other classes than the ones of the
+ * org.apache.xml.security.stax.impl.stax package are kept as they are.
+ *
+ * The temporary file holds the buffered part of the document unencrypted. It is deleted when
+ * the buffer is closed.
+ */
+public class SpillingXMLSecEventDeque extends AbstractCollection<XMLSecEvent>
+        implements Deque<XMLSecEvent>, Closeable {
+
+    private static final Logger LOG = System.getLogger(SpillingXMLSecEventDeque.class.getName());
+
+    private static final Set<Class<?>> SERIALIZABLE_CLASSES = Set.of(
+        XMLSecStartElementImpl.class, XMLSecEndElementImpl.class, XMLSecCharactersImpl.class,
+        XMLSecCommentImpl.class, XMLSecProcessingInstructionImpl.class, XMLSecStartDocumentImpl.class,
+        XMLSecEndDocumentImpl.class, XMLSecDTDImpl.class);
+
+    private static final int KEPT_EVENT = -1;
+
+    private final int memoryLimit;
+    private final Path tempDirectory;
+
+    private UnsyncByteArrayOutputStream memory = new UnsyncByteArrayOutputStream();
+    private DataOutputStream out = new DataOutputStream(memory);
+    private DataInputStream in;
+    private Path tempFile;
+    private final List<XMLSecEvent> keptEvents = new ArrayList<>();
+    private int keptEventIndex;
+    private final ArrayDeque<XMLSecEvent> head = new ArrayDeque<>();
+    private int serializedEvents;
+    private boolean materialized;
+
+    /**
+     * @param memoryLimit the number of octets to hold in memory before writing to a temporary file
+     * @param tempDirectory the directory for the temporary file, or null for the default one
+     */
+    public SpillingXMLSecEventDeque(int memoryLimit, Path tempDirectory) {
+        if (memoryLimit < 0) {
+            throw new IllegalArgumentException("Invalid memory limit " + memoryLimit);
+        }
+        this.memoryLimit = memoryLimit;
+        this.tempDirectory = tempDirectory;
+    }
+
+    /**
+     * @return true if the buffer has overflowed to a temporary file
+     */
+    public boolean isSpilled() {
+        return tempFile != null;
+    }
+
+    /**
+     * Reads all remaining serialized events into memory, for the operations which can't be
+     * done on the serialized events. All events are held in the head from then on.
+     */
+    private ArrayDeque<XMLSecEvent> materialize() {
+        if (!materialized) {
+            try {
+                while (serializedEvents > 0) {
+                    head.addLast(readEvent());
+                    serializedEvents--;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            keptEvents.clear();
+            close();
+            materialized = true;
+        }
+        return head;
+    }
+
+    @Override
+    public boolean offerLast(XMLSecEvent xmlSecEvent) {
+        if (xmlSecEvent == null) {
+            throw new NullPointerException("xmlSecEvent cannot be null");
+        }
+        if (out == null) {
+            // the buffer is read already
+            return materialize().offerLast(xmlSecEvent);
+        }
+        try {
+            writeEvent(xmlSecEvent);
+            serializedEvents++;
+            if (memory != null && out.size() > memoryLimit) {
+                spill();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return true;
+    }
+
+    @Override
+    public void addLast(XMLSecEvent xmlSecEvent) {
+        offerLast(xmlSecEvent);
+    }
+
+    @Override
+    public boolean offer(XMLSecEvent xmlSecEvent) {
+        return offerLast(xmlSecEvent);
+    }
+
+    @Override
+    public boolean add(XMLSecEvent xmlSecEvent) {
+        return offerLast(xmlSecEvent);
+    }
+
+    @Override
+    public boolean offerFirst(XMLSecEvent xmlSecEvent) {
+        if (xmlSecEvent == null) {
+            throw new NullPointerException("xmlSecEvent cannot be null");
+        }
+        head.addFirst(xmlSecEvent);
+        return true;
+    }
+
+    @Override
+    public void addFirst(XMLSecEvent xmlSecEvent) {
+        offerFirst(xmlSecEvent);
+    }
+
+    @Override
+    public void push(XMLSecEvent xmlSecEvent) {
+        offerFirst(xmlSecEvent);
+    }
+
+    @Override
+    public XMLSecEvent peekFirst() {
+        if (head.isEmpty() && serializedEvents > 0) {
+            try {
+                head.addLast(readEvent());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            serializedEvents--;
+        }
+        return head.peekFirst();
+    }
+
+    @Override
+    public XMLSecEvent peek() {
+        return peekFirst();
+    }
+
+    @Override
+    public XMLSecEvent getFirst() {
+        XMLSecEvent xmlSecEvent = peekFirst();
+        if (xmlSecEvent == null) {
+            throw new NoSuchElementException();
+        }
+        return xmlSecEvent;
+    }
+
+    @Override
+    public XMLSecEvent element() {
+        return getFirst();
+    }
+
+    @Override
+    public XMLSecEvent pollFirst() {
+        peekFirst();
+        return head.pollFirst();
+    }
+
+    @Override
+    public XMLSecEvent poll() {
+        return pollFirst();
+    }
+
+    @Override
+    public XMLSecEvent removeFirst() {
+        XMLSecEvent xmlSecEvent = pollFirst();
+        if (xmlSecEvent == null) {
+            throw new NoSuchElementException();
+        }
+        return xmlSecEvent;
+    }
+
+    @Override
+    public XMLSecEvent remove() {
+        return removeFirst();
+    }
+
+    @Override
+    public XMLSecEvent pop() {
+        return removeFirst();
+    }
+
+    @Override
+    public int size() {
+        return head.size() + serializedEvents;
+    }
+
+    @Override
+    public void clear() {
+        head.clear();
+        keptEvents.clear();
+        serializedEvents = 0;
+        close();
+    }
+
+    @Override
+    public XMLSecEvent pollLast() {
+        return materialize().pollLast();
+    }
+
+    @Override
+    public XMLSecEvent removeLast() {
+        return materialize().removeLast();
+    }
+
+    @Override
+    public XMLSecEvent peekLast() {
+        return materialize().peekLast();
+    }
+
+    @Override
+    public XMLSecEvent getLast() {
+        return materialize().getLast();
+    }
+
+    @Override
+    public boolean removeFirstOccurrence(Object o) {
+        return materialize().removeFirstOccurrence(o);
+    }
+
+    @Override
+    public boolean removeLastOccurrence(Object o) {
+        return materialize().removeLastOccurrence(o);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return materialize().remove(o);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return materialize().contains(o);
+    }
+
+    @Override
+    public Iterator<XMLSecEvent> iterator() {
+        return materialize().iterator();
+    }
+
+    @Override
+    public Iterator<XMLSecEvent> descendingIterator() {
+        return materialize().descendingIterator();
+    }
+
+    /**
+     * Releases the buffered events and deletes the temporary file.
+     */
+    @Override
+    public void close() {
+        closeQuietly(out);
+        out = null;
+        memory = null;
+        closeQuietly(in);
+        in = null;
+        if (tempFile != null) {
+            try {
+                Files.deleteIfExists(tempFile);
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Could not delete the temporary file {0}", tempFile);
+            }
+            tempFile = null;
+        }
+    }
+
+    private void spill() throws IOException {
+        out.flush();
+        if (tempDirectory != null) {
+            tempFile = Files.createTempFile(tempDirectory, "xmlsec-buffer", ".tmp");
+        } else {
+            tempFile = Files.createTempFile("xmlsec-buffer", ".tmp");
+        }
+        LOG.log(Level.DEBUG, "Buffering events in the temporary file {0}", tempFile);
+        OutputStream fileOut = new BufferedOutputStream(Files.newOutputStream(tempFile));  //NOPMD closed by close()
+        memory.writeTo(fileOut);
+        memory = null;
+        out = new DataOutputStream(fileOut);
+    }
+
+    private DataInputStream getInput() throws IOException {
+        if (in == null) {
+            if (out == null) {
+                throw new IOException("The buffer is closed");
+            }
+            out.close();
+            out = null;
+            if (tempFile != null) {
+                in = new DataInputStream(new BufferedInputStream(Files.newInputStream(tempFile)));
+            } else {
+                in = new DataInputStream(new UnsyncByteArrayInputStream(memory.toByteArray()));
+                memory = null;
+            }
+        }
+        return in;
+    }
+
+    private void writeEvent(XMLSecEvent xmlSecEvent) throws IOException {
+        if (!SERIALIZABLE_CLASSES.contains(xmlSecEvent.getClass())) {
+            out.writeByte(KEPT_EVENT);
+            keptEvents.add(xmlSecEvent);
+            return;
+        }
+        int eventType = xmlSecEvent.getEventType();
+        out.writeByte(eventType);
+        switch (eventType) {
+            case XMLStreamConstants.START_ELEMENT:
+                XMLSecStartElement xmlSecStartElement = xmlSecEvent.asStartElement();
+                writeQName(xmlSecStartElement.getName());
+                List<XMLSecNamespace> namespaces = xmlSecStartElement.getOnElementDeclaredNamespaces();
+                out.writeInt(namespaces.size());
+                for (XMLSecNamespace namespace : namespaces) {
+                    writeString(namespace.getPrefix());
+                    writeString(namespace.getNamespaceURI());
+                }
+                List<XMLSecAttribute> attributes = xmlSecStartElement.getOnElementDeclaredAttributes();
+                out.writeInt(attributes.size());
+                for (XMLSecAttribute attribute : attributes) {
+                    writeQName(attribute.getName());
+                    writeString(attribute.getValue());
+                }
+                break;
+            case XMLStreamConstants.END_ELEMENT:
+                writeQName(xmlSecEvent.asEndElement().getName());
+                break;
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.CDATA:
+            case XMLStreamConstants.SPACE:
+                XMLSecCharacters xmlSecCharacters = xmlSecEvent.asCharacters();
+                out.writeBoolean(xmlSecCharacters.isCData());
+                out.writeBoolean(xmlSecCharacters.isIgnorableWhiteSpace());
+                out.writeBoolean(xmlSecCharacters.isWhiteSpace());
+                writeString(xmlSecCharacters.getData());
+                break;
+            case XMLStreamConstants.COMMENT:
+                writeString(((XMLSecComment) xmlSecEvent).getText());
+                break;
+            case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                XMLSecProcessingInstruction processingInstruction = (XMLSecProcessingInstruction) xmlSecEvent;
+                writeString(processingInstruction.getTarget());
+                writeString(processingInstruction.getData());
+                break;
+            case XMLStreamConstants.START_DOCUMENT:
+                XMLSecStartDocument startDocument = (XMLSecStartDocument) xmlSecEvent;
+                writeString(startDocument.getSystemId());
+                writeString(startDocument.encodingSet() ? startDocument.getCharacterEncodingScheme() : null);
+                out.writeByte(startDocument.standaloneSet() ? startDocument.isStandalone() ? 1 : 0 : -1);
+                writeString(startDocument.getVersion());
+                break;
+            case XMLStreamConstants.END_DOCUMENT:
+                break;
+            case XMLStreamConstants.DTD:
+                writeString(((XMLSecDTD) xmlSecEvent).getDocumentTypeDeclaration());
+                break;
+            default:
+                throw new IOException("Unexpected event type " + eventType);
+        }
+    }
+
+    private XMLSecEvent readEvent() throws IOException {
+        DataInputStream input = getInput();  //NOPMD closed by close()
+        int eventType = input.readByte();
+        switch (eventType) {
+            case KEPT_EVENT:
+                return keptEvents.set(keptEventIndex++, null);
+            case XMLStreamConstants.START_ELEMENT:
+                QName name = readQName();
+                List<XMLSecNamespace> namespaces = Collections.emptyList();
+                int namespaceCount = input.readInt();
+                if (namespaceCount > 0) {
+                    namespaces = new ArrayList<>(namespaceCount);
+                    for (int i = 0; i < namespaceCount; i++) {
+                        namespaces.add(XMLSecEventFactory.createXMLSecNamespace(readString(), readString()));
+                    }
+                }
+                List<XMLSecAttribute> attributes = Collections.emptyList();
+                int attributeCount = input.readInt();
+                if (attributeCount > 0) {
+                    attributes = new ArrayList<>(attributeCount);
+                    for (int i = 0; i < attributeCount; i++) {
+                        attributes.add(XMLSecEventFactory.createXMLSecAttribute(readQName(), readString()));
+                    }
+                }
+                return new XMLSecStartElementImpl(name, attributes, namespaces, null);
+            case XMLStreamConstants.END_ELEMENT:
+                return new XMLSecEndElementImpl(readQName(), null);
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.CDATA:
+            case XMLStreamConstants.SPACE:
+                boolean isCData = input.readBoolean();
+                boolean isIgnorableWhiteSpace = input.readBoolean();
+                boolean isWhiteSpace = input.readBoolean();
+                return new XMLSecCharactersImpl(readString(), isCData, isIgnorableWhiteSpace, isWhiteSpace, null);
+            case XMLStreamConstants.COMMENT:
+                return new XMLSecCommentImpl(readString(), null);
+            case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                return new XMLSecProcessingInstructionImpl(readString(), readString(), null);
+            case XMLStreamConstants.START_DOCUMENT:
+                String systemId = readString();
+                String characterEncodingScheme = readString();
+                int standalone = input.readByte();
+                return new XMLSecStartDocumentImpl(systemId, characterEncodingScheme,
+                    standalone < 0 ? null : standalone == 1, readString());
+            case XMLStreamConstants.END_DOCUMENT:
+                return new XMLSecEndDocumentImpl();
+            case XMLStreamConstants.DTD:
+                return new XMLSecDTDImpl(readString(), null);
+            default:
+                throw new IOException("Unexpected event type " + eventType);
+        }
+    }
+
+    private void writeQName(QName name) throws IOException {
+        writeString(name.getNamespaceURI());
+        writeString(name.getLocalPart());
+        writeString(name.getPrefix());
+    }
+
+    private QName readQName() throws IOException {
+        String namespaceURI = readString();
+        String localPart = readString();
+        return new QName(namespaceURI, localPart, readString());
+    }
+
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private String readString() throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                LOG.log(Level.DEBUG, "Error closing the event buffer", e);
+            }
+        }
+    }
+}
@@ -18,6 +18,9 @@
  */
 package org.apache.xml.security.stax.securityEvent;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.apache.xml.security.stax.ext.ComparableType;
 
 /**
@@ -36,8 +39,25 @@ public class SecurityEventConstants {
     public static final Event EncryptedKeyToken = new Event("EncryptedKeyToken");
 
     public static class Event extends ComparableType<Event> {
+
+        private static final Map<String, Integer> INDEXES = new HashMap<>();
+
+        private final int index;
+
         public Event(String name) {
             super(name);
+            this.index = getIndex(name);
+        }
+
+        /**
+         * @return the bit of this event type in a {@link SecurityEventMask}, equal for equal event types
+         */
+        int getIndex() {
+            return index;
+        }
+
+        private static synchronized int getIndex(String name) {
+            return INDEXES.computeIfAbsent(name, k -> INDEXES.size());
         }
     }
 }
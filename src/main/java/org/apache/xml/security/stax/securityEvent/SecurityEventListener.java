@@ -32,4 +32,15 @@ public interface SecurityEventListener {
      * @throws XMLSecurityException when the event will not be accepted (e.g. policy-violation)
      */
     void registerSecurityEvent(SecurityEvent securityEvent) throws XMLSecurityException;
+
+    /**
+     * Returns the types of the SecurityEvents this listener wants to receive. SecurityEvents of
+     * other types may be skipped by the processors, but they may still be forwarded if another
+     * listener wants them. The mask is read once, when the listener is registered.
+     *
+     * @return the requested SecurityEvent types, by default all of them
+     */
+    default SecurityEventMask getRequestedSecurityEvents() {
+        return SecurityEventMask.ALL;
+    }
 }
@@ -0,0 +1,91 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.stax.securityEvent;
+
+import java.util.Arrays;
+
+import org.apache.xml.security.stax.securityEvent.SecurityEventConstants.Event;
+
+/**
+ * An immutable set of SecurityEvent types, which a {@link SecurityEventListener} uses to tell
+ * which SecurityEvents it wants to receive. The processors test the types with one bit operation,
+ * so they don't build the SecurityEvents nobody listens to.
+ */
+public final class SecurityEventMask {
+
+    /** Every SecurityEvent type, including the ones which are defined later */
+    public static final SecurityEventMask ALL = new SecurityEventMask(true, new long[0]);
+
+    /** No SecurityEvent type */
+    public static final SecurityEventMask NONE = new SecurityEventMask(false, new long[0]);
+
+    private final boolean all;
+    private final long[] bits;
+
+    private SecurityEventMask(boolean all, long[] bits) {
+        this.all = all;
+        this.bits = bits;
+    }
+
+    /**
+     * @param securityEventTypes the SecurityEvent types
+     * @return the mask of the given SecurityEvent types
+     */
+    public static SecurityEventMask of(Event... securityEventTypes) {
+        long[] bits = new long[0];
+        for (Event securityEventType : securityEventTypes) {
+            int index = securityEventType.getIndex();
+            if (index >> 6 >= bits.length) {
+                bits = Arrays.copyOf(bits, (index >> 6) + 1);
+            }
+            bits[index >> 6] |= 1L << index;
+        }
+        return new SecurityEventMask(false, bits);
+    }
+
+    /**
+     * @param securityEventType the SecurityEvent type
+     * @return whether the SecurityEvent type is in this mask
+     */
+    public boolean contains(Event securityEventType) {
+        if (all) {
+            return true;
+        }
+        int index = securityEventType.getIndex();
+        return index >> 6 < bits.length && (bits[index >> 6] & 1L << index) != 0;
+    }
+
+    /**
+     * @param other another mask
+     * @return the mask of the SecurityEvent types which are in this mask or the other
+     */
+    public SecurityEventMask union(SecurityEventMask other) {
+        if (all || other.bits.length == 0 && !other.all) {
+            return this;
+        }
+        if (other.all || bits.length == 0) {
+            return other;
+        }
+        long[] union = Arrays.copyOf(bits, Math.max(bits.length, other.bits.length));
+        for (int i = 0; i < other.bits.length; i++) {
+            union[i] |= other.bits[i];
+        }
+        return new SecurityEventMask(false, union);
+    }
+}
@@ -26,6 +26,7 @@ import java.lang.System.Logger.Level;
 import org.apache.xml.security.c14n.CanonicalizationException;
 import org.apache.xml.security.c14n.Canonicalizer;
 import org.apache.xml.security.c14n.InvalidCanonicalizerException;
+import org.apache.xml.security.c14n.implementations.CanonicalizerBase;
 import org.apache.xml.security.exceptions.XMLSecurityException;
 import org.apache.xml.security.signature.XMLSignatureException;
 import org.apache.xml.security.signature.XMLSignatureInput;
@@ -255,14 +256,22 @@ public class Transforms extends SignatureElementProxy {
     ) throws TransformationException {
         try {
             int last = this.getLength() - 1;
+            Transform t = last >= 0 ? this.item(0) : null;
             for (int i = 0; i < last; i++) {
-                Transform t = this.item(i);
+                Transform next = this.item(i + 1);
                 LOG.log(Level.DEBUG, "Perform the ({0})th {1} transform", i, t.getURI());
                 checkSecureValidation(t);
+                if (CanonicalizerBase.isStreamOctetsByDefault() && xmlSignatureInput.hasUnprocessedInput()
+                    && TRANSFORM_ENVELOPED_SIGNATURE.equals(t.getURI()) && isCanonicalization(next.getURI())) {
+                    // The canonicalization can stream the octets as the node-set of the parsed document
+                    // itself, so the enveloped signature transform doesn't need to parse them. Without
+                    // streaming, the octets are parsed into a node-set as before.
+                    xmlSignatureInput.setOctetNodeSet(true);
+                }
                 xmlSignatureInput = t.performTransform(xmlSignatureInput, secureValidation);
+                t = next;
             }
             if (last >= 0) {
-                Transform t = this.item(last);
                 LOG.log(Level.DEBUG, "Perform the ({0})th {1} transform", last, t.getURI());
                 checkSecureValidation(t);
                 xmlSignatureInput = t.performTransform(xmlSignatureInput, os, secureValidation);
@@ -274,6 +283,12 @@ public class Transforms extends SignatureElementProxy {
         }
     }
 
+    private static boolean isCanonicalization(String uri) {
+        return TRANSFORM_C14N_OMIT_COMMENTS.equals(uri) || TRANSFORM_C14N_WITH_COMMENTS.equals(uri)
+            || TRANSFORM_C14N11_OMIT_COMMENTS.equals(uri) || TRANSFORM_C14N11_WITH_COMMENTS.equals(uri)
+            || TRANSFORM_C14N_EXCL_OMIT_COMMENTS.equals(uri) || TRANSFORM_C14N_EXCL_WITH_COMMENTS.equals(uri);
+    }
+
     private void checkSecureValidation(Transform transform) throws TransformationException {
         String uri = transform.getURI();
         if (secureValidation && Transforms.TRANSFORM_XSLT.equals(uri)) {
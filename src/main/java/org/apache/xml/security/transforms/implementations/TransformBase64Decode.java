@@ -19,7 +19,9 @@
 package org.apache.xml.security.transforms.implementations;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Base64;
 
 import org.apache.xml.security.c14n.CanonicalizationException;
 import org.apache.xml.security.signature.XMLSignatureByteInput;
@@ -94,6 +96,15 @@ public class TransformBase64Decode extends TransformSpi {
             output.setSecureValidation(secureValidation);
             output.setOutputStream(os);
             return output;
+        } else if (input.hasUnprocessedInput() && os != null) {
+            // Decode the octets while they are read, instead of buffering them
+            try (InputStream decodedStream = Base64.getMimeDecoder().wrap(input.getUnprocessedInput())) {
+                decodedStream.transferTo(os);
+            }
+            XMLSignatureInput output = new XMLSignatureByteInput(null);
+            output.setSecureValidation(secureValidation);
+            output.setOutputStream(os);
+            return output;
         } else if (input.hasUnprocessedInput() || input.isNodeSet()) {
             if (os == null) {
                 byte[] base64Bytes = input.getBytes();
@@ -23,6 +23,7 @@ import java.io.IOException;
 import java.io.OutputStream;
 
 import org.apache.xml.security.c14n.CanonicalizationException;
+import org.apache.xml.security.c14n.Canonicalizer;
 import org.apache.xml.security.c14n.implementations.Canonicalizer20010315;
 import org.apache.xml.security.c14n.implementations.Canonicalizer20010315OmitComments;
 import org.apache.xml.security.signature.XMLSignatureByteInput;
@@ -56,19 +57,22 @@ public class TransformC14N extends TransformSpi {
     ) throws CanonicalizationException {
 
         Canonicalizer20010315 c14n = getCanonicalizer();
-
-        if (os == null && (input.hasUnprocessedInput() || input.isElement() || input.isNodeSet())) {
-            try (ByteArrayOutputStream writer = new ByteArrayOutputStream()) {
-                c14n.engineCanonicalize(input, writer, secureValidation);
-                writer.flush();
-                XMLSignatureInput output = new XMLSignatureByteInput(writer.toByteArray());
-                output.setSecureValidation(secureValidation);
-                return output;
-            } catch (IOException ex) {
-                throw new CanonicalizationException("empty", new Object[] {ex.getMessage()});
+        try {
+            if (os == null && (input.hasUnprocessedInput() || input.isElement() || input.isNodeSet())) {
+                try (ByteArrayOutputStream writer = new ByteArrayOutputStream()) {
+                    c14n.engineCanonicalize(input, writer, secureValidation);
+                    writer.flush();
+                    XMLSignatureInput output = new XMLSignatureByteInput(writer.toByteArray());
+                    output.setSecureValidation(secureValidation);
+                    return output;
+                } catch (IOException ex) {
+                    throw new CanonicalizationException("empty", new Object[] {ex.getMessage()});
+                }
             }
+            c14n.engineCanonicalize(input, os, secureValidation);
+        } finally {
+            Canonicalizer.releaseEngine(c14n);
         }
-        c14n.engineCanonicalize(input, os, secureValidation);
         XMLSignatureInput output = new XMLSignatureByteInput(null);
         output.setSecureValidation(secureValidation);
         output.setOutputStream(os);
@@ -76,6 +80,6 @@ public class TransformC14N extends TransformSpi {
     }
 
     protected Canonicalizer20010315 getCanonicalizer() {
-        return new Canonicalizer20010315OmitComments();
+        return Canonicalizer.acquireEngine(Canonicalizer.ALGO_ID_C14N_OMIT_COMMENTS, Canonicalizer20010315OmitComments.class, Canonicalizer20010315OmitComments::new);
     }
 }
@@ -18,6 +18,7 @@
  */
 package org.apache.xml.security.transforms.implementations;
 
+import org.apache.xml.security.c14n.Canonicalizer;
 import org.apache.xml.security.c14n.implementations.Canonicalizer11_OmitComments;
 import org.apache.xml.security.c14n.implementations.Canonicalizer20010315;
 import org.apache.xml.security.transforms.Transforms;
@@ -41,7 +42,7 @@ public class TransformC14N11 extends TransformC14N {
      */
     @Override
     protected Canonicalizer20010315 getCanonicalizer() {
-        return new Canonicalizer11_OmitComments();
+        return Canonicalizer.acquireEngine(Canonicalizer.ALGO_ID_C14N11_OMIT_COMMENTS, Canonicalizer11_OmitComments.class, Canonicalizer11_OmitComments::new);
     }
 
 }
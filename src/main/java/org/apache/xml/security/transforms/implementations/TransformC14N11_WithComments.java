@@ -18,6 +18,7 @@
  */
 package org.apache.xml.security.transforms.implementations;
 
+import org.apache.xml.security.c14n.Canonicalizer;
 import org.apache.xml.security.c14n.implementations.Canonicalizer11_WithComments;
 import org.apache.xml.security.c14n.implementations.Canonicalizer20010315;
 import org.apache.xml.security.transforms.Transforms;
@@ -42,6 +43,6 @@ public class TransformC14N11_WithComments extends TransformC14N {
      */
     @Override
     protected Canonicalizer20010315 getCanonicalizer() {
-        return new Canonicalizer11_WithComments();
+        return Canonicalizer.acquireEngine(Canonicalizer.ALGO_ID_C14N11_WITH_COMMENTS, Canonicalizer11_WithComments.class, Canonicalizer11_WithComments::new);
     }
 }
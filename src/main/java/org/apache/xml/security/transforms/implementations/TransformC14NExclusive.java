@@ -23,6 +23,7 @@ import java.io.IOException;
 import java.io.OutputStream;
 
 import org.apache.xml.security.c14n.CanonicalizationException;
+import org.apache.xml.security.c14n.Canonicalizer;
 import org.apache.xml.security.c14n.implementations.Canonicalizer20010315Excl;
 import org.apache.xml.security.c14n.implementations.Canonicalizer20010315ExclOmitComments;
 import org.apache.xml.security.exceptions.XMLSecurityException;
@@ -78,19 +79,22 @@ public class TransformC14NExclusive extends TransformSpi {
             }
 
             Canonicalizer20010315Excl c14n = getCanonicalizer();
-
-            if (os == null && (input.hasUnprocessedInput() || input.isElement() || input.isNodeSet())) {
-                try (ByteArrayOutputStream writer = new ByteArrayOutputStream()) {
-                    c14n.engineCanonicalize(input, inclusiveNamespaces, writer, secureValidation);
-                    writer.flush();
-                    XMLSignatureInput output = new XMLSignatureByteInput(writer.toByteArray());
-                    output.setSecureValidation(secureValidation);
-                    return output;
-                } catch (IOException ex) {
-                    throw new CanonicalizationException("empty", new Object[] {ex.getMessage()});
+            try {
+                if (os == null && (input.hasUnprocessedInput() || input.isElement() || input.isNodeSet())) {
+                    try (ByteArrayOutputStream writer = new ByteArrayOutputStream()) {
+                        c14n.engineCanonicalize(input, inclusiveNamespaces, writer, secureValidation);
+                        writer.flush();
+                        XMLSignatureInput output = new XMLSignatureByteInput(writer.toByteArray());
+                        output.setSecureValidation(secureValidation);
+                        return output;
+                    } catch (IOException ex) {
+                        throw new CanonicalizationException("empty", new Object[] {ex.getMessage()});
+                    }
                 }
+                c14n.engineCanonicalize(input, inclusiveNamespaces, os, secureValidation);
+            } finally {
+                Canonicalizer.releaseEngine(c14n);
             }
-            c14n.engineCanonicalize(input, inclusiveNamespaces, os, secureValidation);
             XMLSignatureInput output = new XMLSignatureByteInput((byte[])null);
             output.setSecureValidation(secureValidation);
             output.setOutputStream(os);
@@ -101,7 +105,7 @@ public class TransformC14NExclusive extends TransformSpi {
     }
 
     protected Canonicalizer20010315Excl getCanonicalizer() {
-        return new Canonicalizer20010315ExclOmitComments();
+        return Canonicalizer.acquireEngine(Canonicalizer.ALGO_ID_C14N_EXCL_OMIT_COMMENTS, Canonicalizer20010315ExclOmitComments.class, Canonicalizer20010315ExclOmitComments::new);
     }
 
     /**
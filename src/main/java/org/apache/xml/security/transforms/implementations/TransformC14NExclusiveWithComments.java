@@ -18,6 +18,7 @@
  */
 package org.apache.xml.security.transforms.implementations;
 
+import org.apache.xml.security.c14n.Canonicalizer;
 import org.apache.xml.security.c14n.implementations.Canonicalizer20010315Excl;
 import org.apache.xml.security.c14n.implementations.Canonicalizer20010315ExclWithComments;
 import org.apache.xml.security.transforms.Transforms;
@@ -39,7 +40,7 @@ public class TransformC14NExclusiveWithComments extends TransformC14NExclusive {
 
     @Override
     protected Canonicalizer20010315Excl getCanonicalizer() {
-        return new Canonicalizer20010315ExclWithComments();
+        return Canonicalizer.acquireEngine(Canonicalizer.ALGO_ID_C14N_EXCL_WITH_COMMENTS, Canonicalizer20010315ExclWithComments.class, Canonicalizer20010315ExclWithComments::new);
     }
 
 }
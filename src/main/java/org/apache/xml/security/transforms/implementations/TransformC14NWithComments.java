@@ -18,6 +18,7 @@
  */
 package org.apache.xml.security.transforms.implementations;
 
+import org.apache.xml.security.c14n.Canonicalizer;
 import org.apache.xml.security.c14n.implementations.Canonicalizer20010315;
 import org.apache.xml.security.c14n.implementations.Canonicalizer20010315WithComments;
 import org.apache.xml.security.transforms.Transforms;
@@ -41,7 +42,7 @@ public class TransformC14NWithComments extends TransformC14N {
      */
     @Override
     protected Canonicalizer20010315 getCanonicalizer() {
-        return new Canonicalizer20010315WithComments();
+        return Canonicalizer.acquireEngine(Canonicalizer.ALGO_ID_C14N_WITH_COMMENTS, Canonicalizer20010315WithComments.class, Canonicalizer20010315WithComments::new);
     }
 
 }
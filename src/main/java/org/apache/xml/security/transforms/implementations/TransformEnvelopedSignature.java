@@ -68,6 +68,11 @@ public class TransformEnvelopedSignature extends TransformSpi {
          */
 
         Node signatureElement = searchSignatureElement(transformElement);
+        if (input.hasUnprocessedInput() && input.isOctetNodeSet()) {
+            // The Signature element can't be part of a document parsed from the octets, so there
+            // is nothing to exclude, and the subsequent canonicalization parses them itself
+            return input;
+        }
         input.setExcludeNode(signatureElement);
         try {
             input.addNodeFilter(new EnvelopedNodeFilter(signatureElement));
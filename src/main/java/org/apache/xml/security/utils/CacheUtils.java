@@ -0,0 +1,112 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Helpers shared by the opt-in caches of the library: bounded LRU maps and the hashing of
+ * cache keys. This is not part of the public API.
+ */
+public final class CacheUtils {
+
+    private static final String KEY_DIGEST_ALGORITHM = "SHA-256";
+
+    private CacheUtils() {
+        // we don't allow instantiation
+    }
+
+    /**
+     * Creates a map which evicts its least recently used entry when it grows beyond the
+     * given size. The map is not thread-safe.
+     *
+     * @param maxEntries the maximum number of entries
+     * @return the map
+     */
+    public static <K, V> Map<K, V> newLRUMap(int maxEntries) {
+        return newLRUMap(maxEntries, null);
+    }
+
+    /**
+     * Creates a map which evicts its least recently used entry when it grows beyond the
+     * given size. The map is not thread-safe.
+     *
+     * @param maxEntries the maximum number of entries
+     * @param evictionListener called with the value of every evicted entry, or null
+     * @return the map
+     */
+    public static <K, V> Map<K, V> newLRUMap(int maxEntries, Consumer<? super V> evictionListener) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                if (size() <= maxEntries) {
+                    return false;
+                }
+                if (evictionListener != null) {
+                    evictionListener.accept(eldest.getValue());
+                }
+                return true;
+            }
+        };
+    }
+
+    /**
+     * @return a MessageDigest to hash a cache key with, or null if SHA-256 is not available
+     */
+    public static MessageDigest getKeyDigest() {
+        try {
+            return MessageDigest.getInstance(KEY_DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Adds a field of a cache key to the digest. Every field is length-prefixed so that
+     * different field boundaries can't produce the same input.
+     *
+     * @param md the digest of the cache key
+     * @param data the field
+     */
+    public static void updateKeyDigest(MessageDigest md, byte[] data) {
+        int length = data.length;
+        md.update((byte) (length >>> 24));
+        md.update((byte) (length >>> 16));
+        md.update((byte) (length >>> 8));
+        md.update((byte) length);
+        md.update(data);
+    }
+
+    /**
+     * Adds a field of a cache key to the digest, encoded as UTF-8.
+     *
+     * @param md the digest of the cache key
+     * @param value the field
+     */
+    public static void updateKeyDigest(MessageDigest md, String value) {
+        updateKeyDigest(md, value.getBytes(StandardCharsets.UTF_8));
+    }
+}
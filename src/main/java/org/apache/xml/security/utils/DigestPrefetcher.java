@@ -0,0 +1,178 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.utils;
+
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Calculates the digest values of external resources concurrently, so that the time to
+ * fetch several resources is bounded by the slowest one instead of their sum.
+ *
+ * Every submitted resource is read and digested by a task on the configured Executor, at
+ * most maxConcurrency at the same time. If a task fails, all other tasks are cancelled, and
+ * waiting for any of them throws the exception of the failed task.
+ * The prefetcher must be closed when the digest values are no longer needed, which cancels
+ * all tasks which are not done yet.
+ */
+public final class DigestPrefetcher implements AutoCloseable {
+
+    private static final Logger LOG = System.getLogger(DigestPrefetcher.class.getName());
+
+    /**
+     * Reads a resource into a MessageDigest.
+     */
+    @FunctionalInterface
+    public interface Content {
+
+        /**
+         * @param messageDigest the MessageDigest to update with the content
+         * @throws Exception if the content cannot be read
+         */
+        void digest(MessageDigest messageDigest) throws Exception;
+    }
+
+    private final Executor executor;
+    private final Semaphore permits;
+    private final List<PrefetchTask> tasks = new ArrayList<>();
+    private volatile Throwable failure;
+
+    /**
+     * @param executor the Executor to run the tasks on
+     * @param maxConcurrency the maximum number of resources which are read at the same time
+     */
+    public DigestPrefetcher(Executor executor, int maxConcurrency) {
+        if (executor == null) {
+            throw new NullPointerException("executor cannot be null");
+        }
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency must be positive");
+        }
+        this.executor = executor;
+        this.permits = new Semaphore(maxConcurrency, true);
+    }
+
+    /**
+     * Starts to digest the given content.
+     *
+     * @param messageDigest a MessageDigest which is used by this task only
+     * @param content the content to digest
+     * @return the Future of the digest value
+     */
+    public Future<byte[]> submit(MessageDigest messageDigest, Content content) {
+        PrefetchTask task = new PrefetchTask(messageDigest, content);
+        synchronized (tasks) {
+            tasks.add(task);
+        }
+        executor.execute(task);
+        return task;
+    }
+
+    /**
+     * Waits for a digest value returned by {@link #submit}.
+     *
+     * @param future the Future returned by {@link #submit}
+     * @return the digest value
+     * @throws Exception the exception thrown by the Content, or an ExecutionException if the
+     * task was cancelled or interrupted
+     */
+    public static byte[] get(Future<byte[]> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw ex;
+        } catch (InterruptedException | CancellationException ex) {
+            if (ex instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            throw new ExecutionException("Prefetching the content was not completed", ex);
+        }
+    }
+
+    /**
+     * Cancels all tasks which are not done yet.
+     */
+    @Override
+    public void close() {
+        cancelTasks(null);
+    }
+
+    private void cancelTasks(PrefetchTask failedTask) {
+        List<PrefetchTask> toCancel;
+        synchronized (tasks) {
+            toCancel = new ArrayList<>(tasks);
+        }
+        for (PrefetchTask task : toCancel) {
+            if (task != failedTask) {
+                task.cancel(true);
+            }
+        }
+    }
+
+    private final class PrefetchTask extends FutureTask<byte[]> {
+
+        PrefetchTask(MessageDigest messageDigest, Content content) {
+            super(() -> {
+                permits.acquire();
+                try {
+                    content.digest(messageDigest);
+                    return messageDigest.digest();
+                } finally {
+                    permits.release();
+                }
+            });
+        }
+
+        @Override
+        public byte[] get() throws InterruptedException, ExecutionException {
+            try {
+                return super.get();
+            } catch (CancellationException ex) {
+                Throwable cause = failure;
+                if (cause != null) {
+                    throw new ExecutionException(cause);
+                }
+                throw ex;
+            }
+        }
+
+        @Override
+        protected void setException(Throwable t) {
+            super.setException(t);
+            if (!isCancelled() && failure == null) {
+                failure = t;
+                LOG.log(Level.DEBUG, "Prefetching failed, cancelling the remaining tasks", t);
+                cancelTasks(this);
+            }
+        }
+    }
+}
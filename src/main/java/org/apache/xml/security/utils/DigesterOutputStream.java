@@ -31,6 +31,7 @@ public class DigesterOutputStream extends ByteArrayOutputStream {
     private static final Logger LOG = System.getLogger(DigesterOutputStream.class.getName());
 
     final MessageDigestAlgorithm mda;
+    private long byteCount;
 
     /**
      * @param mda
@@ -49,6 +50,7 @@ public class DigesterOutputStream extends ByteArrayOutputStream {
     @Override
     public synchronized void write(int arg0) {
         mda.update((byte)arg0);
+        byteCount++;
     }
 
     /** {@inheritDoc} */
@@ -63,6 +65,14 @@ public class DigesterOutputStream extends ByteArrayOutputStream {
             LOG.log(Level.DEBUG, sb.toString());
         }
         mda.update(arg0, arg1, arg2);
+        byteCount += arg2;
+    }
+
+    /**
+     * @return the number of bytes digested
+     */
+    public long getByteCount() {
+        return byteCount;
     }
 
     /**
@@ -0,0 +1,179 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.utils;
+
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.xml.security.encryption.XMLEncryptionException;
+
+/**
+ * A pool of pregenerated ephemeral key pairs for key agreement, so that the generation of the
+ * originator key pair is moved off the thread which encrypts for a recipient.
+ *
+ * The pool keeps a separate set of key pairs per key type (the curve for EC keys). When the
+ * number of key pairs of a type falls below the low-water mark, the set is refilled up to the
+ * configured size by a task on the Executor. If no key pair is available, it is generated on
+ * the calling thread. Every key pair is handed out at most once.
+ */
+public final class EphemeralKeyPairPool {
+
+    private static final Logger LOG = System.getLogger(EphemeralKeyPairPool.class.getName());
+
+    private final int size;
+    private final int lowWaterMark;
+    private final Executor executor;
+    private final Map<String, KeyPairs> keyPairs = new ConcurrentHashMap<>();
+
+    /**
+     * @param size the number of key pairs of each key type to keep
+     * @param lowWaterMark the number of key pairs of a key type below which the pool is refilled
+     * @param executor the Executor to generate the key pairs on
+     */
+    public EphemeralKeyPairPool(int size, int lowWaterMark, Executor executor) {
+        if (executor == null) {
+            throw new NullPointerException("executor cannot be null");
+        }
+        if (size <= 0) {
+            throw new IllegalArgumentException("size must be positive");
+        }
+        if (lowWaterMark < 0 || lowWaterMark > size) {
+            throw new IllegalArgumentException("lowWaterMark must be between 0 and size");
+        }
+        this.size = size;
+        this.lowWaterMark = lowWaterMark;
+        this.executor = executor;
+    }
+
+    /**
+     * Starts to fill the pool with key pairs which match the given public key, if it is not
+     * filled already.
+     *
+     * @param recipientPublicKey public key of a recipient
+     * @throws XMLEncryptionException if no key pairs can be generated for the public key
+     */
+    public void prepare(PublicKey recipientPublicKey) throws XMLEncryptionException {
+        getKeyPairs(recipientPublicKey).refillIfNeeded();
+    }
+
+    /**
+     * Returns an ephemeral key pair which matches the type of the given public key.
+     *
+     * @param recipientPublicKey public key of the recipient
+     * @return a key pair which was not returned before
+     * @throws XMLEncryptionException if the key pair cannot be generated
+     */
+    public KeyPair take(PublicKey recipientPublicKey) throws XMLEncryptionException {
+        KeyPairs pairs = getKeyPairs(recipientPublicKey);
+        KeyPair keyPair = pairs.poll();
+        pairs.refillIfNeeded();
+        if (keyPair == null) {
+            LOG.log(Level.DEBUG, "No pregenerated key pair available for {0}", pairs.keyOid);
+            keyPair = KeyUtils.generateEphemeralDHKeyPair(recipientPublicKey, null);
+        }
+        return keyPair;
+    }
+
+    /**
+     * @param recipientPublicKey public key of a recipient
+     * @return the number of pregenerated key pairs which match the given public key
+     * @throws XMLEncryptionException if the public key cannot be decoded
+     */
+    public int available(PublicKey recipientPublicKey) throws XMLEncryptionException {
+        KeyPairs pairs = keyPairs.get(keyId(recipientPublicKey));
+        return pairs == null ? 0 : pairs.count.get();
+    }
+
+    private KeyPairs getKeyPairs(PublicKey recipientPublicKey) throws XMLEncryptionException {
+        String keyId = keyId(recipientPublicKey);
+        KeyPairs pairs = keyPairs.get(keyId);
+        if (pairs == null) {
+            KeyPairGenerator generator = KeyUtils.createEphemeralDHKeyPairGenerator(recipientPublicKey, null);
+            KeyPairs newPairs = new KeyPairs(KeyUtils.getEphemeralDHKeyOid(recipientPublicKey), generator);
+            pairs = keyPairs.putIfAbsent(keyId, newPairs);
+            if (pairs == null) {
+                pairs = newPairs;
+            }
+        }
+        return pairs;
+    }
+
+    private static String keyId(PublicKey recipientPublicKey) throws XMLEncryptionException {
+        return recipientPublicKey.getAlgorithm() + "/" + KeyUtils.getEphemeralDHKeyOid(recipientPublicKey);
+    }
+
+    private final class KeyPairs implements Runnable {
+
+        private final String keyOid;
+        // Only used by the refill task, of which at most one runs at a time
+        private final KeyPairGenerator generator;
+        private final Queue<KeyPair> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger count = new AtomicInteger();
+        private final AtomicBoolean refilling = new AtomicBoolean();
+
+        KeyPairs(String keyOid, KeyPairGenerator generator) {
+            this.keyOid = keyOid;
+            this.generator = generator;
+        }
+
+        KeyPair poll() {
+            KeyPair keyPair = queue.poll();
+            if (keyPair != null) {
+                count.decrementAndGet();
+            }
+            return keyPair;
+        }
+
+        void refillIfNeeded() {
+            if ((count.get() < lowWaterMark || count.get() == 0) && refilling.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    refilling.set(false);
+                    LOG.log(Level.DEBUG, "Refilling the key pairs for {0} was rejected", keyOid);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (count.get() < size) {
+                    queue.add(generator.generateKeyPair());
+                    count.incrementAndGet();
+                }
+            } catch (RuntimeException e) {
+                LOG.log(Level.WARNING, "Generating key pairs for " + keyOid + " failed", e);
+            } finally {
+                refilling.set(false);
+            }
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.utils;
+
+import java.security.InvalidKeyException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.crypto.KeyAgreement;
+import javax.crypto.Mac;
+
+/**
+ * Caches the JCE instances of the default providers per thread, to avoid the provider
+ * lookup every time a KeyAgreement, KeyFactory or Mac is needed.
+ *
+ * An instance of the default providers binds its provider when it is first used, so that a
+ * key which only another provider supports, e.g. a PKCS#11 key, could not be used with an
+ * instance which was first used with a software key. Instances which are used with a key
+ * are therefore cached per algorithm and key class, and an instance which still rejects a
+ * key is replaced by a new instance. Instances which are not used with a key, e.g. a
+ * KeyFactory which decodes a key specification, are cached per algorithm.
+ *
+ * A cached instance must not be used any more after the next call for the same algorithm on
+ * the same thread. At most {@link #MAX_ENTRIES} instances of each type are cached per
+ * thread. As the cached instances reference their providers, a thread which outlives the
+ * application, e.g. a pooled container thread, should call {@link #clear()} when the
+ * application is stopped.
+ */
+public final class JCEInstanceCache {
+
+    /**
+     * The maximum number of instances of each type which are cached per thread.
+     */
+    public static final int MAX_ENTRIES = 16;
+
+    private static final ThreadLocal<Instances> INSTANCES = ThreadLocal.withInitial(Instances::new);
+
+    private JCEInstanceCache() {
+        // we don't allow instantiation
+    }
+
+    /**
+     * @param algorithm the JCE name of the key agreement algorithm
+     * @param key the private key to initialize the KeyAgreement with
+     * @return the KeyAgreement of the current thread, initialized with the key
+     * @throws NoSuchAlgorithmException if the algorithm is not supported
+     * @throws InvalidKeyException if no provider supports the key
+     */
+    public static KeyAgreement getKeyAgreement(String algorithm, Key key)
+        throws NoSuchAlgorithmException, InvalidKeyException {
+        return getInitialized(INSTANCES.get().keyAgreements, algorithm, key,
+                              KeyAgreement::getInstance, KeyAgreement::init);
+    }
+
+    /**
+     * @param algorithm the JCE name of the key algorithm
+     * @return the KeyFactory of the current thread, to generate keys from key specifications
+     * @throws NoSuchAlgorithmException if the algorithm is not supported
+     */
+    public static KeyFactory getKeyFactory(String algorithm) throws NoSuchAlgorithmException {
+        return get(INSTANCES.get().keyFactories, algorithm, null, KeyFactory::getInstance);
+    }
+
+    /**
+     * @param algorithm the JCE name of the key algorithm
+     * @param key the key which the KeyFactory is used with, e.g. to get its key specification
+     * @return the KeyFactory of the current thread for the class of the key
+     * @throws NoSuchAlgorithmException if the algorithm is not supported
+     */
+    public static KeyFactory getKeyFactory(String algorithm, Key key) throws NoSuchAlgorithmException {
+        return get(INSTANCES.get().keyFactories, algorithm, key.getClass(), KeyFactory::getInstance);
+    }
+
+    /**
+     * @param algorithm the JCE name of the MAC algorithm
+     * @return the Mac of the current thread, which is not initialized with a key
+     * @throws NoSuchAlgorithmException if the algorithm is not supported
+     */
+    public static Mac getMac(String algorithm) throws NoSuchAlgorithmException {
+        return get(INSTANCES.get().macs, algorithm, null, Mac::getInstance);
+    }
+
+    /**
+     * @param algorithm the JCE name of the MAC algorithm
+     * @param key the secret key to initialize the Mac with
+     * @return the Mac of the current thread, initialized with the key
+     * @throws NoSuchAlgorithmException if the algorithm is not supported
+     * @throws InvalidKeyException if no provider supports the key
+     */
+    public static Mac getMac(String algorithm, Key key) throws NoSuchAlgorithmException, InvalidKeyException {
+        return getInitialized(INSTANCES.get().macs, algorithm, key, Mac::getInstance, Mac::init);
+    }
+
+    /**
+     * Removes all instances cached for the current thread.
+     */
+    public static void clear() {
+        INSTANCES.remove();
+    }
+
+    private static <T> T get(Map<InstanceKey, T> instances, String algorithm, Class<?> keyClass,
+                             Factory<T> factory) throws NoSuchAlgorithmException {
+        InstanceKey instanceKey = new InstanceKey(algorithm, keyClass);
+        T instance = instances.get(instanceKey);
+        if (instance == null) {
+            instance = factory.getInstance(algorithm);
+            instances.put(instanceKey, instance);
+        }
+        return instance;
+    }
+
+    private static <T> T getInitialized(Map<InstanceKey, T> instances, String algorithm, Key key,
+                                        Factory<T> factory, Initializer<T> initializer)
+        throws NoSuchAlgorithmException, InvalidKeyException {
+        InstanceKey instanceKey = new InstanceKey(algorithm, key.getClass());
+        T instance = instances.get(instanceKey);
+        if (instance != null) {
+            try {
+                initializer.init(instance, key);
+                return instance;
+            } catch (InvalidKeyException e) {
+                // The provider bound by the cached instance doesn't support the key
+                instances.remove(instanceKey);
+            }
+        }
+        instance = factory.getInstance(algorithm);
+        initializer.init(instance, key);
+        instances.put(instanceKey, instance);
+        return instance;
+    }
+
+    @FunctionalInterface
+    private interface Factory<T> {
+        T getInstance(String algorithm) throws NoSuchAlgorithmException;
+    }
+
+    @FunctionalInterface
+    private interface Initializer<T> {
+        void init(T instance, Key key) throws InvalidKeyException;
+    }
+
+    private static final class InstanceKey {
+        private final String algorithm;
+        private final Class<?> keyClass;
+
+        InstanceKey(String algorithm, Class<?> keyClass) {
+            this.algorithm = algorithm;
+            this.keyClass = keyClass;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof InstanceKey)) {
+                return false;
+            }
+            InstanceKey other = (InstanceKey) obj;
+            return algorithm.equals(other.algorithm) && keyClass == other.keyClass;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * algorithm.hashCode() + Objects.hashCode(keyClass);
+        }
+    }
+
+    private static final class Instances {
+        final Map<InstanceKey, KeyAgreement> keyAgreements = CacheUtils.newLRUMap(MAX_ENTRIES);
+        final Map<InstanceKey, KeyFactory> keyFactories = CacheUtils.newLRUMap(MAX_ENTRIES);
+        final Map<InstanceKey, Mac> macs = CacheUtils.newLRUMap(MAX_ENTRIES);
+    }
+}
@@ -25,8 +25,13 @@ import java.io.OutputStream;
 import java.lang.System.Logger;
 import java.lang.System.Logger.Level;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
 import java.security.SecurityPermission;
 
 /**
@@ -39,6 +44,8 @@ public final class JavaUtils {
     private static final SecurityPermission REGISTER_PERMISSION =
         new SecurityPermission("org.apache.xml.security.register");
 
+    private static final int FILE_DIGEST_CHUNK_SIZE = 64 * 1024;
+
     private JavaUtils() {
         // we don't allow instantiation
     }
@@ -110,6 +117,33 @@ public final class JavaUtils {
         }
     }
 
+    /**
+     * Updates the given MessageDigest with all bytes of the given file. The file is read
+     * through a FileChannel in chunks of at most 64 KB, without the buffered streams of the
+     * transform pipeline. The chunks are read into a heap buffer, which the MessageDigest
+     * consumes without a copy, as direct buffers are only slowly released.
+     *
+     * @param messageDigest the MessageDigest to update
+     * @param file the file to digest
+     * @return the number of bytes digested
+     * @throws IOException if the file cannot be read
+     */
+    public static long updateDigest(MessageDigest messageDigest, Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer buffer =
+                ByteBuffer.allocate((int) Math.max(1, Math.min(size, FILE_DIGEST_CHUNK_SIZE)));
+            long count = 0;
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                count += buffer.remaining();
+                messageDigest.update(buffer);
+                buffer.clear();
+            }
+            return count;
+        }
+    }
+
     /**
      * Converts an ASN.1 DSA value to a XML Signature DSA Value.
      *
@@ -157,26 +157,51 @@ public class KeyUtils {
      * @throws XMLEncryptionException if the keys cannot be generated
      */
     public static KeyPair generateEphemeralDHKeyPair(PublicKey recipientPublicKey, Provider provider) throws XMLEncryptionException {
-        String algorithm = recipientPublicKey.getAlgorithm();
-        KeyPairGenerator keyPairGenerator;
-        try {
+        return createEphemeralDHKeyPairGenerator(recipientPublicKey, provider).generateKeyPair();
+    }
 
+    /**
+     * Method creates a KeyPairGenerator for DH keypairs which match the type of given public key type.
+     *
+     * @param recipientPublicKey public key of recipient
+     * @param provider provider to use for key generation
+     * @return the initialized KeyPairGenerator
+     * @throws XMLEncryptionException if the KeyPairGenerator cannot be created
+     */
+    public static KeyPairGenerator createEphemeralDHKeyPairGenerator(PublicKey recipientPublicKey, Provider provider)
+            throws XMLEncryptionException {
+        try {
+            String keyOId = getEphemeralDHKeyOid(recipientPublicKey);
+            KeyPairGenerator keyPairGenerator;
             if (recipientPublicKey instanceof ECPublicKey) {
-                keyPairGenerator = createKeyPairGenerator(algorithm, provider);
-                ECPublicKey exchangePublicKey = (ECPublicKey) recipientPublicKey;
-                String keyOId = ECDSAUtils.getOIDFromPublicKey(exchangePublicKey);
-                if (keyOId == null) {
-                    keyOId = DERDecoderUtils.getAlgorithmIdFromPublicKey(recipientPublicKey);
-                }
-                ECGenParameterSpec kpgparams = new ECGenParameterSpec(keyOId);
-                keyPairGenerator.initialize(kpgparams);
+                keyPairGenerator = createKeyPairGenerator(recipientPublicKey.getAlgorithm(), provider);
+                keyPairGenerator.initialize(new ECGenParameterSpec(keyOId));
             } else {
-                String keyOId = DERDecoderUtils.getAlgorithmIdFromPublicKey(recipientPublicKey);
                 KeyType keyType = KeyType.getByOid(keyOId);
                 keyPairGenerator = createKeyPairGenerator(keyType == null ? keyOId : keyType.getName(), provider);
             }
-            return keyPairGenerator.generateKeyPair();
-        } catch (NoSuchAlgorithmException | InvalidAlgorithmParameterException | DERDecodingException e) {
+            return keyPairGenerator;
+        } catch (NoSuchAlgorithmException | InvalidAlgorithmParameterException e) {
+            throw new XMLEncryptionException(e);
+        }
+    }
+
+    /**
+     * Returns the OID which identifies the type of the DH keypairs generated for the given
+     * public key: the curve OID for EC keys and the algorithm OID otherwise.
+     *
+     * @param recipientPublicKey public key of recipient
+     * @return the OID of the key type
+     * @throws XMLEncryptionException if the public key cannot be decoded
+     */
+    public static String getEphemeralDHKeyOid(PublicKey recipientPublicKey) throws XMLEncryptionException {
+        try {
+            String keyOId = null;
+            if (recipientPublicKey instanceof ECPublicKey) {
+                keyOId = ECDSAUtils.getOIDFromPublicKey((ECPublicKey) recipientPublicKey);
+            }
+            return keyOId == null ? DERDecoderUtils.getAlgorithmIdFromPublicKey(recipientPublicKey) : keyOId;
+        } catch (DERDecodingException e) {
             throw new XMLEncryptionException(e);
         }
     }
@@ -214,8 +239,7 @@ public class KeyUtils {
                         "Cryptographic algorithm may not be secure, consider using a different algorithm (and keys).");
             }
             algorithm = algorithm + (algorithm.equalsIgnoreCase("EC") ? "DH" : "");
-            KeyAgreement keyAgreement = KeyAgreement.getInstance(algorithm);
-            keyAgreement.init(privateKey);
+            KeyAgreement keyAgreement = JCEInstanceCache.getKeyAgreement(algorithm, privateKey);
             keyAgreement.doPhase(publicKey, true);
             byte[] secret = keyAgreement.generateSecret();
             byte[] kek = deriveKeyEncryptionKey(secret, parameterSpec.getKeyDerivationParameter());
@@ -1024,6 +1024,17 @@ public final class XMLUtils {
         return xmlParserImpl.parse(inputStream, disallowDocTypeDeclarations);
     }
 
+    /**
+     * Creates an empty, namespace aware document with the parser configuration used by
+     * {@link #read(InputStream, boolean)}.
+     *
+     * @return {@link Document}
+     * @throws XMLParserException
+     */
+    public static Document newDocument() throws XMLParserException {
+        return xmlParserImpl.newDocument();
+    }
+
     /**
      * Returns a byte-array representation of a <code>{@link BigInteger}</code>.
      * No sign-bit is output.
@@ -0,0 +1,424 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.utils.resolver.implementations;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.lang.ref.Cleaner;
+import java.lang.ref.Cleaner.Cleanable;
+import java.net.Authenticator;
+import java.net.InetSocketAddress;
+import java.net.PasswordAuthentication;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.xml.security.signature.XMLSignatureInput;
+import org.apache.xml.security.signature.XMLSignatureStreamInput;
+import org.apache.xml.security.utils.CacheUtils;
+import org.apache.xml.security.utils.XMLUtils;
+import org.apache.xml.security.utils.resolver.ResourceResolverContext;
+import org.apache.xml.security.utils.resolver.ResourceResolverException;
+import org.apache.xml.security.utils.resolver.ResourceResolverSpi;
+
+/**
+ * A ResourceResolver for HTTP and HTTPS requests based on {@link HttpClient}. Unlike
+ * {@link ResolverDirectHTTP}, a single HttpClient is shared by all requests of a resolver
+ * instance, so connections are pooled and kept alive, and HTTP/2 is used where the server
+ * supports it. The response body is not buffered, but streamed to the consumer (e.g. the
+ * digest calculation of a Reference). The fragment handling is done by the
+ * {@link ResolverFragment} class. The resolver needs the java.net.http module, which the
+ * library itself does not require, so a modular application using it must resolve that
+ * module, e.g. with {@code --add-modules java.net.http}.
+ * <BR>
+ * The resolver is configured with the following properties, which are read once when
+ * the resolver is created:
+ * <PRE>
+ * http.connect.timeout           connect timeout in milliseconds (default 10000)
+ * http.request.timeout           timeout in milliseconds until the response headers are
+ *                                received (default 30000)
+ * http.max.concurrent.requests   maximum number of responses which are open at the
+ *                                same time (default 16)
+ * http.etag.cache.size           maximum number of cached responses (default 0, disabled)
+ * http.etag.cache.max.body.size  maximum size in bytes of a cached response (default 65536)
+ * http.proxy.host, http.proxy.port, http.proxy.username, http.proxy.password
+ * </PRE>
+ * The server credentials "http.basic.username" and "http.basic.password" can also be set
+ * per request in the ResourceResolverContext properties. They are only sent after the server
+ * asked for Basic authentication.
+ * <BR>
+ * If the ETag cache is enabled, responses with an ETag and a known length up to the maximum
+ * body size are kept in memory, and revalidated with a conditional request when the same URI
+ * is requested again. A response which is not modified is then served from the cache.
+ * <BR>
+ * Every response holds a permit of the concurrency limit until its stream is closed, or it
+ * is fully read. Consumers of the returned XMLSignatureInput should therefore close it if they
+ * don't process it. The permit of a stream which is neither closed nor fully read is released
+ * when the stream is garbage collected, and a request waits at most for the request timeout
+ * for a permit, so that leaked streams can't block the resolver forever.
+ */
+public class ResolverHttpClient extends ResourceResolverSpi {
+
+    private static final Logger LOG = System.getLogger(ResolverHttpClient.class.getName());
+
+    public static final String PROPERTY_CONNECT_TIMEOUT = "http.connect.timeout";
+    public static final String PROPERTY_REQUEST_TIMEOUT = "http.request.timeout";
+    public static final String PROPERTY_MAX_CONCURRENT_REQUESTS = "http.max.concurrent.requests";
+    public static final String PROPERTY_ETAG_CACHE_SIZE = "http.etag.cache.size";
+    public static final String PROPERTY_ETAG_CACHE_MAX_BODY_SIZE = "http.etag.cache.max.body.size";
+
+    private static final String PROPERTY_PROXY_HOST = "http.proxy.host";
+    private static final String PROPERTY_PROXY_PORT = "http.proxy.port";
+    private static final String PROPERTY_PROXY_USERNAME = "http.proxy.username";
+    private static final String PROPERTY_PROXY_PASSWORD = "http.proxy.password";
+    private static final String PROPERTY_BASIC_USERNAME = "http.basic.username";
+    private static final String PROPERTY_BASIC_PASSWORD = "http.basic.password";
+
+    private static final int HTTP_OK = 200;
+    private static final int HTTP_NOT_MODIFIED = 304;
+    private static final int HTTP_UNAUTHORIZED = 401;
+
+    private final Map<String, String> resolverProperties;
+    private final HttpClient httpClient;
+    private final Duration requestTimeout;
+    private final Semaphore permits;
+    private final int etagCacheSize;
+    private final long etagCacheMaxBodySize;
+    private final Map<URI, CachedResponse> etagCache;
+
+    public ResolverHttpClient() {
+        this(Collections.emptyMap());
+    }
+
+    public ResolverHttpClient(Map<String, String> resolverProperties) {
+        this(null, resolverProperties);
+    }
+
+    /**
+     * @param httpClient the HttpClient to use, or null to create one from the resolver properties
+     * @param resolverProperties the resolver properties
+     */
+    public ResolverHttpClient(HttpClient httpClient, Map<String, String> resolverProperties) {
+        this.resolverProperties =
+            Collections.unmodifiableMap(resolverProperties != null ? resolverProperties : Collections.emptyMap());
+        this.requestTimeout = Duration.ofMillis(getLongProperty(PROPERTY_REQUEST_TIMEOUT, 30_000L));
+        this.permits = new Semaphore((int) getLongProperty(PROPERTY_MAX_CONCURRENT_REQUESTS, 16L), true);
+        this.etagCacheSize = (int) getLongProperty(PROPERTY_ETAG_CACHE_SIZE, 0L);
+        this.etagCacheMaxBodySize = getLongProperty(PROPERTY_ETAG_CACHE_MAX_BODY_SIZE, 65_536L);
+        this.etagCache = CacheUtils.newLRUMap(etagCacheSize);
+        this.httpClient = httpClient != null ? httpClient : createHttpClient();
+    }
+
+    private HttpClient createHttpClient() {
+        HttpClient.Builder builder = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .connectTimeout(Duration.ofMillis(getLongProperty(PROPERTY_CONNECT_TIMEOUT, 10_000L)));
+
+        String proxyHost = resolverProperties.get(PROPERTY_PROXY_HOST);
+        String proxyPort = resolverProperties.get(PROPERTY_PROXY_PORT);
+        if (proxyHost != null && proxyPort != null) {
+            builder.proxy(ProxySelector.of(new InetSocketAddress(proxyHost, Integer.parseInt(proxyPort))));
+
+            String proxyUser = resolverProperties.get(PROPERTY_PROXY_USERNAME);
+            String proxyPass = resolverProperties.get(PROPERTY_PROXY_PASSWORD);
+            if (proxyUser != null && proxyPass != null) {
+                builder.authenticator(new Authenticator() {
+                    @Override
+                    protected PasswordAuthentication getPasswordAuthentication() {
+                        if (getRequestorType() == RequestorType.PROXY) {
+                            return new PasswordAuthentication(proxyUser, proxyPass.toCharArray());
+                        }
+                        return null;
+                    }
+                });
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public XMLSignatureInput engineResolveURI(ResourceResolverContext context)
+        throws ResourceResolverException {
+        try {
+            URI uriNew = getNewURI(context.uriToResolve, context.baseUri);
+            Response response = fetch(uriNew, context.getProperties());
+
+            XMLSignatureInput result = new XMLSignatureStreamInput(response.body);
+            result.setSecureValidation(context.secureValidation);
+            result.setSourceURI(uriNew.toString());
+            result.setMIMEType(response.contentType);
+            return result;
+        } catch (URISyntaxException | IOException | IllegalArgumentException ex) {
+            throw new ResourceResolverException(ex, context.uriToResolve, context.baseUri, "generic.EmptyMessage");
+        }
+    }
+
+    /**
+     * Opens a stream to the body of the given HTTP or HTTPS URI. The stream must be closed
+     * by the caller.
+     *
+     * @param uri the absolute URI to request
+     * @return the response body
+     * @throws IOException if the request fails or the response status is not 200
+     */
+    public InputStream openStream(URI uri) throws IOException {
+        return fetch(uri, Collections.emptyMap()).body;
+    }
+
+    private Response fetch(URI uri, Map<String, String> contextProperties) throws IOException {
+        CachedResponse cached = null;
+        if (etagCacheSize > 0) {
+            synchronized (etagCache) {
+                cached = etagCache.get(uri);
+            }
+        }
+
+        try {
+            if (!permits.tryAcquire(requestTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new IOException("Timed out waiting for a free HTTP connection for URI: " + uri
+                    + ", as " + PROPERTY_MAX_CONCURRENT_REQUESTS + " responses are open");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a free HTTP connection");
+        }
+        boolean releasePermit = true;
+        try {
+            HttpResponse<InputStream> response = send(uri, cached, null);
+            if (response.statusCode() == HTTP_UNAUTHORIZED) {
+                String auth = response.headers().firstValue("WWW-Authenticate").orElse("");
+                String user = getProperty(contextProperties, PROPERTY_BASIC_USERNAME);
+                String pass = getProperty(contextProperties, PROPERTY_BASIC_PASSWORD);
+                if (auth.startsWith("Basic") && user != null && pass != null) {
+                    response.body().close();
+                    String password = user + ":" + pass;
+                    String authorization =
+                        "Basic " + XMLUtils.encodeToString(password.getBytes(StandardCharsets.ISO_8859_1));
+                    response = send(uri, cached, authorization);
+                }
+            }
+
+            int status = response.statusCode();
+            String contentType = response.headers().firstValue("Content-Type").orElse(null);
+            if (status == HTTP_NOT_MODIFIED && cached != null) {
+                response.body().close();
+                LOG.log(Level.DEBUG, "Using cached response for URI {0}", uri);
+                return new Response(new ByteArrayInputStream(cached.body), cached.contentType);
+            }
+            if (status != HTTP_OK) {
+                response.body().close();
+                throw new IOException("Server returned HTTP response code: " + status + " for URI: " + uri);
+            }
+
+            String etag = response.headers().firstValue("ETag").orElse(null);
+            long length = response.headers().firstValueAsLong("Content-Length").orElse(-1L);
+            if (etagCacheSize > 0 && etag != null && length >= 0 && length <= etagCacheMaxBodySize) {
+                byte[] body;
+                try (InputStream is = response.body()) {
+                    body = is.readAllBytes();
+                }
+                synchronized (etagCache) {
+                    etagCache.put(uri, new CachedResponse(etag, contentType, body));
+                }
+                LOG.log(Level.DEBUG, "Fetched and cached {0} bytes from URI {1}", body.length, uri);
+                return new Response(new ByteArrayInputStream(body), contentType);
+            }
+
+            LOG.log(Level.DEBUG, "Streaming response from URI {0}", uri);
+            releasePermit = false;
+            return new Response(new PermitReleasingInputStream(response.body(), permits), contentType);
+        } finally {
+            if (releasePermit) {
+                permits.release();
+            }
+        }
+    }
+
+    private HttpResponse<InputStream> send(URI uri, CachedResponse cached, String authorization)
+        throws IOException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri).timeout(requestTimeout).GET();
+        if (cached != null) {
+            builder.header("If-None-Match", cached.etag);
+        }
+        if (authorization != null) {
+            builder.header("Authorization", authorization);
+        }
+        try {
+            return httpClient.send(builder.build(), HttpResponse.BodyHandlers.ofInputStream());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while requesting " + uri);
+        }
+    }
+
+    /**
+     * We resolve http and https URIs <I>without</I> fragment...
+     *
+     * @param context
+     * @return true if can be resolved
+     */
+    @Override
+    public boolean engineCanResolveURI(ResourceResolverContext context) {
+        if (context.uriToResolve == null) {
+            LOG.log(Level.DEBUG, "quick fail, uri == null");
+            return false;
+        }
+
+        if (context.uriToResolve.isEmpty() || context.uriToResolve.charAt(0) == '#') {
+            LOG.log(Level.DEBUG, "quick fail for empty URIs and local ones");
+            return false;
+        }
+
+        if (isHttp(context.uriToResolve) || context.baseUri != null && isHttp(context.baseUri)) {
+            LOG.log(Level.DEBUG, "I state that I can resolve {0}", context.uriToResolve);
+            return true;
+        }
+
+        LOG.log(Level.DEBUG, "I state that I can't resolve {0}", context.uriToResolve);
+        return false;
+    }
+
+    private static boolean isHttp(String uri) {
+        return uri.startsWith("http:") || uri.startsWith("https:");
+    }
+
+    private static URI getNewURI(String uri, String baseURI) throws URISyntaxException {
+        URI newUri = null;
+        if (baseURI == null || baseURI.length() == 0) {
+            newUri = new URI(uri);
+        } else {
+            newUri = new URI(baseURI).resolve(uri);
+        }
+
+        // if the URI contains a fragment, ignore it
+        if (newUri.getFragment() != null) {
+            return new URI(newUri.getScheme(), newUri.getSchemeSpecificPart(), null);
+        }
+        return newUri;
+    }
+
+    private String getProperty(Map<String, String> contextProperties, String propertyName) {
+        // First check the properties defined on this Resolver.
+        if (resolverProperties.containsKey(propertyName)) {
+            return resolverProperties.get(propertyName);
+        }
+
+        // Otherwise defer to the passed in properties
+        return contextProperties.get(propertyName);
+    }
+
+    private long getLongProperty(String propertyName, long defaultValue) {
+        String value = resolverProperties.get(propertyName);
+        if (value == null) {
+            return defaultValue;
+        }
+        long longValue = Long.parseLong(value.trim());
+        if (longValue < 0 || PROPERTY_MAX_CONCURRENT_REQUESTS.equals(propertyName) && longValue == 0) {
+            throw new IllegalArgumentException("Invalid value for " + propertyName + ": " + value);
+        }
+        return longValue;
+    }
+
+    private static final class Response {
+        private final InputStream body;
+        private final String contentType;
+
+        Response(InputStream body, String contentType) {
+            this.body = body;
+            this.contentType = contentType;
+        }
+    }
+
+    private static final class CachedResponse {
+        private final String etag;
+        private final String contentType;
+        private final byte[] body;
+
+        CachedResponse(String etag, String contentType, byte[] body) {
+            this.etag = etag;
+            this.contentType = contentType;
+            this.body = body;
+        }
+    }
+
+    /**
+     * Releases the concurrency permit of a response once its body is closed or fully read.
+     */
+    private static final class PermitReleasingInputStream extends FilterInputStream {
+        private static final Cleaner CLEANER = Cleaner.create();
+
+        private final Cleanable permit;
+
+        PermitReleasingInputStream(InputStream in, Semaphore permits) {
+            super(in);
+            // the permit is also released if the stream becomes unreachable without being closed
+            this.permit = CLEANER.register(this, permits::release);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b == -1) {
+                release();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read == -1) {
+                release();
+            }
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                release();
+            }
+        }
+
+        private void release() {
+            // releases the permit only once
+            permit.clean();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.jfr;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.crypto.SecretKey;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.apache.xml.security.Init;
+import org.apache.xml.security.algorithms.MessageDigestAlgorithm;
+import org.apache.xml.security.c14n.Canonicalizer;
+import org.apache.xml.security.keys.KeyInfo;
+import org.apache.xml.security.keys.keyresolver.implementations.RSAKeyValueResolver;
+import org.apache.xml.security.signature.XMLSignature;
+import org.apache.xml.security.test.dom.TestUtils;
+import org.apache.xml.security.transforms.Transforms;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class XmlSecEventsTest {
+
+    static {
+        Init.init();
+    }
+
+    @Test
+    void testSignAndVerifyEvents() throws Exception {
+        Document doc = TestUtils.newDocument();
+        Element root = doc.createElementNS("", "RootElement");
+        doc.appendChild(root);
+        root.appendChild(doc.createTextNode("Some simple text\n"));
+
+        Path dump = Files.createTempFile("xmlsec", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(XmlSecSignEvent.class);
+            recording.enable(XmlSecVerifyEvent.class);
+            recording.enable(XmlSecReferenceDigestEvent.class);
+            recording.enable(XmlSecC14nEvent.class);
+            recording.start();
+
+            XMLSignature sig = new XMLSignature(doc, null, XMLSignature.ALGO_ID_MAC_HMAC_SHA256);
+            root.appendChild(sig.getElement());
+            Transforms transforms = new Transforms(doc);
+            transforms.addTransform(Transforms.TRANSFORM_ENVELOPED_SIGNATURE);
+            transforms.addTransform(Transforms.TRANSFORM_C14N_OMIT_COMMENTS);
+            sig.addDocument("", transforms, MessageDigestAlgorithm.ALGO_ID_DIGEST_SHA256);
+            SecretKey sk = sig.createSecretKey("secret".getBytes(StandardCharsets.US_ASCII));
+            sig.sign(sk);
+            assertTrue(new XMLSignature(sig.getElement(), null).checkSignatureValue(sk));
+
+            recording.stop();
+            recording.dump(dump);
+        }
+
+        List<RecordedEvent> events;
+        try {
+            events = RecordingFile.readAllEvents(dump);
+        } finally {
+            Files.delete(dump);
+        }
+
+        RecordedEvent sign = getEvent(events, XmlSecSignEvent.class);
+        assertEquals(XMLSignature.ALGO_ID_MAC_HMAC_SHA256, sign.getString("signatureAlgorithm"));
+        assertEquals(Canonicalizer.ALGO_ID_C14N_OMIT_COMMENTS, sign.getString("canonicalizationAlgorithm"));
+        assertEquals(1, sign.getInt("referenceCount"));
+
+        RecordedEvent verify = getEvent(events, XmlSecVerifyEvent.class);
+        assertTrue(verify.getBoolean("valid"));
+
+        List<RecordedEvent> digests = getEvents(events, XmlSecReferenceDigestEvent.class);
+        assertEquals(2, digests.size());
+        for (RecordedEvent digest : digests) {
+            assertEquals("", digest.getString("referenceURI"));
+            assertEquals(MessageDigestAlgorithm.ALGO_ID_DIGEST_SHA256, digest.getString("digestAlgorithm"));
+            assertEquals(2, digest.getInt("transformCount"));
+            // "<RootElement>Some simple text\n</RootElement>"
+            assertEquals(44, digest.getLong("bytes"));
+        }
+        assertFalse(digests.get(0).getBoolean("validating"));
+        assertTrue(digests.get(1).getBoolean("validating"));
+
+        // the References, and the SignedInfo when signing and verifying
+        List<RecordedEvent> c14ns = getEvents(events, XmlSecC14nEvent.class);
+        assertEquals(4, c14ns.size());
+        assertTrue(c14ns.stream().allMatch(e -> e.getInt("elementCount") > 0));
+    }
+
+    @Test
+    void testKeyResolveEvent() throws Exception {
+        assertTrue(XmlSecEvents.AVAILABLE);
+
+        PublicKey publicKey = KeyPairGenerator.getInstance("RSA").generateKeyPair().getPublic();
+        KeyInfo keyInfo = new KeyInfo(TestUtils.newDocument());
+        keyInfo.add(publicKey);
+
+        Path dump = Files.createTempFile("xmlsec", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(XmlSecKeyResolveEvent.class);
+            recording.start();
+
+            assertEquals(publicKey, keyInfo.getPublicKey());
+
+            recording.stop();
+            recording.dump(dump);
+        }
+
+        List<RecordedEvent> events;
+        try {
+            events = RecordingFile.readAllEvents(dump);
+        } finally {
+            Files.delete(dump);
+        }
+
+        RecordedEvent keyResolve = getEvent(events, XmlSecKeyResolveEvent.class);
+        assertEquals("PublicKey", keyResolve.getString("keyType"));
+        assertEquals(RSAKeyValueResolver.class.getName(), keyResolve.getString("resolver"));
+        assertTrue(keyResolve.getBoolean("resolved"));
+    }
+
+    private static List<RecordedEvent> getEvents(List<RecordedEvent> events, Class<?> eventClass) {
+        String name = eventClass.getAnnotation(jdk.jfr.Name.class).value();
+        return events.stream().filter(e -> name.equals(e.getEventType().getName()))
+            .sorted((e1, e2) -> e1.getStartTime().compareTo(e2.getStartTime())).collect(Collectors.toList());
+    }
+
+    private static RecordedEvent getEvent(List<RecordedEvent> events, Class<?> eventClass) {
+        List<RecordedEvent> matching = getEvents(events, eventClass);
+        assertEquals(1, matching.size());
+        return matching.get(0);
+    }
+}
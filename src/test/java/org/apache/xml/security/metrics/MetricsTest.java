@@ -0,0 +1,230 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.metrics;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.crypto.SecretKey;
+import javax.xml.stream.XMLStreamException;
+
+import org.apache.xml.security.Init;
+import org.apache.xml.security.algorithms.MessageDigestAlgorithm;
+import org.apache.xml.security.exceptions.XMLSecurityException;
+import org.apache.xml.security.signature.XMLSignature;
+import org.apache.xml.security.stax.ext.AbstractOutputProcessor;
+import org.apache.xml.security.stax.ext.OutputProcessorChain;
+import org.apache.xml.security.stax.ext.stax.XMLSecEvent;
+import org.apache.xml.security.stax.ext.stax.XMLSecEventFactory;
+import org.apache.xml.security.stax.impl.OutboundSecurityContextImpl;
+import org.apache.xml.security.stax.impl.OutputProcessorChainImpl;
+import org.apache.xml.security.test.dom.TestUtils;
+import org.apache.xml.security.transforms.Transforms;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetricsTest {
+
+    static {
+        Init.init();
+    }
+
+    @AfterEach
+    void removeRecorder() {
+        Metrics.setRecorder(null);
+    }
+
+    @Test
+    void testDisabled() {
+        assertFalse(Metrics.isEnabled());
+        Metrics.Timer timer = Metrics.start(Operation.SIGN, "a");
+        assertSame(timer, Metrics.startExclusive(Operation.INPUT_PROCESSOR, "b"));
+        timer.setBytes(10);
+        timer.close();
+    }
+
+    @Test
+    void testSignAndVerify() throws Exception {
+        HistogramMetricsRecorder recorder = new HistogramMetricsRecorder();
+        Metrics.setRecorder(recorder);
+
+        Document doc = TestUtils.newDocument();
+        Element root = doc.createElementNS("", "RootElement");
+        doc.appendChild(root);
+        root.appendChild(doc.createTextNode("Some simple text\n"));
+
+        XMLSignature sig = new XMLSignature(doc, null, XMLSignature.ALGO_ID_MAC_HMAC_SHA256);
+        root.appendChild(sig.getElement());
+        Transforms transforms = new Transforms(doc);
+        transforms.addTransform(Transforms.TRANSFORM_ENVELOPED_SIGNATURE);
+        transforms.addTransform(Transforms.TRANSFORM_C14N_OMIT_COMMENTS);
+        sig.addDocument("", transforms, MessageDigestAlgorithm.ALGO_ID_DIGEST_SHA256);
+        SecretKey sk = sig.createSecretKey("secret".getBytes(StandardCharsets.US_ASCII));
+        sig.sign(sk);
+        assertTrue(new XMLSignature(sig.getElement(), null).checkSignatureValue(sk));
+
+        HistogramMetricsRecorder.Statistics sign =
+            recorder.getStatistics(Operation.SIGN, XMLSignature.ALGO_ID_MAC_HMAC_SHA256);
+        HistogramMetricsRecorder.Statistics verify =
+            recorder.getStatistics(Operation.VERIFY, XMLSignature.ALGO_ID_MAC_HMAC_SHA256);
+        HistogramMetricsRecorder.Statistics digest = recorder.getStatistics(Operation.REFERENCE_DIGEST, "SHA-256");
+        assertEquals(1, sign.getCount());
+        assertEquals(1, verify.getCount());
+        assertEquals(2, digest.getCount());
+        // "<RootElement>Some simple text\n</RootElement>" is digested for signing and verifying
+        assertEquals(2 * 44, digest.getTotalBytes());
+        assertTrue(sign.getTotalNanos() >= digest.getMaxNanos());
+    }
+
+    @Test
+    void testExclusiveTimers() throws Exception {
+        List<Long> durations = new ArrayList<>();
+        Metrics.setRecorder((operation, name, durationNanos, bytes, allocatedBytes) -> {
+            assertEquals(-1, allocatedBytes);
+            durations.add(durationNanos);
+        });
+
+        long start = System.nanoTime();
+        try (Metrics.Timer outer = Metrics.startExclusive(Operation.INPUT_PROCESSOR, "outer")) {
+            try (Metrics.Timer inner = Metrics.startExclusive(Operation.INPUT_PROCESSOR, "inner")) {
+                Thread.sleep(50);
+            }
+        }
+        long total = System.nanoTime() - start;
+
+        assertEquals(2, durations.size());
+        assertTrue(durations.get(0) >= 50_000_000L);
+        // the outer timer doesn't include the time of the inner one
+        assertTrue(durations.get(0) + durations.get(1) <= total);
+        assertTrue(durations.get(1) < 50_000_000L);
+    }
+
+    @Test
+    void testOutputProcessorTimers() throws Exception {
+        AbstractOutputProcessor outputProcessor1 = new AbstractOutputProcessor() {
+            @Override
+            public void processEvent(XMLSecEvent xmlSecEvent, OutputProcessorChain outputProcessorChain)
+                throws XMLStreamException, XMLSecurityException {
+                outputProcessorChain.processEvent(xmlSecEvent);
+            }
+        };
+        AbstractOutputProcessor outputProcessor2 = new AbstractOutputProcessor() {
+            @Override
+            public void processEvent(XMLSecEvent xmlSecEvent, OutputProcessorChain outputProcessorChain)
+                throws XMLStreamException {
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new XMLStreamException(e);
+                }
+            }
+        };
+        OutputProcessorChainImpl outputProcessorChain = new OutputProcessorChainImpl(new OutboundSecurityContextImpl());
+        outputProcessorChain.addProcessor(outputProcessor1);
+        outputProcessorChain.addProcessor(outputProcessor2);
+
+        List<String> names = new ArrayList<>();
+        List<Long> durations = new ArrayList<>();
+        Metrics.setRecorder((operation, name, durationNanos, bytes, allocatedBytes) -> {
+            assertEquals(Operation.OUTPUT_PROCESSOR, operation);
+            names.add(name);
+            durations.add(durationNanos);
+        });
+
+        long start = System.nanoTime();
+        outputProcessorChain.processEvent(XMLSecEventFactory.createXMLSecComment("comment"));
+        long total = System.nanoTime() - start;
+
+        // the inner processor is recorded first
+        assertEquals(List.of(outputProcessor2.getClass().getName(), outputProcessor1.getClass().getName()), names);
+        assertTrue(durations.get(0) >= 20_000_000L);
+        // the time of the second processor isn't counted for the first one
+        assertTrue(durations.get(0) + durations.get(1) <= total);
+    }
+
+    @Test
+    void testHistogram() {
+        HistogramMetricsRecorder recorder = new HistogramMetricsRecorder();
+        for (int i = 1; i <= 100; i++) {
+            recorder.record(Operation.DECRYPT, "aes", i * 1000L, 16, -1);
+        }
+        assertNull(recorder.getStatistics(Operation.DECRYPT, "rsa"));
+
+        HistogramMetricsRecorder.Statistics statistics = recorder.getStatistics(Operation.DECRYPT, "aes");
+        assertEquals(100, statistics.getCount());
+        assertEquals(5050_000L, statistics.getTotalNanos());
+        assertEquals(100_000L, statistics.getMaxNanos());
+        assertEquals(1600, statistics.getTotalBytes());
+        assertEquals(0, statistics.getTotalAllocatedBytes());
+        long median = statistics.getPercentileNanos(0.5);
+        assertTrue(median >= 50_000L && median < 100_000L, String.valueOf(median));
+        assertEquals(100_000L, statistics.getPercentileNanos(1));
+        assertThrows(IllegalArgumentException.class, () -> statistics.getPercentileNanos(2));
+
+        Map<String, HistogramMetricsRecorder.Statistics> byName = recorder.getStatistics(Operation.DECRYPT);
+        assertEquals(1, byName.size());
+        recorder.clear();
+        assertTrue(recorder.getStatistics(Operation.DECRYPT).isEmpty());
+    }
+
+    @Test
+    void testMeters() {
+        List<String> meters = new ArrayList<>();
+        List<Long> values = new ArrayList<>();
+        MeterMetricsRecorder recorder = new MeterMetricsRecorder((metricName, baseUnit, name) -> {
+            meters.add(metricName + " " + baseUnit + " " + name);
+            return values::add;
+        });
+        recorder.record(Operation.KEY_RESOLUTION, "PublicKey", 100, -1, 200);
+        recorder.record(Operation.KEY_RESOLUTION, "PublicKey", 300, -1, -1);
+
+        assertEquals(List.of("xmlsec.key.resolution.duration nanoseconds PublicKey",
+                             "xmlsec.key.resolution.bytes bytes PublicKey",
+                             "xmlsec.key.resolution.allocated bytes PublicKey"), meters);
+        assertEquals(List.of(100L, 200L, 300L), values);
+    }
+
+    @Test
+    void testAllocatedBytes() {
+        List<Long> allocated = new ArrayList<>();
+        Metrics.setRecorder((operation, name, durationNanos, bytes, allocatedBytes) -> allocated.add(allocatedBytes));
+        byte[] data;
+        try (Metrics.Timer timer = Metrics.start(Operation.ENCRYPT, "aes")) {
+            data = new byte[1 << 20];
+            timer.setBytes(data.length);
+        }
+        assertNotNull(data);
+        assertEquals(1, allocated.size());
+        // -1 if the JVM doesn't measure allocations
+        assertTrue(allocated.get(0) == -1 || allocated.get(0) >= 1 << 20, String.valueOf(allocated.get(0)));
+    }
+}
@@ -0,0 +1,153 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.test.dom;
+
+import java.io.InputStream;
+import java.security.spec.MGF1ParameterSpec;
+import java.security.spec.PSSParameterSpec;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.xml.security.Init;
+import org.apache.xml.security.algorithms.SignatureAlgorithm;
+import org.apache.xml.security.c14n.Canonicalizer;
+import org.apache.xml.security.exceptions.AlgorithmAlreadyRegisteredException;
+import org.apache.xml.security.signature.XMLSignature;
+import org.apache.xml.security.signature.XMLSignatureException;
+import org.apache.xml.security.utils.ClassLoaderUtils;
+import org.apache.xml.security.utils.XMLUtils;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the default initialization, which registers the default algorithms with constructor
+ * references instead of loading them by class name.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class DefaultRegistryTest {
+
+    private static final String CONFIG_FILE = "org/apache/xml/security/resource/config.xml";
+
+    @Test
+    @Order(1)
+    void testConcurrentInit() throws Exception {
+        assertFalse(Init.isInitialized());
+
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        try {
+            List<Callable<Boolean>> tasks = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                tasks.add(() -> {
+                    start.await();
+                    Init.init();
+                    // every caller must see the completed initialization
+                    return Init.isInitialized()
+                        && Canonicalizer.getInstance(Canonicalizer.ALGO_ID_C14N_EXCL_OMIT_COMMENTS) != null
+                        && new SignatureAlgorithm(TestUtils.newDocument(), XMLSignature.ALGO_ID_SIGNATURE_RSA_SHA256)
+                            .getJCEAlgorithmString() != null;
+                });
+            }
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (Callable<Boolean> task : tasks) {
+                results.add(executorService.submit(task));
+            }
+            start.countDown();
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    @Order(2)
+    void testDefaultsMatchConfigFile() throws Exception {
+        Init.init();
+        Document doc;
+        try (InputStream is = ClassLoaderUtils.getResourceAsStream(CONFIG_FILE, DefaultRegistryTest.class)) {
+            doc = XMLUtils.read(is, true);
+        }
+
+        Element[] canonicalizationMethods =
+            XMLUtils.selectNodes(doc.getDocumentElement().getFirstChild(), Init.CONF_NS, "CanonicalizationMethods");
+        Element[] c14nElems =
+            XMLUtils.selectNodes(canonicalizationMethods[0].getFirstChild(), Init.CONF_NS, "CanonicalizationMethod");
+        assertFalse(c14nElems.length == 0);
+        for (Element c14nElem : c14nElems) {
+            String uri = c14nElem.getAttributeNS(null, "URI");
+            String javaClass = c14nElem.getAttributeNS(null, "JAVACLASS");
+            AlgorithmAlreadyRegisteredException e = assertThrows(AlgorithmAlreadyRegisteredException.class,
+                () -> Canonicalizer.register(uri, javaClass));
+            assertRegisteredTo(javaClass, e);
+            assertNotNull(Canonicalizer.getInstance(uri));
+        }
+
+        Element[] signatureAlgorithms =
+            XMLUtils.selectNodes(doc.getDocumentElement().getFirstChild(), Init.CONF_NS, "SignatureAlgorithms");
+        Element[] sigElems =
+            XMLUtils.selectNodes(signatureAlgorithms[0].getFirstChild(), Init.CONF_NS, "SignatureAlgorithm");
+        assertFalse(sigElems.length == 0);
+        int created = 0;
+        for (Element sigElem : sigElems) {
+            String uri = sigElem.getAttributeNS(null, "URI");
+            String javaClass = sigElem.getAttributeNS(null, "JAVACLASS");
+            AlgorithmAlreadyRegisteredException e = assertThrows(AlgorithmAlreadyRegisteredException.class,
+                () -> SignatureAlgorithm.register(uri, javaClass));
+            assertRegisteredTo(javaClass, e);
+
+            PSSParameterSpec spec = XMLSignature.ALGO_ID_SIGNATURE_RSA_PSS.equals(uri)
+                ? new PSSParameterSpec("SHA-256", "MGF1", MGF1ParameterSpec.SHA256, 32, 1)
+                : null;
+            SignatureAlgorithm signatureAlgorithm;
+            try {
+                signatureAlgorithm = new SignatureAlgorithm(TestUtils.newDocument(), uri, null, spec);
+            } catch (XMLSignatureException ex) {
+                // the JCE algorithm isn't available without BouncyCastle
+                continue;
+            }
+            assertEquals(uri, signatureAlgorithm.getURI());
+            created++;
+        }
+        assertTrue(created > 0);
+    }
+
+    private static void assertRegisteredTo(String javaClass, AlgorithmAlreadyRegisteredException e) {
+        // the message names the class the URI is registered to
+        assertTrue(Arrays.asList(e.getMessage().split("\\s+")).contains(javaClass), e.getMessage());
+    }
+}
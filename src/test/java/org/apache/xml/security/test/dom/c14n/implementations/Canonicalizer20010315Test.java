@@ -643,6 +643,31 @@ class Canonicalizer20010315Test {
         assertTrue(doTestXMLAttributes(input, definedOutput));
     }
 
+    /**
+     * More attributes than fit into the initial buffer of the attribute sort, added in no order.
+     */
+    @Test
+    void testManyAttributesOrder() throws Exception {
+        //J-
+        String input = ""
+            + "<root z='1' xmlns:b='urn:b' b:y='2' a='3' xmlns='urn:d' xmlns:a='urn:a' a:y='4' b:x='5'"
+            + " m='6' a:x='7' c='8' xmlns:c='urn:b' c:z='9'><child b:x='5' a='3'/></root>";
+
+        String definedOutput = ""
+            + "<root xmlns=\"urn:d\" xmlns:a=\"urn:a\" xmlns:b=\"urn:b\" xmlns:c=\"urn:b\""
+            + " a=\"3\" c=\"8\" m=\"6\" z=\"1\" a:x=\"7\" a:y=\"4\" b:x=\"5\" b:y=\"2\" c:z=\"9\">"
+            + "<child a=\"3\" b:x=\"5\"></child>"
+            + "</root>";
+        //J+
+        Document doc = XMLUtils.read(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), false);
+        Canonicalizer c14n = Canonicalizer.getInstance(Canonicalizer.ALGO_ID_C14N_OMIT_COMMENTS);
+        for (int i = 0; i < 2; i++) {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            c14n.canonicalizeSubtree(doc, baos);
+            assertEquals(definedOutput, baos.toString(StandardCharsets.UTF_8));
+        }
+    }
+
     /**
      * Method doTestXMLAttributes
      *
@@ -0,0 +1,155 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.test.dom.c14n.implementations;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.xml.security.Init;
+import org.apache.xml.security.c14n.Canonicalizer;
+import org.apache.xml.security.c14n.CanonicalizerSpi;
+import org.apache.xml.security.c14n.implementations.Canonicalizer20010315ExclOmitComments;
+import org.apache.xml.security.c14n.implementations.Canonicalizer20010315OmitComments;
+import org.apache.xml.security.utils.ClassLoaderUtils;
+import org.apache.xml.security.utils.XMLUtils;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class CanonicalizerEnginePoolTest {
+
+    private static final String CONFIG_FILE = "org/apache/xml/security/resource/config.xml";
+
+    private static final String XML =
+        "<a xmlns=\"urn:a\" xmlns:b=\"urn:b\" xml:lang=\"en\"><c b:attr=\"1\"/></a>";
+
+    static {
+        Init.init();
+    }
+
+    @Test
+    void testEngineIsReused() throws Exception {
+        drain(Canonicalizer.ALGO_ID_C14N_EXCL_OMIT_COMMENTS);
+        CanonicalizerSpi engine = Canonicalizer.acquireEngine(Canonicalizer.ALGO_ID_C14N_EXCL_OMIT_COMMENTS);
+        Canonicalizer.releaseEngine(engine);
+        assertSame(engine, Canonicalizer.acquireEngine(Canonicalizer.ALGO_ID_C14N_EXCL_OMIT_COMMENTS));
+        assertNotSame(engine, Canonicalizer.acquireEngine(Canonicalizer.ALGO_ID_C14N_EXCL_OMIT_COMMENTS));
+
+        // engines of other classes than the registered one are not pooled
+        Canonicalizer.releaseEngine(new Canonicalizer20010315ExclOmitComments() { });
+        assertNull(Canonicalizer.pollEngine(Canonicalizer.ALGO_ID_C14N_EXCL_OMIT_COMMENTS));
+    }
+
+    @Test
+    void testEnginesOfDefaultAlgorithms() throws Exception {
+        Document config;
+        try (InputStream is =
+            ClassLoaderUtils.getResourceAsStream(CONFIG_FILE, CanonicalizerEnginePoolTest.class)) {
+            config = XMLUtils.read(is, true);
+        }
+        Element[] canonicalizationMethods = XMLUtils.selectNodes(
+            config.getDocumentElement().getFirstChild(), Init.CONF_NS, "CanonicalizationMethods");
+        Element[] c14nElems = XMLUtils.selectNodes(
+            canonicalizationMethods[0].getFirstChild(), Init.CONF_NS, "CanonicalizationMethod");
+        assertFalse(c14nElems.length == 0);
+        for (Element c14nElem : c14nElems) {
+            String uri = c14nElem.getAttributeNS(null, "URI");
+            CanonicalizerSpi engine = Canonicalizer.acquireEngine(uri);
+            assertEquals(c14nElem.getAttributeNS(null, "JAVACLASS"), engine.getClass().getName(), uri);
+            assertEquals(uri, engine.engineGetURI());
+            Canonicalizer.releaseEngine(engine);
+        }
+    }
+
+    @Test
+    void testTypedEngineIsReused() throws Exception {
+        drain(Canonicalizer.ALGO_ID_C14N_OMIT_COMMENTS);
+        Canonicalizer20010315OmitComments engine = Canonicalizer.acquireEngine(
+            Canonicalizer.ALGO_ID_C14N_OMIT_COMMENTS, Canonicalizer20010315OmitComments.class,
+            Canonicalizer20010315OmitComments::new);
+        Canonicalizer.releaseEngine(engine);
+        assertSame(engine, Canonicalizer.acquireEngine(
+            Canonicalizer.ALGO_ID_C14N_OMIT_COMMENTS, Canonicalizer20010315OmitComments.class,
+            Canonicalizer20010315OmitComments::new));
+
+        // a new engine is created if none is idle
+        Canonicalizer20010315OmitComments other = new Canonicalizer20010315OmitComments() { };
+        assertSame(other, Canonicalizer.acquireEngine(
+            Canonicalizer.ALGO_ID_C14N_OMIT_COMMENTS, Canonicalizer20010315OmitComments.class, () -> other));
+    }
+
+    @Test
+    void testExclusiveEngineIsReset() throws Exception {
+        Element c = getChild(XML);
+        drain(Canonicalizer.ALGO_ID_C14N_EXCL_OMIT_COMMENTS);
+        CanonicalizerSpi engine = Canonicalizer.acquireEngine(Canonicalizer.ALGO_ID_C14N_EXCL_OMIT_COMMENTS);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        engine.engineCanonicalizeSubTree(c, "#default", true, output);
+        assertEquals("<c xmlns=\"urn:a\" xmlns:b=\"urn:b\" b:attr=\"1\"></c>",
+                     output.toString(StandardCharsets.UTF_8));
+        Canonicalizer.releaseEngine(engine);
+
+        CanonicalizerSpi reused = Canonicalizer.acquireEngine(Canonicalizer.ALGO_ID_C14N_EXCL_OMIT_COMMENTS);
+        assertSame(engine, reused);
+        output = new ByteArrayOutputStream();
+        reused.engineCanonicalizeSubTree(c, output);
+        assertEquals(canonicalize(new Canonicalizer20010315ExclOmitComments(), c),
+                     output.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testInclusiveEngineIsReset() throws Exception {
+        Element c = getChild(XML);
+        String expected = canonicalize(new Canonicalizer20010315OmitComments(), c);
+        assertEquals("<c xmlns=\"urn:a\" xmlns:b=\"urn:b\" xml:lang=\"en\" b:attr=\"1\"></c>", expected);
+
+        // the xml:* attributes of the ancestors are output by every call
+        Canonicalizer canonicalizer = Canonicalizer.getInstance(Canonicalizer.ALGO_ID_C14N_OMIT_COMMENTS);
+        for (int i = 0; i < 3; i++) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            canonicalizer.canonicalizeSubtree(c, output);
+            assertEquals(expected, output.toString(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static String canonicalize(CanonicalizerSpi engine, Element element) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        engine.engineCanonicalizeSubTree(element, output);
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    private static Element getChild(String xml) throws Exception {
+        Document document = XMLUtils.read(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), false);
+        return (Element) document.getDocumentElement().getFirstChild();
+    }
+
+    private static void drain(String algorithmURI) {
+        while (Canonicalizer.pollEngine(algorithmURI) != null) {
+            // discard the idle engines
+        }
+    }
+}
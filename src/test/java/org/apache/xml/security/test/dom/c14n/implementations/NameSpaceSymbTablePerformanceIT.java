@@ -0,0 +1,123 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.test.dom.c14n.implementations;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.xml.security.Init;
+import org.apache.xml.security.c14n.Canonicalizer;
+import org.apache.xml.security.test.JmhUtils;
+import org.apache.xml.security.utils.XMLUtils;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Timeout;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.w3c.dom.Document;
+
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * Benchmarks the canonicalization of a document which declares many namespaces on every
+ * level, which stresses the push and pop of the NameSpaceSymbTable. Run it on two
+ * revisions to compare implementations of the table.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Threads(1)
+@Timeout(time = 1, timeUnit = TimeUnit.MINUTES)
+@Fork(1)
+@Tag("benchmark")
+public class NameSpaceSymbTablePerformanceIT {
+
+    @Test
+    void runBenchmarks() throws Exception {
+        Options options = new OptionsBuilder()
+                .include(this.getClass().getName())
+                .shouldFailOnError(true)
+                .shouldDoGC(true)
+                .build();
+        JmhUtils.runAndVerify(options, lessThanOrEqualTo(100_000d), lessThanOrEqualTo(10_000d));
+    }
+
+    @Benchmark
+    public void benchmarkInclusive(NamespaceHeavyDocument document) throws Exception {
+        canonicalize(Canonicalizer.ALGO_ID_C14N_OMIT_COMMENTS, document.document);
+    }
+
+    @Benchmark
+    public void benchmarkExclusive(NamespaceHeavyDocument document) throws Exception {
+        canonicalize(Canonicalizer.ALGO_ID_C14N_EXCL_OMIT_COMMENTS, document.document);
+    }
+
+    private static void canonicalize(String algorithmURI, Document document) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Canonicalizer.getInstance(algorithmURI).canonicalizeSubtree(document, output);
+        assertNotEquals(0, output.size());
+    }
+
+    /**
+     * A document with 40 prefixes in scope, of which every element redeclares one.
+     */
+    @State(Scope.Thread)
+    public static class NamespaceHeavyDocument {
+
+        private Document document;
+
+        @Setup
+        public void setUp() throws Exception {
+            Init.init();
+            StringBuilder xml = new StringBuilder(128 * 1024);
+            xml.append("<soap:Envelope xmlns:soap=\"urn:soap\"");
+            for (int i = 0; i < 40; i++) {
+                xml.append(" xmlns:ns").append(i).append("=\"urn:ns").append(i).append('"');
+            }
+            xml.append('>');
+            for (int i = 0; i < 100; i++) {
+                xml.append("<soap:Header xmlns:ns").append(i % 40).append("=\"urn:redeclared\">");
+                for (int j = 0; j < 10; j++) {
+                    xml.append("<ns").append(j).append(":Element xmlns:ns").append((j + 20) % 40)
+                        .append("=\"urn:other").append(j).append("\" ns").append(j + 1)
+                        .append(":attr=\"v\">text</ns").append(j).append(":Element>");
+                }
+                xml.append("</soap:Header>");
+            }
+            xml.append("</soap:Envelope>");
+            document = XMLUtils.read(
+                new ByteArrayInputStream(xml.toString().getBytes(StandardCharsets.UTF_8)), false);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.test.dom.c14n.implementations;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.apache.xml.security.c14n.CanonicalizationException;
+import org.apache.xml.security.c14n.implementations.Canonicalizer11_OmitComments;
+import org.apache.xml.security.c14n.implementations.Canonicalizer11_WithComments;
+import org.apache.xml.security.c14n.implementations.Canonicalizer20010315Excl;
+import org.apache.xml.security.c14n.implementations.Canonicalizer20010315ExclOmitComments;
+import org.apache.xml.security.c14n.implementations.Canonicalizer20010315ExclWithComments;
+import org.apache.xml.security.c14n.implementations.Canonicalizer20010315OmitComments;
+import org.apache.xml.security.c14n.implementations.Canonicalizer20010315WithComments;
+import org.apache.xml.security.c14n.implementations.CanonicalizerBase;
+import org.apache.xml.security.signature.XMLSignatureByteInput;
+import org.apache.xml.security.signature.XMLSignatureInput;
+import org.apache.xml.security.signature.XMLSignatureStreamInput;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import static org.apache.xml.security.test.XmlSecTestEnvironment.resolvePath;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the canonicalization of octet input streamed through the StAX canonicalizers
+ * with the canonicalization of the parsed DOM.
+ */
+class StreamingOctetCanonicalizationTest {
+
+    static {
+        org.apache.xml.security.Init.init();
+    }
+
+    private static final String INLINE =
+        "<?xml version=\"1.0\"?>\n"
+        + "<?pi-before data?>\n<!-- comment before -->\n"
+        + "<a:root xmlns:a=\"http://a.example.org/\" xmlns:b=\"http://b.example.org/\" xmlns=\"http://default.example.org/\""
+        + " z=\"1\" b:y=\"&quot;&lt;&amp;&#9;&#10;\" >\n"
+        + "  <child xmlns:unused=\"http://unused.example.org/\" a:attr='x'>text &amp; &gt; <![CDATA[<cdata & more>]]></child>\n"
+        + "  <!-- inner comment --><?pi inner?>\n"
+        + "  <empty/><b:other xmlns=\"\"/>\r\n"
+        + "</a:root>\n<!-- comment after --><?pi-after?>\n";
+
+    private static final String DTD =
+        "<?xml version=\"1.0\"?>\n<!-- comment before -->\n"
+        + "<!DOCTYPE root [<!ATTLIST root default CDATA \"value\"><!ENTITY ent \"entity text\">]>\n"
+        + "<root>&ent;</root>";
+
+    static Stream<Arguments> inputs() throws Exception {
+        List<Arguments> arguments = new ArrayList<>();
+        List<byte[]> documents = new ArrayList<>();
+        documents.add(INLINE.getBytes(StandardCharsets.UTF_8));
+        Path prefix = resolvePath("src", "test", "resources", "org", "apache", "xml", "security", "c14n");
+        for (String file : new String[] {"32_input.xml", "36_input.xml", "default_ns_redefinition_input.xml",
+                                         "testTranslationFromUTF16toUTF8.xml"}) {
+            documents.add(Files.readAllBytes(resolvePath(prefix, "in", file)));
+        }
+        for (String file : new String[] {"example2_2_1.xml", "example2_2_2.xml", "example2_2_3.xml",
+                                         "example2_4.xml", "plain-soap-1.1.xml"}) {
+            documents.add(Files.readAllBytes(resolvePath(prefix, "inExcl", file)));
+        }
+        // The default attribute of the DTD is only applied by the DOM
+        documents.add(DTD.getBytes(StandardCharsets.UTF_8));
+
+        for (int i = 0; i < 6; i++) {
+            for (byte[] document : documents) {
+                arguments.add(Arguments.of(i, document));
+            }
+        }
+        return arguments.stream();
+    }
+
+    @ParameterizedTest
+    @MethodSource("inputs")
+    void testStreamedOutputMatchesDOM(int algorithm, byte[] document) throws Exception {
+        assertEquals(
+            new String(canonicalize(newCanonicalizer(algorithm), false, document), StandardCharsets.UTF_8),
+            new String(canonicalize(newCanonicalizer(algorithm), true, document), StandardCharsets.UTF_8)
+        );
+    }
+
+    @Test
+    void testExcludeComments() throws Exception {
+        byte[] document = INLINE.getBytes(StandardCharsets.UTF_8);
+        byte[] expected = canonicalize(new Canonicalizer20010315OmitComments(), false, document);
+
+        XMLSignatureInput input = new XMLSignatureByteInput(document);
+        input.setExcludeComments(true);
+        CanonicalizerBase canonicalizer = new Canonicalizer20010315WithComments();
+        canonicalizer.setStreamOctets(true);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        canonicalizer.engineCanonicalize(input, output, true);
+        assertArrayEquals(expected, output.toByteArray());
+    }
+
+    @Test
+    void testOctetNodeSetWithInclusiveNamespaces() throws Exception {
+        byte[] document = INLINE.getBytes(StandardCharsets.UTF_8);
+        String expected = null;
+        for (boolean stream : new boolean[] {false, true}) {
+            XMLSignatureInput input = new XMLSignatureStreamInput(new ByteArrayInputStream(document));
+            input.setOctetNodeSet(true);
+            Canonicalizer20010315Excl canonicalizer = new Canonicalizer20010315ExclOmitComments();
+            canonicalizer.setStreamOctets(stream);
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            canonicalizer.engineCanonicalize(input, "b #default", output, true);
+            String result = new String(output.toByteArray(), StandardCharsets.UTF_8);
+            if (expected == null) {
+                expected = result;
+            } else {
+                assertEquals(expected, result);
+            }
+        }
+        // The unused namespaces are only rendered because of the PrefixList
+        assertTrue(expected.contains("<a:root xmlns=\"http://default.example.org/\" xmlns:a=\"http://a.example.org/\""
+            + " xmlns:b=\"http://b.example.org/\""), expected);
+    }
+
+    @Test
+    void testMalformedInput() throws Exception {
+        CanonicalizerBase canonicalizer = new Canonicalizer20010315OmitComments();
+        assertThrows(CanonicalizationException.class,
+            () -> canonicalize(canonicalizer, true, "<a><b></a>".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static byte[] canonicalize(CanonicalizerBase canonicalizer, boolean stream, byte[] document)
+        throws Exception {
+        canonicalizer.setStreamOctets(stream);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        canonicalizer.engineCanonicalize(document, output, false);
+        return output.toByteArray();
+    }
+
+    private static CanonicalizerBase newCanonicalizer(int algorithm) {
+        switch (algorithm) {
+            case 0:
+                return new Canonicalizer20010315OmitComments();
+            case 1:
+                return new Canonicalizer20010315WithComments();
+            case 2:
+                return new Canonicalizer20010315ExclOmitComments();
+            case 3:
+                return new Canonicalizer20010315ExclWithComments();
+            case 4:
+                return new Canonicalizer11_OmitComments();
+            default:
+                return new Canonicalizer11_WithComments();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.test.dom.encryption;
+
+import java.security.Key;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+
+import org.apache.xml.security.Init;
+import org.apache.xml.security.algorithms.MessageDigestAlgorithm;
+import org.apache.xml.security.encryption.MultiRecipientEncryptor;
+import org.apache.xml.security.encryption.XMLCipher;
+import org.apache.xml.security.encryption.XMLEncryptionException;
+import org.apache.xml.security.encryption.params.ConcatKDFParams;
+import org.apache.xml.security.encryption.params.KeyAgreementParameters;
+import org.apache.xml.security.test.dom.TestUtils;
+import org.apache.xml.security.testutils.KeyTestUtils;
+import org.apache.xml.security.utils.Constants;
+import org.apache.xml.security.utils.EncryptionConstants;
+import org.apache.xml.security.utils.KeyUtils;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MultiRecipientEncryptorTest {
+
+    static {
+        Init.init();
+    }
+
+    @Test
+    void testEncryptForRecipients() throws Exception {
+        KeyPair rsaKeyPair1 = generateRSAKeyPair();
+        KeyPair rsaKeyPair2 = generateRSAKeyPair();
+        KeyPair ecKeyPair = KeyTestUtils.generateKeyPair(KeyUtils.KeyType.SECP256R1);
+        KeyGenerator keygen = KeyGenerator.getInstance("AES");
+        keygen.init(128);
+        SecretKey kek = keygen.generateKey();
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            MultiRecipientEncryptor encryptor = new MultiRecipientEncryptor(XMLCipher.AES_128_GCM);
+            encryptor.setExecutor(executor);
+            encryptor.addRecipient(XMLCipher.RSA_OAEP, rsaKeyPair1.getPublic(), "alice");
+            encryptor.addRecipient(XMLCipher.RSA_OAEP, rsaKeyPair2.getPublic(), "bob");
+            encryptor.addRecipient(XMLCipher.AES_128_KeyWrap, kek, null);
+            XMLCipher keyAgreementCipher = XMLCipher.getInstance(XMLCipher.AES_128_KeyWrap);
+            keyAgreementCipher.init(XMLCipher.WRAP_MODE, ecKeyPair.getPublic());
+            KeyAgreementParameters parameterSpec = new KeyAgreementParameters(
+                    KeyAgreementParameters.ActorType.ORIGINATOR,
+                    EncryptionConstants.ALGO_ID_KEYAGREEMENT_ECDH_ES,
+                    ConcatKDFParams.createBuilder(128, MessageDigestAlgorithm.ALGO_ID_DIGEST_SHA256).build());
+            encryptor.addRecipient(keyAgreementCipher, parameterSpec, "carol");
+
+            Document document = createDocument();
+            encryptor.doFinal(document, (Element) document.getDocumentElement().getFirstChild(), false);
+
+            NodeList encryptedKeys = document.getElementsByTagNameNS(
+                EncryptionConstants.EncryptionSpecNS, EncryptionConstants._TAG_ENCRYPTEDKEY);
+            assertEquals(4, encryptedKeys.getLength());
+            assertEquals(4, document.getElementsByTagNameNS(
+                EncryptionConstants.EncryptionSpecNS, EncryptionConstants._TAG_DATAREFERENCE).getLength());
+            assertEquals(0, document.getElementsByTagNameNS(
+                EncryptionConstants.EncryptionSpecNS, EncryptionConstants._TAG_CARRIEDKEYNAME).getLength());
+            assertEquals("alice", ((Element) encryptedKeys.item(0)).getAttributeNS(null, "Recipient"));
+            assertEquals("bob", ((Element) encryptedKeys.item(1)).getAttributeNS(null, "Recipient"));
+
+            for (Key key : new Key[] {rsaKeyPair1.getPrivate(), rsaKeyPair2.getPrivate(), kek,
+                                      ecKeyPair.getPrivate()}) {
+                assertEquals("plaintext", decrypt((Document) document.cloneNode(true), key));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testEncryptContent() throws Exception {
+        KeyPair keyPair = generateRSAKeyPair();
+        MultiRecipientEncryptor encryptor = new MultiRecipientEncryptor(XMLCipher.AES_256);
+        encryptor.addRecipient(XMLCipher.RSA_OAEP, keyPair.getPublic(), "alice");
+
+        Document document = createDocument();
+        Element data = (Element) document.getDocumentElement().getFirstChild();
+        encryptor.doFinal(document, data, true);
+        assertEquals(EncryptionConstants._TAG_ENCRYPTEDDATA, data.getFirstChild().getLocalName());
+        assertEquals("plaintext", decrypt(document, keyPair.getPrivate()));
+    }
+
+    @Test
+    void testCarriedKeyName() throws Exception {
+        KeyPair keyPair1 = generateRSAKeyPair();
+        KeyPair keyPair2 = generateRSAKeyPair();
+        MultiRecipientEncryptor encryptor = new MultiRecipientEncryptor(XMLCipher.AES_128_GCM);
+        encryptor.setCarriedKeyName("content-key");
+        encryptor.addRecipient(XMLCipher.RSA_OAEP, keyPair1.getPublic(), "alice");
+        encryptor.addRecipient(XMLCipher.RSA_OAEP, keyPair2.getPublic(), "bob");
+
+        Document document = createDocument();
+        encryptor.doFinal(document, (Element) document.getDocumentElement().getFirstChild(), false);
+
+        NodeList carriedKeyNames = document.getElementsByTagNameNS(
+            EncryptionConstants.EncryptionSpecNS, EncryptionConstants._TAG_CARRIEDKEYNAME);
+        assertEquals(2, carriedKeyNames.getLength());
+        NodeList keyNames = document.getElementsByTagNameNS(Constants.SignatureSpecNS, Constants._TAG_KEYNAME);
+        assertEquals(1, keyNames.getLength());
+        for (int i = 0; i < carriedKeyNames.getLength(); i++) {
+            assertEquals(keyNames.item(0).getTextContent(), carriedKeyNames.item(i).getTextContent());
+        }
+
+        for (Key key : new Key[] {keyPair1.getPrivate(), keyPair2.getPrivate()}) {
+            assertEquals("plaintext", decrypt((Document) document.cloneNode(true), key));
+        }
+    }
+
+    @Test
+    void testNoRecipients() throws Exception {
+        MultiRecipientEncryptor encryptor = new MultiRecipientEncryptor(XMLCipher.AES_128_GCM);
+        Document document = createDocument();
+        assertThrows(XMLEncryptionException.class, () ->
+            encryptor.doFinal(document, document.getDocumentElement(), true));
+    }
+
+    private static String decrypt(Document document, Key kek) throws Exception {
+        Element encryptedDataElement = (Element) document.getElementsByTagNameNS(
+            EncryptionConstants.EncryptionSpecNS, EncryptionConstants._TAG_ENCRYPTEDDATA).item(0);
+        XMLCipher cipher = XMLCipher.getInstance();
+        cipher.init(XMLCipher.DECRYPT_MODE, null);
+        cipher.setKEK(kek);
+        cipher.doFinal(document, encryptedDataElement);
+        return document.getDocumentElement().getTextContent();
+    }
+
+    private static Document createDocument() throws Exception {
+        Document document = TestUtils.newDocument();
+        Element root = document.createElementNS(null, "root");
+        document.appendChild(root);
+        Element data = document.createElementNS(null, "data");
+        data.setTextContent("plaintext");
+        root.appendChild(data);
+        return document;
+    }
+
+    private static KeyPair generateRSAKeyPair() throws Exception {
+        KeyPairGenerator kpg = KeyPairGenerator.getInstance("RSA");
+        kpg.initialize(2048);
+        return kpg.generateKeyPair();
+    }
+}
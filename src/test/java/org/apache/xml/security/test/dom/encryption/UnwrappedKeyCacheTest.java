@@ -0,0 +1,225 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.test.dom.encryption;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.time.Duration;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+
+import org.apache.xml.security.Init;
+import org.apache.xml.security.algorithms.MessageDigestAlgorithm;
+import org.apache.xml.security.encryption.EncryptedData;
+import org.apache.xml.security.encryption.EncryptedKey;
+import org.apache.xml.security.encryption.UnwrappedKeyCache;
+import org.apache.xml.security.encryption.XMLCipher;
+import org.apache.xml.security.encryption.XMLEncryptionException;
+import org.apache.xml.security.encryption.params.ConcatKDFParams;
+import org.apache.xml.security.encryption.params.KeyAgreementParameters;
+import org.apache.xml.security.keys.KeyInfo;
+import org.apache.xml.security.test.dom.TestUtils;
+import org.apache.xml.security.testutils.KeyTestUtils;
+import org.apache.xml.security.utils.EncryptionConstants;
+import org.apache.xml.security.utils.KeyUtils;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class UnwrappedKeyCacheTest {
+
+    private final SecretKey secretKey;
+
+    public UnwrappedKeyCacheTest() throws Exception {
+        Init.init();
+        KeyGenerator keygen = KeyGenerator.getInstance("AES");
+        keygen.init(128);
+        secretKey = keygen.generateKey();
+    }
+
+    @Test
+    void testRepeatedUnwrap() throws Exception {
+        KeyPair keyPair = generateRSAKeyPair();
+        XMLCipher wrapCipher = XMLCipher.getInstance(XMLCipher.RSA_OAEP);
+        wrapCipher.init(XMLCipher.WRAP_MODE, keyPair.getPublic());
+        EncryptedKey encryptedKey = wrapCipher.encryptKey(TestUtils.newDocument(), secretKey);
+
+        UnwrappedKeyCache cache = new UnwrappedKeyCache(10, Duration.ofMinutes(5));
+        assertEquals(secretKey, unwrap(encryptedKey, keyPair.getPrivate(), cache));
+        assertEquals(1, cache.size());
+
+        // The copy of the private key can't be used by the Cipher, so it must be a cache hit
+        PrivateKey unusableKey = new UnusablePrivateKey(keyPair.getPrivate());
+        assertEquals(secretKey, unwrap(encryptedKey, unusableKey, cache));
+        assertThrows(XMLEncryptionException.class, () -> unwrap(encryptedKey, unusableKey, null));
+
+        // A different unwrapping key is a cache miss
+        PrivateKey otherKey = new UnusablePrivateKey(generateRSAKeyPair().getPrivate());
+        assertThrows(XMLEncryptionException.class, () -> unwrap(encryptedKey, otherKey, cache));
+    }
+
+    @Test
+    void testKeyAgreement() throws Exception {
+        KeyPair keyPair = KeyTestUtils.generateKeyPair(KeyUtils.KeyType.SECP256R1);
+        XMLCipher wrapCipher = XMLCipher.getInstance(XMLCipher.AES_128_KeyWrap);
+        wrapCipher.init(XMLCipher.WRAP_MODE, keyPair.getPublic());
+        KeyAgreementParameters parameterSpec = new KeyAgreementParameters(
+                KeyAgreementParameters.ActorType.ORIGINATOR,
+                EncryptionConstants.ALGO_ID_KEYAGREEMENT_ECDH_ES,
+                ConcatKDFParams.createBuilder(128, MessageDigestAlgorithm.ALGO_ID_DIGEST_SHA256).build());
+        EncryptedKey encryptedKey = wrapCipher.encryptKey(TestUtils.newDocument(), secretKey, parameterSpec, null);
+
+        UnwrappedKeyCache cache = new UnwrappedKeyCache(10, Duration.ofMinutes(5));
+        assertEquals(secretKey, unwrap(encryptedKey, keyPair.getPrivate(), cache));
+        assertEquals(1, cache.size());
+        assertEquals(secretKey, unwrap(encryptedKey, new UnusablePrivateKey(keyPair.getPrivate()), cache));
+    }
+
+    @Test
+    void testDecryptWithKEK() throws Exception {
+        KeyPair keyPair = generateRSAKeyPair();
+        UnwrappedKeyCache cache = new UnwrappedKeyCache(10, Duration.ofMinutes(5));
+        Document document = encryptDocument(keyPair);
+
+        for (PrivateKey kek : new PrivateKey[] {keyPair.getPrivate(), new UnusablePrivateKey(keyPair.getPrivate())}) {
+            Document encrypted = (Document) document.cloneNode(true);
+            Element encryptedDataElement = (Element) encrypted.getElementsByTagNameNS(
+                EncryptionConstants.EncryptionSpecNS, EncryptionConstants._TAG_ENCRYPTEDDATA).item(0);
+            XMLCipher decryptCipher = XMLCipher.getInstance();
+            decryptCipher.init(XMLCipher.DECRYPT_MODE, null);
+            decryptCipher.setKEK(kek);
+            decryptCipher.setUnwrappedKeyCache(cache);
+            decryptCipher.doFinal(encrypted, encryptedDataElement);
+
+            assertEquals("plaintext", encrypted.getDocumentElement().getTextContent());
+            assertEquals(1, cache.size());
+        }
+    }
+
+    @Test
+    void testParameters() throws Exception {
+        Key unwrappingKey = generateRSAKeyPair().getPrivate();
+        byte[] encrypted = "encrypted".getBytes(StandardCharsets.UTF_8);
+        byte[] unwrapped = {1, 2, 3, 4};
+        UnwrappedKeyCache cache = new UnwrappedKeyCache(10, Duration.ofMinutes(5));
+        cache.put(encrypted, unwrappingKey, unwrapped, XMLCipher.RSA_OAEP, null);
+
+        assertArrayEquals(unwrapped, cache.get(encrypted, unwrappingKey, XMLCipher.RSA_OAEP, null));
+        assertNull(cache.get(encrypted, unwrappingKey, XMLCipher.RSA_OAEP, ""));
+        assertNull(cache.get(encrypted, unwrappingKey, XMLCipher.RSA_OAEP_11, null));
+        assertNull(cache.get(encrypted, unwrappingKey, XMLCipher.RSA_OAEP));
+
+        // The cache holds its own copy
+        unwrapped[0] = 0;
+        assertEquals(1, cache.get(encrypted, unwrappingKey, XMLCipher.RSA_OAEP, null)[0]);
+    }
+
+    @Test
+    void testEvictionAndExpiry() throws Exception {
+        Key unwrappingKey = generateRSAKeyPair().getPrivate();
+        byte[] first = "first".getBytes(StandardCharsets.UTF_8);
+        byte[] second = "second".getBytes(StandardCharsets.UTF_8);
+        UnwrappedKeyCache cache = new UnwrappedKeyCache(1, Duration.ofMinutes(5));
+        cache.put(first, unwrappingKey, new byte[] {1});
+        cache.put(second, unwrappingKey, new byte[] {2});
+        assertEquals(1, cache.size());
+        assertNull(cache.get(first, unwrappingKey));
+        assertArrayEquals(new byte[] {2}, cache.get(second, unwrappingKey));
+        cache.clear();
+        assertEquals(0, cache.size());
+
+        UnwrappedKeyCache expiringCache = new UnwrappedKeyCache(1, Duration.ofNanos(1));
+        expiringCache.put(first, unwrappingKey, new byte[] {1});
+        Thread.sleep(1);
+        assertNull(expiringCache.get(first, unwrappingKey));
+        assertEquals(0, expiringCache.size());
+    }
+
+    private static Key unwrap(EncryptedKey encryptedKey, Key key, UnwrappedKeyCache cache) throws Exception {
+        XMLCipher cipher = XMLCipher.getInstance();
+        cipher.init(XMLCipher.UNWRAP_MODE, key);
+        cipher.setUnwrappedKeyCache(cache);
+        return cipher.decryptKey(encryptedKey, XMLCipher.AES_128);
+    }
+
+    private Document encryptDocument(KeyPair keyPair) throws Exception {
+        Document document = TestUtils.newDocument();
+        Element root = document.createElementNS(null, "root");
+        document.appendChild(root);
+        Element data = document.createElementNS(null, "data");
+        data.setTextContent("plaintext");
+        root.appendChild(data);
+
+        XMLCipher wrapCipher = XMLCipher.getInstance(XMLCipher.RSA_OAEP);
+        wrapCipher.init(XMLCipher.WRAP_MODE, keyPair.getPublic());
+        EncryptedKey encryptedKey = wrapCipher.encryptKey(document, secretKey);
+
+        XMLCipher cipher = XMLCipher.getInstance(XMLCipher.AES_128);
+        cipher.init(XMLCipher.ENCRYPT_MODE, secretKey);
+        EncryptedData encryptedData = cipher.getEncryptedData();
+        KeyInfo keyInfo = new KeyInfo(document);
+        keyInfo.add(encryptedKey);
+        encryptedData.setKeyInfo(keyInfo);
+        return cipher.doFinal(document, data);
+    }
+
+    private static KeyPair generateRSAKeyPair() throws Exception {
+        KeyPairGenerator kpg = KeyPairGenerator.getInstance("RSA");
+        kpg.initialize(2048);
+        return kpg.generateKeyPair();
+    }
+
+    /**
+     * A private key with the encoding of another key, in a format which no provider accepts.
+     */
+    private static final class UnusablePrivateKey implements PrivateKey {
+
+        private static final long serialVersionUID = 1L;
+
+        private final PrivateKey key;
+
+        UnusablePrivateKey(PrivateKey key) {
+            this.key = key;
+        }
+
+        @Override
+        public String getAlgorithm() {
+            return key.getAlgorithm();
+        }
+
+        @Override
+        public String getFormat() {
+            return "unusable";
+        }
+
+        @Override
+        public byte[] getEncoded() {
+            return key.getEncoded();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.test.dom.signature;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.util.Random;
+
+import javax.xml.crypto.KeySelector;
+import javax.xml.crypto.dsig.XMLSignatureFactory;
+import javax.xml.crypto.dsig.dom.DOMValidateContext;
+
+import org.apache.jcp.xml.dsig.internal.dom.XMLDSigRI;
+import org.apache.xml.security.Init;
+import org.apache.xml.security.algorithms.MessageDigestAlgorithm;
+import org.apache.xml.security.signature.XMLSignature;
+import org.apache.xml.security.test.dom.TestUtils;
+import org.apache.xml.security.utils.resolver.ResourceResolver;
+import org.apache.xml.security.utils.resolver.implementations.ResolverLocalFilesystem;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Signs and verifies References to local files without Transforms, which are digested
+ * directly from the file.
+ */
+class DetachedFileReferenceTest {
+
+    private final KeyPair keyPair;
+
+    @TempDir
+    Path tempDir;
+
+    public DetachedFileReferenceTest() throws Exception {
+        Init.init();
+        ResourceResolver.register(new ResolverLocalFilesystem(), false);
+        KeyPairGenerator kpg = KeyPairGenerator.getInstance("RSA");
+        kpg.initialize(2048);
+        keyPair = kpg.generateKeyPair();
+    }
+
+    @Test
+    void testSignAndVerifyLargeFile() throws Exception {
+        // Larger than a single read chunk
+        byte[] content = new byte[3 * 1024 * 1024 + 17];
+        new Random(42).nextBytes(content);
+        Path file = tempDir.resolve("payload.bin");
+        Files.write(file, content);
+
+        Document doc = TestUtils.newDocument();
+        Element rootElement = doc.createElementNS("http://ns.example.org/", "root");
+        doc.appendChild(rootElement);
+        XMLSignature sig = new XMLSignature(doc, null, XMLSignature.ALGO_ID_SIGNATURE_RSA_SHA256);
+        rootElement.appendChild(sig.getElement());
+        sig.addDocument(file.toUri().toString(), null, MessageDigestAlgorithm.ALGO_ID_DIGEST_SHA256);
+        sig.sign(keyPair.getPrivate());
+
+        byte[] expectedDigest = MessageDigest.getInstance("SHA-256").digest(content);
+        assertArrayEquals(expectedDigest, sig.getSignedInfo().item(0).getDigestValue());
+
+        XMLSignature signature = new XMLSignature(sig.getElement(), null);
+        assertTrue(signature.checkSignatureValue(keyPair.getPublic()));
+
+        XMLSignatureFactory fac = XMLSignatureFactory.getInstance("DOM", new XMLDSigRI());
+        DOMValidateContext dvc =
+            new DOMValidateContext(KeySelector.singletonKeySelector(keyPair.getPublic()), sig.getElement());
+        assertTrue(fac.unmarshalXMLSignature(dvc).validate(dvc));
+
+        content[content.length - 1]++;
+        Files.write(file, content);
+        signature = new XMLSignature(sig.getElement(), null);
+        assertFalse(signature.checkSignatureValue(keyPair.getPublic()));
+    }
+}
@@ -0,0 +1,209 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.test.dom.signature;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.crypto.KeySelector;
+import javax.xml.crypto.dsig.XMLSignatureFactory;
+import javax.xml.crypto.dsig.dom.DOMValidateContext;
+
+import org.apache.jcp.xml.dsig.internal.dom.DOMXMLSignature;
+import org.apache.jcp.xml.dsig.internal.dom.XMLDSigRI;
+import org.apache.xml.security.Init;
+import org.apache.xml.security.algorithms.MessageDigestAlgorithm;
+import org.apache.xml.security.metrics.Metrics;
+import org.apache.xml.security.metrics.Operation;
+import org.apache.xml.security.signature.ReferenceDigestCache;
+import org.apache.xml.security.signature.XMLSignature;
+import org.apache.xml.security.test.dom.TestUtils;
+import org.apache.xml.security.utils.resolver.ResourceResolver;
+import org.apache.xml.security.utils.resolver.implementations.ResolverLocalFilesystem;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit test for {@link ReferenceDigestCache}
+ */
+class ReferenceDigestCacheTest {
+
+    private static final String DIGEST_URI = MessageDigestAlgorithm.ALGO_ID_DIGEST_SHA256;
+
+    private final KeyPair keyPair;
+
+    @TempDir
+    Path tempDir;
+
+    public ReferenceDigestCacheTest() throws Exception {
+        Init.init();
+        ResourceResolver.register(new ResolverLocalFilesystem(), false);
+        KeyPairGenerator kpg = KeyPairGenerator.getInstance("RSA");
+        kpg.initialize(2048);
+        keyPair = kpg.generateKeyPair();
+    }
+
+    @Test
+    void testVerifyUsesCachedDigest() throws Exception {
+        Path file = tempDir.resolve("payload.txt");
+        Files.write(file, "Hello World".getBytes(StandardCharsets.UTF_8));
+        Element sigElement = signFile(file);
+
+        ReferenceDigestCache cache = new ReferenceDigestCache(10);
+        XMLSignature signature = new XMLSignature(sigElement, null);
+        signature.setDigestCache(cache);
+        assertTrue(signature.checkSignatureValue(keyPair.getPublic()));
+        assertEquals(1, cache.size());
+
+        // Replace the cached value, so that a hit is observable as a failed verification
+        String validator = ReferenceDigestCache.getValidator(file);
+        String uri = file.toUri().toString();
+        byte[] cached = cache.get(uri, DIGEST_URI, Collections.emptyList(), validator);
+        byte[] bogus = cached.clone();
+        bogus[0]++;
+        cache.put(uri, DIGEST_URI, Collections.emptyList(), validator, bogus);
+        signature = new XMLSignature(sigElement, null);
+        signature.setDigestCache(cache);
+        assertFalse(signature.checkSignatureValue(keyPair.getPublic()));
+
+        // A changed file changes the validator, so the content is digested again
+        Files.write(file, "Hello World".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 60_000));
+        assertNotEquals(validator, ReferenceDigestCache.getValidator(file));
+        signature = new XMLSignature(sigElement, null);
+        signature.setDigestCache(cache);
+        assertTrue(signature.checkSignatureValue(keyPair.getPublic()));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void testDigestedBytesAreRecorded() throws Exception {
+        Path file = tempDir.resolve("payload.txt");
+        Files.write(file, "Hello World".getBytes(StandardCharsets.UTF_8));
+        Element sigElement = signFile(file);
+
+        List<Long> bytes = new ArrayList<>();
+        Metrics.setRecorder((operation, name, durationNanos, byteCount, allocatedBytes) -> {
+            if (operation == Operation.REFERENCE_DIGEST) {
+                bytes.add(byteCount);
+            }
+        });
+        try {
+            ReferenceDigestCache cache = new ReferenceDigestCache(10);
+            for (int i = 0; i < 2; i++) {
+                XMLSignature signature = new XMLSignature(sigElement, null);
+                signature.setDigestCache(cache);
+                assertTrue(signature.checkSignatureValue(keyPair.getPublic()));
+            }
+        } finally {
+            Metrics.setRecorder(null);
+        }
+        // the file is digested directly first, and its digest value is cached the second time
+        assertEquals(List.of(11L, 11L), bytes);
+    }
+
+    @Test
+    void testJSR105DigestCacheProperty() throws Exception {
+        Path file = tempDir.resolve("payload.txt");
+        Files.write(file, "Hello World".getBytes(StandardCharsets.UTF_8));
+        Element sigElement = signFile(file);
+
+        ReferenceDigestCache cache = new ReferenceDigestCache(10);
+        XMLSignatureFactory fac = XMLSignatureFactory.getInstance("DOM", new XMLDSigRI());
+        for (int i = 0; i < 2; i++) {
+            DOMValidateContext dvc =
+                new DOMValidateContext(KeySelector.singletonKeySelector(keyPair.getPublic()), sigElement);
+            dvc.setProperty(DOMXMLSignature.DIGEST_CACHE, cache);
+            assertTrue(fac.unmarshalXMLSignature(dvc).validate(dvc));
+            assertEquals(1, cache.size());
+        }
+    }
+
+    @Test
+    void testKeyIncludesAllParts() throws Exception {
+        ReferenceDigestCache cache = new ReferenceDigestCache(10);
+        byte[] digest = {1, 2, 3};
+        List<String> transforms = List.of("urn:transform");
+        cache.put("file:/a", DIGEST_URI, transforms, "v1", digest);
+
+        assertArrayEquals(digest, cache.get("file:/a", DIGEST_URI, transforms, "v1"));
+        assertNull(cache.get("file:/b", DIGEST_URI, transforms, "v1"));
+        assertNull(cache.get("file:/a", MessageDigestAlgorithm.ALGO_ID_DIGEST_SHA512, transforms, "v1"));
+        assertNull(cache.get("file:/a", DIGEST_URI, Collections.emptyList(), "v1"));
+        assertNull(cache.get("file:/a", DIGEST_URI, transforms, "v2"));
+    }
+
+    @Test
+    void testBoundedSize() throws Exception {
+        ReferenceDigestCache cache = new ReferenceDigestCache(2);
+        cache.put("file:/a", DIGEST_URI, Collections.emptyList(), "v", new byte[] {1});
+        cache.put("file:/b", DIGEST_URI, Collections.emptyList(), "v", new byte[] {2});
+        // Touch a, so that b is the least recently used entry
+        cache.get("file:/a", DIGEST_URI, Collections.emptyList(), "v");
+        cache.put("file:/c", DIGEST_URI, Collections.emptyList(), "v", new byte[] {3});
+
+        assertEquals(2, cache.size());
+        assertNull(cache.get("file:/b", DIGEST_URI, Collections.emptyList(), "v"));
+        assertArrayEquals(new byte[] {1}, cache.get("file:/a", DIGEST_URI, Collections.emptyList(), "v"));
+    }
+
+    @Test
+    void testSaveAndLoad() throws Exception {
+        Path storeFile = tempDir.resolve("digests.cache");
+        ReferenceDigestCache cache = new ReferenceDigestCache(10, storeFile);
+        assertEquals(0, cache.size());
+        cache.put("file:/a", DIGEST_URI, Collections.emptyList(), "v", new byte[] {1, 2});
+        cache.put("file:/b", DIGEST_URI, Collections.emptyList(), "v", new byte[] {3, 4});
+        cache.save();
+
+        Files.write(storeFile, List.of("#invalid #entry"), StandardCharsets.US_ASCII,
+                    StandardOpenOption.APPEND);
+        ReferenceDigestCache loaded = new ReferenceDigestCache(10, storeFile);
+        assertEquals(2, loaded.size());
+        assertArrayEquals(new byte[] {3, 4}, loaded.get("file:/b", DIGEST_URI, Collections.emptyList(), "v"));
+    }
+
+    private Element signFile(Path file) throws Exception {
+        Document doc = TestUtils.newDocument();
+        Element rootElement = doc.createElementNS("http://ns.example.org/", "root");
+        doc.appendChild(rootElement);
+        XMLSignature sig = new XMLSignature(doc, null, XMLSignature.ALGO_ID_SIGNATURE_RSA_SHA256);
+        rootElement.appendChild(sig.getElement());
+        sig.addDocument(file.toUri().toString(), null, DIGEST_URI);
+        sig.sign(keyPair.getPrivate());
+        return sig.getElement();
+    }
+}
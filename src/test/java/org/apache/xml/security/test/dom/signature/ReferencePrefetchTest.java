@@ -0,0 +1,172 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.test.dom.signature;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.xml.security.Init;
+import org.apache.xml.security.algorithms.MessageDigestAlgorithm;
+import org.apache.xml.security.signature.MissingResourceFailureException;
+import org.apache.xml.security.signature.XMLSignature;
+import org.apache.xml.security.test.dom.TestUtils;
+import org.apache.xml.security.utils.resolver.implementations.ResolverHttpClient;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies Signatures with several external References, which are prefetched concurrently.
+ */
+class ReferencePrefetchTest {
+
+    private static final int REFERENCES = 3;
+
+    private static Server server;
+    private static String baseURI;
+    // Requests to /concurrent/ only succeed if all of them are in flight at the same time
+    private static volatile CyclicBarrier barrier;
+
+    private final KeyPair keyPair;
+
+    public ReferencePrefetchTest() throws Exception {
+        KeyPairGenerator kpg = KeyPairGenerator.getInstance("RSA");
+        kpg.initialize(2048);
+        keyPair = kpg.generateKeyPair();
+    }
+
+    @BeforeAll
+    public static void startServer() throws Exception {
+        Init.init();
+        server = new Server(0);
+        ServletContextHandler context = new ServletContextHandler(ServletContextHandler.NO_SESSIONS);
+        context.setContextPath("/");
+        context.addServlet(new ServletHolder(new TestServlet()), "/*");
+        server.setHandler(context);
+        server.start();
+        baseURI = "http://localhost:" + ((ServerConnector) server.getConnectors()[0]).getLocalPort() + "/";
+    }
+
+    @AfterAll
+    public static void stopServer() throws Exception {
+        server.stop();
+    }
+
+    @Test
+    void testReferencesAreFetchedConcurrently() throws Exception {
+        ResolverHttpClient resolver = new ResolverHttpClient();
+        barrier = null;
+        Element sigElement = sign(resolver, "concurrent/");
+
+        ExecutorService executor = Executors.newFixedThreadPool(REFERENCES);
+        try {
+            barrier = new CyclicBarrier(REFERENCES);
+            XMLSignature signature = new XMLSignature(sigElement, null);
+            signature.addResourceResolver(resolver);
+            signature.setReferencePrefetch(executor, REFERENCES);
+            assertTrue(signature.checkSignatureValue(keyPair.getPublic()));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testFailedReference() throws Exception {
+        ResolverHttpClient resolver = new ResolverHttpClient();
+        barrier = null;
+        Element sigElement = sign(resolver, "");
+
+        // Replace the last Reference with one which can't be resolved
+        Element lastReference = (Element) sigElement.getElementsByTagNameNS(
+            "http://www.w3.org/2000/09/xmldsig#", "Reference").item(REFERENCES - 1);
+        lastReference.setAttributeNS(null, "URI", baseURI + "missing");
+
+        ExecutorService executor = Executors.newFixedThreadPool(REFERENCES);
+        try {
+            XMLSignature signature = new XMLSignature(sigElement, null);
+            signature.addResourceResolver(resolver);
+            signature.setReferencePrefetch(executor, 2);
+            // The SignatureValue is no longer valid, so verify the References directly
+            assertThrows(MissingResourceFailureException.class,
+                () -> signature.getSignedInfo().verify());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private Element sign(ResolverHttpClient resolver, String path) throws Exception {
+        Document doc = TestUtils.newDocument();
+        Element rootElement = doc.createElementNS("http://ns.example.org/", "root");
+        doc.appendChild(rootElement);
+        XMLSignature sig = new XMLSignature(doc, null, XMLSignature.ALGO_ID_SIGNATURE_RSA_SHA256);
+        rootElement.appendChild(sig.getElement());
+        sig.addResourceResolver(resolver);
+        for (int i = 0; i < REFERENCES; i++) {
+            sig.addDocument(baseURI + path + "data" + i, null, MessageDigestAlgorithm.ALGO_ID_DIGEST_SHA256);
+        }
+        sig.sign(keyPair.getPrivate());
+        return sig.getElement();
+    }
+
+    static class TestServlet extends HttpServlet {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+            String path = req.getPathInfo();
+            if (path.startsWith("/missing")) {
+                resp.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return;
+            }
+            CyclicBarrier currentBarrier = barrier;
+            if (path.startsWith("/concurrent/") && currentBarrier != null) {
+                try {
+                    currentBarrier.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException | BrokenBarrierException | TimeoutException e) {
+                    resp.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                    return;
+                }
+            }
+            resp.setContentType("text/plain");
+            resp.getOutputStream().write(("Content of " + path).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
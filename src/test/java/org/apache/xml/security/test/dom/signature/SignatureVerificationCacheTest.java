@@ -0,0 +1,222 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.test.dom.signature;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.time.Duration;
+import java.util.List;
+
+import javax.xml.crypto.KeySelector;
+import javax.xml.crypto.dsig.XMLSignatureFactory;
+import javax.xml.crypto.dsig.dom.DOMValidateContext;
+
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.apache.jcp.xml.dsig.internal.dom.DOMXMLSignature;
+import org.apache.jcp.xml.dsig.internal.dom.XMLDSigRI;
+import org.apache.xml.security.Init;
+import org.apache.xml.security.algorithms.MessageDigestAlgorithm;
+import org.apache.xml.security.jfr.XmlSecC14nEvent;
+import org.apache.xml.security.signature.SignatureVerificationCache;
+import org.apache.xml.security.signature.XMLSignature;
+import org.apache.xml.security.test.dom.TestUtils;
+import org.apache.xml.security.transforms.Transforms;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SignatureVerificationCacheTest {
+
+    private static final String DS_NS = "http://www.w3.org/2000/09/xmldsig#";
+
+    private final KeyPair keyPair;
+
+    public SignatureVerificationCacheTest() throws Exception {
+        Init.init();
+        KeyPairGenerator kpg = KeyPairGenerator.getInstance("RSA");
+        kpg.initialize(2048);
+        keyPair = kpg.generateKeyPair();
+    }
+
+    @Test
+    void testRepeatedVerification() throws Exception {
+        Document doc = signDocument();
+        SignatureVerificationCache cache = new SignatureVerificationCache(10, Duration.ofMinutes(5));
+
+        for (int i = 0; i < 3; i++) {
+            XMLSignature signature = new XMLSignature(getSignatureElement(doc), "");
+            signature.setVerificationCache(cache);
+            assertTrue(signature.checkSignatureValue(keyPair.getPublic()));
+            assertEquals(1, cache.size());
+        }
+    }
+
+    @Test
+    void testModifiedContentFailsWithCachedSignatureValue() throws Exception {
+        Document doc = signDocument();
+        SignatureVerificationCache cache = new SignatureVerificationCache(10, Duration.ofMinutes(5));
+
+        XMLSignature signature = new XMLSignature(getSignatureElement(doc), "");
+        signature.setVerificationCache(cache);
+        assertTrue(signature.checkSignatureValue(keyPair.getPublic()));
+
+        // The SignatureValue check is a cache hit, but the Reference is still re-digested
+        doc.getDocumentElement().getFirstChild().setNodeValue("Goodbye World!");
+        signature = new XMLSignature(getSignatureElement(doc), "");
+        signature.setVerificationCache(cache);
+        assertFalse(signature.checkSignatureValue(keyPair.getPublic()));
+    }
+
+    @Test
+    void testOtherKeyIsNotCached() throws Exception {
+        Document doc = signDocument();
+        SignatureVerificationCache cache = new SignatureVerificationCache(10, Duration.ofMinutes(5));
+
+        XMLSignature signature = new XMLSignature(getSignatureElement(doc), "");
+        signature.setVerificationCache(cache);
+        assertTrue(signature.checkSignatureValue(keyPair.getPublic()));
+
+        KeyPairGenerator kpg = KeyPairGenerator.getInstance("RSA");
+        kpg.initialize(2048);
+        KeyPair otherKeyPair = kpg.generateKeyPair();
+        signature = new XMLSignature(getSignatureElement(doc), "");
+        signature.setVerificationCache(cache);
+        assertFalse(signature.checkSignatureValue(otherKeyPair.getPublic()));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void testRepeatedValidationJSR105() throws Exception {
+        Document doc = signDocument();
+        SignatureVerificationCache cache = new SignatureVerificationCache(10, Duration.ofMinutes(5));
+        XMLSignatureFactory fac = XMLSignatureFactory.getInstance("DOM", new XMLDSigRI());
+
+        for (int i = 0; i < 3; i++) {
+            DOMValidateContext dvc = new DOMValidateContext(
+                KeySelector.singletonKeySelector(keyPair.getPublic()), getSignatureElement(doc));
+            dvc.setProperty(DOMXMLSignature.VERIFICATION_CACHE, cache);
+            javax.xml.crypto.dsig.XMLSignature signature = fac.unmarshalXMLSignature(dvc);
+            assertTrue(signature.validate(dvc));
+            assertEquals(1, cache.size());
+        }
+
+        doc.getDocumentElement().getFirstChild().setNodeValue("Goodbye World!");
+        DOMValidateContext dvc = new DOMValidateContext(
+            KeySelector.singletonKeySelector(keyPair.getPublic()), getSignatureElement(doc));
+        dvc.setProperty(DOMXMLSignature.VERIFICATION_CACHE, cache);
+        javax.xml.crypto.dsig.XMLSignature signature = fac.unmarshalXMLSignature(dvc);
+        assertFalse(signature.validate(dvc));
+        assertTrue(signature.getSignatureValue().validate(dvc));
+    }
+
+    @Test
+    void testCacheMissCanonicalizesSignedInfoOnce() throws Exception {
+        Document doc = signDocument();
+        SignatureVerificationCache cache = new SignatureVerificationCache(10, Duration.ofMinutes(5));
+        XMLSignatureFactory fac = XMLSignatureFactory.getInstance("DOM", new XMLDSigRI());
+        DOMValidateContext dvc = new DOMValidateContext(
+            KeySelector.singletonKeySelector(keyPair.getPublic()), getSignatureElement(doc));
+        dvc.setProperty(DOMXMLSignature.VERIFICATION_CACHE, cache);
+        javax.xml.crypto.dsig.XMLSignature signature = fac.unmarshalXMLSignature(dvc);
+
+        Path dump = Files.createTempFile("xmlsec", ".jfr");
+        List<RecordedEvent> events;
+        try {
+            try (Recording recording = new Recording()) {
+                recording.enable(XmlSecC14nEvent.class);
+                recording.start();
+                assertTrue(signature.getSignatureValue().validate(dvc));
+                recording.stop();
+                recording.dump(dump);
+            }
+            events = RecordingFile.readAllEvents(dump);
+        } finally {
+            Files.delete(dump);
+        }
+        String name = XmlSecC14nEvent.class.getAnnotation(Name.class).value();
+        // the bytes canonicalized for the cache lookup are also verified
+        assertEquals(1, events.stream().filter(e -> name.equals(e.getEventType().getName())).count());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void testBoundedSize() {
+        SignatureVerificationCache cache = new SignatureVerificationCache(2, Duration.ofMinutes(5));
+        byte[] signatureValue = {1, 2, 3};
+        for (int i = 0; i < 5; i++) {
+            byte[] signedInfo = ("<SignedInfo>" + i + "</SignedInfo>").getBytes(StandardCharsets.UTF_8);
+            cache.markVerified(XMLSignature.ALGO_ID_SIGNATURE_RSA_SHA256, signedInfo, signatureValue,
+                               keyPair.getPublic());
+        }
+        assertEquals(2, cache.size());
+        byte[] oldest = "<SignedInfo>0</SignedInfo>".getBytes(StandardCharsets.UTF_8);
+        byte[] newest = "<SignedInfo>4</SignedInfo>".getBytes(StandardCharsets.UTF_8);
+        assertFalse(cache.isVerified(XMLSignature.ALGO_ID_SIGNATURE_RSA_SHA256, oldest, signatureValue,
+                                     keyPair.getPublic()));
+        assertTrue(cache.isVerified(XMLSignature.ALGO_ID_SIGNATURE_RSA_SHA256, newest, signatureValue,
+                                    keyPair.getPublic()));
+        assertFalse(cache.isVerified(XMLSignature.ALGO_ID_SIGNATURE_RSA_SHA512, newest, signatureValue,
+                                     keyPair.getPublic()));
+    }
+
+    @Test
+    void testExpiry() throws Exception {
+        SignatureVerificationCache cache = new SignatureVerificationCache(2, Duration.ofMillis(1));
+        byte[] signatureValue = {1, 2, 3};
+        byte[] signedInfo = "<SignedInfo/>".getBytes(StandardCharsets.UTF_8);
+        cache.markVerified(XMLSignature.ALGO_ID_SIGNATURE_RSA_SHA256, signedInfo, signatureValue,
+                           keyPair.getPublic());
+        Thread.sleep(10);
+        assertFalse(cache.isVerified(XMLSignature.ALGO_ID_SIGNATURE_RSA_SHA256, signedInfo, signatureValue,
+                                     keyPair.getPublic()));
+        assertEquals(0, cache.size());
+    }
+
+    private Document signDocument() throws Exception {
+        Document doc = TestUtils.newDocument();
+        Element rootElement = doc.createElementNS("http://ns.example.org/", "root");
+        rootElement.appendChild(doc.createTextNode("Hello World!"));
+        doc.appendChild(rootElement);
+
+        XMLSignature sig = new XMLSignature(doc, "", XMLSignature.ALGO_ID_SIGNATURE_RSA_SHA256);
+        rootElement.appendChild(sig.getElement());
+
+        Transforms transforms = new Transforms(doc);
+        transforms.addTransform(Transforms.TRANSFORM_ENVELOPED_SIGNATURE);
+        transforms.addTransform(Transforms.TRANSFORM_C14N_EXCL_OMIT_COMMENTS);
+        sig.addDocument("", transforms, MessageDigestAlgorithm.ALGO_ID_DIGEST_SHA256);
+        sig.sign(keyPair.getPrivate());
+        return doc;
+    }
+
+    private static Element getSignatureElement(Document doc) {
+        return (Element) doc.getElementsByTagNameNS(DS_NS, "Signature").item(0);
+    }
+}
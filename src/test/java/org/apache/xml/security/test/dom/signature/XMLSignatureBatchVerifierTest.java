@@ -0,0 +1,187 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.test.dom.signature;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.xml.security.Init;
+import org.apache.xml.security.algorithms.MessageDigestAlgorithm;
+import org.apache.xml.security.c14n.Canonicalizer;
+import org.apache.xml.security.signature.XMLSignature;
+import org.apache.xml.security.signature.XMLSignatureBatchVerifier;
+import org.apache.xml.security.signature.XMLSignatureTemplate;
+import org.apache.xml.security.test.dom.TestUtils;
+import org.apache.xml.security.transforms.Transforms;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class XMLSignatureBatchVerifierTest {
+
+    private final KeyPair rsaKeyPair;
+    private final KeyPair ecKeyPair;
+
+    public XMLSignatureBatchVerifierTest() throws Exception {
+        Init.init();
+        KeyPairGenerator kpg = KeyPairGenerator.getInstance("RSA");
+        kpg.initialize(2048);
+        rsaKeyPair = kpg.generateKeyPair();
+        kpg = KeyPairGenerator.getInstance("EC");
+        kpg.initialize(256);
+        ecKeyPair = kpg.generateKeyPair();
+    }
+
+    @Test
+    void testVerifyMixedBatch() throws Exception {
+        XMLSignatureTemplate rsaTemplate = createTemplate(XMLSignature.ALGO_ID_SIGNATURE_RSA_SHA256, rsaKeyPair);
+        XMLSignatureTemplate ecTemplate = createTemplate(XMLSignature.ALGO_ID_SIGNATURE_ECDSA_SHA256, ecKeyPair);
+
+        List<Document> documents = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Document doc = getOriginalDocument("Hello World " + i);
+            if (i % 2 == 0) {
+                rsaTemplate.sign(doc);
+            } else {
+                ecTemplate.sign(doc);
+            }
+            documents.add(doc);
+        }
+        // Tamper with one document in the middle of the RSA group
+        documents.get(4).getDocumentElement().getFirstChild().setNodeValue("Tampered");
+        // and add one without a Signature
+        documents.add(getOriginalDocument("Unsigned"));
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            XMLSignatureBatchVerifier verifier = new XMLSignatureBatchVerifier(signature ->
+                signature.getKeyInfo().getPublicKey(), executor);
+            List<XMLSignatureBatchVerifier.Result> results = verifier.verify(documents);
+
+            assertEquals(11, results.size());
+            for (int i = 0; i < 10; i++) {
+                XMLSignatureBatchVerifier.Result result = results.get(i);
+                assertNull(result.getException());
+                assertEquals(i != 4, result.isValid());
+                assertEquals(i % 2 == 0 ? rsaKeyPair.getPublic() : ecKeyPair.getPublic(), result.getKey());
+            }
+            assertFalse(results.get(10).isValid());
+            assertNotNull(results.get(10).getException());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testVerifyInCallingThread() throws Exception {
+        XMLSignatureTemplate template = createTemplate(XMLSignature.ALGO_ID_SIGNATURE_RSA_SHA256, rsaKeyPair);
+        List<Document> documents = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Document doc = getOriginalDocument("Hello World " + i);
+            template.sign(doc);
+            documents.add(doc);
+        }
+
+        XMLSignatureBatchVerifier verifier =
+            new XMLSignatureBatchVerifier(signature -> rsaKeyPair.getPublic());
+        for (XMLSignatureBatchVerifier.Result result : verifier.verify(documents)) {
+            assertTrue(result.isValid());
+        }
+    }
+
+    @Test
+    void testSignaturesOfOneDocument() throws Exception {
+        Document doc = getOriginalDocument("");
+        Element root = doc.getDocumentElement();
+        List<Element> signatureElements = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Element data = doc.createElementNS("http://ns.example.org/", "data");
+            data.setAttributeNS(null, "Id", "data" + i);
+            data.setIdAttributeNS(null, "Id", true);
+            data.appendChild(doc.createTextNode("Hello World " + i));
+            root.appendChild(data);
+
+            // alternate the keys so that the Signatures fall into different groups
+            KeyPair keyPair = i % 2 == 0 ? rsaKeyPair : ecKeyPair;
+            XMLSignature sig = new XMLSignature(doc, "", i % 2 == 0
+                ? XMLSignature.ALGO_ID_SIGNATURE_RSA_SHA256 : XMLSignature.ALGO_ID_SIGNATURE_ECDSA_SHA256);
+            root.appendChild(sig.getElement());
+            Transforms transforms = new Transforms(doc);
+            transforms.addTransform(Transforms.TRANSFORM_C14N_EXCL_OMIT_COMMENTS);
+            sig.addDocument("#data" + i, transforms, MessageDigestAlgorithm.ALGO_ID_DIGEST_SHA256);
+            sig.addKeyInfo(keyPair.getPublic());
+            sig.sign(keyPair.getPrivate());
+            signatureElements.add(sig.getElement());
+        }
+
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        AtomicInteger tasks = new AtomicInteger();
+        Executor executor = command -> {
+            tasks.incrementAndGet();
+            executorService.execute(command);
+        };
+        try {
+            XMLSignatureBatchVerifier verifier = new XMLSignatureBatchVerifier(signature ->
+                signature.getKeyInfo().getPublicKey(), executor);
+            List<XMLSignatureBatchVerifier.Result> results = verifier.verifySignatures(signatureElements);
+
+            assertEquals(4, results.size());
+            for (XMLSignatureBatchVerifier.Result result : results) {
+                assertNull(result.getException());
+                assertTrue(result.isValid());
+            }
+            // one task parses the Document, and one verifies both groups
+            assertEquals(2, tasks.get());
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    private static XMLSignatureTemplate createTemplate(String signatureMethodURI, KeyPair keyPair)
+        throws Exception {
+        XMLSignatureTemplate template =
+            new XMLSignatureTemplate(signatureMethodURI, Canonicalizer.ALGO_ID_C14N_EXCL_OMIT_COMMENTS,
+                                     keyPair.getPrivate());
+        template.addReference("", MessageDigestAlgorithm.ALGO_ID_DIGEST_SHA256,
+                              Transforms.TRANSFORM_ENVELOPED_SIGNATURE,
+                              Transforms.TRANSFORM_C14N_EXCL_OMIT_COMMENTS);
+        template.addKeyInfo(keyPair.getPublic());
+        return template;
+    }
+
+    private static Document getOriginalDocument(String text) throws Exception {
+        Document doc = TestUtils.newDocument();
+        Element rootElement = doc.createElementNS("http://ns.example.org/", "root");
+        rootElement.appendChild(doc.createTextNode(text));
+        doc.appendChild(rootElement);
+        return doc;
+    }
+}
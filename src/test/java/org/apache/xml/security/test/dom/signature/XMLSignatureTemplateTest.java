@@ -0,0 +1,110 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.test.dom.signature;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+
+import org.apache.xml.security.Init;
+import org.apache.xml.security.algorithms.MessageDigestAlgorithm;
+import org.apache.xml.security.c14n.Canonicalizer;
+import org.apache.xml.security.signature.XMLSignature;
+import org.apache.xml.security.signature.XMLSignatureTemplate;
+import org.apache.xml.security.test.dom.TestUtils;
+import org.apache.xml.security.transforms.Transforms;
+import org.apache.xml.security.utils.XMLUtils;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class XMLSignatureTemplateTest {
+
+    private static final String DS_NS = "http://www.w3.org/2000/09/xmldsig#";
+
+    private final KeyPair keyPair;
+
+    public XMLSignatureTemplateTest() throws Exception {
+        Init.init();
+        KeyPairGenerator kpg = KeyPairGenerator.getInstance("RSA");
+        kpg.initialize(2048);
+        keyPair = kpg.generateKeyPair();
+    }
+
+    @Test
+    void testSignMultipleDocuments() throws Exception {
+        XMLSignatureTemplate template =
+            new XMLSignatureTemplate(XMLSignature.ALGO_ID_SIGNATURE_RSA_SHA256,
+                                     Canonicalizer.ALGO_ID_C14N_EXCL_OMIT_COMMENTS, keyPair.getPrivate());
+        template.addReference("", MessageDigestAlgorithm.ALGO_ID_DIGEST_SHA256,
+                              Transforms.TRANSFORM_ENVELOPED_SIGNATURE,
+                              Transforms.TRANSFORM_C14N_EXCL_OMIT_COMMENTS);
+        template.addKeyInfo(keyPair.getPublic());
+
+        for (int i = 0; i < 5; i++) {
+            Document doc = getOriginalDocument("Hello World " + i);
+            template.sign(doc);
+
+            XMLSignature signature = new XMLSignature(getSignatureElement(doc), "");
+            PublicKey publicKey = signature.getKeyInfo().getPublicKey();
+            assertNotNull(publicKey);
+            assertTrue(signature.checkSignatureValue(publicKey));
+        }
+
+        assertEquals(5, template.getSignedDocumentCount());
+        assertEquals(0, template.getFailedDocumentCount());
+        assertTrue(template.getTotalSigningTimeNanos() > 0);
+    }
+
+    @Test
+    void testSignToOutputStream() throws Exception {
+        XMLSignatureTemplate template =
+            new XMLSignatureTemplate(XMLSignature.ALGO_ID_SIGNATURE_RSA_SHA256,
+                                     Canonicalizer.ALGO_ID_C14N_EXCL_OMIT_COMMENTS, keyPair.getPrivate());
+        template.addReference("", MessageDigestAlgorithm.ALGO_ID_DIGEST_SHA256,
+                              Transforms.TRANSFORM_ENVELOPED_SIGNATURE);
+
+        for (int i = 0; i < 3; i++) {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            template.sign(getOriginalDocument("Hello World " + i), bos);
+
+            Document doc = XMLUtils.read(new ByteArrayInputStream(bos.toByteArray()), false);
+            XMLSignature signature = new XMLSignature(getSignatureElement(doc), "");
+            assertTrue(signature.checkSignatureValue(keyPair.getPublic()));
+        }
+    }
+
+    private static Document getOriginalDocument(String text) throws Exception {
+        Document doc = TestUtils.newDocument();
+        Element rootElement = doc.createElementNS("http://ns.example.org/", "root");
+        rootElement.appendChild(doc.createTextNode(text));
+        doc.appendChild(rootElement);
+        return doc;
+    }
+
+    private static Element getSignatureElement(Document doc) {
+        return (Element) doc.getElementsByTagNameNS(DS_NS, "Signature").item(0);
+    }
+}
@@ -20,6 +20,7 @@ package org.apache.xml.security.test.dom.transforms.implementations;
 
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.lang.System.Logger;
 import java.lang.System.Logger.Level;
@@ -32,6 +33,7 @@ import javax.xml.xpath.XPathFactory;
 import org.apache.xml.security.signature.XMLSignatureByteInput;
 import org.apache.xml.security.signature.XMLSignatureInput;
 import org.apache.xml.security.signature.XMLSignatureNodeInput;
+import org.apache.xml.security.signature.XMLSignatureStreamInput;
 import org.apache.xml.security.test.dom.DSNamespaceContext;
 import org.apache.xml.security.test.dom.TestUtils;
 import org.apache.xml.security.transforms.Transforms;
@@ -42,6 +44,7 @@ import org.w3c.dom.Node;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * Unit test for {@link org.apache.xml.security.transforms.implementations.TransformBase64Decode}
@@ -136,6 +139,25 @@ class TransformBase64DecodeTest {
         );
     }
 
+    @Test
+    void testStreamedInput() throws Exception {
+        String s1 =
+            "VGhlIFVSSSBvZiB0aGUgdHJhbnNmb3JtIGlzIGh0dHA6Ly93d3cudzMub3JnLzIwMDAvMDkveG1s\n"
+            + "ZHNpZyNiYXNlNjQ=";
+
+        Document doc = TransformBase64DecodeTest.createDocument();
+        Transforms t = new Transforms(doc);
+        doc.appendChild(t.getElement());
+        t.addTransform(Transforms.TRANSFORM_BASE64_DECODE);
+
+        XMLSignatureInput in = new XMLSignatureStreamInput(new ByteArrayInputStream(s1.getBytes(UTF_8)));
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        XMLSignatureInput out = t.performTransforms(in, os);
+
+        assertEquals("The URI of the transform is http://www.w3.org/2000/09/xmldsig#base64", os.toString(UTF_8));
+        assertTrue(out.isOutputStreamSet());
+    }
+
     private static Document createDocument() throws ParserConfigurationException {
         Document doc = TestUtils.newDocument();
 
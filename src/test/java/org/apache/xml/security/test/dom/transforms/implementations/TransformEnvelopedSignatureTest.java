@@ -0,0 +1,107 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.test.dom.transforms.implementations;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import org.apache.xml.security.c14n.Canonicalizer;
+import org.apache.xml.security.c14n.implementations.CanonicalizerBase;
+import org.apache.xml.security.signature.XMLSignatureInput;
+import org.apache.xml.security.signature.XMLSignatureStreamInput;
+import org.apache.xml.security.test.dom.TestUtils;
+import org.apache.xml.security.transforms.Transforms;
+import org.apache.xml.security.transforms.params.InclusiveNamespaces;
+import org.apache.xml.security.utils.Constants;
+import org.apache.xml.security.utils.XMLUtils;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Unit test for {@link org.apache.xml.security.transforms.implementations.TransformEnvelopedSignature}
+ * applied to octet input.
+ */
+class TransformEnvelopedSignatureTest {
+
+    static {
+        org.apache.xml.security.Init.init();
+    }
+
+    private static final String INPUT =
+        "<?xml version=\"1.0\"?>\n<!-- before -->\n"
+        + "<a:root xmlns:a=\"urn:a\" xmlns:b=\"urn:b\" xmlns:c=\"urn:c\" xmlns=\"urn:default\">"
+        + "<!-- inside --><a:child b:attr=\"1\"/><x xmlns=\"urn:x\"/></a:root>";
+
+    @Test
+    void testExclusiveWithInclusiveNamespaces() throws Exception {
+        assertTransforms(Canonicalizer.ALGO_ID_C14N_EXCL_OMIT_COMMENTS, "c #default");
+    }
+
+    @Test
+    void testExclusiveWithComments() throws Exception {
+        assertTransforms(Canonicalizer.ALGO_ID_C14N_EXCL_WITH_COMMENTS, null);
+    }
+
+    @Test
+    void testInclusive() throws Exception {
+        assertTransforms(Canonicalizer.ALGO_ID_C14N_OMIT_COMMENTS, null);
+    }
+
+    @Test
+    void testInclusive11WithComments() throws Exception {
+        assertTransforms(Canonicalizer.ALGO_ID_C14N11_WITH_COMMENTS, null);
+    }
+
+    /**
+     * The result must be the canonical form of the node-set of the parsed document.
+     */
+    private static void assertTransforms(String c14nURI, String inclusiveNamespaces) throws Exception {
+        Document doc = TestUtils.newDocument();
+        Element signature = doc.createElementNS(Constants.SignatureSpecNS, "ds:Signature");
+        doc.appendChild(signature);
+        Transforms transforms = new Transforms(doc);
+        signature.appendChild(transforms.getElement());
+        transforms.addTransform(Transforms.TRANSFORM_ENVELOPED_SIGNATURE);
+        if (inclusiveNamespaces == null) {
+            transforms.addTransform(c14nURI);
+        } else {
+            transforms.addTransform(c14nURI, new InclusiveNamespaces(doc, inclusiveNamespaces).getElement());
+        }
+
+        XMLSignatureInput input = new XMLSignatureStreamInput(new ByteArrayInputStream(INPUT.getBytes(UTF_8)));
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        transforms.performTransforms(input, os);
+        // without streaming, the octets are parsed into a node-set as before
+        assertEquals(CanonicalizerBase.isStreamOctetsByDefault(), input.isOctetNodeSet());
+
+        Document parsed = XMLUtils.read(new ByteArrayInputStream(INPUT.getBytes(UTF_8)), false);
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        if (inclusiveNamespaces == null) {
+            Canonicalizer.getInstance(c14nURI).canonicalizeSubtree(parsed, expected);
+        } else {
+            Canonicalizer.getInstance(c14nURI).canonicalizeSubtree(parsed, inclusiveNamespaces, expected);
+        }
+
+        assertEquals(expected.toString(UTF_8), os.toString(UTF_8));
+    }
+}
@@ -0,0 +1,173 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.test.dom.utils;
+
+import java.security.InvalidKeyException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.Provider;
+import java.security.Security;
+import java.security.spec.AlgorithmParameterSpec;
+
+import javax.crypto.Mac;
+import javax.crypto.MacSpi;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.xml.security.utils.JCEInstanceCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class JCEInstanceCacheTest {
+
+    @AfterEach
+    void clear() {
+        JCEInstanceCache.clear();
+    }
+
+    @Test
+    void testInstancesAreCachedPerThread() throws Exception {
+        Mac mac = JCEInstanceCache.getMac("HmacSHA256");
+        assertSame(mac, JCEInstanceCache.getMac("HmacSHA256"));
+        assertNotSame(mac, JCEInstanceCache.getMac("HmacSHA512"));
+
+        Mac[] otherThreadMac = new Mac[1];
+        Thread thread = new Thread(() -> {
+            try {
+                otherThreadMac[0] = JCEInstanceCache.getMac("HmacSHA256");
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        thread.start();
+        thread.join();
+        assertNotSame(mac, otherThreadMac[0]);
+    }
+
+    @Test
+    void testClear() throws Exception {
+        KeyFactory keyFactory = JCEInstanceCache.getKeyFactory("RSA");
+        Mac mac = JCEInstanceCache.getMac("HmacSHA256");
+
+        JCEInstanceCache.clear();
+
+        assertNotSame(keyFactory, JCEInstanceCache.getKeyFactory("RSA"));
+        assertNotSame(mac, JCEInstanceCache.getMac("HmacSHA256"));
+    }
+
+    @Test
+    void testKeysOfDifferentProviders() throws Exception {
+        Provider provider = new HardwareProvider();
+        Security.insertProviderAt(provider, 1);
+        try {
+            Key softwareKey = new SecretKeySpec(new byte[32], "HmacSHA256");
+            Mac softwareMac = JCEInstanceCache.getMac("HmacSHA256", softwareKey);
+            assertNotSame(provider, softwareMac.getProvider());
+
+            Mac hardwareMac = JCEInstanceCache.getMac("HmacSHA256", new HardwareKey());
+            assertSame(provider, hardwareMac.getProvider());
+
+            assertSame(softwareMac, JCEInstanceCache.getMac("HmacSHA256", softwareKey));
+            assertEquals(32, softwareMac.doFinal(new byte[1]).length);
+        } finally {
+            Security.removeProvider(provider.getName());
+        }
+    }
+
+    /**
+     * A provider whose HmacSHA256 only supports its own keys, like a PKCS#11 provider.
+     */
+    private static final class HardwareProvider extends Provider {
+
+        private static final long serialVersionUID = 1L;
+
+        HardwareProvider() {
+            super("JCEInstanceCacheTest", "1.0", "Test provider for hardware keys");
+            putService(new Provider.Service(this, "Mac", "HmacSHA256", HardwareMac.class.getName(), null, null) {
+                @Override
+                public Object newInstance(Object constructorParameter) {
+                    // the test module isn't open to java.base
+                    return new HardwareMac();
+                }
+            });
+        }
+    }
+
+    private static final class HardwareMac extends MacSpi {
+
+        @Override
+        protected int engineGetMacLength() {
+            return 32;
+        }
+
+        @Override
+        protected void engineInit(Key key, AlgorithmParameterSpec params) throws InvalidKeyException {
+            if (!(key instanceof HardwareKey)) {
+                throw new InvalidKeyException("Only hardware keys are supported");
+            }
+        }
+
+        @Override
+        protected void engineUpdate(byte input) {
+            // the test doesn't need a MAC value
+        }
+
+        @Override
+        protected void engineUpdate(byte[] input, int offset, int len) {
+            // the test doesn't need a MAC value
+        }
+
+        @Override
+        protected byte[] engineDoFinal() {
+            return new byte[32];
+        }
+
+        @Override
+        protected void engineReset() {
+            // nothing to reset
+        }
+    }
+
+    /**
+     * A key whose key material doesn't leave the token.
+     */
+    private static final class HardwareKey implements SecretKey {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public String getAlgorithm() {
+            return "HmacSHA256";
+        }
+
+        @Override
+        public String getFormat() {
+            return null;
+        }
+
+        @Override
+        public byte[] getEncoded() {
+            return null; //NOPMD
+        }
+    }
+}
@@ -0,0 +1,240 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.test.dom.utils.resolver;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.xml.security.Init;
+import org.apache.xml.security.algorithms.MessageDigestAlgorithm;
+import org.apache.xml.security.signature.XMLSignature;
+import org.apache.xml.security.signature.XMLSignatureInput;
+import org.apache.xml.security.test.dom.TestUtils;
+import org.apache.xml.security.utils.XMLUtils;
+import org.apache.xml.security.utils.resolver.ResourceResolverContext;
+import org.apache.xml.security.utils.resolver.ResourceResolverException;
+import org.apache.xml.security.utils.resolver.implementations.ResolverHttpClient;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit test for {@link ResolverHttpClient} against a local Jetty server.
+ */
+class ResolverHttpClientTest {
+
+    private static final byte[] CONTENT = "<data>Hello World</data>".getBytes(StandardCharsets.UTF_8);
+    private static final String ETAG = "\"v1\"";
+
+    private static final AtomicInteger requests = new AtomicInteger();
+    private static final AtomicInteger notModified = new AtomicInteger();
+    private static Server server;
+    private static String baseURI;
+
+    @BeforeAll
+    public static void startServer() throws Exception {
+        Init.init();
+        server = new Server(0);
+        ServletContextHandler context = new ServletContextHandler(ServletContextHandler.NO_SESSIONS);
+        context.setContextPath("/");
+        context.addServlet(new ServletHolder(new TestServlet()), "/*");
+        server.setHandler(context);
+        server.start();
+        baseURI = "http://localhost:" + ((ServerConnector) server.getConnectors()[0]).getLocalPort() + "/";
+    }
+
+    @AfterAll
+    public static void stopServer() throws Exception {
+        server.stop();
+    }
+
+    @Test
+    void testStreamedResponse() throws Exception {
+        ResolverHttpClient resolver = new ResolverHttpClient();
+        XMLSignatureInput input = resolver.engineResolveURI(newContext("data.xml", null));
+        assertEquals("text/xml", input.getMIMEType());
+        assertEquals(baseURI + "data.xml", input.getSourceURI());
+        try (InputStream is = input.getUnprocessedInput()) {
+            assertArrayEquals(CONTENT, is.readAllBytes());
+        }
+    }
+
+    @Test
+    void testConditionalRequest() throws Exception {
+        Map<String, String> properties = new HashMap<>();
+        properties.put(ResolverHttpClient.PROPERTY_ETAG_CACHE_SIZE, "10");
+        ResolverHttpClient resolver = new ResolverHttpClient(properties);
+
+        int before = notModified.get();
+        for (int i = 0; i < 3; i++) {
+            try (InputStream is = resolver.openStream(URI.create(baseURI + "data.xml"))) {
+                assertArrayEquals(CONTENT, is.readAllBytes());
+            }
+        }
+        assertEquals(before + 2, notModified.get());
+    }
+
+    @Test
+    void testBasicAuthentication() throws Exception {
+        ResolverHttpClient resolver = new ResolverHttpClient();
+        assertThrows(ResourceResolverException.class,
+            () -> resolver.engineResolveURI(newContext("secure/data.xml", null)));
+
+        Map<String, String> properties = new HashMap<>();
+        properties.put("http.basic.username", "user");
+        properties.put("http.basic.password", "pass");
+        XMLSignatureInput input = resolver.engineResolveURI(newContext("secure/data.xml", properties));
+        try (InputStream is = input.getUnprocessedInput()) {
+            assertArrayEquals(CONTENT, is.readAllBytes());
+        }
+    }
+
+    @Test
+    void testNotFound() throws Exception {
+        ResolverHttpClient resolver = new ResolverHttpClient();
+        assertThrows(ResourceResolverException.class,
+            () -> resolver.engineResolveURI(newContext("missing.xml", null)));
+    }
+
+    @Test
+    void testConcurrencyLimit() throws Exception {
+        Map<String, String> properties = new HashMap<>();
+        properties.put(ResolverHttpClient.PROPERTY_MAX_CONCURRENT_REQUESTS, "1");
+        ResolverHttpClient resolver = new ResolverHttpClient(properties);
+
+        InputStream first = resolver.openStream(URI.create(baseURI + "data.xml"));
+        CompletableFuture<byte[]> second = CompletableFuture.supplyAsync(() -> {
+            try (InputStream is = resolver.openStream(URI.create(baseURI + "data.xml"))) {
+                return is.readAllBytes();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertThrows(TimeoutException.class, () -> second.get(300, TimeUnit.MILLISECONDS));
+        first.close();
+        assertArrayEquals(CONTENT, second.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testLeakedStreamDoesNotBlockForever() throws Exception {
+        Map<String, String> properties = new HashMap<>();
+        properties.put(ResolverHttpClient.PROPERTY_MAX_CONCURRENT_REQUESTS, "1");
+        properties.put(ResolverHttpClient.PROPERTY_REQUEST_TIMEOUT, "200");
+        ResolverHttpClient resolver = new ResolverHttpClient(properties);
+
+        InputStream leaked = resolver.openStream(URI.create(baseURI + "data.xml"));
+        IOException ex = assertThrows(IOException.class, () -> resolver.openStream(URI.create(baseURI + "data.xml")));
+        assertTrue(ex.getMessage().contains("Timed out"), ex.getMessage());
+
+        leaked.close();
+        try (InputStream is = resolver.openStream(URI.create(baseURI + "data.xml"))) {
+            assertArrayEquals(CONTENT, is.readAllBytes());
+        }
+    }
+
+    @Test
+    void testSignatureWithHttpReference() throws Exception {
+        KeyPairGenerator kpg = KeyPairGenerator.getInstance("RSA");
+        kpg.initialize(2048);
+        KeyPair keyPair = kpg.generateKeyPair();
+        ResolverHttpClient resolver = new ResolverHttpClient();
+
+        Document doc = TestUtils.newDocument();
+        Element rootElement = doc.createElementNS("http://ns.example.org/", "root");
+        doc.appendChild(rootElement);
+        XMLSignature sig = new XMLSignature(doc, null, XMLSignature.ALGO_ID_SIGNATURE_RSA_SHA256);
+        rootElement.appendChild(sig.getElement());
+        sig.addResourceResolver(resolver);
+        sig.addDocument(baseURI + "data.xml", null, MessageDigestAlgorithm.ALGO_ID_DIGEST_SHA256);
+        sig.sign(keyPair.getPrivate());
+
+        int before = requests.get();
+        XMLSignature signature = new XMLSignature(sig.getElement(), null);
+        signature.addResourceResolver(resolver);
+        assertTrue(signature.checkSignatureValue(keyPair.getPublic()));
+        assertEquals(before + 1, requests.get());
+    }
+
+    private static ResourceResolverContext newContext(String uri, Map<String, String> properties)
+        throws Exception {
+        Document doc = TestUtils.newDocument();
+        Attr uriAttr = doc.createAttribute("URI");
+        uriAttr.setNodeValue(uri);
+        return new ResourceResolverContext(uriAttr, baseURI, true, properties);
+    }
+
+    static class TestServlet extends HttpServlet {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+            requests.incrementAndGet();
+            String path = req.getPathInfo();
+            if (path.startsWith("/secure/")) {
+                String expected = "Basic " + XMLUtils.encodeToString("user:pass".getBytes(StandardCharsets.ISO_8859_1));
+                if (!expected.equals(req.getHeader("Authorization"))) {
+                    resp.setHeader("WWW-Authenticate", "Basic realm=\"test\"");
+                    resp.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+                    return;
+                }
+                path = path.substring("/secure".length());
+            }
+            if (!"/data.xml".equals(path)) {
+                resp.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return;
+            }
+            if (ETAG.equals(req.getHeader("If-None-Match"))) {
+                notModified.incrementAndGet();
+                resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return;
+            }
+            resp.setContentType("text/xml");
+            resp.setHeader("ETag", ETAG);
+            resp.setContentLength(CONTENT.length);
+            resp.getOutputStream().write(CONTENT);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.test.javax.xml.crypto.dsig;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.security.cert.X509CRL;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.crypto.KeySelector;
+import javax.xml.crypto.XMLStructure;
+import javax.xml.crypto.dsig.CanonicalizationMethod;
+import javax.xml.crypto.dsig.DigestMethod;
+import javax.xml.crypto.dsig.Manifest;
+import javax.xml.crypto.dsig.Reference;
+import javax.xml.crypto.dsig.SignatureMethod;
+import javax.xml.crypto.dsig.SignedInfo;
+import javax.xml.crypto.dsig.XMLObject;
+import javax.xml.crypto.dsig.XMLSignature;
+import javax.xml.crypto.dsig.XMLSignatureFactory;
+import javax.xml.crypto.dsig.dom.DOMSignContext;
+import javax.xml.crypto.dsig.dom.DOMValidateContext;
+import javax.xml.crypto.dsig.keyinfo.X509Data;
+import javax.xml.crypto.dsig.spec.C14NMethodParameterSpec;
+
+import org.apache.jcp.xml.dsig.internal.dom.DOMXMLSignature;
+import org.apache.xml.security.test.XmlSecTestEnvironment;
+import org.apache.xml.security.test.javax.xml.crypto.KeySelectors;
+import org.apache.xml.security.utils.XMLUtils;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit test for unmarshalling with the DOMXMLSignature.LAZY_UNMARSHAL property
+ */
+class LazyUnmarshalTest {
+
+    private final XMLSignatureFactory fac;
+
+    public LazyUnmarshalTest() {
+        fac = XMLSignatureFactory.getInstance
+            ("DOM", new org.apache.jcp.xml.dsig.internal.dom.XMLDSigRI());
+    }
+
+    @Test
+    void testX509DataDecodedOnDemand() throws Exception {
+        File dir = XmlSecTestEnvironment.resolveFile("src", "test", "resources", "ie", "baltimore",
+            "merlin-examples", "merlin-xmldsig-twenty-three");
+        SignatureValidator validator = new SignatureValidator(dir);
+        DOMValidateContext vc =
+            validator.getValidateContext("signature-x509-crt-crl.xml", new KeySelectors.RawX509KeySelector());
+        vc.setURIDereferencer(new LocalHttpCacheURIDereferencer());
+        vc.setProperty(DOMXMLSignature.LAZY_UNMARSHAL, Boolean.TRUE);
+
+        XMLSignature signature = fac.unmarshalXMLSignature(vc);
+        assertTrue(signature.validate(vc));
+
+        X509Data x509Data = (X509Data) signature.getKeyInfo().getContent().get(0);
+        boolean foundCertificate = false;
+        boolean foundCRL = false;
+        for (Object content : x509Data.getContent()) {
+            foundCertificate |= content instanceof X509Certificate;
+            foundCRL |= content instanceof X509CRL;
+        }
+        assertTrue(foundCertificate);
+        assertTrue(foundCRL);
+    }
+
+    @Test
+    void testObjectsUnmarshalledOnDemand() throws Exception {
+        Document doc = TestUtils.newDocument();
+
+        // The Manifest references the first Object, the SignedInfo the Manifest
+        Reference objectRef = fac.newReference
+            ("#object", fac.newDigestMethod(DigestMethod.SHA256, null));
+        Manifest manifest = fac.newManifest(Collections.singletonList(objectRef), "manifest");
+        XMLObject object = fac.newXMLObject
+            (Collections.singletonList(new javax.xml.crypto.dom.DOMStructure(doc.createTextNode("text"))),
+             "object", null, null);
+        XMLObject manifestObject = fac.newXMLObject
+            (Collections.singletonList(manifest), null, null, null);
+        SignedInfo si = fac.newSignedInfo
+            (fac.newCanonicalizationMethod(CanonicalizationMethod.INCLUSIVE, (C14NMethodParameterSpec) null),
+             fac.newSignatureMethod(SignatureMethod.RSA_SHA256, null),
+             Collections.singletonList(fac.newReference
+                 ("#manifest", fac.newDigestMethod(DigestMethod.SHA256, null), null, Manifest.TYPE, null)));
+        XMLSignature signature = fac.newXMLSignature(si, null, List.of(object, manifestObject), null, null);
+        signature.sign(new DOMSignContext(TestUtils.getPrivateKey("RSA", 2048), doc));
+
+        // Re-parse, so that no Id attributes are registered
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        XMLUtils.outputDOM(doc, bos);
+        doc = XMLUtils.read(new ByteArrayInputStream(bos.toByteArray()), false);
+
+        DOMValidateContext vc = new DOMValidateContext
+            (KeySelector.singletonKeySelector(TestUtils.getPublicKey("RSA", 2048)), doc.getDocumentElement());
+        vc.setProperty(DOMXMLSignature.LAZY_UNMARSHAL, Boolean.TRUE);
+        vc.setProperty("org.jcp.xml.dsig.validateManifests", Boolean.TRUE);
+        signature = fac.unmarshalXMLSignature(vc);
+        assertTrue(signature.validate(vc));
+
+        List<XMLObject> objects = signature.getObjects();
+        assertEquals(2, objects.size());
+        assertEquals("object", objects.get(0).getId());
+        XMLStructure content = (XMLStructure) objects.get(1).getContent().get(0);
+        assertEquals("manifest", ((Manifest) content).getId());
+    }
+}
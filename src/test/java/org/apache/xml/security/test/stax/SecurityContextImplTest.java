@@ -0,0 +1,105 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.test.stax;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.namespace.QName;
+
+import org.apache.xml.security.stax.ext.XMLSecurityConstants;
+import org.apache.xml.security.stax.impl.OutboundSecurityContextImpl;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SecurityContextImplTest {
+
+    @Test
+    void testContent() {
+        OutboundSecurityContextImpl securityContext = new OutboundSecurityContextImpl();
+        Object token = new Object();
+        // a well-known key, also when it isn't the constant itself
+        securityContext.put(XMLSecurityConstants.PROP_USE_THIS_TOKEN_ID_FOR_SIGNATURE, token);
+        assertSame(token,
+            securityContext.get(new String(XMLSecurityConstants.PROP_USE_THIS_TOKEN_ID_FOR_SIGNATURE)));
+        assertSame(token, securityContext.remove(XMLSecurityConstants.PROP_USE_THIS_TOKEN_ID_FOR_SIGNATURE));
+        assertNull(securityContext.get(XMLSecurityConstants.PROP_USE_THIS_TOKEN_ID_FOR_SIGNATURE));
+
+        securityContext.put("custom", token);
+        assertSame(token, securityContext.get("custom"));
+        securityContext.put("custom", null);
+        assertNull(securityContext.get("custom"));
+
+        securityContext.putList(String.class, List.of("a", "b"));
+        securityContext.putAsList(String.class, "c");
+        assertEquals(List.of("a", "b", "c"), securityContext.getAsList(String.class));
+        securityContext.putAsList(String.class, null);
+        assertEquals(4, securityContext.getAsList(String.class).size());
+
+        QName name = new QName("urn:test", "element");
+        securityContext.putAsMap(XMLSecurityConstants.SIGNATURE_PARTS, name, token);
+        securityContext.putAsMap(XMLSecurityConstants.SIGNATURE_PARTS, "id", token);
+        Map<Object, Object> signatureParts = securityContext.getAsMap(XMLSecurityConstants.SIGNATURE_PARTS);
+        assertEquals(2, signatureParts.size());
+        assertSame(token, signatureParts.get(name));
+        assertNull(securityContext.getAsMap(XMLSecurityConstants.ENCRYPTION_PARTS));
+
+        assertThrows(IllegalArgumentException.class,
+            () -> securityContext.putAsMap(XMLSecurityConstants.SIGNATURE_PARTS, null, token));
+        assertThrows(IllegalArgumentException.class,
+            () -> securityContext.putAsMap(XMLSecurityConstants.SIGNATURE_PARTS, name, null));
+        assertEquals(2, signatureParts.size());
+    }
+
+    @Test
+    void testConcurrentPutAsList() throws Exception {
+        OutboundSecurityContextImpl securityContext = new OutboundSecurityContextImpl();
+        int threads = 4;
+        int values = 1000;
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                tasks.add(() -> {
+                    for (int j = 0; j < values; j++) {
+                        securityContext.putAsList(XMLSecurityConstants.ENCRYPTION_PARTS, j);
+                        securityContext.putAsMap("custom", Thread.currentThread().getName() + j, j);
+                    }
+                    return null;
+                });
+            }
+            for (Future<Void> future : executorService.invokeAll(tasks)) {
+                future.get();
+            }
+        } finally {
+            executorService.shutdown();
+        }
+        assertEquals(threads * values, securityContext.getAsList(XMLSecurityConstants.ENCRYPTION_PARTS).size());
+        assertEquals(threads * values, securityContext.getAsMap("custom").size());
+    }
+}
@@ -0,0 +1,140 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.test.stax;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.xml.security.exceptions.XMLSecurityException;
+import org.apache.xml.security.stax.ext.XMLSec;
+import org.apache.xml.security.stax.impl.InboundSecurityContextImpl;
+import org.apache.xml.security.stax.impl.OutboundSecurityContextImpl;
+import org.apache.xml.security.stax.securityEvent.SecurityEvent;
+import org.apache.xml.security.stax.securityEvent.SecurityEventConstants;
+import org.apache.xml.security.stax.securityEvent.SecurityEventListener;
+import org.apache.xml.security.stax.securityEvent.SecurityEventMask;
+import org.apache.xml.security.stax.securityEvent.SignatureValueSecurityEvent;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SecurityEventMaskTest {
+
+    @Test
+    void testMask() {
+        SecurityEventMask mask = SecurityEventMask.of(SecurityEventConstants.SignedElement);
+        assertTrue(mask.contains(SecurityEventConstants.SignedElement));
+        // equal event types share their bit
+        assertTrue(mask.contains(new SecurityEventConstants.Event("SignedElement")));
+        assertFalse(mask.contains(SecurityEventConstants.EncryptedElement));
+        assertFalse(mask.contains(new SecurityEventConstants.Event("CustomEvent")));
+        assertFalse(SecurityEventMask.NONE.contains(SecurityEventConstants.SignedElement));
+        assertTrue(SecurityEventMask.ALL.contains(new SecurityEventConstants.Event("CustomEvent")));
+
+        SecurityEventMask union = mask.union(SecurityEventMask.of(SecurityEventConstants.EncryptedElement));
+        assertTrue(union.contains(SecurityEventConstants.SignedElement));
+        assertTrue(union.contains(SecurityEventConstants.EncryptedElement));
+        assertFalse(union.contains(SecurityEventConstants.X509Token));
+        assertSame(mask, mask.union(SecurityEventMask.NONE));
+        assertSame(SecurityEventMask.ALL, mask.union(SecurityEventMask.ALL));
+    }
+
+    @Test
+    void testSecurityContext() throws Exception {
+        OutboundSecurityContextImpl securityContext = new OutboundSecurityContextImpl();
+        assertFalse(securityContext.isSecurityEventRequested(SecurityEventConstants.SignatureValue));
+
+        List<SecurityEvent> securityEvents = new ArrayList<>();
+        securityContext.addSecurityEventListener(new SecurityEventListener() {
+            @Override
+            public void registerSecurityEvent(SecurityEvent securityEvent) {
+                securityEvents.add(securityEvent);
+            }
+
+            @Override
+            public SecurityEventMask getRequestedSecurityEvents() {
+                return SecurityEventMask.of(SecurityEventConstants.SignatureValue);
+            }
+        });
+        assertTrue(securityContext.isSecurityEventRequested(SecurityEventConstants.SignatureValue));
+        assertFalse(securityContext.isSecurityEventRequested(SecurityEventConstants.SignedElement));
+
+        securityContext.registerSecurityEvent(new SignatureValueSecurityEvent());
+        assertEquals(1, securityEvents.size());
+
+        securityContext.addSecurityEventListener(securityEvents::add);
+        assertTrue(securityContext.isSecurityEventRequested(SecurityEventConstants.SignedElement));
+        securityContext.registerSecurityEvent(new SignatureValueSecurityEvent());
+        assertEquals(3, securityEvents.size());
+    }
+
+    @Test
+    void testSubclassForwardingSecurityEvents() throws Exception {
+        XMLSec.init();
+        InboundSecurityContextImpl inboundSecurityContext = new InboundSecurityContextImpl();
+        assertFalse(inboundSecurityContext.isSecurityEventRequested(SecurityEventConstants.SignatureValue));
+
+        // a subclass which consumes the SecurityEvents itself still gets all of them
+        List<SecurityEvent> securityEvents = new ArrayList<>();
+        InboundSecurityContextImpl securityContext = new InboundSecurityContextImpl() {
+            @Override
+            protected void forwardSecurityEvent(SecurityEvent securityEvent) throws XMLSecurityException {
+                securityEvents.add(securityEvent);
+                super.forwardSecurityEvent(securityEvent);
+            }
+        };
+        assertSame(SecurityEventMask.ALL, securityContext.getRequestedSecurityEvents());
+        assertTrue(securityContext.isSecurityEventRequested(SecurityEventConstants.SignatureValue));
+
+        securityContext.addSecurityEventListener(new SecurityEventListener() {
+            @Override
+            public void registerSecurityEvent(SecurityEvent securityEvent) {
+                // not interested
+            }
+
+            @Override
+            public SecurityEventMask getRequestedSecurityEvents() {
+                return SecurityEventMask.NONE;
+            }
+        });
+        assertTrue(securityContext.isSecurityEventRequested(SecurityEventConstants.SignedElement));
+        securityContext.registerSecurityEvent(new SignatureValueSecurityEvent());
+        assertEquals(1, securityEvents.size());
+    }
+
+    @Test
+    void testRegisterSecurityEventOverride() throws Exception {
+        List<SecurityEvent> securityEvents = new ArrayList<>();
+        OutboundSecurityContextImpl securityContext = new OutboundSecurityContextImpl() {
+            @Override
+            public void registerSecurityEvent(SecurityEvent securityEvent) throws XMLSecurityException {
+                securityEvents.add(securityEvent);
+                super.registerSecurityEvent(securityEvent);
+            }
+        };
+        assertSame(SecurityEventMask.ALL, securityContext.getRequestedSecurityEvents());
+        assertTrue(securityContext.isSecurityEventRequested(SecurityEventConstants.SignatureValue));
+
+        securityContext.registerSecurityEvent(new SignatureValueSecurityEvent());
+        assertEquals(1, securityEvents.size());
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.test.stax;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+
+import org.apache.xml.security.stax.impl.util.SegmentedGCMOutputStream;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SegmentedGCMOutputStreamTest {
+
+    private static final byte[] TEST_BYTES =
+        "Within this class we test if the SegmentedGCMOutputStream works correctly".getBytes(StandardCharsets.UTF_8);
+
+    private final SecretKey secretKey;
+    private final byte[] nonce = new byte[SegmentedGCMOutputStream.NONCE_LENGTH];
+
+    SegmentedGCMOutputStreamTest() throws Exception {
+        KeyGenerator keyGenerator = KeyGenerator.getInstance("AES");
+        keyGenerator.init(128);
+        secretKey = keyGenerator.generateKey();
+        Arrays.fill(nonce, (byte) 7);
+    }
+
+    @Test
+    void testRoundTrip() throws Exception {
+        for (int segmentSize : new int[] {1, 7, 16, TEST_BYTES.length, TEST_BYTES.length + 1}) {
+            byte[] encrypted = encrypt(TEST_BYTES, segmentSize);
+            int segments = (TEST_BYTES.length + segmentSize - 1) / segmentSize;
+            assertEquals(nonce.length + TEST_BYTES.length + segments * SegmentedGCMOutputStream.TAG_LENGTH,
+                         encrypted.length);
+            assertArrayEquals(TEST_BYTES, decrypt(encrypted, segmentSize));
+        }
+        assertArrayEquals(new byte[0], decrypt(encrypt(new byte[0], 16), 16));
+    }
+
+    @Test
+    void testSegmentsAreReleasedBeforeClose() throws Exception {
+        byte[] encrypted = encrypt(TEST_BYTES, 16);
+        ByteArrayOutputStream plaintext = new ByteArrayOutputStream();
+        SegmentedGCMOutputStream decryptStream = new SegmentedGCMOutputStream(
+            plaintext, Cipher.getInstance("AES/GCM/NoPadding"), Cipher.DECRYPT_MODE, secretKey, null, 16);
+        // nonce, two full segments and the first octet of the third one
+        decryptStream.write(encrypted, 0, nonce.length + 2 * (16 + SegmentedGCMOutputStream.TAG_LENGTH) + 1);
+        assertEquals(32, plaintext.size());
+        decryptStream.write(encrypted, nonce.length + 2 * (16 + SegmentedGCMOutputStream.TAG_LENGTH) + 1,
+                            encrypted.length - nonce.length - 2 * (16 + SegmentedGCMOutputStream.TAG_LENGTH) - 1);
+        decryptStream.close();
+        assertArrayEquals(TEST_BYTES, plaintext.toByteArray());
+    }
+
+    @Test
+    void testTruncation() throws Exception {
+        byte[] encrypted = encrypt(TEST_BYTES, 16);
+        // drop the last segment, so that the previous one is taken as the last
+        int lastSegment = TEST_BYTES.length % 16 + SegmentedGCMOutputStream.TAG_LENGTH;
+        byte[] truncated = Arrays.copyOf(encrypted, encrypted.length - lastSegment);
+        assertThrows(IOException.class, () -> decrypt(truncated, 16));
+        assertThrows(IOException.class, () -> decrypt(Arrays.copyOf(encrypted, 5), 16));
+    }
+
+    @Test
+    void testReorderedSegments() throws Exception {
+        byte[] encrypted = encrypt(TEST_BYTES, 16);
+        int segmentLength = 16 + SegmentedGCMOutputStream.TAG_LENGTH;
+        byte[] reordered = encrypted.clone();
+        System.arraycopy(encrypted, nonce.length, reordered, nonce.length + segmentLength, segmentLength);
+        System.arraycopy(encrypted, nonce.length + segmentLength, reordered, nonce.length, segmentLength);
+        assertThrows(IOException.class, () -> decrypt(reordered, 16));
+    }
+
+    private byte[] encrypt(byte[] plaintext, int segmentSize) throws Exception {
+        ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+        encrypted.write(nonce);
+        try (SegmentedGCMOutputStream encryptStream = new SegmentedGCMOutputStream(
+                encrypted, Cipher.getInstance("AES/GCM/NoPadding"), Cipher.ENCRYPT_MODE, secretKey, nonce, segmentSize)) {
+            for (byte b : plaintext) {
+                encryptStream.write(b);
+            }
+        }
+        return encrypted.toByteArray();
+    }
+
+    private byte[] decrypt(byte[] encrypted, int segmentSize) throws Exception {
+        ByteArrayOutputStream plaintext = new ByteArrayOutputStream();
+        try (SegmentedGCMOutputStream decryptStream = new SegmentedGCMOutputStream(
+                plaintext, Cipher.getInstance("AES/GCM/NoPadding"), Cipher.DECRYPT_MODE, secretKey, null, segmentSize)) {
+            decryptStream.write(encrypted);
+        }
+        return plaintext.toByteArray();
+    }
+}
@@ -0,0 +1,198 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.test.stax;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.xml.security.stax.ext.stax.XMLSecComment;
+import org.apache.xml.security.stax.ext.stax.XMLSecEvent;
+import org.apache.xml.security.stax.ext.stax.XMLSecEventFactory;
+import org.apache.xml.security.stax.ext.stax.XMLSecStartElement;
+import org.apache.xml.security.stax.impl.util.SpillingXMLSecEventDeque;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpillingXMLSecEventDequeTest {
+
+    private static final String XML =
+        "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+        + "<!-- a comment --><a:root xmlns:a=\"urn:a\" xmlns=\"urn:default\" attr=\"v&amp;1\">"
+        + "<?pi data?><child a:id=\"c1\">text ä中<![CDATA[<cdata>]]></child>  <empty/></a:root>";
+
+    @TempDir
+    Path tempDirectory;
+
+    @Test
+    void testInMemory() throws Exception {
+        try (SpillingXMLSecEventDeque deque = new SpillingXMLSecEventDeque(Integer.MAX_VALUE, tempDirectory)) {
+            assertEquals(serialize(readEvents()), serialize(replay(deque)));
+            assertFalse(deque.isSpilled());
+        }
+    }
+
+    @Test
+    void testSpillToFile() throws Exception {
+        try (SpillingXMLSecEventDeque deque = new SpillingXMLSecEventDeque(64, tempDirectory)) {
+            assertEquals(serialize(readEvents()), serialize(replay(deque)));
+            assertTrue(deque.isSpilled());
+            assertEquals(1, countFiles());
+        }
+        assertEquals(0, countFiles());
+    }
+
+    @Test
+    void testPushBack() throws Exception {
+        try (SpillingXMLSecEventDeque deque = new SpillingXMLSecEventDeque(0, tempDirectory)) {
+            List<XMLSecEvent> events = readEvents();
+            events.forEach(deque::offer);
+            assertEquals(events.size(), deque.size());
+
+            XMLSecEvent first = deque.pop();
+            XMLSecEvent second = deque.pop();
+            deque.push(second);
+            deque.push(first);
+            assertSame(first, deque.peek());
+            assertEquals(events.size(), deque.size());
+
+            List<XMLSecEvent> replayed = new ArrayList<>();
+            while (!deque.isEmpty()) {
+                replayed.add(deque.pop());
+            }
+            assertEquals(serialize(events), serialize(replayed));
+            assertNull(deque.pollLast());
+        }
+    }
+
+    @Test
+    void testDequeOperations() throws Exception {
+        try (SpillingXMLSecEventDeque deque = new SpillingXMLSecEventDeque(0, tempDirectory)) {
+            List<XMLSecEvent> events = readEvents();
+            events.forEach(deque::offer);
+            XMLSecEvent first = deque.pop();
+            XMLSecEvent last = events.get(events.size() - 1);
+
+            // the remaining events are read back into memory
+            assertEquals(serialize(events.subList(1, events.size())), serialize(new ArrayList<>(deque)));
+            assertEquals(0, countFiles());
+            assertEquals(events.size() - 1, deque.size());
+            assertFalse(deque.contains(first));
+            assertTrue(deque.contains(deque.peekLast()));
+            assertEquals(last.getEventType(), deque.getLast().getEventType());
+
+            Iterator<XMLSecEvent> descendingIterator = deque.descendingIterator();
+            XMLSecEvent lastReplayed = descendingIterator.next();
+            assertSame(lastReplayed, deque.peekLast());
+
+            // appending is possible after reading
+            deque.offer(first);
+            assertSame(first, deque.peekLast());
+            assertTrue(deque.removeLastOccurrence(first));
+            assertSame(lastReplayed, deque.pollLast());
+            assertTrue(deque.remove(deque.peekFirst()));
+            assertEquals(events.size() - 3, deque.size());
+            assertTrue(deque.toString().startsWith("["));
+
+            deque.clear();
+            assertTrue(deque.isEmpty());
+            deque.push(first);
+            assertSame(first, deque.removeLast());
+        }
+    }
+
+    @Test
+    void testKeepsOtherEvents() throws Exception {
+        try (SpillingXMLSecEventDeque deque = new SpillingXMLSecEventDeque(0, tempDirectory)) {
+            XMLSecEvent entityReference = XMLSecEventFactory.createXMLSecEntityReference("entity", null);
+            XMLSecEvent comment = XMLSecEventFactory.createXMLSecComment("comment");
+            deque.offer(comment);
+            deque.offer(entityReference);
+            deque.offer(comment);
+
+            assertEquals("comment", ((XMLSecComment) deque.pop()).getText());
+            assertSame(entityReference, deque.pop());
+            assertEquals("comment", ((XMLSecComment) deque.pop()).getText());
+            assertTrue(deque.isEmpty());
+        }
+    }
+
+    private List<XMLSecEvent> replay(SpillingXMLSecEventDeque deque) throws Exception {
+        for (XMLSecEvent xmlSecEvent : readEvents()) {
+            deque.offer(xmlSecEvent);
+        }
+        List<XMLSecEvent> replayed = new ArrayList<>();
+        XMLSecEvent xmlSecEvent;
+        while ((xmlSecEvent = deque.poll()) != null) {
+            replayed.add(xmlSecEvent);
+        }
+        return replayed;
+    }
+
+    private static List<XMLSecEvent> readEvents() throws Exception {
+        XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+        xmlInputFactory.setProperty(XMLInputFactory.IS_COALESCING, false);
+        XMLStreamReader xmlStreamReader = xmlInputFactory.createXMLStreamReader(new StringReader(XML));
+        List<XMLSecEvent> events = new ArrayList<>();
+        XMLSecStartElement parent = null;
+        while (true) {
+            XMLSecEvent xmlSecEvent = XMLSecEventFactory.allocate(xmlStreamReader, parent);
+            events.add(xmlSecEvent);
+            if (xmlSecEvent.isStartElement()) {
+                parent = xmlSecEvent.asStartElement();
+            } else if (xmlSecEvent.isEndElement()) {
+                parent = parent.getParentXMLSecStartElement();
+            }
+            if (!xmlStreamReader.hasNext()) {
+                return events;
+            }
+            xmlStreamReader.next();
+        }
+    }
+
+    private static String serialize(List<XMLSecEvent> events) throws Exception {
+        StringWriter writer = new StringWriter();
+        for (XMLSecEvent xmlSecEvent : events) {
+            writer.write(xmlSecEvent.getEventType() + ":");
+            xmlSecEvent.writeAsEncodedUnicode(writer);
+            writer.write('\n');
+        }
+        return writer.toString();
+    }
+
+    private long countFiles() throws Exception {
+        try (Stream<Path> files = Files.list(tempDirectory)) {
+            return files.count();
+        }
+    }
+}
@@ -18,6 +18,7 @@
  */
 package org.apache.xml.security.test.stax.c14n;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -414,6 +415,25 @@ class Canonicalizer20010315Test {
         assertTrue(equals);
     }
 
+    @Test
+    void testNestedNamespaceRedefinition() throws Exception {
+        String input = "<a xmlns:p=\"urn:1\"><p:b xmlns:p=\"urn:2\"><p:c p:attr=\"1\"/></p:b><p:d/>"
+            + "<e xmlns=\"urn:d\"><f xmlns=\"\"><q:g xmlns:q=\"urn:1\"/></f></e><p:h/></a>";
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        Canonicalizer20010315_OmitCommentsTransformer c = new Canonicalizer20010315_OmitCommentsTransformer();
+        c.setOutputStream(baos);
+        XMLEventReader xmlSecEventReader = xmlInputFactory.createXMLEventReader(
+                new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)));
+        while (xmlSecEventReader.hasNext()) {
+            c.transform((XMLSecEvent) xmlSecEventReader.nextEvent());
+        }
+
+        assertEquals("<a xmlns:p=\"urn:1\"><p:b xmlns:p=\"urn:2\"><p:c p:attr=\"1\"></p:c></p:b><p:d></p:d>"
+            + "<e xmlns=\"urn:d\"><f xmlns=\"\"><q:g xmlns:q=\"urn:1\"></q:g></f></e><p:h></p:h></a>",
+            new String(baos.toByteArray(), StandardCharsets.UTF_8));
+    }
+
 //   /**
 //    * The XPath data model represents data using UCS characters.
 //    * Implementations MUST use XML processors that support UTF-8 and UTF-16
@@ -29,6 +29,7 @@ import java.security.KeyStore;
 import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.cert.X509Certificate;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -49,6 +50,7 @@ import javax.xml.xpath.XPathFactory;
 
 import org.apache.xml.security.encryption.EncryptedData;
 import org.apache.xml.security.encryption.EncryptedKey;
+import org.apache.xml.security.encryption.UnwrappedKeyCache;
 import org.apache.xml.security.encryption.XMLCipher;
 import org.apache.xml.security.exceptions.XMLSecurityException;
 import org.apache.xml.security.keys.KeyInfo;
@@ -470,6 +472,62 @@ class DecryptionTest {
                   "http://www.w3.org/2001/04/xmlenc#rsa-1_5");
     }
 
+    /**
+     * Decrypt the same EncryptedKey twice with an UnwrappedKeyCache
+     */
+    @Test
+    void testUnwrappedKeyCache() throws Exception {
+        // Read in plaintext document
+        Document document = XMLUtils.readResource("ie/baltimore/merlin-examples/merlin-xmlenc-five/plaintext.xml",
+            getClass().getClassLoader(), false);
+
+        // Set up the Key
+        KeyPairGenerator rsaKeygen = KeyPairGenerator.getInstance("RSA");
+        KeyPair kp = rsaKeygen.generateKeyPair();
+
+        // Generate a traffic key
+        KeyGenerator keygen = KeyGenerator.getInstance("AES");
+        keygen.init(128);
+        SecretKey secretKey = keygen.generateKey();
+
+        // Encrypt using DOM
+        List<String> localNames = new ArrayList<>();
+        localNames.add("PaymentInfo");
+        encryptUsingDOM(
+            XMLSecurityConstants.NS_XENC_AES128, secretKey, XMLCipher.RSA_OAEP, kp.getPublic(),
+            document, localNames, true
+        );
+
+        // Convert Document to a Stream Reader
+        javax.xml.transform.Transformer transformer = transformerFactory.newTransformer();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        transformer.transform(new DOMSource(document), new StreamResult(baos));
+
+        UnwrappedKeyCache unwrappedKeyCache = new UnwrappedKeyCache(10, Duration.ofMinutes(5));
+        for (int i = 0; i < 2; i++) {
+            XMLStreamReader xmlStreamReader = null;
+            try (InputStream is = new ByteArrayInputStream(baos.toByteArray())) {
+               xmlStreamReader = xmlInputFactory.createXMLStreamReader(is);
+            }
+
+            // Decrypt
+            XMLSecurityProperties properties = new XMLSecurityProperties();
+            properties.setDecryptionKey(kp.getPrivate());
+            properties.setUnwrappedKeyCache(unwrappedKeyCache);
+            InboundXMLSec inboundXMLSec = XMLSec.getInboundWSSec(properties);
+            TestSecurityEventListener securityEventListener = new TestSecurityEventListener();
+            XMLStreamReader securityStreamReader =
+                    inboundXMLSec.processInMessage(xmlStreamReader, null, securityEventListener);
+
+            Document decrypted = StAX2DOM.readDoc(securityStreamReader);
+
+            // Check the CreditCard decrypted ok
+            NodeList nodeList = decrypted.getElementsByTagNameNS("urn:example:po", "CreditCard");
+            assertEquals(1, nodeList.getLength());
+            assertEquals(1, unwrappedKeyCache.size());
+        }
+    }
+
     @Test
     void testAES256ElementRSAKWCipherUsingKEKInboundIncludeEKKeyInfo() throws Exception {
         // Read in plaintext document
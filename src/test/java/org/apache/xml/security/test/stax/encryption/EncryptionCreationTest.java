@@ -45,14 +45,18 @@ import javax.xml.stream.XMLStreamReader;
 import javax.xml.stream.XMLStreamWriter;
 
 import org.apache.xml.security.encryption.XMLCipher;
+import org.apache.xml.security.encryption.XMLEncryptionException;
 import org.apache.xml.security.exceptions.XMLSecurityException;
+import org.apache.xml.security.stax.ext.InboundXMLSec;
 import org.apache.xml.security.stax.ext.OutboundXMLSec;
 import org.apache.xml.security.stax.ext.SecurePart;
 import org.apache.xml.security.stax.ext.XMLSec;
+import org.apache.xml.security.stax.ext.XMLSecurityConfigurationException;
 import org.apache.xml.security.stax.ext.XMLSecurityConstants;
 import org.apache.xml.security.stax.ext.XMLSecurityProperties;
 import org.apache.xml.security.stax.securityToken.SecurityTokenConstants;
 import org.apache.xml.security.test.XmlSecTestEnvironment;
+import org.apache.xml.security.test.stax.utils.StAX2DOM;
 import org.apache.xml.security.test.stax.utils.XMLSecEventAllocator;
 import org.apache.xml.security.test.stax.utils.XmlReaderToWriter;
 import org.apache.xml.security.utils.XMLUtils;
@@ -66,6 +70,7 @@ import org.w3c.dom.NodeList;
 import static org.apache.xml.security.test.XmlSecTestEnvironment.TRANSMITTER_KS_PASSWORD;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.junit.jupiter.api.Assumptions.assumeFalse;
@@ -1510,6 +1515,65 @@ class EncryptionCreationTest {
     }
 
 
+    @Test
+    void testSegmentedGCMEncryption() throws Exception {
+        XMLSecurityProperties properties = new XMLSecurityProperties();
+        List<XMLSecurityConstants.Action> actions = new ArrayList<>();
+        actions.add(XMLSecurityConstants.ENCRYPTION);
+        properties.setActions(actions);
+
+        KeyGenerator keygen = KeyGenerator.getInstance("AES");
+        keygen.init(128);
+        SecretKey key = keygen.generateKey();
+        properties.setEncryptionKey(key);
+        properties.setEncryptionSymAlgorithm(XMLSecurityConstants.NS_XENC11_AES128_GCM);
+        properties.setEncryptionSegmentSize(64);
+        properties.addEncryptionPart(
+            new SecurePart(new QName("urn:example:po", "PaymentInfo"), SecurePart.Modifier.Element));
+
+        byte[] output = process("ie/baltimore/merlin-examples/merlin-xmlenc-five/plaintext.xml", properties);
+
+        Document document;
+        try (InputStream is = new ByteArrayInputStream(output)) {
+            document = XMLUtils.read(is, false);
+        }
+        assertEquals(0, document.getElementsByTagNameNS("urn:example:po", "CreditCard").getLength());
+        NodeList nodeList = document.getElementsByTagNameNS(
+            XMLSecurityConstants.TAG_sgcm_SegmentSize.getNamespaceURI(),
+            XMLSecurityConstants.TAG_sgcm_SegmentSize.getLocalPart());
+        assertEquals(1, nodeList.getLength());
+        assertEquals("64", nodeList.item(0).getTextContent());
+
+        // The DOM API doesn't know segmented CipherValues
+        XMLEncryptionException ex = assertThrows(XMLEncryptionException.class,
+            () -> decryptUsingDOM(XMLSecurityConstants.NS_XENC11_AES128_GCM, key, null, document));
+        assertTrue(ex.getMessage().contains("streaming API"));
+
+        // Decrypt using StAX
+        XMLSecurityProperties inboundProperties = new XMLSecurityProperties();
+        inboundProperties.setDecryptionKey(key);
+        InboundXMLSec inboundXMLSec = XMLSec.getInboundWSSec(inboundProperties);
+        XMLStreamReader xmlStreamReader = xmlInputFactory.createXMLStreamReader(new ByteArrayInputStream(output));
+        Document decrypted = StAX2DOM.readDoc(inboundXMLSec.processInMessage(xmlStreamReader));
+        assertEquals(1, decrypted.getElementsByTagNameNS("urn:example:po", "CreditCard").getLength());
+    }
+
+    @Test
+    void testSegmentedEncryptionRequiresGCM() throws Exception {
+        XMLSecurityProperties properties = new XMLSecurityProperties();
+        List<XMLSecurityConstants.Action> actions = new ArrayList<>();
+        actions.add(XMLSecurityConstants.ENCRYPTION);
+        properties.setActions(actions);
+        properties.setEncryptionKey(generateDESSecretKey());
+        properties.setEncryptionSymAlgorithm("http://www.w3.org/2001/04/xmlenc#tripledes-cbc");
+        properties.setEncryptionSegmentSize(64);
+        properties.addEncryptionPart(
+            new SecurePart(new QName("urn:example:po", "PaymentInfo"), SecurePart.Modifier.Element));
+
+        assertThrows(XMLSecurityConfigurationException.class, () -> XMLSec.getOutboundXMLSec(properties));
+    }
+
+
     private byte[] process(String xmlFile, XMLSecurityProperties properties) throws Exception {
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
         try (InputStream sourceDocument = getClass().getClassLoader().getResourceAsStream(xmlFile)) {
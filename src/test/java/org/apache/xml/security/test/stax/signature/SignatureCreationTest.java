@@ -21,17 +21,22 @@ package org.apache.xml.security.test.stax.signature;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
+import java.io.StringWriter;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.security.Key;
 import java.security.KeyStore;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Stream;
 
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
 import javax.xml.namespace.QName;
+import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import javax.xml.stream.XMLStreamWriter;
@@ -44,6 +49,7 @@ import org.apache.xml.security.signature.XMLSignature;
 import org.apache.xml.security.stax.ext.OutboundXMLSec;
 import org.apache.xml.security.stax.ext.SecurePart;
 import org.apache.xml.security.stax.ext.XMLSec;
+import org.apache.xml.security.stax.ext.XMLSecurityConfigurationException;
 import org.apache.xml.security.stax.ext.XMLSecurityConstants;
 import org.apache.xml.security.stax.ext.XMLSecurityProperties;
 import org.apache.xml.security.stax.securityEvent.SecurityEventConstants;
@@ -56,6 +62,7 @@ import org.apache.xml.security.test.stax.utils.XmlReaderToWriter;
 import org.apache.xml.security.utils.XMLUtils;
 import org.junit.jupiter.api.Assumptions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
@@ -66,7 +73,9 @@ import static org.apache.xml.security.stax.ext.XMLSecurityConstants.NS_C14N_EXCL
 import static org.apache.xml.security.stax.ext.XMLSecurityConstants.NS_XMLDSIG_ENVELOPED_SIGNATURE;
 import static org.apache.xml.security.test.XmlSecTestEnvironment.TRANSMITTER_KS_PASSWORD;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
@@ -346,6 +355,166 @@ class SignatureCreationTest extends AbstractSignatureCreationTest {
         signAtSpecificPosition(0, new QName("urn:example:po", "ShippingAddress"), false);
     }
 
+    @Test
+    void testSignAtEndOfRootElement() throws Exception {
+        signAtEndOfRootElement(true);
+        signAtEndOfRootElement(false);
+    }
+
+    @Test
+    void testSignAtEndOfRootElementWithSignaturePosition() throws Exception {
+        KeyStore keyStore = XmlSecTestEnvironment.getTransmitterKeyStore();
+        Key key = keyStore.getKey("transmitter", TRANSMITTER_KS_PASSWORD.toCharArray());
+
+        XMLSecurityProperties properties = new XMLSecurityProperties();
+        List<XMLSecurityConstants.Action> actions = new ArrayList<>();
+        actions.add(XMLSecurityConstants.SIGNATURE);
+        properties.setActions(actions);
+        properties.setSignatureKey(key);
+        properties.addSignaturePart(new SecurePart(new QName("urn:example:po", "PaymentInfo"), SecurePart.Modifier.Content));
+        properties.setSignaturePositionEnd(true);
+
+        properties.setSignaturePosition(1);
+        assertThrows(XMLSecurityConfigurationException.class, () -> XMLSec.getOutboundXMLSec(properties));
+
+        properties.setSignaturePosition(0);
+        properties.setSignaturePositionQName(new QName("urn:example:po", "Items"));
+        assertThrows(XMLSecurityConfigurationException.class, () -> XMLSec.getOutboundXMLSec(properties));
+
+        properties.setSignaturePositionQName(null);
+        properties.setSignaturePositionStart(true);
+        assertThrows(XMLSecurityConfigurationException.class, () -> XMLSec.getOutboundXMLSec(properties));
+    }
+
+    @Test
+    void testSignAtEndOfRootElementStreamsOutput() throws Exception {
+        KeyStore keyStore = XmlSecTestEnvironment.getTransmitterKeyStore();
+        Key key = keyStore.getKey("transmitter", TRANSMITTER_KS_PASSWORD.toCharArray());
+
+        XMLSecurityProperties properties = new XMLSecurityProperties();
+        List<XMLSecurityConstants.Action> actions = new ArrayList<>();
+        actions.add(XMLSecurityConstants.SIGNATURE);
+        properties.setActions(actions);
+        properties.setSignatureKey(key);
+        X509Certificate cert = (X509Certificate) keyStore.getCertificate("transmitter");
+        properties.setSignatureCerts(new X509Certificate[]{cert});
+        properties.addSignaturePart(new SecurePart(new QName("data"), SecurePart.Modifier.Element));
+        properties.setSignaturePositionEnd(true);
+        OutboundXMLSec outboundXMLSec = XMLSec.getOutboundXMLSec(properties);
+
+        StringWriter stringWriter = new StringWriter();
+        XMLStreamWriter targetWriter = XMLOutputFactory.newInstance().createXMLStreamWriter(stringWriter);
+        XMLStreamWriter xmlStreamWriter = outboundXMLSec.processOutMessage(targetWriter, UTF_8.name());
+        xmlStreamWriter.writeStartDocument();
+        xmlStreamWriter.writeStartElement("root");
+        xmlStreamWriter.writeStartElement("data");
+        xmlStreamWriter.writeCharacters("signed");
+        xmlStreamWriter.writeEndElement();
+        xmlStreamWriter.writeStartElement("other");
+        xmlStreamWriter.writeCharacters("unsigned");
+        xmlStreamWriter.writeEndElement();
+
+        // The document is written out before the end tag of the root element is reached
+        targetWriter.flush();
+        String output = stringWriter.toString();
+        assertTrue(output.contains(">signed</data>"), output);
+        assertTrue(output.contains("<other>unsigned</other>"), output);
+        assertFalse(output.contains("Signature"), output);
+
+        xmlStreamWriter.writeEndElement();
+        xmlStreamWriter.close();
+
+        Document document = XMLUtils.read(new ByteArrayInputStream(stringWriter.toString().getBytes(UTF_8)), false);
+        Node lastChild = document.getDocumentElement().getLastChild();
+        assertEquals(XMLSecurityConstants.TAG_dsig_Signature.getLocalPart(), lastChild.getLocalName());
+    }
+
+    private void signAtEndOfRootElement(boolean secureEntireRequest) throws Exception {
+        // Set up the Configuration
+        XMLSecurityProperties properties = new XMLSecurityProperties();
+        List<XMLSecurityConstants.Action> actions = new ArrayList<>();
+        actions.add(XMLSecurityConstants.SIGNATURE);
+        properties.setActions(actions);
+        properties.setSignaturePositionEnd(true);
+
+        // Set the key up
+        KeyStore keyStore = XmlSecTestEnvironment.getTransmitterKeyStore();
+        Key key = keyStore.getKey("transmitter", TRANSMITTER_KS_PASSWORD.toCharArray());
+        properties.setSignatureKey(key);
+        X509Certificate cert = (X509Certificate) keyStore.getCertificate("transmitter");
+        properties.setSignatureCerts(new X509Certificate[]{cert});
+
+        SecurePart securePart;
+        if (secureEntireRequest) {
+            securePart = new SecurePart(null,
+                SecurePart.Modifier.Content,
+                new String[]{
+                        "http://www.w3.org/2000/09/xmldsig#enveloped-signature",
+                        "http://www.w3.org/TR/2001/REC-xml-c14n-20010315"
+                },
+                "http://www.w3.org/2000/09/xmldsig#sha1");
+            securePart.setSecureEntireRequest(true);
+        } else {
+            securePart = new SecurePart(new QName("urn:example:po", "PaymentInfo"), SecurePart.Modifier.Content);
+        }
+        properties.addSignaturePart(securePart);
+
+        byte[] output = process("ie/baltimore/merlin-examples/merlin-xmlenc-five/plaintext.xml", properties, null);
+        Document document;
+        try (InputStream is = new ByteArrayInputStream(output)) {
+            document = XMLUtils.read(is, false);
+        }
+
+        // The Signature is the last child element of the root element
+        Node lastChild = document.getDocumentElement().getLastChild();
+        while (lastChild.getNodeType() != Node.ELEMENT_NODE) {
+            lastChild = lastChild.getPreviousSibling();
+        }
+        assertEquals("Signature", lastChild.getLocalName());
+        assertEquals(1, document.getElementsByTagNameNS(XMLSecurityConstants.NS_DSIG, "Signature").getLength());
+
+        // Verify using DOM
+        verifyUsingDOM(document, cert, properties.getSignatureSecureParts());
+    }
+
+    @Test
+    void testSignWithSpillingBuffer(@TempDir Path tempDirectory) throws Exception {
+        // Set up the Configuration
+        XMLSecurityProperties properties = new XMLSecurityProperties();
+        List<XMLSecurityConstants.Action> actions = new ArrayList<>();
+        actions.add(XMLSecurityConstants.SIGNATURE);
+        properties.setActions(actions);
+        // the whole document is buffered until the Signature is written after the root element
+        properties.setOutboundBufferMemoryLimit(256);
+        properties.setOutboundBufferDirectory(tempDirectory);
+
+        // Set the key up
+        KeyStore keyStore = XmlSecTestEnvironment.getTransmitterKeyStore();
+        Key key = keyStore.getKey("transmitter", TRANSMITTER_KS_PASSWORD.toCharArray());
+        properties.setSignatureKey(key);
+        X509Certificate cert = (X509Certificate) keyStore.getCertificate("transmitter");
+        properties.setSignatureCerts(new X509Certificate[]{cert});
+
+        SecurePart securePart = new SecurePart(new QName("urn:example:po", "PaymentInfo"), SecurePart.Modifier.Content);
+        properties.addSignaturePart(securePart);
+
+        byte[] output = process("ie/baltimore/merlin-examples/merlin-xmlenc-five/plaintext.xml", properties, null);
+        Document document;
+        try (InputStream is = new ByteArrayInputStream(output)) {
+            document = XMLUtils.read(is, false);
+        }
+        assertEquals("PurchaseOrder", document.getDocumentElement().getLocalName());
+        assertEquals(1, document.getElementsByTagNameNS("urn:example:po", "PaymentInfo").getLength());
+
+        // The temporary file is deleted once the buffer is written out
+        try (Stream<Path> files = Files.list(tempDirectory)) {
+            assertEquals(0, files.count());
+        }
+
+        // Verify using DOM
+        verifyUsingDOM(document, cert, properties.getSignatureSecureParts());
+    }
+
     private void signAtSpecificPosition(int position) throws Exception {
         signAtSpecificPosition(position, null, false);
     }
@@ -24,6 +24,10 @@ import java.io.File;
 import java.io.InputStream;
 import java.net.InetSocketAddress;
 import java.net.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.security.Key;
 import java.security.KeyStore;
 import java.security.cert.X509Certificate;
@@ -31,11 +35,17 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 
+import org.apache.xml.security.exceptions.XMLSecurityException;
 import org.apache.xml.security.signature.XMLSignature;
 import org.apache.xml.security.stax.config.Init;
 import org.apache.xml.security.stax.ext.InboundXMLSec;
@@ -51,10 +61,14 @@ import org.apache.xml.security.utils.resolver.implementations.ResolverDirectHTTP
 import org.apache.xml.security.utils.resolver.implementations.ResolverLocalFilesystem;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.w3c.dom.Document;
 
 import static org.apache.xml.security.test.XmlSecTestEnvironment.TRANSMITTER_KS_PASSWORD;
 import static org.apache.xml.security.test.XmlSecTestEnvironment.resolveFile;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * These are separated out from SignatureVerificationReferenceURIResolverTest as we have to change the default configuration to set
@@ -62,6 +76,9 @@ import static org.apache.xml.security.test.XmlSecTestEnvironment.resolveFile;
  */
 class SignatureVerificationReferenceURIResolverRemoteReferenceTest extends AbstractSignatureVerificationTest {
 
+    @TempDir
+    Path tempDir;
+
     @BeforeAll
     public static void setup() throws Exception {
         XMLSec.init();
@@ -186,6 +203,154 @@ class SignatureVerificationReferenceURIResolverRemoteReferenceTest extends Abstr
         StAX2DOM.readDoc(securityStreamReader);
     }
 
+    @Test
+    void testSignatureVerificationWithPrefetchedExternalReferences() throws Exception {
+        // Read in plaintext document
+        Document document = XMLUtils.readResource("ie/baltimore/merlin-examples/merlin-xmlenc-five/plaintext.xml",
+            getClass().getClassLoader(), false);
+
+        // Set up the Key
+        KeyStore keyStore = XmlSecTestEnvironment.getTransmitterKeyStore();
+        Key key = keyStore.getKey("transmitter", TRANSMITTER_KS_PASSWORD.toCharArray());
+        X509Certificate cert = (X509Certificate) keyStore.getCertificate("transmitter");
+
+        // Sign using DOM
+        List<String> localNames = new ArrayList<>();
+        localNames.add("PaymentInfo");
+
+        List<ReferenceInfo> referenceInfos = new ArrayList<>();
+        referenceInfos.add(new ReferenceInfo(
+                resolveFile("target/test-classes/org/apache/xml/security/test/stax/signature/"
+                    + "SignatureVerificationReferenceURIResolverTest.class").toURI().toString(),
+                null,
+                "http://www.w3.org/2000/09/xmldsig#sha1",
+                true
+        ));
+        referenceInfos.add(new ReferenceInfo(
+                resolveFile("src/test/resources/ie/baltimore/merlin-examples/merlin-xmlenc-five/plaintext.xml")
+                    .toURI().toString(),
+                null,
+                "http://www.w3.org/2001/04/xmlenc#sha256",
+                true
+        ));
+
+        XMLSignature sig = signUsingDOM(
+                "http://www.w3.org/2000/09/xmldsig#rsa-sha1",
+                document,
+                localNames,
+                key,
+                referenceInfos
+        );
+
+        // Add KeyInfo
+        sig.addKeyInfo(cert);
+
+        // Convert Document to a Stream Reader
+        javax.xml.transform.Transformer transformer = transformerFactory.newTransformer();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        transformer.transform(new DOMSource(document), new StreamResult(baos));
+
+        XMLStreamReader xmlStreamReader = null;
+        try (InputStream is = new ByteArrayInputStream(baos.toByteArray())) {
+           xmlStreamReader = xmlInputFactory.createXMLStreamReader(is);
+        }
+
+        // Verify signature
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            XMLSecurityProperties properties = new XMLSecurityProperties();
+            properties.setSignatureVerificationKey(cert.getPublicKey());
+            properties.setReferencePrefetch(executor, 2);
+            InboundXMLSec inboundXMLSec = XMLSec.getInboundWSSec(properties);
+            XMLStreamReader securityStreamReader = inboundXMLSec.processInMessage(xmlStreamReader);
+
+            StAX2DOM.readDoc(securityStreamReader);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testPrefetchedExternalReferenceFailure() throws Exception {
+        Path file = Files.createTempFile(tempDir, "reference", ".xml");
+        Files.copy(resolveFile("src/test/resources/ie/baltimore/merlin-examples/merlin-xmlenc-five/plaintext.xml").toPath(),
+            file, StandardCopyOption.REPLACE_EXISTING);
+        String fileURI = file.toUri().toString();
+        byte[] signedDocument = signWithExternalReference(fileURI);
+        Files.delete(file);
+
+        XMLStreamReader xmlStreamReader = xmlInputFactory.createXMLStreamReader(new ByteArrayInputStream(signedDocument));
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            XMLSecurityProperties properties = new XMLSecurityProperties();
+            properties.setSignatureVerificationKey(
+                XmlSecTestEnvironment.getTransmitterKeyStore().getCertificate("transmitter").getPublicKey());
+            properties.setReferencePrefetch(executor, 2);
+            InboundXMLSec inboundXMLSec = XMLSec.getInboundWSSec(properties);
+            XMLStreamReader securityStreamReader = inboundXMLSec.processInMessage(xmlStreamReader);
+
+            XMLStreamException ex = assertThrows(XMLStreamException.class, () -> StAX2DOM.readDoc(securityStreamReader));
+            assertTrue(ex.getCause() instanceof XMLSecurityException);
+            assertEquals("Cannot read the content of the Reference with URI " + fileURI, ex.getCause().getMessage());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testPrefetchIsCancelledOnFailure() throws Exception {
+        String fileURI = resolveFile("src/test/resources/ie/baltimore/merlin-examples/merlin-xmlenc-five/plaintext.xml")
+            .toURI().toString();
+        String signedDocument = new String(signWithExternalReference(fileURI), StandardCharsets.UTF_8);
+        byte[] tamperedDocument = signedDocument.replace("Foo B Baz", "Foo B Bar").getBytes(StandardCharsets.UTF_8);
+
+        // The prefetch tasks are never run, so that they are still pending when the document fails
+        List<Future<?>> tasks = new ArrayList<>();
+        Executor executor = task -> tasks.add((Future<?>) task);
+
+        XMLStreamReader xmlStreamReader = xmlInputFactory.createXMLStreamReader(new ByteArrayInputStream(tamperedDocument));
+        XMLSecurityProperties properties = new XMLSecurityProperties();
+        properties.setSignatureVerificationKey(
+            XmlSecTestEnvironment.getTransmitterKeyStore().getCertificate("transmitter").getPublicKey());
+        properties.setReferencePrefetch(executor, 2);
+        InboundXMLSec inboundXMLSec = XMLSec.getInboundWSSec(properties);
+        XMLStreamReader securityStreamReader = inboundXMLSec.processInMessage(xmlStreamReader);
+
+        XMLStreamException ex = assertThrows(XMLStreamException.class, () -> StAX2DOM.readDoc(securityStreamReader));
+        assertTrue(ex.getMessage().contains("Invalid digest of reference"), ex.getMessage());
+        assertEquals(1, tasks.size());
+        assertTrue(tasks.get(0).isCancelled());
+    }
+
+    private byte[] signWithExternalReference(String fileURI) throws Exception {
+        Document document = XMLUtils.readResource("ie/baltimore/merlin-examples/merlin-xmlenc-five/plaintext.xml",
+            getClass().getClassLoader(), false);
+
+        KeyStore keyStore = XmlSecTestEnvironment.getTransmitterKeyStore();
+        Key key = keyStore.getKey("transmitter", TRANSMITTER_KS_PASSWORD.toCharArray());
+        X509Certificate cert = (X509Certificate) keyStore.getCertificate("transmitter");
+
+        List<String> localNames = new ArrayList<>();
+        localNames.add("PaymentInfo");
+
+        List<ReferenceInfo> referenceInfos = new ArrayList<>();
+        referenceInfos.add(new ReferenceInfo(fileURI, null, "http://www.w3.org/2001/04/xmlenc#sha256", true));
+
+        XMLSignature sig = signUsingDOM(
+                "http://www.w3.org/2000/09/xmldsig#rsa-sha1",
+                document,
+                localNames,
+                key,
+                referenceInfos
+        );
+        sig.addKeyInfo(cert);
+
+        javax.xml.transform.Transformer transformer = transformerFactory.newTransformer();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        transformer.transform(new DOMSource(document), new StreamResult(baos));
+        return baos.toByteArray();
+    }
+
     @Test
     void testSignatureVerificationWithExternalHttpReference() throws Exception {
 
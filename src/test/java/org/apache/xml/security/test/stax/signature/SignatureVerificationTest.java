@@ -56,6 +56,7 @@ import org.apache.xml.security.stax.securityEvent.KeyNameTokenSecurityEvent;
 import org.apache.xml.security.stax.securityEvent.KeyValueTokenSecurityEvent;
 import org.apache.xml.security.stax.securityEvent.SecurityEvent;
 import org.apache.xml.security.stax.securityEvent.SecurityEventConstants;
+import org.apache.xml.security.stax.securityEvent.SecurityEventMask;
 import org.apache.xml.security.stax.securityEvent.SignedElementSecurityEvent;
 import org.apache.xml.security.stax.securityEvent.X509TokenSecurityEvent;
 import org.apache.xml.security.stax.securityToken.SecurityTokenConstants;
@@ -70,6 +71,7 @@ import org.w3c.dom.Element;
 
 import static org.apache.xml.security.test.XmlSecTestEnvironment.TRANSMITTER_KS_PASSWORD;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
@@ -153,6 +155,61 @@ class SignatureVerificationTest extends AbstractSignatureVerificationTest {
                 signatureSecurityEvents.size() + signedElementSecurityEvents.size());
     }
 
+    @Test
+    void testRequestedSecurityEvents() throws Exception {
+        // Read in plaintext document
+        Document document = XMLUtils.readResource("ie/baltimore/merlin-examples/merlin-xmlenc-five/plaintext.xml",
+            getClass().getClassLoader(), false);
+
+        // Set up the Key
+        KeyStore keyStore = XmlSecTestEnvironment.getTransmitterKeyStore();
+        Key key = keyStore.getKey("transmitter", TRANSMITTER_KS_PASSWORD.toCharArray());
+        X509Certificate cert = (X509Certificate)keyStore.getCertificate("transmitter");
+
+        // Sign using DOM
+        List<String> localNames = new ArrayList<>();
+        localNames.add("PaymentInfo");
+        XMLSignature sig = signUsingDOM(
+            "http://www.w3.org/2000/09/xmldsig#rsa-sha1", document, localNames, key
+        );
+
+        // Add KeyInfo
+        sig.addKeyInfo(cert);
+
+        // Convert Document to a Stream Reader
+        javax.xml.transform.Transformer transformer = transformerFactory.newTransformer();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        transformer.transform(new DOMSource(document), new StreamResult(baos));
+
+        XMLStreamReader xmlStreamReader = null;
+        try (InputStream is = new ByteArrayInputStream(baos.toByteArray())) {
+           xmlStreamReader = xmlInputFactory.createXMLStreamReader(is);
+        }
+
+        // Verify signature, only listening to the signed elements
+        XMLSecurityProperties properties = new XMLSecurityProperties();
+        InboundXMLSec inboundXMLSec = XMLSec.getInboundWSSec(properties);
+        TestSecurityEventListener securityEventListener = new TestSecurityEventListener() {
+            @Override
+            public SecurityEventMask getRequestedSecurityEvents() {
+                return SecurityEventMask.of(SecurityEventConstants.SignedElement);
+            }
+        };
+        XMLStreamReader securityStreamReader =
+                inboundXMLSec.processInMessage(xmlStreamReader, null, securityEventListener);
+
+        StAX2DOM.readDoc(securityStreamReader);
+
+        assertEquals(1, securityEventListener.getSecurityEvents(SecurityEventConstants.SignedElement).size());
+        assertNull(securityEventListener.getSecurityEvent(SecurityEventConstants.SignatureValue));
+        assertNull(securityEventListener.getSecurityEvent(SecurityEventConstants.X509Token));
+        // the AlgorithmSuite events are still fired, as they are checked for MD5
+        for (SecurityEvent securityEvent : securityEventListener.getSecurityEvents()) {
+            assertTrue(SecurityEventConstants.SignedElement.equals(securityEvent.getSecurityEventType())
+                || SecurityEventConstants.AlgorithmSuite.equals(securityEvent.getSecurityEventType()));
+        }
+    }
+
     @Test
     void testMultipleElements() throws Exception {
         // Read in plaintext document
@@ -0,0 +1,136 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.utils;
+
+import java.security.Key;
+import java.security.KeyPair;
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.crypto.KeyGenerator;
+
+import org.apache.xml.security.Init;
+import org.apache.xml.security.algorithms.MessageDigestAlgorithm;
+import org.apache.xml.security.encryption.EncryptedKey;
+import org.apache.xml.security.encryption.XMLCipher;
+import org.apache.xml.security.encryption.params.ConcatKDFParams;
+import org.apache.xml.security.encryption.params.KeyAgreementParameters;
+import org.apache.xml.security.test.dom.TestUtils;
+import org.apache.xml.security.testutils.KeyTestUtils;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit test for {@link EphemeralKeyPairPool}
+ */
+class EphemeralKeyPairPoolTest {
+    static {
+        Init.init();
+    }
+
+    @Test
+    void testRefillBelowLowWaterMark() throws Exception {
+        List<Runnable> tasks = new ArrayList<>();
+        EphemeralKeyPairPool pool = new EphemeralKeyPairPool(4, 2, tasks::add);
+        PublicKey recipientKey = KeyTestUtils.generateKeyPair(KeyUtils.KeyType.SECP256R1).getPublic();
+
+        pool.prepare(recipientKey);
+        assertEquals(1, tasks.size());
+        // A second request doesn't start another refill while one is pending
+        pool.prepare(recipientKey);
+        assertEquals(1, tasks.size());
+        tasks.remove(0).run();
+        assertEquals(4, pool.available(recipientKey));
+
+        Set<PublicKey> publicKeys = new HashSet<>();
+        publicKeys.add(pool.take(recipientKey).getPublic());
+        publicKeys.add(pool.take(recipientKey).getPublic());
+        assertEquals(2, pool.available(recipientKey));
+        assertTrue(tasks.isEmpty());
+
+        publicKeys.add(pool.take(recipientKey).getPublic());
+        assertEquals(1, pool.available(recipientKey));
+        assertEquals(1, tasks.size());
+        tasks.remove(0).run();
+        assertEquals(4, pool.available(recipientKey));
+
+        for (int i = 0; i < 4; i++) {
+            publicKeys.add(pool.take(recipientKey).getPublic());
+        }
+        // Every key pair is handed out once
+        assertEquals(7, publicKeys.size());
+    }
+
+    @Test
+    void testKeyPairsPerCurve() throws Exception {
+        EphemeralKeyPairPool pool = new EphemeralKeyPairPool(2, 1, Runnable::run);
+        PublicKey p256Key = KeyTestUtils.generateKeyPair(KeyUtils.KeyType.SECP256R1).getPublic();
+        PublicKey p384Key = KeyTestUtils.generateKeyPair(KeyUtils.KeyType.SECP384R1).getPublic();
+        PublicKey x25519Key = KeyTestUtils.generateKeyPair(KeyUtils.KeyType.X25519).getPublic();
+
+        for (PublicKey recipientKey : new PublicKey[] {p256Key, p384Key, x25519Key}) {
+            KeyPair keyPair = pool.take(recipientKey);
+            assertEquals(recipientKey.getAlgorithm(), keyPair.getPublic().getAlgorithm());
+            assertEquals(KeyUtils.getEphemeralDHKeyOid(recipientKey),
+                KeyUtils.getEphemeralDHKeyOid(keyPair.getPublic()));
+            assertEquals(2, pool.available(recipientKey));
+        }
+    }
+
+    @Test
+    void testEmptyPoolGeneratesKeyPair() throws Exception {
+        // The Executor never runs the refill
+        EphemeralKeyPairPool pool = new EphemeralKeyPairPool(2, 1, task -> { });
+        PublicKey recipientKey = KeyTestUtils.generateKeyPair(KeyUtils.KeyType.SECP256R1).getPublic();
+        assertNotNull(pool.take(recipientKey));
+        assertEquals(0, pool.available(recipientKey));
+    }
+
+    @Test
+    void testWrapKeyWithPooledKeyPair() throws Exception {
+        KeyPair recipientKeyPair = KeyTestUtils.generateKeyPair(KeyUtils.KeyType.SECP256R1);
+        EphemeralKeyPairPool pool = new EphemeralKeyPairPool(2, 1, Runnable::run);
+        pool.prepare(recipientKeyPair.getPublic());
+
+        KeyGenerator keygen = KeyGenerator.getInstance("AES");
+        keygen.init(128);
+        Key symmetricKey = keygen.generateKey();
+
+        XMLCipher cipherEncKey = XMLCipher.getInstance(XMLCipher.AES_128_KeyWrap);
+        cipherEncKey.init(XMLCipher.WRAP_MODE, recipientKeyPair.getPublic());
+        cipherEncKey.setEphemeralKeyPairPool(pool);
+        KeyAgreementParameters parameterSpec = new KeyAgreementParameters(
+                KeyAgreementParameters.ActorType.ORIGINATOR,
+                EncryptionConstants.ALGO_ID_KEYAGREEMENT_ECDH_ES,
+                ConcatKDFParams.createBuilder(128, MessageDigestAlgorithm.ALGO_ID_DIGEST_SHA256).build());
+        EncryptedKey encryptedKey =
+            cipherEncKey.encryptKey(TestUtils.newDocument(), symmetricKey, parameterSpec, null);
+
+        XMLCipher cipherDecKey = XMLCipher.getInstance();
+        cipherDecKey.init(XMLCipher.UNWRAP_MODE, recipientKeyPair.getPrivate());
+        Key decryptedKey = cipherDecKey.decryptKey(encryptedKey, encryptedKey.getEncryptionMethod().getAlgorithm());
+        assertEquals(symmetricKey, decryptedKey);
+    }
+}